@@ -1,4 +1,8 @@
+import java.io.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 // Class AVLTree is balanced tree in which each node k being larger than k's left subtree's nodes and smaller than or equal to k's right subtree's nodes
 public class AVLTree<T extends Comparable<? super T>,V> implements TreeWithComparableKey<T,V>{
   
@@ -14,24 +18,165 @@ public class AVLTree<T extends Comparable<? super T>,V> implements TreeWithCompa
     // the height of the node
     private int height;
     
+    // the number of nodes in the subtree rooted at the node (including the node itself)
+    private int size;
+    
     // the left child of the node
     private AVLNode<T,V> left;
     
     // the right child of the node
     private AVLNode<T,V> right;
     
+    // the summary of the subtree rooted at the node made by augmentation (null if the AVL tree has no augmentation)
+    private Object summary;
+    
     /**
      * Initialize the node with initialization of node's key and node's value
      */
     private AVLNode(T key, V value){
       this.key = key;
       this.value = value;
+      this.size = 1;
+    }
+  }
+  
+  // Class Split is used to store the 3 parts of a subtree after splitting it by a key
+  private class Split{
+    
+    // the root of the part having keys that are smaller than the key
+    private AVLNode<T,V> less;
+    
+    // the root of the part having keys that are equal to the key
+    private AVLNode<T,V> equal;
+    
+    // the root of the part having keys that are larger than the key
+    private AVLNode<T,V> greater;
+  }
+  
+  // Enum SetOperation is used to choose the set operation done by setOperation(SetOperation operation, AVLNode<T,V> first, AVLNode<T,V> second)
+  private enum SetOperation{
+    UNION, INTERSECTION, DIFFERENCE
+  }
+  
+  // Class SetOperationTask is used to run setOperation(SetOperation operation, AVLNode<T,V> first, AVLNode<T,V> second) as a task of a fork/join pool
+  private class SetOperationTask extends RecursiveTask<AVLNode<T,V>>{
+    
+    // the version of the serialized form, which RecursiveTask requires since it is Serializable (tasks are never serialized)
+    private static final long serialVersionUID = 1L;
+    
+    // the set operation to do
+    private final SetOperation operation;
+    
+    // the root of the first subtree
+    private final AVLNode<T,V> first;
+    
+    // the root of the second subtree
+    private final AVLNode<T,V> second;
+    
+    /**
+     * Initialize the task with the set operation and the roots of the 2 subtrees
+     */
+    private SetOperationTask(SetOperation operation, AVLNode<T,V> first, AVLNode<T,V> second){
+      this.operation = operation;
+      this.first = first;
+      this.second = second;
+    }
+    
+    /**
+     * Do the set operation and return the root of the result
+     */
+    protected AVLNode<T,V> compute(){
+      return setOperation(operation, first, second);
     }
   }
   
+  // the smallest total number of nodes of 2 subtrees for which setOperation(SetOperation operation, AVLNode<T,V> first, AVLNode<T,V> second) handles their left parts in a separate task
+  private static final int PARALLEL_CUTOFF = 1 << 12;
+  
+  // Class ReduceTask is used to run reduceNode(AVLNode<T,V> node, R identity, BiFunction mapper, BinaryOperator<R> combiner) as a task of a fork/join pool
+  private class ReduceTask<R> extends RecursiveTask<R>{
+    
+    // the version of the serialized form, which RecursiveTask requires since it is Serializable (tasks are never serialized)
+    private static final long serialVersionUID = 1L;
+    
+    // the root of the subtree to reduce
+    private final AVLNode<T,V> node;
+    
+    // the result of an empty subtree
+    private final R identity;
+    
+    // the function mapping the key and value of each node to a result
+    private final BiFunction<? super T,? super V,? extends R> mapper;
+    
+    // the function combining the results of 2 parts of the subtree, the first part being before the second part in inorder traversal
+    private final BinaryOperator<R> combiner;
+    
+    /**
+     * Initialize the task with the root of the subtree and the functions of the reduction
+     */
+    private ReduceTask(AVLNode<T,V> node, R identity, BiFunction<? super T,? super V,? extends R> mapper, BinaryOperator<R> combiner){
+      this.node = node;
+      this.identity = identity;
+      this.mapper = mapper;
+      this.combiner = combiner;
+    }
+    
+    /**
+     * Reduce the subtree and return the result
+     */
+    protected R compute(){
+      return reduceNode(node, identity, mapper, combiner);
+    }
+  }
+  
+  // Class InorderTask is used to run fillInorder(AVLNode<T,V> node, Object[] array, int offset) as a task of a fork/join pool
+  private class InorderTask extends RecursiveAction{
+    
+    // the version of the serialized form, which RecursiveAction requires since it is Serializable (tasks are never serialized)
+    private static final long serialVersionUID = 1L;
+    
+    // the root of the subtree whose values are stored
+    private final AVLNode<T,V> node;
+    
+    // the array the values are stored in
+    private final Object[] array;
+    
+    // the index in array of the smallest node of the subtree
+    private final int offset;
+    
+    /**
+     * Initialize the task with the root of the subtree, the array and the index of the subtree's smallest node in the array
+     */
+    private InorderTask(AVLNode<T,V> node, Object[] array, int offset){
+      this.node = node;
+      this.array = array;
+      this.offset = offset;
+    }
+    
+    /**
+     * Store the values of the subtree in the array
+     */
+    protected void compute(){
+      fillInorder(node, array, offset);
+    }
+  }
+  
+  // the largest height of an AVL tree whose number of nodes fits in an int (an AVL tree of height h has at least F(h + 3) - 1 nodes, F being the Fibonacci numbers, and F(47) - 1 is larger than Integer.MAX_VALUE),
+  // so no way down from root visits more than MAX_HEIGHT + 1 nodes
+  private static final int MAX_HEIGHT = 43;
+  
+  // the smallest number of nodes of a subtree for which reduceNode and fillInorder handle its left subtree in a separate task (smaller subtrees are traversed on the current thread)
+  private static final int PARALLEL_TRAVERSAL_CUTOFF = 1 << 13;
+  
   // the root of the AVL tree
   private AVLNode<T,V> root;
   
+  // the metrics recording each insert, search and delete (null if the AVL tree does not record metrics)
+  private TreeMetrics metrics;
+  
+  // the augmentation keeping the summary of each subtree (null if the AVL tree has no augmentation)
+  private Augmentation<T,V,Object> augmentation;
+  
   /**
    * Initialize the AVL tree with root being null
    */
@@ -39,6 +184,60 @@ public class AVLTree<T extends Comparable<? super T>,V> implements TreeWithCompa
     root = null;
   }
   
+  /**
+   * Return a perfectly balanced AVL tree built from the entries in input, which should be sorted by key in nondecreasing order
+   * (throw IllegalArgumentException if they are not sorted); entries having same key keep their order in input
+   * Time complexity: O(N) (N is number of nodes in the AVL tree)
+   */
+  public static <T extends Comparable<? super T>,V> AVLTree<T,V> bulkLoad(Iterator<Map.Entry<T,V>> entries){
+    // list is used to store the entries from input so that the middle entry of any range can be found in O(1)
+    List<Map.Entry<T,V>> list = new ArrayList<Map.Entry<T,V>>();
+    while(entries.hasNext()){
+      Map.Entry<T,V> entry = entries.next();
+      if(!list.isEmpty() && list.get(list.size() - 1).getKey().compareTo(entry.getKey()) > 0){
+        throw new IllegalArgumentException("entries are not sorted by key: " + entry.getKey() + " comes after " + list.get(list.size() - 1).getKey());
+      }
+      list.add(entry);
+    }
+    AVLTree<T,V> tree = new AVLTree<T,V>();
+    tree.root = tree.buildBalanced(list, 0, list.size());
+    return tree;
+  }
+  
+  /**
+   * Return a perfectly balanced AVL tree built from the entries in input, which can be in any order;
+   * sort the entries by key first (in parallel when there are many entries), keeping the order in input of entries having same key
+   * Time complexity: O(NlogN) (N is number of nodes in the AVL tree)
+   */
+  public static <T extends Comparable<? super T>,V> AVLTree<T,V> bulkLoadUnsorted(Iterator<Map.Entry<T,V>> entries){
+    // list is used to store the entries from input to sort them
+    List<Map.Entry<T,V>> list = new ArrayList<Map.Entry<T,V>>();
+    entries.forEachRemaining(list::add);
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Map.Entry<T,V>[] array = list.toArray(new Map.Entry[list.size()]);
+    // Arrays.parallelSort is a stable sort which only uses multiple threads when the array is large enough
+    Arrays.parallelSort(array, Map.Entry.comparingByKey());
+    return bulkLoad(Arrays.asList(array).iterator());
+  }
+  
+  /**
+   * Help method bulkLoad(Iterator<Map.Entry<T,V>> entries) by using recursion to build a perfectly balanced subtree from the entries in list with index from from (inclusive) to to (exclusive),
+   * choosing the middle entry as the subtree's root; return null if the range is empty
+   * Time complexity: O(to - from)
+   */
+  private AVLNode<T,V> buildBalanced(List<Map.Entry<T,V>> list, int from, int to){
+    if(from >= to){
+      return null;
+    }
+    // Create the node with the middle entry, build its left and right subtrees from the entries before and after the middle entry, then update the height and the size of the new node
+    int middle = (from + to) >>> 1;
+    AVLNode<T,V> node = new AVLNode<T,V>(list.get(middle).getKey(), list.get(middle).getValue());
+    node.left = buildBalanced(list, from, middle);
+    node.right = buildBalanced(list, middle + 1, to);
+    updateNodeHeight(node);
+    return node;
+  }
+  
   /**
    * Return the height of the node in input
    * Time complexity: O(1)
@@ -55,11 +254,46 @@ public class AVLTree<T extends Comparable<? super T>,V> implements TreeWithCompa
   }
   
   /**
-   * Update the height of the node in input after making change to tree (should be updated after that node's children's heights are updated)
+   * Return the size of the subtree rooted at the node in input
+   * Time complexity: O(1)
+   */
+  private int getNodeSize(AVLNode<T,V> node){
+    // If node in input is null, return 0
+    if(node == null){
+      return 0;
+    }
+    // Otherwise, return node's size
+    else{
+      return node.size;
+    }
+  }
+  
+  /**
+   * Return the summary of the subtree rooted at the node in input (the AVL tree should have an augmentation)
    * Time complexity: O(1)
    */
+  private Object getNodeSummary(AVLNode<T,V> node){
+    // If node in input is null, return the summary of an empty subtree
+    if(node == null){
+      return augmentation.identity();
+    }
+    // Otherwise, return node's summary
+    else{
+      return node.summary;
+    }
+  }
+  
+  /**
+   * Update the height, the size and the summary (if the AVL tree has an augmentation) of the node in input after making change to tree
+   * (should be updated after that node's children's heights, sizes and summaries are updated)
+   * Time complexity: O(1) plus the time complexity of the augmentation's summarize and combine
+   */
   private void updateNodeHeight(AVLNode<T,V> node){
     node.height = Math.max(getNodeHeight(node.left), getNodeHeight(node.right)) + 1;
+    node.size = getNodeSize(node.left) + getNodeSize(node.right) + 1;
+    if(augmentation != null){
+      node.summary = augmentation.combine(augmentation.combine(getNodeSummary(node.left), augmentation.summarize(node.key, node.value)), getNodeSummary(node.right));
+    }
   }
   
   /**
@@ -115,22 +349,22 @@ public class AVLTree<T extends Comparable<? super T>,V> implements TreeWithCompa
     int nodeBalance = getNodeBalance(node);
     /**
      * If nodeBalance is smaller than -1:
-     * do left rotation around left node of input node if height of left child of input node's left child is smaller than or equal to height of right child of input node's left child;
+     * do left rotation around left node of input node if height of left child of input node's left child is smaller than height of right child of input node's left child;
      * do right rotation around the input node
      */
     if(nodeBalance < -1){
-      if(getNodeHeight(node.left.left) <= getNodeHeight(node.left.right)){
+      if(getNodeHeight(node.left.left) < getNodeHeight(node.left.right)){
         node.left = leftRotate(node.left);
       }
       node = rightRotate(node);
     }
     /**
      * If nodeBalance is larger than 1:
-     * do right rotation around right node of input node if height of left child of input node's right child is larger than or equal to height of right child of input node's right child;
+     * do right rotation around right node of input node if height of left child of input node's right child is larger than height of right child of input node's right child;
      * do left rotation around the input node
      */
     else if(nodeBalance > 1){
-      if(getNodeHeight(node.right.left) >= getNodeHeight(node.right.right)){
+      if(getNodeHeight(node.right.left) > getNodeHeight(node.right.right)){
         node.right = rightRotate(node.right);
       }
       node = leftRotate(node);
@@ -139,180 +373,1134 @@ public class AVLTree<T extends Comparable<? super T>,V> implements TreeWithCompa
   }
   
   /**
-   * Help method insert(T key, V value) by using recursion, continue calling itself until input node is null and return a new node with input key and input value
+   * Help method insert(T key, V value) and delete(T key) by rebalancing the nodes in path from the deepest one to the shallowest one after making change to tree,
+   * with path storing the nodes on the way from root to the changed node (the top of path is the deepest node);
+   * stop early when a node's height is unchanged after rebalancing because heights and balances of its ancestors are then unchanged too, unless the AVL tree has an augmentation whose summaries of the ancestors have changed;
+   * return the number of rotations done, which is counted by each operation itself since the workers of union, intersection and difference rotate nodes at the same time
    * Time complexity: O(logN) (N is number of nodes in the AVL tree)
    */
-  private AVLNode<T,V> recurInsert(AVLNode<T,V> node, T key, V value){
-    // If input node is null, return a new node with input key and input value
-    if(node == null){
-      return new AVLNode<T,V>(key, value);
+  private int rebalancePath(Deque<AVLNode<T,V>> path){
+    // rotations is used to count the rotations done
+    int rotations = 0;
+    while(!path.isEmpty()){
+      // node is the deepest node in path which has not been rebalanced, oldHeight is its height before rebalancing, and left and right are its children before rebalancing
+      AVLNode<T,V> node = path.pop();
+      int oldHeight = node.height;
+      AVLNode<T,V> left = node.left;
+      AVLNode<T,V> right = node.right;
+      AVLNode<T,V> rebalancedNode = rebalanceNode(node);
+      // A single rotation moves a child of node up in its place, while a double rotation moves a grandchild of node up
+      if(rebalancedNode != node){
+        rotations += (rebalancedNode == left || rebalancedNode == right) ? 1 : 2;
+      }
+      // Set the rebalanced node as root if node is root, or as the child of node's parent (the next node in path) otherwise
+      if(path.isEmpty()){
+        root = rebalancedNode;
+      }
+      else if(path.peek().left == node){
+        path.peek().left = rebalancedNode;
+      }
+      else{
+        path.peek().right = rebalancedNode;
+      }
+      // If height is unchanged and there are no summaries to update, the rest of path does not need to be rebalanced
+      if(rebalancedNode.height == oldHeight && augmentation == null){
+        break;
+      }
     }
-    // Otherwise, if input key is larger than or equal to input node's key, continue calling this helper method with input node's right child, input key, and input value
-    else if(key.compareTo(node.key) >= 0){
-      node.right = recurInsert(node.right, key, value);
+    return rotations;
+  }
+  
+  /**
+   * Join the subtree rooted at left, the node middle and the subtree rooted at right into one AVL subtree and return its root
+   * (all keys in left should be smaller than or equal to middle's key, which should be smaller than or equal to all keys in right);
+   * go down along the side of the taller subtree until reaching a subtree whose height is close to the shorter subtree's height, put middle there and rebalance the nodes on the way back
+   * Time complexity: O(|height of left - height of right| + 1)
+   */
+  private AVLNode<T,V> joinNodes(AVLNode<T,V> left, AVLNode<T,V> middle, AVLNode<T,V> right){
+    // If left is taller by more than 1, join middle and right with the right child of left, then rebalance left
+    if(getNodeHeight(left) > getNodeHeight(right) + 1){
+      left.right = joinNodes(left.right, middle, right);
+      return rebalanceNode(left);
     }
-    // Otherwise, continue calling this helper method with input node's left child, input key, and input value
+    // Otherwise, if right is taller by more than 1, join left and middle with the left child of right, then rebalance right
+    else if(getNodeHeight(right) > getNodeHeight(left) + 1){
+      right.left = joinNodes(left, middle, right.left);
+      return rebalanceNode(right);
+    }
+    // Otherwise, the heights are close, so left and right become the children of middle
     else{
-      node.left = recurInsert(node.left, key, value);
+      middle.left = left;
+      middle.right = right;
+      updateNodeHeight(middle);
+      return middle;
     }
-    // Rebalance node to make sure that each node has balanced from -1 to 1
-    return rebalanceNode(node);
   }
   
   /**
-   * Insert a node with key and associated value to the AVL tree by calling recurInsert(AVLNode<T,V> node, T key, V value) with root, input key, and input value
+   * Remove the node with the largest key from the subtree rooted at node in input;
+   * return a Split whose less is the root of the remaining subtree and whose equal is the removed node
    * Time complexity: O(logN) (N is number of nodes in the AVL tree)
    */
-  public void insert(T key, V value){
-    root = recurInsert(root, key, value);
+  private Split splitLast(AVLNode<T,V> node){
+    // If node has no right child, node is the largest one and its left child is the remaining subtree
+    if(node.right == null){
+      Split split = new Split();
+      split.less = node.left;
+      split.equal = node;
+      return split;
+    }
+    // Otherwise, remove the largest node from node's right subtree and rebalance node
+    Split split = splitLast(node.right);
+    node.right = split.less;
+    split.less = rebalanceNode(node);
+    return split;
   }
   
   /**
-   * Help method search(T key) by using recursion, continue calling itself until root from input is null (return null) or reaching the node that has same key as key from input (return that node)
+   * Join the subtrees rooted at left and right into one AVL subtree and return its root (all keys in left should be smaller than or equal to all keys in right),
+   * by removing the largest node of left and using it as the middle node of joinNodes(AVLNode<T,V> left, AVLNode<T,V> middle, AVLNode<T,V> right)
    * Time complexity: O(logN) (N is number of nodes in the AVL tree)
    */
-  private AVLNode<T,V> recurSearch(AVLNode<T,V> root, T key){
-    // If root from input is null, return null
-    // Time complexity: O(1)
-    if(root == null){
-      return null;
+  private AVLNode<T,V> joinTwo(AVLNode<T,V> left, AVLNode<T,V> right){
+    if(left == null){
+      return right;
+    }
+    if(right == null){
+      return left;
+    }
+    Split split = splitLast(left);
+    return joinNodes(split.less, split.equal, right);
+  }
+  
+  /**
+   * Split the subtree rooted at node in input by the key from input into the parts having keys that are smaller than, equal to and larger than that key, which are AVL subtrees;
+   * go down from node in input by the key from input and join the subtrees hanging off the way on each side
+   * Time complexity: O(logN + D) (N is number of nodes in the AVL tree, D is number of nodes having key that is equal to key from input)
+   */
+  private Split splitNode(AVLNode<T,V> node, T key){
+    // If node in input is null, all 3 parts are empty
+    if(node == null){
+      return new Split();
     }
-    // Otherwise, if key from input is equal to key of root from input, return root
-    else if(key.compareTo(root.key) == 0){
-      return root;
+    int comparison = key.compareTo(node.key);
+    // If key from input is smaller than node's key, split node's left subtree and join its larger part with node and node's right subtree
+    if(comparison < 0){
+      Split split = splitNode(node.left, key);
+      split.greater = joinNodes(split.greater, node, node.right);
+      return split;
     }
-    // Otherwise, if key from input is larger than key of root from input, continue searching with the root's right and key from input
-    else if(key.compareTo(root.key) > 0){
-      return recurSearch(root.right, key);
+    // Otherwise, if key from input is larger than node's key, split node's right subtree and join node's left subtree and node with its smaller part
+    else if(comparison > 0){
+      Split split = splitNode(node.right, key);
+      split.less = joinNodes(node.left, node, split.less);
+      return split;
     }
-    // Otherwise, continue searching with the root's left and key from input
+    // Otherwise, nodes having same key can be on both sides of node, so split both subtrees and join their equal parts with node
     else{
-      return recurSearch(root.left, key);
+      Split leftSplit = splitNode(node.left, key);
+      Split rightSplit = splitNode(node.right, key);
+      Split split = new Split();
+      split.less = leftSplit.less;
+      split.equal = joinNodes(leftSplit.equal, node, rightSplit.equal);
+      split.greater = rightSplit.greater;
+      return split;
     }
   }
   
   /**
-   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return null if there is no such node like that
-   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   * Do the set operation on the subtrees rooted at first and second and return the root of the result, where nodes of first are reused and nodes of second are reused only by UNION:
+   * UNION keeps all nodes of both subtrees, INTERSECTION keeps nodes of first whose keys are in second, DIFFERENCE keeps nodes of first whose keys are not in second;
+   * split first by the key of second's root, do the set operation on the smaller parts and on the larger parts (in parallel for large subtrees), then join the results
+   * Time complexity: O(Mlog(N/M + 1)) work and O(log^2 N) span (M and N are numbers of nodes in the smaller and the larger subtree)
    */
-  public V search(T key){
-    // If there is no such node which has key that is equal to key from input, return null
-    // Time complexity: O(1)
-    if(recurSearch(root, key) == null){
-      return null;
+  private AVLNode<T,V> setOperation(SetOperation operation, AVLNode<T,V> first, AVLNode<T,V> second){
+    // If second is empty, only UNION and DIFFERENCE keep first
+    if(second == null){
+      return (operation == SetOperation.INTERSECTION) ? null : first;
+    }
+    // If first is empty, only UNION keeps second
+    if(first == null){
+      return (operation == SetOperation.UNION) ? second : null;
+    }
+    boolean parallel = getNodeSize(first) + getNodeSize(second) >= PARALLEL_CUTOFF;
+    AVLNode<T,V> secondLeft = second.left;
+    AVLNode<T,V> secondRight = second.right;
+    Split split = splitNode(first, second.key);
+    // Do the set operation on the smaller parts and on the larger parts, forking a task for the smaller parts when the subtrees are large
+    AVLNode<T,V> left;
+    AVLNode<T,V> right;
+    if(parallel){
+      SetOperationTask leftTask = new SetOperationTask(operation, split.less, secondLeft);
+      leftTask.fork();
+      right = setOperation(operation, split.greater, secondRight);
+      left = leftTask.join();
     }
-    // Otherwise, call recurSearch(Node<T,V> root, T key) and return value in node returned by that method
-    // Time complexity: O(logN) (N is number of nodes in the AVL tree)
     else{
-      return recurSearch(root, key).value;
+      left = setOperation(operation, split.less, secondLeft);
+      right = setOperation(operation, split.greater, secondRight);
+    }
+    /**
+     * UNION keeps the nodes of first having same key as second's root and second's root itself;
+     * INTERSECTION keeps the nodes of first having same key as second's root;
+     * DIFFERENCE keeps neither
+     */
+    if(operation == SetOperation.UNION){
+      return joinNodes(joinTwo(left, split.equal), second, right);
+    }
+    else if(operation == SetOperation.INTERSECTION){
+      return joinTwo(joinTwo(left, split.equal), right);
+    }
+    else{
+      return joinTwo(left, right);
     }
   }
   
   /**
-   * Help recurDelete(AVLNode<T,V> node, T key) by finding and returning the smallest descendant of the node in input
+   * Return the root of a copy of the subtree rooted at node in input by using recursion, whose summaries are made by the augmentation of the AVL tree (the subtree may be from another AVL tree)
+   * Time complexity: O(N) (N is number of nodes in the subtree)
+   */
+  private AVLNode<T,V> copyNode(AVLNode<T,V> node){
+    if(node == null){
+      return null;
+    }
+    AVLNode<T,V> copy = new AVLNode<T,V>(node.key, node.value);
+    copy.left = copyNode(node.left);
+    copy.right = copyNode(node.right);
+    updateNodeHeight(copy);
+    return copy;
+  }
+  
+  /**
+   * Insert a node with key and associated value to the AVL tree without recursion, then rebalance the nodes on the way from root to the new node
    * Time complexity: O(logN) (N is number of nodes in the AVL tree)
    */
-  private AVLNode<T,V> findSmallestDescendant(AVLNode<T,V> node){
-    // If left child of node in input is null, return node
-    // Time complexity: O(1)
-    if(node.left == null){
-      return node;
+  public void insert(T key, V value){
+    // start is the time the insert starts if the AVL tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // nodeToInsert is the new node with input key and input value
+    AVLNode<T,V> nodeToInsert = new AVLNode<T,V>(key, value);
+    updateNodeHeight(nodeToInsert);
+    // If the AVL tree is empty, set root as nodeToInsert
+    if(root == null){
+      root = nodeToInsert;
+      record(TreeMetrics.Operation.INSERT, start, 0, 0, 0);
+      return;
+    }
+    // path is used to store the nodes on the way from root to the new node's parent
+    Deque<AVLNode<T,V>> path = new ArrayDeque<AVLNode<T,V>>();
+    // pointer is used to go down in the AVL tree based on the input key
+    AVLNode<T,V> pointer = root;
+    // goRight stores whether the last move of pointer is to the right
+    boolean goRight = false;
+    /**
+     * Use pointer to go down in the AVL tree until it is null (if input key is larger than or equal to pointer's key, go to the right; otherwise, go to the left);
+     * push each node on the way to path and increase its size since the new node will be in its subtree
+     */
+    while(pointer != null){
+      pointer.size++;
+      path.push(pointer);
+      goRight = key.compareTo(pointer.key) >= 0;
+      pointer = goRight ? pointer.right : pointer.left;
+    }
+    // Set nodeToInsert as the child of the last node on the way, then rebalance the nodes in path
+    if(goRight){
+      path.peek().right = nodeToInsert;
     }
-    // If left child of node in input is not null, continue with the left child of node in input
     else{
-      return findSmallestDescendant(node.left);
+      path.peek().left = nodeToInsert;
+    }
+    // depth is the number of nodes on the way, each compared once with input key
+    int depth = path.size();
+    int rotations = rebalancePath(path);
+    record(TreeMetrics.Operation.INSERT, start, depth, rotations, depth);
+  }
+  
+  /**
+   * Throw ConcurrentModificationException if depth (the number of nodes visited on the way down from root) is larger than MAX_HEIGHT + 1, which no AVL tree allows;
+   * this only happens to a reader without lock (see ConcurrentAVLTree) seeing the nodes in the middle of a rotation, so its way down ends even if it sees a cycle
+   * Time complexity: O(1)
+   */
+  private static void checkDepth(int depth){
+    if(depth > MAX_HEIGHT + 1){
+      throw new ConcurrentModificationException("the AVL tree is changed during a read");
     }
   }
   
   /**
-   * Help method recurDelete(AVLNode<T,V> node, T key) by using recursion to delete the node having key that is equal to input key
+   * Help method search(T key), containsKey(T key) and getOrDefault(T key, V defaultValue) by going down in the AVL tree with a loop until pointer is null (return null) or reaching the node that has same key as key from input (return that node)
+   * Only one comparison is made between key from input and each node's key on the way; the search is recorded into metrics if the AVL tree records metrics
    * Time complexity: O(logN) (N is number of nodes in the AVL tree)
    */
-  private AVLNode<T,V> recurDelete(AVLNode<T,V> node, T key){
-    // If input node is null, return the input node
-    // Time complexity: O(1)
-    if(node == null){
-      return node;
+  private AVLNode<T,V> findNode(T key){
+    // start is the time the search starts if the AVL tree records metrics
+    long start = startTime();
+    // depth is used to count the nodes on the way, each compared once with key from input
+    int depth = 0;
+    // pointer is used to go down in the AVL tree based on the key from input
+    AVLNode<T,V> pointer = root;
+    while(pointer != null){
+      depth++;
+      // comparison stores the result of comparing key from input with pointer's key
+      int comparison = key.compareTo(pointer.key);
+      // If key from input is equal to pointer's key, stop at pointer
+      if(comparison == 0){
+        break;
+      }
+      // Otherwise, if key from input is larger than pointer's key, go to the right; otherwise, go to the left
+      pointer = (comparison > 0) ? pointer.right : pointer.left;
     }
-    // Otherwise, if input key is smaller than input node's key, continue calling this helper method with input node's left child and input key
-    else if(key.compareTo(node.key) < 0){
-      node.left = recurDelete(node.left, key);
+    recordSearch(start, depth);
+    return pointer;
+  }
+  
+  /**
+   * Return the entry of the first node encountered which has key that is equal to the key from input, or return null if there is no such node like that, without recording into metrics;
+   * the way down ends with ConcurrentModificationException once it is longer than any AVL tree allows (see checkDepth), and the number of nodes on the way is stored in depth[0] unless depth is null
+   * Used only by ConcurrentAVLTree, whose readers take no lock and record only the search they keep by recordSearch(long start, int depth)
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   */
+  Map.Entry<T,V> findEntryBounded(T key, int[] depth){
+    // count is used to count the nodes on the way
+    int count = 0;
+    // pointer is used to go down in the AVL tree based on the key from input
+    AVLNode<T,V> pointer = root;
+    while(pointer != null){
+      checkDepth(++count);
+      // comparison stores the result of comparing key from input with pointer's key
+      int comparison = key.compareTo(pointer.key);
+      // If key from input is equal to pointer's key, stop at pointer
+      if(comparison == 0){
+        break;
+      }
+      // Otherwise, if key from input is larger than pointer's key, go to the right; otherwise, go to the left
+      pointer = (comparison > 0) ? pointer.right : pointer.left;
     }
-    // Otherwise, if input key is larger than input node's key, continue calling this helper method with input node's right child and input key
-    else if(key.compareTo(node.key) > 0){
-      node.right = recurDelete(node.right, key);
+    if(depth != null){
+      depth[0] = count;
     }
+    return toEntry(pointer);
+  }
+  
+  /**
+   * Return the current time in nanoseconds if the AVL tree records metrics, or 0 otherwise (so a tree without metrics does not read the clock)
+   * Time complexity: O(1)
+   */
+  long startTime(){
+    return (metrics != null) ? System.nanoTime() : 0L;
+  }
+  
+  /**
+   * Record a search which started at start and visited the depth in input, comparing once with each node on the way; do nothing if the AVL tree does not record metrics
+   * Time complexity: O(1)
+   */
+  void recordSearch(long start, int depth){
+    if(metrics != null){
+      metrics.record(TreeMetrics.Operation.SEARCH, System.nanoTime() - start, depth, 0, depth);
+    }
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return null if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   */
+  public V search(T key){
+    return getOrDefault(key, null);
+  }
+  
+  /**
+   * Return true if key is larger than bound, or if inclusive is true and key is equal to bound; return false otherwise
+   * Time complexity: O(1)
+   */
+  private boolean isAbove(T key, T bound, boolean inclusive){
+    int comparison = key.compareTo(bound);
+    return comparison > 0 || (inclusive && comparison == 0);
+  }
+  
+  /**
+   * Help method floor(T key), ceiling(T key), lower(T key) and higher(T key) by going down in the AVL tree to find the closest node to key from input:
+   * if below is true, return the node with the largest key which is smaller than key from input (or equal to it when inclusive is true);
+   * otherwise, return the node with the smallest key which is larger than key from input (or equal to it when inclusive is true);
+   * return null if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   */
+  private AVLNode<T,V> findClosestNode(T key, boolean below, boolean inclusive){
+    // closestNode is used to store the closest node found which satisfies the condition
+    AVLNode<T,V> closestNode = null;
+    // pointer is used to go down in the AVL tree based on the key from input
+    AVLNode<T,V> pointer = root;
     /**
-     * Otherwise, if input node has 2 children, find the descendant with smallest key of input node's right child,
-     * use key and value of that descendant as key and value of input node respectively;
-     * then recursively call this helper method using right child and key of input node after its key and value is updated
+     * If pointer satisfies the condition, store it in closestNode and go to the side where closer nodes can be (the right if below is true, the left otherwise);
+     * otherwise, go to the other side
      */
-    else if(node.left != null && node.right != null){
-      AVLNode<T,V> rightSmallestDescendant  = findSmallestDescendant(node.right);
-      node.key = rightSmallestDescendant.key;
-      node.value = rightSmallestDescendant.value;
-      node.right = recurDelete(node.right, node.key);
+    // depth is used to count the nodes on the way
+    int depth = 0;
+    while(pointer != null){
+      checkDepth(++depth);
+      boolean satisfied = below ? isAbove(key, pointer.key, inclusive) : isAbove(pointer.key, key, inclusive);
+      if(satisfied){
+        closestNode = pointer;
+      }
+      pointer = (satisfied == below) ? pointer.right : pointer.left;
     }
-    // Otherwise, if input node has less than 2 children, set input node as input node's left child if input node's left child is not null or node's right child otherwise
-    else{
-      node = (node.left != null) ? node.left : node.right;
+    return closestNode;
+  }
+  
+  /**
+   * Return an entry with key and value of the node in input, or return null if node in input is null
+   * Time complexity: O(1)
+   */
+  private Map.Entry<T,V> toEntry(AVLNode<T,V> node){
+    return (node != null) ? new AbstractMap.SimpleImmutableEntry<T,V>(node.key, node.value) : null;
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   */
+  public Map.Entry<T,V> floor(T key){
+    return toEntry(findClosestNode(key, true, true));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   */
+  public Map.Entry<T,V> ceiling(T key){
+    return toEntry(findClosestNode(key, false, true));
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   */
+  public Map.Entry<T,V> lower(T key){
+    return toEntry(findClosestNode(key, true, false));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   */
+  public Map.Entry<T,V> higher(T key){
+    return toEntry(findClosestNode(key, false, false));
+  }
+  
+  /**
+   * Return the entry with the smallest key in the AVL tree, or return null if the AVL tree is empty
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   */
+  public Map.Entry<T,V> first(){
+    // pointer is used to go down to the leftmost node of the AVL tree
+    AVLNode<T,V> pointer = root;
+    for(int depth = 1; pointer != null && pointer.left != null; depth++){
+      checkDepth(depth);
+      pointer = pointer.left;
     }
-    // If node is not null, rebalance node
-    if(node != null){
-      node = rebalanceNode(node);
+    return toEntry(pointer);
+  }
+  
+  /**
+   * Return the entry with the largest key in the AVL tree, or return null if the AVL tree is empty
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   */
+  public Map.Entry<T,V> last(){
+    // pointer is used to go down to the rightmost node of the AVL tree
+    AVLNode<T,V> pointer = root;
+    for(int depth = 1; pointer != null && pointer.right != null; depth++){
+      checkDepth(depth);
+      pointer = pointer.right;
     }
-    return node;
+    return toEntry(pointer);
+  }
+  
+  /**
+   * Return true if there is a node which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   */
+  public boolean containsKey(T key){
+    return findNode(key) != null;
   }
   
   /**
-   * Delete the node having the key that is equal to key from input if that node exists by calling recurDelete(AVLNode<T,V> node, T key) with root and input key
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return defaultValue if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   */
+  public V getOrDefault(T key, V defaultValue){
+    // node is the first node encountered which has key that is equal to key from input, or null if there is no such node like that
+    AVLNode<T,V> node = findNode(key);
+    return (node != null) ? node.value : defaultValue;
+  }
+  
+  /**
+   * Delete the node having the key that is equal to key from input if that node exists without recursion, then rebalance the nodes on the way from root to the removed node
    * Time complexity: O(logN) (N is number of nodes in the AVL tree)
    */
   public void delete(T key){
-    root = recurDelete(root, key);
+    // start is the time the delete starts if the AVL tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // path is used to store the nodes on the way from root to the node to remove
+    Deque<AVLNode<T,V>> path = new ArrayDeque<AVLNode<T,V>>();
+    // pointer is used to go down in the AVL tree based on the key from input
+    AVLNode<T,V> pointer = root;
+    // Use pointer to go down in the AVL tree until it is null or reaching the node having key that is equal to key from input, pushing each node on the way to path
+    while(pointer != null){
+      int comparison = key.compareTo(pointer.key);
+      if(comparison == 0){
+        break;
+      }
+      path.push(pointer);
+      pointer = (comparison < 0) ? pointer.left : pointer.right;
+    }
+    // comparisons is the number of nodes compared with key from input
+    int comparisons = path.size() + ((pointer != null) ? 1 : 0);
+    // If there is no node having key that is equal to key from input, do nothing
+    if(pointer == null){
+      record(TreeMetrics.Operation.DELETE, start, comparisons, 0, comparisons);
+      return;
+    }
+    /**
+     * If pointer has 2 children, find the descendant with smallest key of pointer's right child, pushing each node on the way to path;
+     * use key and value of that descendant as key and value of pointer respectively, then remove that descendant instead
+     */
+    if(pointer.left != null && pointer.right != null){
+      path.push(pointer);
+      AVLNode<T,V> rightSmallestDescendant = pointer.right;
+      while(rightSmallestDescendant.left != null){
+        path.push(rightSmallestDescendant);
+        rightSmallestDescendant = rightSmallestDescendant.left;
+      }
+      pointer.key = rightSmallestDescendant.key;
+      pointer.value = rightSmallestDescendant.value;
+      pointer = rightSmallestDescendant;
+    }
+    // pointer now has less than 2 children, so replace pointer by its child (left child if it is not null or right child otherwise)
+    AVLNode<T,V> childOfPointer = (pointer.left != null) ? pointer.left : pointer.right;
+    if(path.isEmpty()){
+      root = childOfPointer;
+    }
+    else if(path.peek().left == pointer){
+      path.peek().left = childOfPointer;
+    }
+    else{
+      path.peek().right = childOfPointer;
+    }
+    // Decrease the size of each node in path since pointer is removed from their subtrees, then rebalance the nodes in path
+    for(AVLNode<T,V> ancestor : path){
+      ancestor.size--;
+    }
+    // depth is the number of nodes on the way from root to the removed node (including it)
+    int depth = path.size() + 1;
+    int rotations = rebalancePath(path);
+    record(TreeMetrics.Operation.DELETE, start, comparisons, rotations, depth);
+  }
+  
+  // Class InorderIterator is used to lazily visit the values of the nodes in inorder traversal of the AVL tree by using a stack instead of recursion
+  private class InorderIterator implements Iterator<V>{
+    
+    // the stack storing the nodes whose values are not visited yet but whose left subtrees are being visited (the top of the stack is the next node to visit)
+    private Deque<AVLNode<T,V>> stack;
+    
+    // the largest key allowed to visit (null if there is no upper bound)
+    private T to;
+    
+    // whether the key that is equal to to is allowed to visit
+    private boolean toInclusive;
+    
+    /**
+     * Initialize the iterator to start from the smallest node of the AVL tree
+     */
+    private InorderIterator(){
+      stack = new ArrayDeque<AVLNode<T,V>>();
+      pushLeftPath(root);
+    }
+    
+    /**
+     * Initialize the iterator to start from the kth smallest node of the AVL tree (k should be from 1 to number of nodes in the AVL tree),
+     * by using the size of each node's subtree to go down in the AVL tree and pushing each node on the way where the next move is to the left
+     * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+     */
+    private InorderIterator(int k){
+      stack = new ArrayDeque<AVLNode<T,V>>();
+      AVLNode<T,V> pointer = root;
+      while(pointer != null){
+        int pointerRank = getNodeSize(pointer.left) + 1;
+        if(k == pointerRank){
+          stack.push(pointer);
+          pointer = null;
+        }
+        else if(k < pointerRank){
+          stack.push(pointer);
+          pointer = pointer.left;
+        }
+        else{
+          k -= pointerRank;
+          pointer = pointer.right;
+        }
+      }
+    }
+    
+    /**
+     * Initialize the iterator to visit only the nodes whose keys are between from and to (null from or null to means there is no lower bound or upper bound respectively),
+     * by going down in the AVL tree and pushing each node on the way whose key is not smaller than the lower bound, where the next move is to the left
+     * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+     */
+    private InorderIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+      stack = new ArrayDeque<AVLNode<T,V>>();
+      this.to = to;
+      this.toInclusive = toInclusive;
+      AVLNode<T,V> pointer = root;
+      while(pointer != null){
+        if(from == null || isAbove(pointer.key, from, fromInclusive)){
+          stack.push(pointer);
+          pointer = pointer.left;
+        }
+        else{
+          pointer = pointer.right;
+        }
+      }
+    }
+    
+    /**
+     * Push the node in input and its left descendants to the stack
+     */
+    private void pushLeftPath(AVLNode<T,V> node){
+      while(node != null){
+        stack.push(node);
+        node = node.left;
+      }
+    }
+    
+    /**
+     * Return true if there is a node whose value is not visited yet and whose key is not larger than the upper bound, or return false otherwise
+     * Time complexity: O(1)
+     */
+    public boolean hasNext(){
+      return !stack.isEmpty() && (to == null || isAbove(to, stack.peek().key, toInclusive));
+    }
+    
+    /**
+     * Return the value of the next node in inorder traversal
+     * Time complexity: O(1) on average over the whole traversal
+     */
+    public V next(){
+      return nextNode().value;
+    }
+    
+    /**
+     * Return the next node in inorder traversal, then push the right child of that node and its left descendants to the stack
+     * Time complexity: O(1) on average over the whole traversal
+     */
+    private AVLNode<T,V> nextNode(){
+      // If there is no node which is not visited yet, throw NoSuchElementException
+      if(!hasNext()){
+        throw new NoSuchElementException();
+      }
+      AVLNode<T,V> node = stack.pop();
+      pushLeftPath(node.right);
+      return node;
+    }
   }
   
   /**
-   * Add value in each node in inorder traversal of the AVL tree to list by using recursion to help inorderRec()
-   * Time complexity: O(N) (N is number of nodes in the AVL tree)
+   * Return true if a batch of batchSize keys is cheaper to handle by merging it with the inorder traversal of the AVL tree in one pass (O(N + K))
+   * than by going down from root for each key (O(KlogN)), where K is batchSize and N is number of nodes in the AVL tree
+   * Time complexity: O(1)
+   */
+  private boolean shouldMergeBatch(int batchSize){
+    return (long)batchSize * (32 - Integer.numberOfLeadingZeros(size())) >= size();
+  }
+  
+  /**
+   * Insert a node for each entry from input; for a batch that is large compared to the AVL tree, sort the entries by key (keeping the order of entries having same key),
+   * merge them with the nodes in inorder traversal of the AVL tree in one pass and rebuild a perfectly balanced AVL tree from the result instead of inserting the entries one by one
+   * Time complexity: O(KlogK + min(N, KlogN)) (N is number of nodes in the AVL tree, K is number of entries from input)
+   */
+  public void insertAll(Collection<Map.Entry<T,V>> entries){
+    if(!shouldMergeBatch(entries.size())){
+      TreeWithComparableKey.super.insertAll(entries);
+      return;
+    }
+    List<Map.Entry<T,V>> sortedEntries = new ArrayList<Map.Entry<T,V>>(entries);
+    sortedEntries.sort(Map.Entry.comparingByKey());
+    // mergedEntries is used to store the entries of the AVL tree and the entries from input in nondecreasing order of key, where new entries come after existing entries having same key
+    List<Map.Entry<T,V>> mergedEntries = new ArrayList<Map.Entry<T,V>>(size() + sortedEntries.size());
+    InorderIterator iterator = new InorderIterator();
+    AVLNode<T,V> node = iterator.hasNext() ? iterator.nextNode() : null;
+    for(Map.Entry<T,V> entry : sortedEntries){
+      while(node != null && node.key.compareTo(entry.getKey()) <= 0){
+        mergedEntries.add(toEntry(node));
+        node = iterator.hasNext() ? iterator.nextNode() : null;
+      }
+      mergedEntries.add(entry);
+    }
+    while(node != null){
+      mergedEntries.add(toEntry(node));
+      node = iterator.hasNext() ? iterator.nextNode() : null;
+    }
+    root = buildBalanced(mergedEntries, 0, mergedEntries.size());
+  }
+  
+  /**
+   * Delete a node having the key that is equal to each key from input if that node exists (a key appearing twice deletes two nodes);
+   * for a batch that is large compared to the AVL tree, sort the keys, skip the matching nodes while visiting the nodes in inorder traversal of the AVL tree in one pass
+   * and rebuild a perfectly balanced AVL tree from the remaining nodes instead of deleting the keys one by one
+   * Time complexity: O(KlogK + min(N, KlogN)) (N is number of nodes in the AVL tree, K is number of keys from input)
    */
-  private void recurInorder(AVLNode<T,V> root, List<V> list){
-    // If left child of root from input is not null, recursively call this method with left child of root from input and list from input
-    if(root.left != null){
-      recurInorder(root.left, list);
+  public void deleteAll(Collection<T> keys){
+    if(!shouldMergeBatch(keys.size())){
+      TreeWithComparableKey.super.deleteAll(keys);
+      return;
     }
-    // Add value of root from input to list's end
-    list.add(root.value);
-    // If right child of root from input is not null, recursively call this method with right child of root from input and list from input
-    if(root.right != null){
-      recurInorder(root.right, list);
+    List<T> sortedKeys = new ArrayList<T>(keys);
+    Collections.sort(sortedKeys);
+    // remainingEntries is used to store the entries of the nodes which are not deleted, in inorder traversal
+    List<Map.Entry<T,V>> remainingEntries = new ArrayList<Map.Entry<T,V>>(size());
+    // index is the index of the smallest key from input which has not matched a node yet
+    int index = 0;
+    InorderIterator iterator = new InorderIterator();
+    while(iterator.hasNext()){
+      AVLNode<T,V> node = iterator.nextNode();
+      // Skip the keys from input which are smaller than node's key since they cannot match any node
+      while(index < sortedKeys.size() && sortedKeys.get(index).compareTo(node.key) < 0){
+        index++;
+      }
+      // If the smallest key left is equal to node's key, delete node by not keeping it; otherwise, keep node
+      if(index < sortedKeys.size() && sortedKeys.get(index).compareTo(node.key) == 0){
+        index++;
+      }
+      else{
+        remainingEntries.add(toEntry(node));
+      }
+    }
+    root = buildBalanced(remainingEntries, 0, remainingEntries.size());
+  }
+  
+  /**
+   * Return the list of values found by searching for each key from input, in the same order as the keys (null for a key that is not in the AVL tree);
+   * for a batch that is large compared to the AVL tree, visit the keys in sorted order together with the nodes in inorder traversal of the AVL tree in one pass instead of going down from root for each key
+   * Time complexity: O(KlogK + min(N, KlogN)) (N is number of nodes in the AVL tree, K is number of keys from input)
+   */
+  public List<V> searchAll(List<T> keys){
+    if(!shouldMergeBatch(keys.size())){
+      return TreeWithComparableKey.super.searchAll(keys);
+    }
+    // order stores the indices of the keys from input sorted by key
+    Integer[] order = new Integer[keys.size()];
+    for(int i = 0; i < order.length; i++){
+      order[i] = i;
+    }
+    Arrays.sort(order, (first, second) -> keys.get(first).compareTo(keys.get(second)));
+    // values is used to store the value found for each key from input at the key's index
+    List<V> values = new ArrayList<V>(Collections.<V>nCopies(keys.size(), null));
+    InorderIterator iterator = new InorderIterator();
+    AVLNode<T,V> node = iterator.hasNext() ? iterator.nextNode() : null;
+    for(int i : order){
+      T key = keys.get(i);
+      // Skip the nodes whose keys are smaller than key since keys after it are not smaller either
+      while(node != null && node.key.compareTo(key) < 0){
+        node = iterator.hasNext() ? iterator.nextNode() : null;
+      }
+      if(node != null && node.key.compareTo(key) == 0){
+        values.set(i, node.value);
+      }
+    }
+    return values;
+  }
+  
+  /**
+   * Make the AVL tree record each insert, search and delete into the metrics from input, or stop recording if metrics is null;
+   * while no metrics are set, each operation only checks that metrics is null
+   */
+  public void setMetrics(TreeMetrics metrics){
+    if(metrics != null){
+      metrics.bind(this::size, this::height);
+    }
+    this.metrics = metrics;
+  }
+  
+  /**
+   * Make the AVL tree record each insert, search and delete into the metrics from input like setMetrics(TreeMetrics metrics), but without binding the size and height of the metrics to the AVL tree,
+   * for an AVL tree which is only one part of the tree the metrics describe (see ShardedTree)
+   */
+  void recordInto(TreeMetrics metrics){
+    this.metrics = metrics;
+  }
+  
+  /**
+   * Help method insert(T key, V value) and delete(T key) by recording an operation which started at start and made the numbers of comparisons and rotations and visited the depth in input;
+   * do nothing if the AVL tree does not record metrics
+   * Time complexity: O(1)
+   */
+  private void record(TreeMetrics.Operation operation, long start, int comparisons, int rotations, int depth){
+    if(metrics != null){
+      metrics.record(operation, System.nanoTime() - start, comparisons, rotations, depth);
     }
   }
   
   /**
-   * Return the list of values in inorder traversal of the AVL tree
+   * Return the height of the AVL tree (the number of edges on the longest path from root, -1 if the AVL tree is empty)
+   * Time complexity: O(1)
+   */
+  public int height(){
+    return getNodeHeight(root);
+  }
+  
+  /**
+   * Return the number of nodes in the AVL tree
+   * Time complexity: O(1)
+   */
+  public int size(){
+    return getNodeSize(root);
+  }
+  
+  /**
+   * Return an iterator visiting the values in inorder traversal of the AVL tree lazily, without copying them to a list
+   * Time complexity: O(1) to create the iterator; the iterator's stack takes O(height of the AVL tree) memory
+   */
+  public Iterator<V> iterator(){
+    return new InorderIterator();
+  }
+  
+  /**
+   * Return an iterator visiting the values of the nodes whose keys are between from and to in inorder traversal of the AVL tree lazily
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   * Time complexity: O(logN + K) (N is number of nodes in the AVL tree, K is number of values visited)
+   */
+  public Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+    return new InorderIterator(from, fromInclusive, to, toInclusive);
+  }
+  
+  /**
+   * Return the list of values in inorder traversal of the AVL tree by using iterator()
    * Time complexity: O(N) (N is number of nodes in the AVL tree)
    */
   public List<V> inorderRec(){
-    // list is used to store the value in each node in inorder traversal of the AVL tree
-    List<V> list = new LinkedList<V>();
-    // If root is null, just return list, and time complexity is O(1) in this case
-    // If root is not null, call recurInorder(Node<T,V> root, List<V> list) with root and list in input to use recursion, and time complexity in this case is O(N) (N is number of nodes in the AVL tree)
-    if(root != null){
-      recurInorder(root, list);
-    }
-    // Return list, which stores the value in each node in inorder traversal of the AVL tree
+    // list is used to store the value in each node in inorder traversal of the AVL tree, with capacity being number of nodes in the AVL tree
+    List<V> list = new ArrayList<V>(size());
+    for(V value : this){
+      list.add(value);
+    }
     return list;
   }
   
   /**
-   * Find the kth smallest element in the AVL tree by using inorderRec()
-   * Time complexity: O(N) (N is number of nodes in the AVL tree)
+   * Reduce the subtree rooted at node in input in inorder traversal: map each node's key and value by mapper, then combine the results of the left subtree, the node and the right subtree by combiner
+   * (the left subtree is reduced in a separate task when the subtree is large)
+   * Time complexity: O(N) work and O(height of the subtree + PARALLEL_TRAVERSAL_CUTOFF) span (N is number of nodes in the subtree)
+   */
+  private <R> R reduceNode(AVLNode<T,V> node, R identity, BiFunction<? super T,? super V,? extends R> mapper, BinaryOperator<R> combiner){
+    if(node == null){
+      return identity;
+    }
+    R left;
+    R right;
+    if(getNodeSize(node) >= PARALLEL_TRAVERSAL_CUTOFF){
+      ReduceTask<R> leftTask = new ReduceTask<R>(node.left, identity, mapper, combiner);
+      leftTask.fork();
+      right = reduceNode(node.right, identity, mapper, combiner);
+      left = leftTask.join();
+    }
+    else{
+      left = reduceNode(node.left, identity, mapper, combiner);
+      right = reduceNode(node.right, identity, mapper, combiner);
+    }
+    return combiner.apply(combiner.apply(left, mapper.apply(node.key, node.value)), right);
+  }
+  
+  /**
+   * Store the values of the subtree rooted at node in input in array in inorder traversal, starting from index offset;
+   * the index of each node is offset plus the size of its left subtree, so both subtrees are filled independently (the left subtree in a separate task when the subtree is large)
+   * Time complexity: O(N) work and O(height of the subtree + PARALLEL_TRAVERSAL_CUTOFF) span (N is number of nodes in the subtree)
+   */
+  private void fillInorder(AVLNode<T,V> node, Object[] array, int offset){
+    if(node == null){
+      return;
+    }
+    int index = offset + getNodeSize(node.left);
+    array[index] = node.value;
+    if(getNodeSize(node) >= PARALLEL_TRAVERSAL_CUTOFF){
+      InorderTask leftTask = new InorderTask(node.left, array, offset);
+      leftTask.fork();
+      fillInorder(node.right, array, index + 1);
+      leftTask.join();
+    }
+    else{
+      fillInorder(node.left, array, offset);
+      fillInorder(node.right, array, index + 1);
+    }
+  }
+  
+  /**
+   * Return the result of mapping the key and value of each node by mapper and combining the results in inorder traversal of the AVL tree by combiner, starting from identity;
+   * subtrees are reduced in parallel on the common fork/join pool, so mapper and combiner may run on several threads at the same time,
+   * combiner should be associative and identity should be its identity, but combiner does not need to be commutative (the AVL tree should not be changed meanwhile)
+   * Time complexity: O(N) work and O(logN + PARALLEL_TRAVERSAL_CUTOFF) span (N is number of nodes in the AVL tree)
+   */
+  public <R> R parallelReduce(R identity, BiFunction<? super T,? super V,? extends R> mapper, BinaryOperator<R> combiner){
+    return ForkJoinPool.commonPool().invoke(new ReduceTask<R>(root, identity, mapper, combiner));
+  }
+  
+  /**
+   * Pass the key and value of each node of the AVL tree to action, visiting subtrees in parallel on the common fork/join pool,
+   * so action may run on several threads at the same time and the nodes are not visited in order (the AVL tree should not be changed meanwhile)
+   * Time complexity: O(N) work and O(logN + PARALLEL_TRAVERSAL_CUTOFF) span (N is number of nodes in the AVL tree)
+   */
+  public void parallelForEach(BiConsumer<? super T,? super V> action){
+    parallelReduce(null, (key, value) -> {
+      action.accept(key, value);
+      return null;
+    }, (first, second) -> null);
+  }
+  
+  /**
+   * Return the list of values in inorder traversal of the AVL tree like inorderRec(), storing the values of subtrees in parallel on the common fork/join pool into an array with the number of nodes as length;
+   * the returned list has fixed size and is backed by that array (the AVL tree should not be changed meanwhile)
+   * Time complexity: O(N) work and O(logN + PARALLEL_TRAVERSAL_CUTOFF) span (N is number of nodes in the AVL tree)
+   */
+  @SuppressWarnings("unchecked")
+  public List<V> parallelInorder(){
+    Object[] array = new Object[size()];
+    ForkJoinPool.commonPool().invoke(new InorderTask(root, array, 0));
+    return (List<V>)Arrays.asList(array);
+  }
+  
+  /**
+   * Find the kth smallest element in the AVL tree by using the size of each node's subtree to go down in the AVL tree
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
    */
   public V kthSmallest(int k){
-    // list is used to store the value in each node in inorder traversal of the AVL tree
-    List<V> list = inorderRec();
-    // Return value with index (k - 1) in list
-    return list.get(k - 1);
+    // If k is smaller than 1 or larger than number of nodes in the AVL tree, throw IndexOutOfBoundsException
+    if(k < 1 || k > getNodeSize(root)){
+      throw new IndexOutOfBoundsException("k: " + k + ", size: " + getNodeSize(root));
+    }
+    // pointer is used to go down in the AVL tree based on k
+    AVLNode<T,V> pointer = root;
+    /**
+     * Compare k with the rank of pointer in pointer's subtree (size of pointer's left subtree plus 1):
+     * if k is equal to that rank, return pointer's value;
+     * if k is smaller than that rank, go to the left;
+     * otherwise, subtract that rank from k and go to the right
+     */
+    for(int depth = 1; ; depth++){
+      checkDepth(depth);
+      int pointerRank = getNodeSize(pointer.left) + 1;
+      if(k == pointerRank){
+        return pointer.value;
+      }
+      else if(k < pointerRank){
+        pointer = pointer.left;
+      }
+      else{
+        k -= pointerRank;
+        pointer = pointer.right;
+      }
+    }
+  }
+  
+  /**
+   * Return the number of nodes in the AVL tree having key that is smaller than the key from input
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree)
+   */
+  public int rank(T key){
+    // count is used to store the number of nodes found having key that is smaller than the key from input
+    int count = 0;
+    // pointer is used to go down in the AVL tree based on the key from input
+    AVLNode<T,V> pointer = root;
+    /**
+     * If key from input is smaller than or equal to pointer's key, go to the left;
+     * otherwise, pointer and pointer's left subtree are all smaller than key from input, so add them to count and go to the right
+     */
+    for(int depth = 1; pointer != null; depth++){
+      checkDepth(depth);
+      if(key.compareTo(pointer.key) <= 0){
+        pointer = pointer.left;
+      }
+      else{
+        count += getNodeSize(pointer.left) + 1;
+        pointer = pointer.right;
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Return the list of values of the nodes from the fromth smallest to the toth smallest element in the AVL tree (both inclusive)
+   * Time complexity: O(logN + K) (N is number of nodes in the AVL tree, K is number of values returned)
+   */
+  public List<V> select(int from, int to){
+    // If from is smaller than 1 or to is larger than number of nodes in the AVL tree, throw IndexOutOfBoundsException
+    if(from < 1 || to > size()){
+      throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size());
+    }
+    // list is used to store the values of the nodes in the range
+    List<V> list = new ArrayList<V>(Math.max(to - from + 1, 0));
+    // If the range is not empty, use an iterator starting from the fromth smallest node to add (to - from + 1) values to list
+    if(from <= to){
+      Iterator<V> iterator = new InorderIterator(from);
+      for(int i = from; i <= to; i++){
+        list.add(iterator.next());
+      }
+    }
+    return list;
+  }
+  
+  /**
+   * Return an iterator visiting the entries of the nodes in inorder traversal of the AVL tree lazily, which can be passed to MappedTree.write or bulkLoad
+   * Time complexity: O(1) to create the iterator; the iterator's stack takes O(height of the AVL tree) memory
+   */
+  public Iterator<Map.Entry<T,V>> entryIterator(){
+    InorderIterator iterator = new InorderIterator();
+    return new Iterator<Map.Entry<T,V>>(){
+      
+      public boolean hasNext(){
+        return iterator.hasNext();
+      }
+      
+      public Map.Entry<T,V> next(){
+        return toEntry(iterator.nextNode());
+      }
+    };
+  }
+  
+  /**
+   * Write the nodes of the AVL tree in inorder traversal to the file in input by using the codecs from input, so that the file can be opened later as a MappedTree without inserting the nodes again
+   * Time complexity: O(N) (N is number of nodes in the AVL tree)
+   */
+  public void writeTo(Path file, Codec<T> keyCodec, Codec<V> valueCodec) throws IOException{
+    MappedTree.write(file, entryIterator(), keyCodec, valueCodec);
+  }
+  
+  /**
+   * Return the AVL tree made by joining the AVL tree left, a new node with key and value from input, and the AVL tree right, which are emptied;
+   * the result has the augmentation of left, or of right if only right is not empty
+   * (throw IllegalArgumentException unless all keys in left are smaller than or equal to key from input, which is smaller than or equal to all keys in right,
+   * or if neither left nor right is empty and they have different augmentations, since their summaries could not be combined)
+   * Time complexity: O(|height of left - height of right| + logN) (N is number of nodes in the result)
+   */
+  public static <T extends Comparable<? super T>,V> AVLTree<T,V> join(AVLTree<T,V> left, T key, V value, AVLTree<T,V> right){
+    if((left.root != null && left.last().getKey().compareTo(key) > 0) || (right.root != null && right.first().getKey().compareTo(key) < 0)){
+      throw new IllegalArgumentException("key " + key + " is not between the keys of left and the keys of right");
+    }
+    if(left.root != null && right.root != null && left.augmentation != right.augmentation){
+      throw new IllegalArgumentException("left and right have different augmentations");
+    }
+    AVLTree<T,V> tree = new AVLTree<T,V>();
+    // The summaries of the nodes of a tree which is not empty are made by its augmentation, so the result keeps that augmentation
+    tree.augmentation = (left.root != null || right.root == null) ? left.augmentation : right.augmentation;
+    tree.root = tree.joinNodes(left.root, tree.new AVLNode<T,V>(key, value), right.root);
+    left.root = null;
+    right.root = null;
+    return tree;
+  }
+  
+  /**
+   * Split the AVL tree by the key from input: keep the nodes having keys that are smaller than that key in the AVL tree,
+   * and move the nodes having keys that are larger than or equal to that key to a new AVL tree with the same augmentation, which is returned
+   * Time complexity: O(logN + D) (N is number of nodes in the AVL tree, D is number of nodes having key that is equal to key from input)
+   */
+  public AVLTree<T,V> split(T key){
+    Split split = splitNode(root, key);
+    root = split.less;
+    AVLTree<T,V> tree = new AVLTree<T,V>();
+    tree.augmentation = augmentation;
+    tree.root = joinTwo(split.equal, split.greater);
+    return tree;
+  }
+  
+  /**
+   * Add a copy of every node of the AVL tree other to the AVL tree, which then has the nodes of both (other is unchanged);
+   * large trees are merged in parallel on the common fork/join pool
+   * Time complexity: O(M + Mlog(N/M + 1)) work (M is number of nodes in other, N is number of nodes in the AVL tree)
+   */
+  public void union(AVLTree<T,V> other){
+    root = ForkJoinPool.commonPool().invoke(new SetOperationTask(SetOperation.UNION, root, copyNode(other.root)));
+  }
+  
+  /**
+   * Keep only the nodes of the AVL tree whose keys are also keys of the AVL tree other (other is unchanged);
+   * large trees are intersected in parallel on the common fork/join pool
+   * Time complexity: O(Mlog(N/M + 1)) work (M and N are numbers of nodes in the smaller and the larger tree)
+   */
+  public void intersection(AVLTree<T,V> other){
+    if(other != this){
+      root = ForkJoinPool.commonPool().invoke(new SetOperationTask(SetOperation.INTERSECTION, root, other.root));
+    }
+  }
+  
+  /**
+   * Remove the nodes of the AVL tree whose keys are also keys of the AVL tree other (other is unchanged);
+   * large trees are handled in parallel on the common fork/join pool
+   * Time complexity: O(Mlog(N/M + 1)) work (M and N are numbers of nodes in the smaller and the larger tree)
+   */
+  public void difference(AVLTree<T,V> other){
+    if(other == this){
+      root = null;
+    }
+    else{
+      root = ForkJoinPool.commonPool().invoke(new SetOperationTask(SetOperation.DIFFERENCE, root, other.root));
+    }
+  }
+  
+  /**
+   * Make the summary of each node in the subtree rooted at node in input again by using recursion, children first (clear the summaries if the AVL tree has no augmentation)
+   * Time complexity: O(N) (N is number of nodes in the subtree)
+   */
+  private void summarizeNode(AVLNode<T,V> node){
+    if(node == null){
+      return;
+    }
+    summarizeNode(node.left);
+    summarizeNode(node.right);
+    node.summary = null;
+    updateNodeHeight(node);
+  }
+  
+  /**
+   * Make the AVL tree keep the summary of each subtree made by the augmentation from input, or stop keeping summaries if augmentation is null;
+   * the summaries of all nodes are made at once, then each change to the AVL tree updates the summaries of the nodes on its way from root (and of the nodes rotated) as it updates their heights
+   * Time complexity: O(N) (N is number of nodes in the AVL tree)
+   */
+  @SuppressWarnings("unchecked")
+  public void setAugmentation(Augmentation<T,V,?> augmentation){
+    this.augmentation = (Augmentation<T,V,Object>)augmentation;
+    summarizeNode(root);
+  }
+  
+  /**
+   * Help method aggregate(T from, T to) by returning the summary of the nodes in the subtree rooted at node in input whose keys are between from and to (both inclusive; null means there is no bound):
+   * skip the node and one of its subtrees if the node's key is out of the bounds; otherwise, the node is in the range, so the left subtree only needs the lower bound
+   * and the right subtree only needs the upper bound, and a subtree without bounds gives its whole summary
+   * Time complexity: O(logN) (N is number of nodes in the subtree)
+   */
+  private Object aggregateNode(AVLNode<T,V> node, T from, T to){
+    if(node == null){
+      return augmentation.identity();
+    }
+    if(from == null && to == null){
+      return node.summary;
+    }
+    if(from != null && node.key.compareTo(from) < 0){
+      return aggregateNode(node.right, from, to);
+    }
+    if(to != null && node.key.compareTo(to) > 0){
+      return aggregateNode(node.left, from, to);
+    }
+    return augmentation.combine(augmentation.combine(aggregateNode(node.left, from, null), augmentation.summarize(node.key, node.value)), aggregateNode(node.right, null, to));
+  }
+  
+  /**
+   * Return the summary, made by the augmentation of the AVL tree, of the nodes whose keys are between from and to (both inclusive; null from or null to means there is no lower bound or upper bound respectively),
+   * combining the summaries in order of keys; return the augmentation's identity if there is no such node like that
+   * (throw IllegalStateException if the AVL tree has no augmentation; S should be the summary type of the augmentation)
+   * Time complexity: O(logN) (N is number of nodes in the AVL tree), combining at most about 2 summaries for each level of the AVL tree
+   */
+  @SuppressWarnings("unchecked")
+  public <S> S aggregate(T from, T to){
+    // If the AVL tree has no augmentation, throw IllegalStateException
+    if(augmentation == null){
+      throw new IllegalStateException("the AVL tree has no augmentation");
+    }
+    return (S)aggregateNode(root, from, to);
   }
 }
\ No newline at end of file
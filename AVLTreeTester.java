@@ -1,3 +1,6 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import org.junit.*;
 import static org.junit.Assert.*;
 // Class AVLTreeTester is the tester class for AVLTree
@@ -67,6 +70,51 @@ public class AVLTreeTester{
     assertEquals("5", tree.search(5));
   }
   
+  /**
+   * Tests the containsKey method of AVLTree.
+   */
+  @Test
+  public void testContainsKey(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    
+    // test containsKey when the tree is empty
+    assertFalse(tree.containsKey(5));
+    
+    tree.insert(6, "6");
+    tree.insert(4, "4");
+    tree.insert(9, null);
+    
+    // test containsKey with key that is equal to a node's key
+    assertTrue(tree.containsKey(4));
+    
+    // test containsKey with key of a node whose value is null
+    assertTrue(tree.containsKey(9));
+    
+    // test containsKey with key that is not equal to any nodes' keys
+    assertFalse(tree.containsKey(7));
+  }
+  
+  /**
+   * Tests the getOrDefault method of AVLTree.
+   */
+  @Test
+  public void testGetOrDefault(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    
+    // test getOrDefault when the tree is empty
+    assertEquals("none", tree.getOrDefault(5, "none"));
+    
+    tree.insert(6, "6");
+    tree.insert(4, "4");
+    tree.insert(9, "9");
+    
+    // test getOrDefault with key that is equal to a node's key
+    assertEquals("9", tree.getOrDefault(9, "none"));
+    
+    // test getOrDefault with key that is not equal to any nodes' keys
+    assertEquals("none", tree.getOrDefault(7, "none"));
+  }
+  
   /**
    * Tests the delete method of AVLTree.
    */
@@ -147,6 +195,15 @@ public class AVLTreeTester{
     // test inorderRec when tree has many nodes
     String[] result3 = {"0", "1", "3", "4", "6", "8"};
     assertArrayEquals(result3, tree.inorderRec().toArray());
+    
+    // test inorderRec when tree has many nodes inserted in sorted order
+    AVLTree<Integer, Integer> sortedTree = new AVLTree<Integer, Integer>();
+    Integer[] result4 = new Integer[20000];
+    for(int i = 0; i < result4.length; i++){
+      sortedTree.insert(i, i);
+      result4[i] = i;
+    }
+    assertArrayEquals(result4, sortedTree.inorderRec().toArray());
   }
   
   /**
@@ -228,4 +285,676 @@ public class AVLTreeTester{
       fail("did not throw IndexOutOfBoundsException exception");
     }
   }
+  
+  /**
+   * Tests the rank method of AVLTree.
+   */
+  @Test
+  public void testRank(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    
+    // test rank when tree is empty
+    assertEquals(0, tree.rank(3));
+    
+    tree.insert(5, "5");
+    tree.insert(1, "1");
+    tree.insert(8, "8");
+    tree.insert(3, "3");
+    tree.insert(7, "7");
+    
+    // test rank with key that is smaller than all nodes' keys
+    assertEquals(0, tree.rank(0));
+    
+    // test rank with key that is equal to a node's key
+    assertEquals(2, tree.rank(5));
+    
+    // test rank with key that is not equal to any nodes' keys
+    assertEquals(3, tree.rank(6));
+    
+    // test rank with key that is larger than all nodes' keys
+    assertEquals(5, tree.rank(10));
+    
+    // test rank after deleting node that has 2 children
+    tree.delete(5);
+    assertEquals(2, tree.rank(7));
+  }
+  
+  /**
+   * Tests the select method of AVLTree.
+   */
+  @Test
+  public void testSelect(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    
+    // test select with empty range when tree is empty
+    String[] result1 = {};
+    assertArrayEquals(result1, tree.select(1, 0).toArray());
+    
+    // test select with range being out of bounds when tree is empty
+    try{
+      tree.select(1, 1);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+    
+    tree.insert(4, "4");
+    tree.insert(2, "2");
+    tree.insert(6, "6");
+    tree.insert(1, "1");
+    tree.insert(3, "3");
+    tree.insert(5, "5");
+    tree.insert(7, "7");
+    
+    // test select with range covering all nodes
+    String[] result2 = {"1", "2", "3", "4", "5", "6", "7"};
+    assertArrayEquals(result2, tree.select(1, 7).toArray());
+    
+    // test select with range in the middle
+    String[] result3 = {"3", "4", "5"};
+    assertArrayEquals(result3, tree.select(3, 5).toArray());
+    
+    // test select with range having only 1 element
+    String[] result4 = {"7"};
+    assertArrayEquals(result4, tree.select(7, 7).toArray());
+    
+    // test select with range being out of bounds when tree has many nodes
+    try{
+      tree.select(0, 3);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+    try{
+      tree.select(5, 8);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+  }
+  
+  /**
+   * Tests the size method of AVLTree.
+   */
+  @Test
+  public void testSize(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    
+    // test size when tree is empty
+    assertEquals(0, tree.size());
+    
+    tree.insert(4, "4");
+    tree.insert(2, "2");
+    tree.insert(4, "4");
+    
+    // test size when tree has many nodes including nodes having same key
+    assertEquals(3, tree.size());
+    
+    // test size after deleting a node
+    tree.delete(4);
+    assertEquals(2, tree.size());
+    
+    // test size after deleting with key that is not equal to any nodes' keys
+    tree.delete(9);
+    assertEquals(2, tree.size());
+  }
+  
+  /**
+   * Tests the iterator method of AVLTree.
+   */
+  @Test
+  public void testIterator(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    
+    // test iterator when tree is empty
+    Iterator<String> iterator1 = tree.iterator();
+    assertFalse(iterator1.hasNext());
+    try{
+      iterator1.next();
+      fail("did not throw exception");
+    }
+    catch(NoSuchElementException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw NoSuchElementException exception");
+    }
+    
+    tree.insert(5, "5");
+    tree.insert(1, "1");
+    tree.insert(8, "8");
+    tree.insert(3, "3");
+    tree.insert(7, "7");
+    
+    // test iterator when tree has many nodes
+    Iterator<String> iterator2 = tree.iterator();
+    assertEquals("1", iterator2.next());
+    assertEquals("3", iterator2.next());
+    assertEquals("5", iterator2.next());
+    assertEquals("7", iterator2.next());
+    assertTrue(iterator2.hasNext());
+    assertEquals("8", iterator2.next());
+    assertFalse(iterator2.hasNext());
+    
+    // test stream when tree has many nodes
+    String[] result = {"1", "3", "5", "7", "8"};
+    assertArrayEquals(result, tree.stream().toArray());
+  }
+  
+  /**
+   * Tests the floor, ceiling, lower, higher, first and last methods of AVLTree.
+   */
+  @Test
+  public void testNavigation(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    
+    // test navigation methods when tree is empty
+    assertNull(tree.floor(5));
+    assertNull(tree.ceiling(5));
+    assertNull(tree.lower(5));
+    assertNull(tree.higher(5));
+    assertNull(tree.first());
+    assertNull(tree.last());
+    
+    tree.insert(5, "5");
+    tree.insert(1, "1");
+    tree.insert(8, "8");
+    tree.insert(3, "3");
+    tree.insert(7, "7");
+    
+    // test floor and ceiling with key that is equal to a node's key
+    assertEquals("3", tree.floor(3).getValue());
+    assertEquals("3", tree.ceiling(3).getValue());
+    
+    // test floor and ceiling with key that is not equal to any nodes' keys
+    assertEquals(Integer.valueOf(5), tree.floor(6).getKey());
+    assertEquals(Integer.valueOf(7), tree.ceiling(6).getKey());
+    
+    // test lower and higher with key that is equal to a node's key
+    assertEquals("1", tree.lower(3).getValue());
+    assertEquals("5", tree.higher(3).getValue());
+    
+    // test navigation methods with key that is out of the range of the tree's keys
+    assertNull(tree.floor(0));
+    assertNull(tree.lower(1));
+    assertNull(tree.ceiling(9));
+    assertNull(tree.higher(8));
+    
+    // test first and last when tree has many nodes
+    assertEquals("1", tree.first().getValue());
+    assertEquals("8", tree.last().getValue());
+  }
+  
+  /**
+   * Tests the rangeIterator method of AVLTree.
+   */
+  @Test
+  public void testRangeIterator(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    
+    // test rangeIterator when tree is empty
+    assertFalse(tree.rangeIterator(1, true, 5, true).hasNext());
+    
+    for(int i = 0; i < 10; i++){
+      tree.insert(i, String.valueOf(i));
+    }
+    
+    // test rangeIterator with both bounds inclusive
+    List<String> result1 = new ArrayList<String>();
+    tree.rangeIterator(3, true, 6, true).forEachRemaining(result1::add);
+    assertArrayEquals(new String[]{"3", "4", "5", "6"}, result1.toArray());
+    
+    // test rangeIterator with both bounds exclusive
+    List<String> result2 = new ArrayList<String>();
+    tree.rangeIterator(3, false, 6, false).forEachRemaining(result2::add);
+    assertArrayEquals(new String[]{"4", "5"}, result2.toArray());
+    
+    // test rangeIterator with no lower bound and no upper bound
+    List<String> result3 = new ArrayList<String>();
+    tree.rangeIterator(null, true, 2, true).forEachRemaining(result3::add);
+    tree.rangeIterator(8, false, null, true).forEachRemaining(result3::add);
+    assertArrayEquals(new String[]{"0", "1", "2", "9"}, result3.toArray());
+    
+    // test rangeIterator with empty range
+    assertFalse(tree.rangeIterator(6, true, 3, true).hasNext());
+    assertFalse(tree.rangeIterator(4, false, 4, true).hasNext());
+  }
+  
+  /**
+   * Tests the bulkLoad method of AVLTree.
+   */
+  @Test
+  public void testBulkLoad(){
+    // test bulkLoad with no entries
+    AVLTree<Integer, String> tree1 = AVLTree.bulkLoad(new ArrayList<Map.Entry<Integer, String>>().iterator());
+    assertEquals(0, tree1.size());
+    
+    // test bulkLoad with many sorted entries including entries having same key
+    List<Map.Entry<Integer, String>> entries = new ArrayList<Map.Entry<Integer, String>>();
+    entries.add(new AbstractMap.SimpleEntry<Integer, String>(1, "1"));
+    entries.add(new AbstractMap.SimpleEntry<Integer, String>(3, "3a"));
+    entries.add(new AbstractMap.SimpleEntry<Integer, String>(3, "3b"));
+    entries.add(new AbstractMap.SimpleEntry<Integer, String>(5, "5"));
+    entries.add(new AbstractMap.SimpleEntry<Integer, String>(8, "8"));
+    AVLTree<Integer, String> tree2 = AVLTree.bulkLoad(entries.iterator());
+    String[] result1 = {"1", "3a", "3b", "5", "8"};
+    assertArrayEquals(result1, tree2.inorderRec().toArray());
+    assertEquals("5", tree2.search(5));
+    
+    // test the tree built by bulkLoad after inserting and deleting nodes
+    tree2.insert(4, "4");
+    tree2.delete(3);
+    tree2.delete(1);
+    assertEquals(4, tree2.size());
+    assertEquals("4", tree2.kthSmallest(2));
+    
+    // test bulkLoad with entries that are not sorted
+    Collections.reverse(entries);
+    try{
+      AVLTree.bulkLoad(entries.iterator());
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalArgumentException exception");
+    }
+  }
+  
+  /**
+   * Tests the bulkLoadUnsorted method of AVLTree.
+   */
+  @Test
+  public void testBulkLoadUnsorted(){
+    List<Map.Entry<Integer, Integer>> entries = new ArrayList<Map.Entry<Integer, Integer>>();
+    Integer[] result = new Integer[20000];
+    for(int i = 0; i < result.length; i++){
+      entries.add(new AbstractMap.SimpleEntry<Integer, Integer>(i, i));
+      result[i] = i;
+    }
+    Collections.shuffle(entries, new Random(7));
+    
+    // test bulkLoadUnsorted with many entries in random order
+    AVLTree<Integer, Integer> tree = AVLTree.bulkLoadUnsorted(entries.iterator());
+    assertArrayEquals(result, tree.inorderRec().toArray());
+    assertEquals(Integer.valueOf(12345), tree.search(12345));
+    assertEquals(Integer.valueOf(99), tree.kthSmallest(100));
+  }
+  
+  /**
+   * Tests the insertAll method of AVLTree.
+   */
+  @Test
+  public void testInsertAll(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    
+    // test insertAll with many entries in random order when tree is empty
+    List<Map.Entry<Integer, String>> entries1 = new ArrayList<Map.Entry<Integer, String>>();
+    entries1.add(new AbstractMap.SimpleEntry<Integer, String>(5, "5"));
+    entries1.add(new AbstractMap.SimpleEntry<Integer, String>(1, "1"));
+    entries1.add(new AbstractMap.SimpleEntry<Integer, String>(8, "8"));
+    entries1.add(new AbstractMap.SimpleEntry<Integer, String>(3, "3"));
+    tree.insertAll(entries1);
+    String[] result1 = {"1", "3", "5", "8"};
+    assertArrayEquals(result1, tree.inorderRec().toArray());
+    
+    // test insertAll with a small batch when tree has many nodes
+    for(int i = 10; i < 100; i++){
+      tree.insert(i, String.valueOf(i));
+    }
+    List<Map.Entry<Integer, String>> entries2 = new ArrayList<Map.Entry<Integer, String>>();
+    entries2.add(new AbstractMap.SimpleEntry<Integer, String>(4, "4"));
+    tree.insertAll(entries2);
+    assertEquals("4", tree.kthSmallest(3));
+    assertEquals(95, tree.size());
+    
+    // test insertAll with a large batch including keys that are already in the tree, which should come after existing nodes having same key
+    List<Map.Entry<Integer, String>> entries3 = new ArrayList<Map.Entry<Integer, String>>();
+    for(int i = 0; i < 100; i += 2){
+      entries3.add(new AbstractMap.SimpleEntry<Integer, String>(i, "new" + i));
+    }
+    tree.insertAll(entries3);
+    assertEquals(145, tree.size());
+    assertEquals("8", tree.kthSmallest(9));
+    assertEquals("new8", tree.kthSmallest(10));
+  }
+  
+  /**
+   * Tests the deleteAll method of AVLTree.
+   */
+  @Test
+  public void testDeleteAll(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    
+    // test deleteAll when tree is empty
+    tree.deleteAll(Arrays.asList(1, 2));
+    assertEquals(0, tree.size());
+    
+    for(int i = 0; i < 100; i++){
+      tree.insert(i, String.valueOf(i));
+    }
+    
+    // test deleteAll with a small batch including key that is not in the tree
+    tree.deleteAll(Arrays.asList(50, 200));
+    assertEquals(99, tree.size());
+    assertNull(tree.search(50));
+    
+    // test deleteAll with a large batch in random order
+    List<Integer> keys = new ArrayList<Integer>();
+    for(int i = 0; i < 100; i++){
+      if(i % 10 != 0){
+        keys.add(i);
+      }
+    }
+    Collections.shuffle(keys, new Random(3));
+    tree.deleteAll(keys);
+    String[] result = {"0", "10", "20", "30", "40", "60", "70", "80", "90"};
+    assertArrayEquals(result, tree.inorderRec().toArray());
+  }
+  
+  /**
+   * Tests the searchAll method of AVLTree.
+   */
+  @Test
+  public void testSearchAll(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    
+    // test searchAll when tree is empty
+    assertArrayEquals(new String[]{null, null}, tree.searchAll(Arrays.asList(1, 2)).toArray());
+    
+    for(int i = 0; i < 20; i += 2){
+      tree.insert(i, String.valueOf(i));
+    }
+    
+    // test searchAll with a small batch
+    assertArrayEquals(new String[]{"4", null}, tree.searchAll(Arrays.asList(4, 5)).toArray());
+    
+    // test searchAll with a large batch in random order including key appearing twice
+    List<Integer> keys = Arrays.asList(18, 3, 0, 18, 7, 6, 40, 12, -1, 2);
+    String[] result = {"18", null, "0", "18", null, "6", null, "12", null, "2"};
+    assertArrayEquals(result, tree.searchAll(keys).toArray());
+  }
+  
+  /**
+   * Tests the join and split methods of AVLTree.
+   */
+  @Test
+  public void testJoinAndSplit(){
+    AVLTree<Integer, String> left = new AVLTree<Integer, String>();
+    AVLTree<Integer, String> right = new AVLTree<Integer, String>();
+    
+    // test join with 2 empty trees
+    AVLTree<Integer, String> tree = AVLTree.join(left, 5, "5", right);
+    assertArrayEquals(new String[]{"5"}, tree.inorderRec().toArray());
+    
+    // test join with trees of very different heights
+    for(int i = 0; i < 1000; i++){
+      left.insert(i, String.valueOf(i));
+    }
+    right.insert(1001, "1001");
+    tree = AVLTree.join(left, 1000, "1000", right);
+    assertEquals(1002, tree.size());
+    assertEquals(0, left.size());
+    assertEquals(0, right.size());
+    assertEquals("1000", tree.kthSmallest(1001));
+    assertEquals("1001", tree.kthSmallest(1002));
+    
+    // test join when key is not between the keys of the 2 trees
+    left = new AVLTree<Integer, String>();
+    left.insert(10, "10");
+    try{
+      AVLTree.join(left, 5, "5", new AVLTree<Integer, String>());
+      fail("join should throw IllegalArgumentException");
+    }
+    catch(IllegalArgumentException e){
+    }
+    
+    // test split by a key appearing several times
+    tree = new AVLTree<Integer, String>();
+    for(int i = 0; i < 10; i++){
+      tree.insert(i, String.valueOf(i));
+      tree.insert(5, "5-" + i);
+    }
+    AVLTree<Integer, String> greater = tree.split(5);
+    assertArrayEquals(new String[]{"0", "1", "2", "3", "4"}, tree.inorderRec().toArray());
+    assertEquals(15, greater.size());
+    assertEquals("6", greater.kthSmallest(12));
+    assertEquals(11, greater.rank(6));
+    
+    // test split by a key smaller than all keys and by a key larger than all keys
+    greater = tree.split(-1);
+    assertEquals(0, tree.size());
+    assertEquals(5, greater.size());
+    assertEquals(0, greater.split(100).size());
+    assertEquals(5, greater.size());
+  }
+  
+  /**
+   * Tests the union, intersection and difference methods of AVLTree.
+   */
+  @Test
+  public void testSetOperations(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    AVLTree<Integer, String> other = new AVLTree<Integer, String>();
+    for(int i = 0; i < 10; i += 2){
+      tree.insert(i, String.valueOf(i));
+    }
+    for(int i = 0; i < 10; i += 3){
+      other.insert(i, "o" + i);
+    }
+    
+    // test union, which keeps other unchanged
+    AVLTree<Integer, String> union = new AVLTree<Integer, String>();
+    union.union(tree);
+    union.union(other);
+    assertEquals(9, union.size());
+    assertEquals(4, other.size());
+    assertEquals(3, union.rank(3));
+    assertEquals(Integer.valueOf(9), union.higher(8).getKey());
+    
+    // test intersection
+    AVLTree<Integer, String> intersection = AVLTree.bulkLoadUnsorted(new ArrayList<Map.Entry<Integer, String>>(
+      Arrays.asList(new AbstractMap.SimpleEntry<Integer, String>(0, "0"), new AbstractMap.SimpleEntry<Integer, String>(4, "4"), new AbstractMap.SimpleEntry<Integer, String>(6, "6"))).iterator());
+    intersection.intersection(other);
+    assertArrayEquals(new String[]{"0", "6"}, intersection.inorderRec().toArray());
+    
+    // test difference
+    tree.difference(other);
+    assertArrayEquals(new String[]{"2", "4", "8"}, tree.inorderRec().toArray());
+    tree.difference(tree);
+    assertEquals(0, tree.size());
+    
+    // test set operations with large trees, which are done in parallel
+    AVLTree<Integer, String> large = new AVLTree<Integer, String>();
+    AVLTree<Integer, String> evens = new AVLTree<Integer, String>();
+    for(int i = 0; i < 100000; i++){
+      large.insert(i, String.valueOf(i));
+      if(i % 2 == 0){
+        evens.insert(i, String.valueOf(i));
+      }
+    }
+    AVLTree<Integer, String> odds = new AVLTree<Integer, String>();
+    odds.union(large);
+    odds.difference(evens);
+    assertEquals(50000, odds.size());
+    assertEquals("99", odds.kthSmallest(50));
+    large.intersection(odds);
+    assertEquals(50000, large.size());
+    evens.union(odds);
+    assertEquals(100000, evens.size());
+    assertEquals("12345", evens.kthSmallest(12346));
+  }
+  
+  /**
+   * Tests the parallelForEach, parallelReduce and parallelInorder methods of AVLTree on small trees and on large trees, which are traversed in parallel.
+   */
+  @Test
+  public void testParallelTraversal(){
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    
+    // traverse when the tree is empty
+    assertEquals(0, tree.parallelInorder().size());
+    assertEquals("", tree.parallelReduce("", (key, value) -> value, String::concat));
+    
+    tree.insert(4, "4");
+    tree.insert(2, "2");
+    tree.insert(7, "7");
+    tree.insert(2, "second2");
+    assertEquals(tree.inorderRec(), tree.parallelInorder());
+    // the combiner is not commutative, so the result shows the order
+    assertEquals("2second247", tree.parallelReduce("", (key, value) -> value, String::concat));
+    
+    AVLTree<Integer, Integer> large = new AVLTree<Integer, Integer>();
+    for(int i = 0; i < 200000; i++){
+      large.insert(i, i);
+    }
+    assertEquals(large.inorderRec(), large.parallelInorder());
+    assertEquals(Long.valueOf(199999L * 200000 / 2), large.parallelReduce(0L, (key, value) -> (long)value, Long::sum));
+    // the first value of each part is the smallest one only if the parts are combined in order
+    assertEquals(Integer.valueOf(0), large.parallelReduce(null, (key, value) -> value, (first, second) -> (first != null) ? first : second));
+    LongAdder sum = new LongAdder();
+    Set<Integer> visited = ConcurrentHashMap.newKeySet();
+    large.parallelForEach((key, value) -> {
+      sum.add(value);
+      visited.add(key);
+    });
+    assertEquals(199999L * 200000 / 2, sum.sum());
+    assertEquals(200000, visited.size());
+  }
+  
+  /**
+   * Tests the setAugmentation and aggregate methods of AVLTree, checking range sums against a scan of the nodes after random inserts and deletes.
+   */
+  @Test
+  public void testAggregate(){
+    AVLTree<Integer, Integer> tree = new AVLTree<Integer, Integer>();
+    
+    // test aggregate without augmentation
+    try{
+      tree.aggregate(0, 1);
+      fail("did not throw exception");
+    }
+    catch(IllegalStateException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalStateException exception");
+    }
+    
+    // the augmentation is set after some nodes are inserted, so the summaries of the existing nodes are made at once
+    for(int i = 0; i < 100; i++){
+      tree.insert(i, i);
+    }
+    tree.setAugmentation(Augmentation.<Integer, Integer, Long>of(0L, (key, value) -> (long)value, Long::sum));
+    assertEquals(Long.valueOf(4950L), tree.<Long>aggregate(null, null));
+    assertEquals(Long.valueOf(10L + 11 + 12), tree.<Long>aggregate(10, 12));
+    assertEquals(Long.valueOf(0L), tree.<Long>aggregate(12, 10));
+    
+    // sums of random ranges after random inserts (with duplicate keys) and deletes, which rotate the nodes
+    Random random = new Random(25);
+    List<Integer> keys = new ArrayList<Integer>();
+    for(int i = 0; i < 100; i++){
+      keys.add(i);
+    }
+    for(int i = 0; i < 20000; i++){
+      int key = random.nextInt(2000);
+      if(random.nextInt(3) == 0){
+        tree.delete(key);
+        keys.remove(Integer.valueOf(key));
+      }
+      else{
+        tree.insert(key, key);
+        keys.add(key);
+      }
+      if(i % 100 == 0){
+        int from = random.nextInt(2000);
+        int to = from + random.nextInt(500);
+        long expectedSum = 0;
+        for(int k : keys){
+          if(k >= from && k <= to){
+            expectedSum += k;
+          }
+        }
+        assertEquals(Long.valueOf(expectedSum), tree.<Long>aggregate(from, to));
+      }
+    }
+    
+    // a summary which is not commutative shows that the summaries are combined in order of keys
+    AVLTree<Integer, String> words = new AVLTree<Integer, String>();
+    words.setAugmentation(Augmentation.<Integer, String, String>of("", (key, value) -> value, String::concat));
+    for(int i = 9; i >= 0; i--){
+      words.insert(i, String.valueOf((char)('a' + i)));
+    }
+    words.delete(5);
+    assertEquals("abcdeghij", words.aggregate(null, null));
+    assertEquals("cdeg", words.aggregate(2, 6));
+    
+    // split, join and union keep the summaries
+    AVLTree<Integer, String> right = words.split(4);
+    assertEquals("abcd", words.aggregate(null, null));
+    assertEquals("eghij", right.aggregate(null, 100));
+    
+    // test join with a tree which has no augmentation or another augmentation
+    AVLTree<Integer, String> plain = new AVLTree<Integer, String>();
+    plain.insert(20, "u");
+    try{
+      AVLTree.join(right, 15, "t", plain);
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalArgumentException exception");
+    }
+    plain.setAugmentation(Augmentation.<Integer, String, String>of("", (key, value) -> value + value, String::concat));
+    try{
+      AVLTree.join(right, 15, "t", plain);
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalArgumentException exception");
+    }
+    assertEquals("eghij", right.aggregate(null, null));
+    // an empty tree can be joined whatever its augmentation is, and the result keeps the augmentation of the other tree
+    AVLTree<Integer, String> emptyJoined = AVLTree.join(new AVLTree<Integer, String>(), -1, "z", AVLTree.join(plain, 30, "v", new AVLTree<Integer, String>()));
+    assertEquals("zzuuvv", emptyJoined.aggregate(null, null));
+    
+    AVLTree<Integer, String> joined = AVLTree.join(words, 4, "x", right);
+    assertEquals("abcdxeghij", joined.aggregate(null, null));
+    AVLTree<Integer, String> other = new AVLTree<Integer, String>();
+    other.insert(5, "f");
+    joined.union(other);
+    assertEquals("xefg", joined.aggregate(4, 6));
+    
+    // the largest end of the intervals starting in a range, as in an interval tree
+    AVLTree<Integer, Integer> intervals = new AVLTree<Integer, Integer>();
+    intervals.setAugmentation(Augmentation.<Integer, Integer, Integer>of(Integer.MIN_VALUE, (start, end) -> end, Math::max));
+    intervals.insert(1, 5);
+    intervals.insert(3, 20);
+    intervals.insert(7, 9);
+    intervals.insert(10, 12);
+    assertEquals(Integer.valueOf(20), intervals.aggregate(null, 8));
+    assertEquals(Integer.valueOf(12), intervals.aggregate(4, null));
+    
+    // after the augmentation is removed, aggregate throws again
+    intervals.setAugmentation(null);
+    try{
+      intervals.aggregate(0, 1);
+      fail("did not throw exception");
+    }
+    catch(IllegalStateException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalStateException exception");
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,877 @@
+import java.util.*;
+// Class ArrayAVLTree is the AVL tree whose nodes are stored in parallel arrays and linked by int indices instead of being separate objects linked by references
+// Each node k is larger than k's left subtree's nodes and smaller than or equal to k's right subtree's nodes; slots of deleted nodes are reused by later inserted nodes
+public class ArrayAVLTree<T extends Comparable<? super T>,V> implements TreeWithComparableKey<T,V>{
+  
+  // the index used for a child or a root that does not exist
+  private static final int NIL = -1;
+  
+  // the number of slots allocated when no initial capacity is given
+  private static final int DEFAULT_CAPACITY = 16;
+  
+  // the key stored in each node (the key is comparable)
+  private Object[] keys;
+  
+  // the value stored in each node
+  private Object[] values;
+  
+  // the index of the left child of each node
+  private int[] left;
+  
+  // the index of the right child of each node
+  private int[] right;
+  
+  // the height of each node
+  private int[] height;
+  
+  // the number of nodes in the subtree rooted at each node (including the node itself)
+  private int[] size;
+  
+  // the index of the root of the array AVL tree
+  private int root;
+  
+  // the number of slots that have been used at least once (slots from this index onward have never been used)
+  private int usedSlots;
+  
+  // the index of the first free slot, where free slots are linked by their left array entries
+  private int freeSlot;
+  
+  // the array reused by insert(T key, V value) and delete(T key) to store the nodes on the way from root to the changed node
+  private int[] path;
+  
+  // the metrics recording each insert, search and delete (null if the array AVL tree does not record metrics)
+  private TreeMetrics metrics;
+  
+  /**
+   * Initialize the array AVL tree with root being NIL and the default capacity
+   */
+  public ArrayAVLTree(){
+    this(DEFAULT_CAPACITY);
+  }
+  
+  /**
+   * Initialize the array AVL tree with root being NIL and initialCapacity slots, so that up to initialCapacity nodes can be inserted without growing the arrays
+   * (throw IllegalArgumentException if initialCapacity is smaller than 1)
+   */
+  public ArrayAVLTree(int initialCapacity){
+    if(initialCapacity < 1){
+      throw new IllegalArgumentException("initialCapacity: " + initialCapacity);
+    }
+    keys = new Object[initialCapacity];
+    values = new Object[initialCapacity];
+    left = new int[initialCapacity];
+    right = new int[initialCapacity];
+    height = new int[initialCapacity];
+    size = new int[initialCapacity];
+    root = NIL;
+    usedSlots = 0;
+    freeSlot = NIL;
+    path = new int[DEFAULT_CAPACITY];
+  }
+  
+  /**
+   * Return the key of the node in input
+   * Time complexity: O(1)
+   */
+  @SuppressWarnings("unchecked")
+  private T keyOf(int node){
+    return (T)keys[node];
+  }
+  
+  /**
+   * Return the value of the node in input
+   * Time complexity: O(1)
+   */
+  @SuppressWarnings("unchecked")
+  private V valueOf(int node){
+    return (V)values[node];
+  }
+  
+  /**
+   * Take a slot for a new node with key and value from input, reusing a free slot if there is one or growing the arrays if all slots are used, and return that slot's index
+   * Time complexity: O(1) on average over many inserts
+   */
+  private int allocateNode(T key, V value){
+    // node is the index of the slot for the new node
+    int node;
+    // If there is a free slot, take it from the free list
+    if(freeSlot != NIL){
+      node = freeSlot;
+      freeSlot = left[node];
+    }
+    // Otherwise, take the first never-used slot, doubling the capacity of the arrays if there is no such slot
+    else{
+      if(usedSlots == keys.length){
+        int newCapacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, newCapacity);
+        values = Arrays.copyOf(values, newCapacity);
+        left = Arrays.copyOf(left, newCapacity);
+        right = Arrays.copyOf(right, newCapacity);
+        height = Arrays.copyOf(height, newCapacity);
+        size = Arrays.copyOf(size, newCapacity);
+      }
+      node = usedSlots;
+      usedSlots++;
+    }
+    keys[node] = key;
+    values[node] = value;
+    left[node] = NIL;
+    right[node] = NIL;
+    height[node] = 0;
+    size[node] = 1;
+    return node;
+  }
+  
+  /**
+   * Put the slot of the node in input to the free list after clearing its key and value so they can be garbage collected
+   * Time complexity: O(1)
+   */
+  private void freeNode(int node){
+    keys[node] = null;
+    values[node] = null;
+    left[node] = freeSlot;
+    freeSlot = node;
+  }
+  
+  /**
+   * Return the height of the node in input
+   * Time complexity: O(1)
+   */
+  private int getNodeHeight(int node){
+    // If node in input is NIL, return -1
+    if(node == NIL){
+      return -1;
+    }
+    // Otherwise, return node's height
+    else{
+      return height[node];
+    }
+  }
+  
+  /**
+   * Return the size of the subtree rooted at the node in input
+   * Time complexity: O(1)
+   */
+  private int getNodeSize(int node){
+    // If node in input is NIL, return 0
+    if(node == NIL){
+      return 0;
+    }
+    // Otherwise, return node's size
+    else{
+      return size[node];
+    }
+  }
+  
+  /**
+   * Update the height and the size of the node in input after making change to tree (should be updated after that node's children's heights and sizes are updated)
+   * Time complexity: O(1)
+   */
+  private void updateNodeHeight(int node){
+    height[node] = Math.max(getNodeHeight(left[node]), getNodeHeight(right[node])) + 1;
+    size[node] = getNodeSize(left[node]) + getNodeSize(right[node]) + 1;
+  }
+  
+  /**
+   * Return the balance of the node in input
+   * Time complexity: O(1)
+   */
+  private int getNodeBalance(int node){
+    // If node in input is NIL, that node's balance is 0, so 0 should be returned
+    if(node == NIL){
+      return 0;
+    }
+    // Otherwise, take the result after subtracting height of left child of node in input from height of right child of node in input
+    else{
+      return getNodeHeight(right[node]) - getNodeHeight(left[node]);
+    }
+  }
+  
+  /**
+   * Do a left rotation around the node in input
+   * Time complexity: O(1)
+   */
+  private int leftRotate(int node){
+    int rotatedNode = right[node];
+    int movedNode = left[rotatedNode];
+    left[rotatedNode] = node;
+    right[node] = movedNode;
+    updateNodeHeight(node);
+    updateNodeHeight(rotatedNode);
+    return rotatedNode;
+  }
+  
+  /**
+   * Do a right rotation around the node in input
+   * Time complexity: O(1)
+   */
+  private int rightRotate(int node){
+    int rotatedNode = left[node];
+    int movedNode = right[rotatedNode];
+    right[rotatedNode] = node;
+    left[node] = movedNode;
+    updateNodeHeight(node);
+    updateNodeHeight(rotatedNode);
+    return rotatedNode;
+  }
+  
+  /**
+   * Rebalance the node in input when that node's balance is smaller than -1 or larger than 1
+   * Time complexity: O(1)
+   */
+  private int rebalanceNode(int node){
+    // Update the height of node in input and store the balance of node in input in nodeBalance
+    updateNodeHeight(node);
+    int nodeBalance = getNodeBalance(node);
+    /**
+     * If nodeBalance is smaller than -1:
+     * do left rotation around left node of input node if height of left child of input node's left child is smaller than height of right child of input node's left child;
+     * do right rotation around the input node
+     */
+    if(nodeBalance < -1){
+      if(getNodeHeight(left[left[node]]) < getNodeHeight(right[left[node]])){
+        left[node] = leftRotate(left[node]);
+      }
+      node = rightRotate(node);
+    }
+    /**
+     * If nodeBalance is larger than 1:
+     * do right rotation around right node of input node if height of left child of input node's right child is larger than height of right child of input node's right child;
+     * do left rotation around the input node
+     */
+    else if(nodeBalance > 1){
+      if(getNodeHeight(left[right[node]]) > getNodeHeight(right[right[node]])){
+        right[node] = rightRotate(right[node]);
+      }
+      node = leftRotate(node);
+    }
+    return node;
+  }
+  
+  /**
+   * Make sure path can store the nodes on the way from root to the deepest node, growing path if it cannot
+   * Time complexity: O(1)
+   */
+  private void ensurePathCapacity(){
+    if(path.length < getNodeHeight(root) + 2){
+      path = new int[2 * (getNodeHeight(root) + 2)];
+    }
+  }
+  
+  /**
+   * Help method insert(T key, V value) and delete(T key) by rebalancing the first depth nodes in path from the deepest one to the shallowest one after making change to tree,
+   * with path storing the nodes on the way from root to the changed node (path[0] is root);
+   * stop early when a node's height is unchanged after rebalancing because heights and balances of its ancestors are then unchanged too; return the number of rotations done
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  private int rebalancePath(int depth){
+    // rotations is used to count the rotations done
+    int rotations = 0;
+    while(depth > 0){
+      // node is the deepest node in path which has not been rebalanced, oldHeight is its height before rebalancing, and leftChild and rightChild are its children before rebalancing
+      depth--;
+      int node = path[depth];
+      int oldHeight = height[node];
+      int leftChild = left[node];
+      int rightChild = right[node];
+      int rebalancedNode = rebalanceNode(node);
+      // A single rotation moves a child of node up in its place, while a double rotation moves a grandchild of node up
+      if(rebalancedNode != node){
+        rotations += (rebalancedNode == leftChild || rebalancedNode == rightChild) ? 1 : 2;
+      }
+      // Set the rebalanced node as root if node is root, or as the child of node's parent (the previous node in path) otherwise
+      if(depth == 0){
+        root = rebalancedNode;
+      }
+      else if(left[path[depth - 1]] == node){
+        left[path[depth - 1]] = rebalancedNode;
+      }
+      else{
+        right[path[depth - 1]] = rebalancedNode;
+      }
+      // If height is unchanged, the rest of path does not need to be rebalanced
+      if(height[rebalancedNode] == oldHeight){
+        break;
+      }
+    }
+    return rotations;
+  }
+  
+  /**
+   * Insert a node with key and associated value to the array AVL tree without recursion, then rebalance the nodes on the way from root to the new node
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public void insert(T key, V value){
+    // start is the time the insert starts if the array AVL tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // nodeToInsert is the new node with input key and input value
+    int nodeToInsert = allocateNode(key, value);
+    // If the array AVL tree is empty, set root as nodeToInsert
+    if(root == NIL){
+      root = nodeToInsert;
+      record(TreeMetrics.Operation.INSERT, start, 0, 0, 0);
+      return;
+    }
+    ensurePathCapacity();
+    // depth is the number of nodes stored in path
+    int depth = 0;
+    // pointer is used to go down in the array AVL tree based on the input key
+    int pointer = root;
+    // goRight stores whether the last move of pointer is to the right
+    boolean goRight = false;
+    /**
+     * Use pointer to go down in the array AVL tree until it is NIL (if input key is larger than or equal to pointer's key, go to the right; otherwise, go to the left);
+     * store each node on the way in path and increase its size since the new node will be in its subtree
+     */
+    while(pointer != NIL){
+      size[pointer]++;
+      path[depth] = pointer;
+      depth++;
+      goRight = key.compareTo(keyOf(pointer)) >= 0;
+      pointer = goRight ? right[pointer] : left[pointer];
+    }
+    // Set nodeToInsert as the child of the last node on the way, then rebalance the nodes in path
+    if(goRight){
+      right[path[depth - 1]] = nodeToInsert;
+    }
+    else{
+      left[path[depth - 1]] = nodeToInsert;
+    }
+    // Each node on the way is compared once with input key
+    int rotations = rebalancePath(depth);
+    record(TreeMetrics.Operation.INSERT, start, depth, rotations, depth);
+  }
+  
+  /**
+   * Help method search(T key), containsKey(T key) and getOrDefault(T key, V defaultValue) by going down in the array AVL tree with a loop until pointer is NIL (return NIL) or reaching the node that has same key as key from input (return that node)
+   * Only one comparison is made between key from input and each node's key on the way; the search is recorded into metrics if the array AVL tree records metrics
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  private int findNode(T key){
+    // start is the time the search starts if the array AVL tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // depth is used to count the nodes on the way, each compared once with key from input
+    int depth = 0;
+    // pointer is used to go down in the array AVL tree based on the key from input
+    int pointer = root;
+    while(pointer != NIL){
+      depth++;
+      // comparison stores the result of comparing key from input with pointer's key
+      int comparison = key.compareTo(keyOf(pointer));
+      // If key from input is equal to pointer's key, stop at pointer
+      if(comparison == 0){
+        break;
+      }
+      // Otherwise, if key from input is larger than pointer's key, go to the right; otherwise, go to the left
+      pointer = (comparison > 0) ? right[pointer] : left[pointer];
+    }
+    record(TreeMetrics.Operation.SEARCH, start, depth, 0, depth);
+    return pointer;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return null if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public V search(T key){
+    return getOrDefault(key, null);
+  }
+  
+  /**
+   * Return true if there is a node which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public boolean containsKey(T key){
+    return findNode(key) != NIL;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return defaultValue if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public V getOrDefault(T key, V defaultValue){
+    // node is the first node encountered which has key that is equal to key from input, or NIL if there is no such node like that
+    int node = findNode(key);
+    return (node != NIL) ? valueOf(node) : defaultValue;
+  }
+  
+  /**
+   * Return true if key is larger than bound, or if inclusive is true and key is equal to bound; return false otherwise
+   * Time complexity: O(1)
+   */
+  private boolean isAbove(T key, T bound, boolean inclusive){
+    int comparison = key.compareTo(bound);
+    return comparison > 0 || (inclusive && comparison == 0);
+  }
+  
+  /**
+   * Help method floor(T key), ceiling(T key), lower(T key) and higher(T key) by going down in the array AVL tree to find the closest node to key from input:
+   * if below is true, return the node with the largest key which is smaller than key from input (or equal to it when inclusive is true);
+   * otherwise, return the node with the smallest key which is larger than key from input (or equal to it when inclusive is true);
+   * return NIL if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  private int findClosestNode(T key, boolean below, boolean inclusive){
+    // closestNode is used to store the closest node found which satisfies the condition
+    int closestNode = NIL;
+    // pointer is used to go down in the array AVL tree based on the key from input
+    int pointer = root;
+    /**
+     * If pointer satisfies the condition, store it in closestNode and go to the side where closer nodes can be (the right if below is true, the left otherwise);
+     * otherwise, go to the other side
+     */
+    while(pointer != NIL){
+      boolean satisfied = below ? isAbove(key, keyOf(pointer), inclusive) : isAbove(keyOf(pointer), key, inclusive);
+      if(satisfied){
+        closestNode = pointer;
+      }
+      pointer = (satisfied == below) ? right[pointer] : left[pointer];
+    }
+    return closestNode;
+  }
+  
+  /**
+   * Return an entry with key and value of the node in input, or return null if node in input is NIL
+   * Time complexity: O(1)
+   */
+  private Map.Entry<T,V> toEntry(int node){
+    return (node != NIL) ? new AbstractMap.SimpleImmutableEntry<T,V>(keyOf(node), valueOf(node)) : null;
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public Map.Entry<T,V> floor(T key){
+    return toEntry(findClosestNode(key, true, true));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public Map.Entry<T,V> ceiling(T key){
+    return toEntry(findClosestNode(key, false, true));
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public Map.Entry<T,V> lower(T key){
+    return toEntry(findClosestNode(key, true, false));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public Map.Entry<T,V> higher(T key){
+    return toEntry(findClosestNode(key, false, false));
+  }
+  
+  /**
+   * Return the entry with the smallest key in the array AVL tree, or return null if the array AVL tree is empty
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public Map.Entry<T,V> first(){
+    // pointer is used to go down to the leftmost node of the array AVL tree
+    int pointer = root;
+    while(pointer != NIL && left[pointer] != NIL){
+      pointer = left[pointer];
+    }
+    return toEntry(pointer);
+  }
+  
+  /**
+   * Return the entry with the largest key in the array AVL tree, or return null if the array AVL tree is empty
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public Map.Entry<T,V> last(){
+    // pointer is used to go down to the rightmost node of the array AVL tree
+    int pointer = root;
+    while(pointer != NIL && right[pointer] != NIL){
+      pointer = right[pointer];
+    }
+    return toEntry(pointer);
+  }
+  
+  /**
+   * Delete the node having the key that is equal to key from input if that node exists without recursion, then rebalance the nodes on the way from root to the removed node
+   * The slot of the removed node is put to the free list to be reused
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public void delete(T key){
+    // start is the time the delete starts if the array AVL tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    ensurePathCapacity();
+    // depth is the number of nodes stored in path
+    int depth = 0;
+    // pointer is used to go down in the array AVL tree based on the key from input
+    int pointer = root;
+    // Use pointer to go down in the array AVL tree until it is NIL or reaching the node having key that is equal to key from input, storing each node on the way in path
+    while(pointer != NIL){
+      int comparison = key.compareTo(keyOf(pointer));
+      if(comparison == 0){
+        break;
+      }
+      path[depth] = pointer;
+      depth++;
+      pointer = (comparison < 0) ? left[pointer] : right[pointer];
+    }
+    // comparisons is the number of nodes compared with key from input
+    int comparisons = depth + ((pointer != NIL) ? 1 : 0);
+    // If there is no node having key that is equal to key from input, do nothing
+    if(pointer == NIL){
+      record(TreeMetrics.Operation.DELETE, start, comparisons, 0, comparisons);
+      return;
+    }
+    /**
+     * If pointer has 2 children, find the descendant with smallest key of pointer's right child, storing each node on the way in path;
+     * use key and value of that descendant as key and value of pointer respectively, then remove that descendant instead
+     */
+    if(left[pointer] != NIL && right[pointer] != NIL){
+      path[depth] = pointer;
+      depth++;
+      int rightSmallestDescendant = right[pointer];
+      while(left[rightSmallestDescendant] != NIL){
+        path[depth] = rightSmallestDescendant;
+        depth++;
+        rightSmallestDescendant = left[rightSmallestDescendant];
+      }
+      keys[pointer] = keys[rightSmallestDescendant];
+      values[pointer] = values[rightSmallestDescendant];
+      pointer = rightSmallestDescendant;
+    }
+    // pointer now has less than 2 children, so replace pointer by its child (left child if it is not NIL or right child otherwise)
+    int childOfPointer = (left[pointer] != NIL) ? left[pointer] : right[pointer];
+    if(depth == 0){
+      root = childOfPointer;
+    }
+    else if(left[path[depth - 1]] == pointer){
+      left[path[depth - 1]] = childOfPointer;
+    }
+    else{
+      right[path[depth - 1]] = childOfPointer;
+    }
+    freeNode(pointer);
+    // Decrease the size of each node in path since pointer is removed from their subtrees, then rebalance the nodes in path
+    for(int i = 0; i < depth; i++){
+      size[path[i]]--;
+    }
+    // depth + 1 is the number of nodes on the way from root to the removed node (including it)
+    int rotations = rebalancePath(depth);
+    record(TreeMetrics.Operation.DELETE, start, comparisons, rotations, depth + 1);
+  }
+  
+  // Class InorderIterator is used to lazily visit the values of the nodes in inorder traversal of the array AVL tree by using a stack of indices instead of recursion
+  private class InorderIterator implements Iterator<V>{
+    
+    // the stack storing the nodes whose values are not visited yet but whose left subtrees are being visited (stack[top - 1] is the next node to visit)
+    private int[] stack;
+    
+    // the number of nodes in the stack
+    private int top;
+    
+    // the largest key allowed to visit (null if there is no upper bound)
+    private T to;
+    
+    // whether the key that is equal to to is allowed to visit
+    private boolean toInclusive;
+    
+    /**
+     * Initialize the iterator to start from the smallest node of the array AVL tree
+     */
+    private InorderIterator(){
+      stack = new int[getNodeHeight(root) + 2];
+      pushLeftPath(root);
+    }
+    
+    /**
+     * Initialize the iterator to start from the kth smallest node of the array AVL tree (k should be from 1 to number of nodes in the array AVL tree),
+     * by using the size of each node's subtree to go down in the array AVL tree and pushing each node on the way where the next move is to the left
+     * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+     */
+    private InorderIterator(int k){
+      stack = new int[getNodeHeight(root) + 2];
+      int pointer = root;
+      while(pointer != NIL){
+        int pointerRank = getNodeSize(left[pointer]) + 1;
+        if(k == pointerRank){
+          push(pointer);
+          pointer = NIL;
+        }
+        else if(k < pointerRank){
+          push(pointer);
+          pointer = left[pointer];
+        }
+        else{
+          k -= pointerRank;
+          pointer = right[pointer];
+        }
+      }
+    }
+    
+    /**
+     * Initialize the iterator to visit only the nodes whose keys are between from and to (null from or null to means there is no lower bound or upper bound respectively),
+     * by going down in the array AVL tree and pushing each node on the way whose key is not smaller than the lower bound, where the next move is to the left
+     * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+     */
+    private InorderIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+      stack = new int[getNodeHeight(root) + 2];
+      this.to = to;
+      this.toInclusive = toInclusive;
+      int pointer = root;
+      while(pointer != NIL){
+        if(from == null || isAbove(keyOf(pointer), from, fromInclusive)){
+          push(pointer);
+          pointer = left[pointer];
+        }
+        else{
+          pointer = right[pointer];
+        }
+      }
+    }
+    
+    /**
+     * Push the node in input to the stack
+     */
+    private void push(int node){
+      stack[top] = node;
+      top++;
+    }
+    
+    /**
+     * Push the node in input and its left descendants to the stack
+     */
+    private void pushLeftPath(int node){
+      while(node != NIL){
+        push(node);
+        node = left[node];
+      }
+    }
+    
+    /**
+     * Return true if there is a node whose value is not visited yet and whose key is not larger than the upper bound, or return false otherwise
+     * Time complexity: O(1)
+     */
+    public boolean hasNext(){
+      return top > 0 && (to == null || isAbove(to, keyOf(stack[top - 1]), toInclusive));
+    }
+    
+    /**
+     * Return the value of the next node in inorder traversal, then push the right child of that node and its left descendants to the stack
+     * Time complexity: O(1) on average over the whole traversal
+     */
+    public V next(){
+      // If there is no node whose value is not visited yet, throw NoSuchElementException
+      if(!hasNext()){
+        throw new NoSuchElementException();
+      }
+      top--;
+      int node = stack[top];
+      pushLeftPath(right[node]);
+      return valueOf(node);
+    }
+  }
+  
+  /**
+   * Return the height of the array AVL tree (the number of edges on the longest path from root, -1 if the array AVL tree is empty)
+   * Time complexity: O(1)
+   */
+  public int height(){
+    return getNodeHeight(root);
+  }
+  
+  /**
+   * Throw IllegalStateException if the array AVL tree breaks one of its invariants: every slot is either a node reached once from root or a free slot reached once from freeSlot,
+   * the height and size of each node agree with its children, the heights of the 2 children of each node differ by at most 1, the keys are in nondecreasing order in inorder traversal,
+   * and free slots hold no key or value (used by ArrayAVLTreeTester)
+   * Time complexity: O(S) (S is number of slots that have been used)
+   */
+  void checkInvariants(){
+    // visited is used to mark the slots reached from root or from freeSlot
+    boolean[] visited = new boolean[usedSlots];
+    checkNode(root, null, null, visited);
+    for(int slot = freeSlot; slot != NIL; slot = left[slot]){
+      if(slot < 0 || slot >= usedSlots || visited[slot]){
+        throw new IllegalStateException("free slot " + slot + " is out of range or already reached");
+      }
+      visited[slot] = true;
+      if(keys[slot] != null || values[slot] != null){
+        throw new IllegalStateException("free slot " + slot + " holds a key or a value");
+      }
+    }
+    for(int slot = 0; slot < usedSlots; slot++){
+      if(!visited[slot]){
+        throw new IllegalStateException("slot " + slot + " is neither a node nor a free slot");
+      }
+    }
+  }
+  
+  /**
+   * Help method checkInvariants() by checking the subtree rooted at the node in input, whose keys should be between low and high (null for no bound), and marking its slots in visited
+   * Time complexity: O(N) (N is number of nodes in the subtree)
+   */
+  private void checkNode(int node, T low, T high, boolean[] visited){
+    if(node == NIL){
+      return;
+    }
+    if(node < 0 || node >= usedSlots || visited[node]){
+      throw new IllegalStateException("node " + node + " is out of range or already reached");
+    }
+    visited[node] = true;
+    T key = keyOf(node);
+    if((low != null && key.compareTo(low) < 0) || (high != null && key.compareTo(high) > 0)){
+      throw new IllegalStateException("key " + key + " is out of order");
+    }
+    checkNode(left[node], low, key, visited);
+    checkNode(right[node], key, high, visited);
+    int leftHeight = getNodeHeight(left[node]);
+    int rightHeight = getNodeHeight(right[node]);
+    if(height[node] != Math.max(leftHeight, rightHeight) + 1 || Math.abs(leftHeight - rightHeight) > 1){
+      throw new IllegalStateException("node " + key + " has height " + height[node] + " and children of heights " + leftHeight + " and " + rightHeight);
+    }
+    if(size[node] != getNodeSize(left[node]) + getNodeSize(right[node]) + 1){
+      throw new IllegalStateException("node " + key + " has size " + size[node]);
+    }
+  }
+  
+  /**
+   * Make the array AVL tree record each insert, search and delete into the metrics from input, or stop recording if metrics is null;
+   * while no metrics are set, each operation only checks that metrics is null
+   */
+  public void setMetrics(TreeMetrics metrics){
+    if(metrics != null){
+      metrics.bind(this::size, this::height);
+    }
+    this.metrics = metrics;
+  }
+  
+  /**
+   * Help method insert(T key, V value), delete(T key) and findNode(T key) by recording an operation which started at start and made the numbers of comparisons and rotations and visited the depth in input;
+   * do nothing if the array AVL tree does not record metrics
+   * Time complexity: O(1)
+   */
+  private void record(TreeMetrics.Operation operation, long start, int comparisons, int rotations, int depth){
+    if(metrics != null){
+      metrics.record(operation, System.nanoTime() - start, comparisons, rotations, depth);
+    }
+  }
+  
+  /**
+   * Return the number of nodes in the array AVL tree
+   * Time complexity: O(1)
+   */
+  public int size(){
+    return getNodeSize(root);
+  }
+  
+  /**
+   * Return an iterator visiting the values in inorder traversal of the array AVL tree lazily, without copying them to a list
+   * Time complexity: O(1) to create the iterator; the iterator's stack takes O(height of the array AVL tree) memory
+   */
+  public Iterator<V> iterator(){
+    return new InorderIterator();
+  }
+  
+  /**
+   * Return an iterator visiting the values of the nodes whose keys are between from and to in inorder traversal of the array AVL tree lazily
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   * Time complexity: O(logN + K) (N is number of nodes in the array AVL tree, K is number of values visited)
+   */
+  public Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+    return new InorderIterator(from, fromInclusive, to, toInclusive);
+  }
+  
+  /**
+   * Return the list of values in inorder traversal of the array AVL tree by using iterator()
+   * Time complexity: O(N) (N is number of nodes in the array AVL tree)
+   */
+  public List<V> inorderRec(){
+    // list is used to store the value in each node in inorder traversal of the array AVL tree, with capacity being number of nodes in the array AVL tree
+    List<V> list = new ArrayList<V>(size());
+    for(V value : this){
+      list.add(value);
+    }
+    return list;
+  }
+  
+  /**
+   * Find the kth smallest element in the array AVL tree by using the size of each node's subtree to go down in the array AVL tree
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public V kthSmallest(int k){
+    // If k is smaller than 1 or larger than number of nodes in the array AVL tree, throw IndexOutOfBoundsException
+    if(k < 1 || k > size()){
+      throw new IndexOutOfBoundsException("k: " + k + ", size: " + size());
+    }
+    // pointer is used to go down in the array AVL tree based on k
+    int pointer = root;
+    /**
+     * Compare k with the rank of pointer in pointer's subtree (size of pointer's left subtree plus 1):
+     * if k is equal to that rank, return pointer's value;
+     * if k is smaller than that rank, go to the left;
+     * otherwise, subtract that rank from k and go to the right
+     */
+    while(true){
+      int pointerRank = getNodeSize(left[pointer]) + 1;
+      if(k == pointerRank){
+        return valueOf(pointer);
+      }
+      else if(k < pointerRank){
+        pointer = left[pointer];
+      }
+      else{
+        k -= pointerRank;
+        pointer = right[pointer];
+      }
+    }
+  }
+  
+  /**
+   * Return the number of nodes in the array AVL tree having key that is smaller than the key from input
+   * Time complexity: O(logN) (N is number of nodes in the array AVL tree)
+   */
+  public int rank(T key){
+    // count is used to store the number of nodes found having key that is smaller than the key from input
+    int count = 0;
+    // pointer is used to go down in the array AVL tree based on the key from input
+    int pointer = root;
+    /**
+     * If key from input is smaller than or equal to pointer's key, go to the left;
+     * otherwise, pointer and pointer's left subtree are all smaller than key from input, so add them to count and go to the right
+     */
+    while(pointer != NIL){
+      if(key.compareTo(keyOf(pointer)) <= 0){
+        pointer = left[pointer];
+      }
+      else{
+        count += getNodeSize(left[pointer]) + 1;
+        pointer = right[pointer];
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Return the list of values of the nodes from the fromth smallest to the toth smallest element in the array AVL tree (both inclusive)
+   * Time complexity: O(logN + K) (N is number of nodes in the array AVL tree, K is number of values returned)
+   */
+  public List<V> select(int from, int to){
+    // If from is smaller than 1 or to is larger than number of nodes in the array AVL tree, throw IndexOutOfBoundsException
+    if(from < 1 || to > size()){
+      throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size());
+    }
+    // list is used to store the values of the nodes in the range
+    List<V> list = new ArrayList<V>(Math.max(to - from + 1, 0));
+    // If the range is not empty, use an iterator starting from the fromth smallest node to add (to - from + 1) values to list
+    if(from <= to){
+      Iterator<V> iterator = new InorderIterator(from);
+      for(int i = from; i <= to; i++){
+        list.add(iterator.next());
+      }
+    }
+    return list;
+  }
+}
\ No newline at end of file
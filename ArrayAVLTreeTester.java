@@ -0,0 +1,65 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class ArrayAVLTreeTester is the tester class for ArrayAVLTree
+public class ArrayAVLTreeTester extends TreeWithComparableKeyTester{
+  
+  protected <T extends Comparable<? super T>,V> TreeWithComparableKey<T,V> newTree(){
+    return new ArrayAVLTree<T,V>();
+  }
+  
+  /**
+   * Check the heights, sizes, balance and key order of the nodes of the array AVL tree and its free list (see ArrayAVLTree.checkInvariants())
+   */
+  protected void checkInvariants(TreeWithComparableKey<Integer, Integer> tree){
+    try{
+      ((ArrayAVLTree<Integer, Integer>)tree).checkInvariants();
+    }
+    catch(IllegalStateException exception){
+      fail(exception.getMessage());
+    }
+  }
+  
+  /**
+   * Tests that ArrayAVLTree reuses the slots of deleted nodes and grows its arrays when all slots are used.
+   */
+  @Test
+  public void testSlotReuse(){
+    ArrayAVLTree<Integer, Integer> tree = new ArrayAVLTree<Integer, Integer>(1);
+    
+    // insert more nodes than the initial capacity
+    for(int i = 0; i < 1000; i++){
+      tree.insert(i, i);
+    }
+    assertEquals(1000, tree.size());
+    
+    // delete and insert nodes many times so that slots of deleted nodes are reused
+    for(int round = 0; round < 10; round++){
+      for(int i = 0; i < 1000; i += 2){
+        tree.delete(i);
+      }
+      assertEquals(500, tree.size());
+      checkInvariants(tree);
+      for(int i = 0; i < 1000; i += 2){
+        tree.insert(i, i);
+      }
+      checkInvariants(tree);
+    }
+    Integer[] result = new Integer[1000];
+    for(int i = 0; i < result.length; i++){
+      result[i] = i;
+    }
+    assertArrayEquals(result, tree.inorderRec().toArray());
+    assertEquals(Integer.valueOf(500), tree.kthSmallest(501));
+    
+    // test the constructor with initial capacity that is smaller than 1
+    try{
+      new ArrayAVLTree<Integer, Integer>(0);
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalArgumentException exception");
+    }
+  }
+}
\ No newline at end of file
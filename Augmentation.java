@@ -0,0 +1,40 @@
+import java.util.function.*;
+// Interface Augmentation is used to keep a summary of each subtree of an AVL tree, such as the sum, the minimum or the maximum of its values, so aggregate(T from, T to) can combine the summaries of whole subtrees
+// The summaries form a monoid: combine should be associative and identity() should be its identity, but combine does not need to be commutative since summaries are always combined in order of keys
+public interface Augmentation<T,V,S>{
+  
+  /**
+   * Return the summary of an empty subtree
+   */
+  S identity();
+  
+  /**
+   * Return the summary of a single node with the key and value in input
+   */
+  S summarize(T key, V value);
+  
+  /**
+   * Return the summary of the nodes summarized by first followed by the nodes summarized by second
+   */
+  S combine(S first, S second);
+  
+  /**
+   * Return the augmentation made of the identity and the 2 functions in input
+   */
+  static <T,V,S> Augmentation<T,V,S> of(S identity, BiFunction<? super T,? super V,? extends S> summarize, BinaryOperator<S> combine){
+    return new Augmentation<T,V,S>(){
+      
+      public S identity(){
+        return identity;
+      }
+      
+      public S summarize(T key, V value){
+        return summarize.apply(key, value);
+      }
+      
+      public S combine(S first, S second){
+        return combine.apply(first, second);
+      }
+    };
+  }
+}
\ No newline at end of file
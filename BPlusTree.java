@@ -0,0 +1,955 @@
+import java.util.*;
+// Class BPlusTree is the B+ tree storing up to fanout keys per node in arrays, where all entries are stored in leaves linked in nondecreasing order of key
+// and internal nodes only store separating keys, so a lookup touches few nodes and ordered scans read the leaves sequentially; nodes having same key keep their insertion order
+public class BPlusTree<T extends Comparable<? super T>,V> implements TreeWithComparableKey<T,V>{
+  
+  // the fanout used when no fanout is given
+  private static final int DEFAULT_FANOUT = 64;
+  
+  // the result of findValue when no entry has the key from input (values can be null, so null cannot mean that the key is missing)
+  private static final Object MISSING = new Object();
+  
+  // Class Node is used for a node in the B+ tree, which is either a leaf or an internal node
+  private abstract class Node{
+    
+    // the keys stored in the node in nondecreasing order (for an internal node, keys[i] separates children[i] and children[i + 1])
+    protected Object[] keys;
+    
+    // the number of keys used in keys
+    protected int keyCount;
+    
+    // whether the node is a leaf
+    protected final boolean leaf;
+    
+    /**
+     * Initialize the node as a leaf or as an internal node
+     */
+    protected Node(boolean leaf){
+      this.leaf = leaf;
+    }
+  }
+  
+  // Class LeafNode is used for a leaf in the B+ tree, which stores entries and is linked to the leaves before and after it
+  private class LeafNode extends Node{
+    
+    // the value associated with each key
+    private Object[] values;
+    
+    // the leaf having the keys right before the keys of the leaf (null if there is no such leaf like that)
+    private LeafNode previous;
+    
+    // the leaf having the keys right after the keys of the leaf (null if there is no such leaf like that)
+    private LeafNode next;
+    
+    /**
+     * Initialize the leaf with room for one key more than fanout, which is needed before splitting the leaf
+     */
+    private LeafNode(){
+      super(true);
+      keys = new Object[fanout + 1];
+      values = new Object[fanout + 1];
+    }
+  }
+  
+  // Class InternalNode is used for an internal node in the B+ tree, which has keyCount + 1 children
+  private class InternalNode extends Node{
+    
+    // the children of the internal node (all keys in children[i] are smaller than or equal to keys[i], which is smaller than or equal to all keys in children[i + 1])
+    private Node[] children;
+    
+    // the number of entries in the subtree rooted at each child
+    private int[] sizes;
+    
+    /**
+     * Initialize the internal node with room for one child more than fanout, which is needed before splitting the internal node
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private InternalNode(){
+      super(false);
+      keys = new Object[fanout];
+      children = new BPlusTree.Node[fanout + 1];
+      sizes = new int[fanout + 1];
+    }
+  }
+  
+  // the largest number of keys in a leaf and the largest number of children of an internal node
+  private final int fanout;
+  
+  // the root of the B+ tree (an empty leaf if the B+ tree is empty)
+  private Node root;
+  
+  // the number of entries in the B+ tree
+  private int size;
+  
+  // the metrics recording each insert, search and delete (null if the B+ tree does not record metrics)
+  private TreeMetrics metrics;
+  
+  /**
+   * Initialize the B+ tree with an empty leaf as root and the default fanout
+   */
+  public BPlusTree(){
+    this(DEFAULT_FANOUT);
+  }
+  
+  /**
+   * Initialize the B+ tree with an empty leaf as root and the fanout from input (throw IllegalArgumentException if fanout is smaller than 3)
+   */
+  public BPlusTree(int fanout){
+    if(fanout < 3){
+      throw new IllegalArgumentException("fanout: " + fanout);
+    }
+    this.fanout = fanout;
+    root = new LeafNode();
+    size = 0;
+  }
+  
+  /**
+   * Return the key at index in input of the node in input
+   * Time complexity: O(1)
+   */
+  @SuppressWarnings("unchecked")
+  private T keyAt(Node node, int index){
+    return (T)node.keys[index];
+  }
+  
+  /**
+   * Return the value at index in input of the leaf in input
+   * Time complexity: O(1)
+   */
+  @SuppressWarnings("unchecked")
+  private V valueAt(LeafNode leaf, int index){
+    return (V)leaf.values[index];
+  }
+  
+  /**
+   * Return true if key is larger than bound, or if inclusive is true and key is equal to bound; return false otherwise
+   * Time complexity: O(1)
+   */
+  private boolean isAbove(T key, T bound, boolean inclusive){
+    int comparison = key.compareTo(bound);
+    return comparison > 0 || (inclusive && comparison == 0);
+  }
+  
+  /**
+   * Return the number of keys in the node in input which are smaller than the key from input (or smaller than or equal to it when inclusive is true) by using binary search
+   * Time complexity: O(logF) (F is fanout)
+   */
+  private int countKeysBelow(Node node, T key, boolean inclusive){
+    return countKeysBelow(node, key, inclusive, null);
+  }
+  
+  /**
+   * Return the number of keys in the node in input which are smaller than the key from input (or smaller than or equal to it when inclusive is true) by using binary search,
+   * adding the number of comparisons made to comparisons[0] unless comparisons is null
+   * Time complexity: O(logF) (F is fanout)
+   */
+  private int countKeysBelow(Node node, T key, boolean inclusive, int[] comparisons){
+    int low = 0;
+    int high = node.keyCount;
+    while(low < high){
+      int middle = (low + high) >>> 1;
+      if(comparisons != null){
+        comparisons[0]++;
+      }
+      if(isAbove(key, keyAt(node, middle), inclusive)){
+        low = middle + 1;
+      }
+      else{
+        high = middle;
+      }
+    }
+    return low;
+  }
+  
+  /**
+   * Go down from root to the leaf where the first entry having key that is larger than or equal to the key from input (or larger than it when inclusive is true) is or would be,
+   * by going to the child after the separating keys that are smaller than the key from input (or smaller than or equal to it when inclusive is true) at each internal node;
+   * all entries in the leaves before the returned leaf are smaller than the key from input (or smaller than or equal to it when inclusive is true)
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  private LeafNode findLeaf(T key, boolean inclusive){
+    Node node = root;
+    while(!node.leaf){
+      node = ((InternalNode)node).children[countKeysBelow(node, key, inclusive)];
+    }
+    return (LeafNode)node;
+  }
+  
+  /**
+   * Return the number of entries in the subtree rooted at the node in input
+   * Time complexity: O(F) (F is fanout)
+   */
+  private int getNodeSize(Node node){
+    // If node in input is a leaf, return its number of keys
+    if(node.leaf){
+      return node.keyCount;
+    }
+    // Otherwise, return the sum of the sizes of its children
+    InternalNode internal = (InternalNode)node;
+    int nodeSize = 0;
+    for(int i = 0; i <= internal.keyCount; i++){
+      nodeSize += internal.sizes[i];
+    }
+    return nodeSize;
+  }
+  
+  /**
+   * Return the index of the child in input among the children of parent
+   * Time complexity: O(F) (F is fanout)
+   */
+  private int indexOfChild(InternalNode parent, Node child){
+    int index = 0;
+    while(parent.children[index] != child){
+      index++;
+    }
+    return index;
+  }
+  
+  /**
+   * Insert an entry with key and associated value to the B+ tree after all entries having same key, then split each node on the way from root that has too many keys, from the leaf upward
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  public void insert(T key, V value){
+    // start is the time the insert starts if the B+ tree records metrics, comparisons is used to count the comparisons and depth is used to count the nodes on the way from root to the leaf
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    int[] comparisons = (metrics != null) ? new int[1] : null;
+    int depth = insertEntry(key, value, comparisons);
+    if(comparisons != null){
+      record(TreeMetrics.Operation.INSERT, start, comparisons[0], depth);
+    }
+  }
+  
+  /**
+   * Help method insert(T key, V value) by inserting the entry and splitting the nodes as insert describes, adding the number of comparisons made to comparisons[0] unless comparisons is null,
+   * then returning the number of nodes on the way from root to the leaf
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  private int insertEntry(T key, V value, int[] comparisons){
+    // path is used to store the internal nodes on the way from root to the leaf
+    Deque<InternalNode> path = new ArrayDeque<InternalNode>();
+    Node node = root;
+    // Go down after the separating keys that are smaller than or equal to key from input, increasing the size of each child on the way since the new entry will be in its subtree
+    while(!node.leaf){
+      InternalNode internal = (InternalNode)node;
+      int index = countKeysBelow(internal, key, true, comparisons);
+      internal.sizes[index]++;
+      path.push(internal);
+      node = internal.children[index];
+    }
+    // depth is the number of nodes on the way from root to the leaf
+    int depth = path.size() + 1;
+    // Insert the entry to the leaf after the keys that are smaller than or equal to key from input
+    LeafNode leaf = (LeafNode)node;
+    int index = countKeysBelow(leaf, key, true, comparisons);
+    System.arraycopy(leaf.keys, index, leaf.keys, index + 1, leaf.keyCount - index);
+    System.arraycopy(leaf.values, index, leaf.values, index + 1, leaf.keyCount - index);
+    leaf.keys[index] = key;
+    leaf.values[index] = value;
+    leaf.keyCount++;
+    size++;
+    if(leaf.keyCount <= fanout){
+      return depth;
+    }
+    // The leaf has too many keys, so move its larger half to a new leaf linked after it; the smallest key of the new leaf separates them
+    LeafNode newLeaf = new LeafNode();
+    int leftCount = leaf.keyCount / 2;
+    newLeaf.keyCount = leaf.keyCount - leftCount;
+    System.arraycopy(leaf.keys, leftCount, newLeaf.keys, 0, newLeaf.keyCount);
+    System.arraycopy(leaf.values, leftCount, newLeaf.values, 0, newLeaf.keyCount);
+    Arrays.fill(leaf.keys, leftCount, leaf.keyCount, null);
+    Arrays.fill(leaf.values, leftCount, leaf.keyCount, null);
+    leaf.keyCount = leftCount;
+    newLeaf.next = leaf.next;
+    newLeaf.previous = leaf;
+    if(leaf.next != null){
+      leaf.next.previous = newLeaf;
+    }
+    leaf.next = newLeaf;
+    // child is the node that has been split, sibling is the new node after it and separator is the key separating them
+    Node child = leaf;
+    Node sibling = newLeaf;
+    T separator = keyAt(newLeaf, 0);
+    // Add sibling to the parent of child; if the parent then has too many children, split it too and continue with its parent
+    while(!path.isEmpty()){
+      InternalNode parent = path.pop();
+      int childIndex = indexOfChild(parent, child);
+      System.arraycopy(parent.keys, childIndex, parent.keys, childIndex + 1, parent.keyCount - childIndex);
+      System.arraycopy(parent.children, childIndex + 1, parent.children, childIndex + 2, parent.keyCount - childIndex);
+      System.arraycopy(parent.sizes, childIndex + 1, parent.sizes, childIndex + 2, parent.keyCount - childIndex);
+      parent.keys[childIndex] = separator;
+      parent.children[childIndex + 1] = sibling;
+      parent.sizes[childIndex] = getNodeSize(child);
+      parent.sizes[childIndex + 1] = getNodeSize(sibling);
+      parent.keyCount++;
+      if(parent.keyCount < fanout){
+        return depth;
+      }
+      // parent has fanout + 1 children, so move its larger half of children to a new internal node; the key between the halves moves up to separate them
+      InternalNode newInternal = new InternalNode();
+      int leftChildren = (parent.keyCount + 2) / 2;
+      newInternal.keyCount = parent.keyCount - leftChildren;
+      separator = keyAt(parent, leftChildren - 1);
+      System.arraycopy(parent.keys, leftChildren, newInternal.keys, 0, newInternal.keyCount);
+      System.arraycopy(parent.children, leftChildren, newInternal.children, 0, newInternal.keyCount + 1);
+      System.arraycopy(parent.sizes, leftChildren, newInternal.sizes, 0, newInternal.keyCount + 1);
+      Arrays.fill(parent.keys, leftChildren - 1, parent.keyCount, null);
+      Arrays.fill(parent.children, leftChildren, parent.keyCount + 1, null);
+      parent.keyCount = leftChildren - 1;
+      child = parent;
+      sibling = newInternal;
+    }
+    // root has been split, so make a new root having child and sibling as its children
+    InternalNode newRoot = new InternalNode();
+    newRoot.keys[0] = separator;
+    newRoot.children[0] = child;
+    newRoot.children[1] = sibling;
+    newRoot.sizes[0] = getNodeSize(child);
+    newRoot.sizes[1] = getNodeSize(sibling);
+    newRoot.keyCount = 1;
+    root = newRoot;
+    return depth;
+  }
+  
+  /**
+   * Delete the entry having the key that is equal to key from input if that entry exists, then merge or rebalance each node on the way from root that has too few keys
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  public void delete(T key){
+    // start is the time the delete starts if the B+ tree records metrics, comparisons is used to count the comparisons and depth is used to count the nodes visited (both null if the B+ tree does not record metrics)
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    int[] comparisons = (metrics != null) ? new int[1] : null;
+    int[] depth = (metrics != null) ? new int[1] : null;
+    if(deleteFromNode(root, key, comparisons, depth)){
+      size--;
+      // If root is an internal node having only one child, that child becomes root
+      if(!root.leaf && root.keyCount == 0){
+        root = ((InternalNode)root).children[0];
+      }
+    }
+    if(comparisons != null){
+      record(TreeMetrics.Operation.DELETE, start, comparisons[0], depth[0]);
+    }
+  }
+  
+  /**
+   * Help method delete(T key) by deleting the first entry having the key that is equal to key from input in the subtree rooted at the node in input by using recursion;
+   * return true if such an entry is deleted, or return false otherwise
+   * Since entries having same key can be in several children, try the next child as long as the separating key before it is equal to key from input;
+   * the number of comparisons made is added to comparisons[0] and the number of nodes visited to depth[0] unless they are null
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  private boolean deleteFromNode(Node node, T key, int[] comparisons, int[] depth){
+    if(depth != null){
+      depth[0]++;
+    }
+    // If node is a leaf, remove the first entry having key that is equal to key from input if that entry exists
+    if(node.leaf){
+      LeafNode leaf = (LeafNode)node;
+      int index = countKeysBelow(leaf, key, false, comparisons);
+      if(index < leaf.keyCount && comparisons != null){
+        comparisons[0]++;
+      }
+      if(index == leaf.keyCount || key.compareTo(keyAt(leaf, index)) != 0){
+        return false;
+      }
+      System.arraycopy(leaf.keys, index + 1, leaf.keys, index, leaf.keyCount - index - 1);
+      System.arraycopy(leaf.values, index + 1, leaf.values, index, leaf.keyCount - index - 1);
+      leaf.keyCount--;
+      leaf.keys[leaf.keyCount] = null;
+      leaf.values[leaf.keyCount] = null;
+      return true;
+    }
+    InternalNode internal = (InternalNode)node;
+    for(int index = countKeysBelow(internal, key, false, comparisons); index <= internal.keyCount; index++){
+      if(deleteFromNode(internal.children[index], key, comparisons, depth)){
+        internal.sizes[index]--;
+        fixUnderflow(internal, index);
+        return true;
+      }
+      // The next child can only have key from input if the separating key before it is equal to key from input
+      if(index == internal.keyCount){
+        return false;
+      }
+      if(comparisons != null){
+        comparisons[0]++;
+      }
+      if(key.compareTo(keyAt(internal, index)) != 0){
+        return false;
+      }
+    }
+    return false;
+  }
+  
+  /**
+   * Help method delete(T key) by fixing the child at index in input of parent when that child has too few keys after a deletion:
+   * move one key from a sibling having more than enough keys, or merge the child with a sibling otherwise
+   * Time complexity: O(F) (F is fanout)
+   */
+  private void fixUnderflow(InternalNode parent, int index){
+    Node child = parent.children[index];
+    // a leaf needs at least fanout / 2 keys, and an internal node needs at least (fanout + 1) / 2 children
+    int minKeyCount = child.leaf ? fanout / 2 : (fanout + 1) / 2 - 1;
+    if(child.keyCount >= minKeyCount){
+      return;
+    }
+    if(index > 0 && parent.children[index - 1].keyCount > minKeyCount){
+      moveFromLeftSibling(parent, index);
+    }
+    else if(index < parent.keyCount && parent.children[index + 1].keyCount > minKeyCount){
+      moveFromRightSibling(parent, index);
+    }
+    else if(index > 0){
+      mergeChildren(parent, index - 1);
+    }
+    else{
+      mergeChildren(parent, index);
+    }
+  }
+  
+  /**
+   * Move the last entry (for leaves) or the last child (for internal nodes) of the child at index - 1 of parent to the front of the child at index of parent, then update the key separating them
+   * Time complexity: O(F) (F is fanout)
+   */
+  private void moveFromLeftSibling(InternalNode parent, int index){
+    Node child = parent.children[index];
+    Node left = parent.children[index - 1];
+    System.arraycopy(child.keys, 0, child.keys, 1, child.keyCount);
+    int movedSize;
+    if(child.leaf){
+      LeafNode childLeaf = (LeafNode)child;
+      LeafNode leftLeaf = (LeafNode)left;
+      System.arraycopy(childLeaf.values, 0, childLeaf.values, 1, childLeaf.keyCount);
+      childLeaf.keys[0] = leftLeaf.keys[leftLeaf.keyCount - 1];
+      childLeaf.values[0] = leftLeaf.values[leftLeaf.keyCount - 1];
+      leftLeaf.keys[leftLeaf.keyCount - 1] = null;
+      leftLeaf.values[leftLeaf.keyCount - 1] = null;
+      parent.keys[index - 1] = childLeaf.keys[0];
+      movedSize = 1;
+    }
+    else{
+      InternalNode childInternal = (InternalNode)child;
+      InternalNode leftInternal = (InternalNode)left;
+      System.arraycopy(childInternal.children, 0, childInternal.children, 1, childInternal.keyCount + 1);
+      System.arraycopy(childInternal.sizes, 0, childInternal.sizes, 1, childInternal.keyCount + 1);
+      // The separating key moves down to the child and the last key of left moves up to separate them
+      childInternal.keys[0] = parent.keys[index - 1];
+      childInternal.children[0] = leftInternal.children[leftInternal.keyCount];
+      childInternal.sizes[0] = leftInternal.sizes[leftInternal.keyCount];
+      parent.keys[index - 1] = leftInternal.keys[leftInternal.keyCount - 1];
+      leftInternal.keys[leftInternal.keyCount - 1] = null;
+      leftInternal.children[leftInternal.keyCount] = null;
+      movedSize = childInternal.sizes[0];
+    }
+    child.keyCount++;
+    left.keyCount--;
+    parent.sizes[index - 1] -= movedSize;
+    parent.sizes[index] += movedSize;
+  }
+  
+  /**
+   * Move the first entry (for leaves) or the first child (for internal nodes) of the child at index + 1 of parent to the end of the child at index of parent, then update the key separating them
+   * Time complexity: O(F) (F is fanout)
+   */
+  private void moveFromRightSibling(InternalNode parent, int index){
+    Node child = parent.children[index];
+    Node right = parent.children[index + 1];
+    int movedSize;
+    if(child.leaf){
+      LeafNode childLeaf = (LeafNode)child;
+      LeafNode rightLeaf = (LeafNode)right;
+      childLeaf.keys[childLeaf.keyCount] = rightLeaf.keys[0];
+      childLeaf.values[childLeaf.keyCount] = rightLeaf.values[0];
+      System.arraycopy(rightLeaf.values, 1, rightLeaf.values, 0, rightLeaf.keyCount - 1);
+      rightLeaf.values[rightLeaf.keyCount - 1] = null;
+      System.arraycopy(rightLeaf.keys, 1, rightLeaf.keys, 0, rightLeaf.keyCount - 1);
+      rightLeaf.keys[rightLeaf.keyCount - 1] = null;
+      parent.keys[index] = rightLeaf.keys[0];
+      movedSize = 1;
+    }
+    else{
+      InternalNode childInternal = (InternalNode)child;
+      InternalNode rightInternal = (InternalNode)right;
+      // The separating key moves down to the child and the first key of right moves up to separate them
+      childInternal.keys[childInternal.keyCount] = parent.keys[index];
+      childInternal.children[childInternal.keyCount + 1] = rightInternal.children[0];
+      childInternal.sizes[childInternal.keyCount + 1] = rightInternal.sizes[0];
+      movedSize = rightInternal.sizes[0];
+      parent.keys[index] = rightInternal.keys[0];
+      System.arraycopy(rightInternal.keys, 1, rightInternal.keys, 0, rightInternal.keyCount - 1);
+      rightInternal.keys[rightInternal.keyCount - 1] = null;
+      System.arraycopy(rightInternal.children, 1, rightInternal.children, 0, rightInternal.keyCount);
+      System.arraycopy(rightInternal.sizes, 1, rightInternal.sizes, 0, rightInternal.keyCount);
+      rightInternal.children[rightInternal.keyCount] = null;
+    }
+    child.keyCount++;
+    right.keyCount--;
+    parent.sizes[index] += movedSize;
+    parent.sizes[index + 1] -= movedSize;
+  }
+  
+  /**
+   * Merge the child at index + 1 of parent into the child at index of parent, then remove the key separating them and the merged child from parent
+   * Time complexity: O(F) (F is fanout)
+   */
+  private void mergeChildren(InternalNode parent, int index){
+    Node left = parent.children[index];
+    Node right = parent.children[index + 1];
+    if(left.leaf){
+      LeafNode leftLeaf = (LeafNode)left;
+      LeafNode rightLeaf = (LeafNode)right;
+      System.arraycopy(rightLeaf.keys, 0, leftLeaf.keys, leftLeaf.keyCount, rightLeaf.keyCount);
+      System.arraycopy(rightLeaf.values, 0, leftLeaf.values, leftLeaf.keyCount, rightLeaf.keyCount);
+      leftLeaf.keyCount += rightLeaf.keyCount;
+      leftLeaf.next = rightLeaf.next;
+      if(rightLeaf.next != null){
+        rightLeaf.next.previous = leftLeaf;
+      }
+    }
+    else{
+      InternalNode leftInternal = (InternalNode)left;
+      InternalNode rightInternal = (InternalNode)right;
+      // The separating key moves down between the keys of the 2 children
+      leftInternal.keys[leftInternal.keyCount] = parent.keys[index];
+      System.arraycopy(rightInternal.keys, 0, leftInternal.keys, leftInternal.keyCount + 1, rightInternal.keyCount);
+      System.arraycopy(rightInternal.children, 0, leftInternal.children, leftInternal.keyCount + 1, rightInternal.keyCount + 1);
+      System.arraycopy(rightInternal.sizes, 0, leftInternal.sizes, leftInternal.keyCount + 1, rightInternal.keyCount + 1);
+      leftInternal.keyCount += rightInternal.keyCount + 1;
+    }
+    parent.sizes[index] += parent.sizes[index + 1];
+    System.arraycopy(parent.keys, index + 1, parent.keys, index, parent.keyCount - index - 1);
+    System.arraycopy(parent.children, index + 2, parent.children, index + 1, parent.keyCount - index - 1);
+    System.arraycopy(parent.sizes, index + 2, parent.sizes, index + 1, parent.keyCount - index - 1);
+    parent.keyCount--;
+    parent.keys[parent.keyCount] = null;
+    parent.children[parent.keyCount + 1] = null;
+  }
+  
+  /**
+   * Return an entry with key and value at index in input of the leaf in input, where index can be one past either end of the leaf to mean the last entry of the leaf before
+   * or the first entry of the leaf after; return null if there is no such entry like that
+   * Time complexity: O(1)
+   */
+  private Map.Entry<T,V> entryAt(LeafNode leaf, int index){
+    if(index >= leaf.keyCount){
+      leaf = leaf.next;
+      index = 0;
+    }
+    else if(index < 0){
+      leaf = leaf.previous;
+      index = (leaf != null) ? leaf.keyCount - 1 : 0;
+    }
+    if(leaf == null || leaf.keyCount == 0){
+      return null;
+    }
+    return new AbstractMap.SimpleImmutableEntry<T,V>(keyAt(leaf, index), valueAt(leaf, index));
+  }
+  
+  /**
+   * Search for the first entry in nondecreasing order of key which has key that is equal to the key from input, return that entry's value or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  public V search(T key){
+    return getOrDefault(key, null);
+  }
+  
+  /**
+   * Return true if there is an entry which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  public boolean containsKey(T key){
+    return findValue(key) != MISSING;
+  }
+  
+  /**
+   * Search for the first entry in nondecreasing order of key which has key that is equal to the key from input, return that entry's value or return defaultValue if there is no such entry like that
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  @SuppressWarnings("unchecked")
+  public V getOrDefault(T key, V defaultValue){
+    Object value = findValue(key);
+    return (value != MISSING) ? (V)value : defaultValue;
+  }
+  
+  /**
+   * Help method search(T key), containsKey(T key) and getOrDefault(T key, V defaultValue) by returning the value of the first entry in nondecreasing order of key which has key that is equal to the key from input,
+   * or returning MISSING if there is no such entry like that; the value is returned instead of the entry's index since the entry can be the first one of the leaf after the leaf reached from root
+   * The search is recorded into metrics if the B+ tree records metrics, and comparisons are only counted then, so a lookup allocates nothing
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  private Object findValue(T key){
+    // start is the time the search starts if the B+ tree records metrics, comparisons is used to count the comparisons (null if the B+ tree does not record metrics) and depth is used to count the nodes on the way from root to the leaf
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    int[] comparisons = (metrics != null) ? new int[1] : null;
+    int depth = 1;
+    Node node = root;
+    while(!node.leaf){
+      node = ((InternalNode)node).children[countKeysBelow(node, key, false, comparisons)];
+      depth++;
+    }
+    LeafNode leaf = (LeafNode)node;
+    int index = countKeysBelow(leaf, key, false, comparisons);
+    // If every key in leaf is smaller than key from input, the first key that is not smaller is the first key of the next leaf
+    if(index == leaf.keyCount){
+      leaf = leaf.next;
+      index = 0;
+    }
+    Object value = MISSING;
+    if(leaf != null && index < leaf.keyCount){
+      if(comparisons != null){
+        comparisons[0]++;
+      }
+      if(key.compareTo(keyAt(leaf, index)) == 0){
+        value = leaf.values[index];
+      }
+    }
+    if(comparisons != null){
+      record(TreeMetrics.Operation.SEARCH, start, comparisons[0], depth);
+    }
+    return value;
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  public Map.Entry<T,V> floor(T key){
+    LeafNode leaf = findLeaf(key, true);
+    return entryAt(leaf, countKeysBelow(leaf, key, true) - 1);
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  public Map.Entry<T,V> ceiling(T key){
+    LeafNode leaf = findLeaf(key, false);
+    return entryAt(leaf, countKeysBelow(leaf, key, false));
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  public Map.Entry<T,V> lower(T key){
+    LeafNode leaf = findLeaf(key, false);
+    return entryAt(leaf, countKeysBelow(leaf, key, false) - 1);
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  public Map.Entry<T,V> higher(T key){
+    LeafNode leaf = findLeaf(key, true);
+    return entryAt(leaf, countKeysBelow(leaf, key, true));
+  }
+  
+  /**
+   * Return the leftmost leaf of the B+ tree
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  private LeafNode firstLeaf(){
+    Node node = root;
+    while(!node.leaf){
+      node = ((InternalNode)node).children[0];
+    }
+    return (LeafNode)node;
+  }
+  
+  /**
+   * Return the entry with the smallest key in the B+ tree, or return null if the B+ tree is empty
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  public Map.Entry<T,V> first(){
+    return entryAt(firstLeaf(), 0);
+  }
+  
+  /**
+   * Return the entry with the largest key in the B+ tree, or return null if the B+ tree is empty
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  public Map.Entry<T,V> last(){
+    Node node = root;
+    while(!node.leaf){
+      node = ((InternalNode)node).children[node.keyCount];
+    }
+    return entryAt((LeafNode)node, node.keyCount - 1);
+  }
+  
+  // Class LeafIterator is used to lazily visit the values in nondecreasing order of key by going through the linked leaves
+  private class LeafIterator implements Iterator<V>{
+    
+    // the leaf having the next entry to visit (null if there is no entry left)
+    private LeafNode leaf;
+    
+    // the index of the next entry to visit in leaf
+    private int index;
+    
+    // the largest key allowed to visit (null if there is no upper bound)
+    private T to;
+    
+    // whether the key that is equal to to is allowed to visit
+    private boolean toInclusive;
+    
+    /**
+     * Initialize the iterator to start from the entry at index in input of the leaf in input (index can be one past the end of the leaf to start from the next leaf)
+     * and to stop after the entries whose keys are not larger than to (null to means there is no upper bound)
+     */
+    private LeafIterator(LeafNode leaf, int index, T to, boolean toInclusive){
+      this.leaf = leaf;
+      this.index = index;
+      this.to = to;
+      this.toInclusive = toInclusive;
+      moveToNextLeafIfNeeded();
+    }
+    
+    /**
+     * Go to the first entry of the next leaf when every entry of leaf has been visited
+     */
+    private void moveToNextLeafIfNeeded(){
+      if(leaf != null && index >= leaf.keyCount){
+        leaf = leaf.next;
+        index = 0;
+      }
+    }
+    
+    /**
+     * Return true if there is an entry whose value is not visited yet and whose key is not larger than the upper bound, or return false otherwise
+     * Time complexity: O(1)
+     */
+    public boolean hasNext(){
+      return leaf != null && index < leaf.keyCount && (to == null || isAbove(to, keyAt(leaf, index), toInclusive));
+    }
+    
+    /**
+     * Return the value of the next entry in nondecreasing order of key
+     * Time complexity: O(1)
+     */
+    public V next(){
+      // If there is no entry which is not visited yet, throw NoSuchElementException
+      if(!hasNext()){
+        throw new NoSuchElementException();
+      }
+      V value = valueAt(leaf, index);
+      index++;
+      moveToNextLeafIfNeeded();
+      return value;
+    }
+  }
+  
+  /**
+   * Return the height of the B+ tree (the number of edges on the way from root to a leaf, -1 if the B+ tree is empty); all leaves are at the same depth
+   * Time complexity: O(logN) (N is number of entries in the B+ tree)
+   */
+  public int height(){
+    if(size == 0){
+      return -1;
+    }
+    int height = 0;
+    Node node = root;
+    while(!node.leaf){
+      node = ((InternalNode)node).children[0];
+      height++;
+    }
+    return height;
+  }
+  
+  /**
+   * Throw IllegalStateException if the B+ tree breaks one of its invariants: each node except root has at least half of the keys or children it can have and no more than it can have,
+   * the keys are in nondecreasing order and between the separating keys above them, the sizes of the children and the size of the B+ tree are right,
+   * all leaves are at the same depth, and the links of the leaves visit all leaves in order (used by BPlusTreeTester)
+   * Time complexity: O(N) (N is number of entries in the B+ tree)
+   */
+  void checkInvariants(){
+    // leaves is used to store the leaves in order of their keys as they are found going down from root
+    List<LeafNode> leaves = new ArrayList<LeafNode>();
+    int count = checkNode(root, null, null, 0, new int[]{-1}, leaves);
+    if(count != size){
+      throw new IllegalStateException("size is " + size + " but the leaves have " + count + " entries");
+    }
+    for(int i = 0; i < leaves.size(); i++){
+      LeafNode leaf = leaves.get(i);
+      if(leaf.previous != ((i > 0) ? leaves.get(i - 1) : null) || leaf.next != ((i + 1 < leaves.size()) ? leaves.get(i + 1) : null)){
+        throw new IllegalStateException("leaf " + i + " is not linked to the leaves next to it");
+      }
+    }
+  }
+  
+  /**
+   * Help method checkInvariants() by checking the subtree rooted at the node in input, whose keys should be between low and high (null for no bound) and which is at the depth in input,
+   * where leafDepth[0] is the depth of the leaves found so far (-1 before the first one) and leaves collects the leaves in order; return the number of entries in the subtree
+   * Time complexity: O(N) (N is number of entries in the subtree)
+   */
+  private int checkNode(Node node, T low, T high, int depth, int[] leafDepth, List<LeafNode> leaves){
+    // root can have fewer keys, but an internal root has at least 2 children
+    int minKeyCount = (node == root) ? (node.leaf ? 0 : 1) : (node.leaf ? fanout / 2 : (fanout + 1) / 2 - 1);
+    int maxKeyCount = node.leaf ? fanout : fanout - 1;
+    if(node.keyCount < minKeyCount || node.keyCount > maxKeyCount){
+      throw new IllegalStateException("node at depth " + depth + " has " + node.keyCount + " keys");
+    }
+    for(int i = 0; i < node.keyCount; i++){
+      T key = keyAt(node, i);
+      if((i > 0 && keyAt(node, i - 1).compareTo(key) > 0) || (low != null && key.compareTo(low) < 0) || (high != null && key.compareTo(high) > 0)){
+        throw new IllegalStateException("key " + key + " at depth " + depth + " is out of order");
+      }
+    }
+    if(node.leaf){
+      if(leafDepth[0] == -1){
+        leafDepth[0] = depth;
+      }
+      else if(leafDepth[0] != depth){
+        throw new IllegalStateException("leaf at depth " + depth + " but other leaves are at depth " + leafDepth[0]);
+      }
+      leaves.add((LeafNode)node);
+      return node.keyCount;
+    }
+    InternalNode internal = (InternalNode)node;
+    int count = 0;
+    for(int i = 0; i <= internal.keyCount; i++){
+      int childCount = checkNode(internal.children[i], (i > 0) ? keyAt(internal, i - 1) : low, (i < internal.keyCount) ? keyAt(internal, i) : high, depth + 1, leafDepth, leaves);
+      if(childCount != internal.sizes[i]){
+        throw new IllegalStateException("child " + i + " of node at depth " + depth + " has " + childCount + " entries but its size is " + internal.sizes[i]);
+      }
+      count += childCount;
+    }
+    return count;
+  }
+  
+  /**
+   * Make the B+ tree record each insert, search and delete into the metrics from input, or stop recording if metrics is null;
+   * while no metrics are set, each operation only checks that metrics is null (the B+ tree splits and merges nodes instead of rotating, so rotations are always recorded as 0,
+   * and the comparisons are those of the binary searches in the nodes visited)
+   */
+  public void setMetrics(TreeMetrics metrics){
+    if(metrics != null){
+      metrics.bind(this::size, this::height);
+    }
+    this.metrics = metrics;
+  }
+  
+  /**
+   * Help method insert(T key, V value), delete(T key) and findValue(T key) by recording an operation which started at start and made the number of comparisons and visited the depth in input;
+   * do nothing if the B+ tree does not record metrics
+   * Time complexity: O(1)
+   */
+  private void record(TreeMetrics.Operation operation, long start, int comparisons, int depth){
+    if(metrics != null){
+      metrics.record(operation, System.nanoTime() - start, comparisons, 0, depth);
+    }
+  }
+  
+  /**
+   * Return the number of entries in the B+ tree
+   * Time complexity: O(1)
+   */
+  public int size(){
+    return size;
+  }
+  
+  /**
+   * Return an iterator visiting the values in nondecreasing order of key by going through the linked leaves lazily
+   * Time complexity: O(logN) to create the iterator (N is number of entries in the B+ tree)
+   */
+  public Iterator<V> iterator(){
+    return new LeafIterator(firstLeaf(), 0, null, false);
+  }
+  
+  /**
+   * Return an iterator visiting the values of the entries whose keys are between from and to in nondecreasing order of key lazily
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   * Time complexity: O(logN + K) (N is number of entries in the B+ tree, K is number of values visited)
+   */
+  public Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+    if(from == null){
+      return new LeafIterator(firstLeaf(), 0, to, toInclusive);
+    }
+    LeafNode leaf = findLeaf(from, !fromInclusive);
+    return new LeafIterator(leaf, countKeysBelow(leaf, from, !fromInclusive), to, toInclusive);
+  }
+  
+  /**
+   * Return the list of values in nondecreasing order of key by copying the values of each leaf while going through the linked leaves
+   * Time complexity: O(N) (N is number of entries in the B+ tree)
+   */
+  public List<V> inorderRec(){
+    // list is used to store the values, with capacity being number of entries in the B+ tree
+    List<V> list = new ArrayList<V>(size);
+    for(LeafNode leaf = firstLeaf(); leaf != null; leaf = leaf.next){
+      for(int i = 0; i < leaf.keyCount; i++){
+        list.add(valueAt(leaf, i));
+      }
+    }
+    return list;
+  }
+  
+  /**
+   * Return an iterator starting from the kth smallest entry in the B+ tree (k should be from 1 to number of entries in the B+ tree),
+   * by using the sizes of the children of each internal node to go down from root
+   * Time complexity: O(FlogN/logF) (N is number of entries in the B+ tree, F is fanout)
+   */
+  private LeafIterator iteratorFrom(int k){
+    Node node = root;
+    while(!node.leaf){
+      InternalNode internal = (InternalNode)node;
+      int index = 0;
+      while(k > internal.sizes[index]){
+        k -= internal.sizes[index];
+        index++;
+      }
+      node = internal.children[index];
+    }
+    return new LeafIterator((LeafNode)node, k - 1, null, false);
+  }
+  
+  /**
+   * Find the kth smallest element in the B+ tree by using the sizes of the children of each internal node to go down from root
+   * Time complexity: O(FlogN/logF) (N is number of entries in the B+ tree, F is fanout)
+   */
+  public V kthSmallest(int k){
+    // If k is smaller than 1 or larger than number of entries in the B+ tree, throw IndexOutOfBoundsException
+    if(k < 1 || k > size){
+      throw new IndexOutOfBoundsException("k: " + k + ", size: " + size);
+    }
+    return iteratorFrom(k).next();
+  }
+  
+  /**
+   * Return the number of entries in the B+ tree having key that is smaller than the key from input,
+   * by adding the sizes of the children before the child where the key from input would go at each internal node on the way from root
+   * Time complexity: O(FlogN/logF) (N is number of entries in the B+ tree, F is fanout)
+   */
+  public int rank(T key){
+    // count is used to store the number of entries found having key that is smaller than the key from input
+    int count = 0;
+    Node node = root;
+    while(!node.leaf){
+      InternalNode internal = (InternalNode)node;
+      int index = countKeysBelow(internal, key, false);
+      for(int i = 0; i < index; i++){
+        count += internal.sizes[i];
+      }
+      node = internal.children[index];
+    }
+    return count + countKeysBelow(node, key, false);
+  }
+  
+  /**
+   * Return the list of values of the entries from the fromth smallest to the toth smallest element in the B+ tree (both inclusive)
+   * Time complexity: O(FlogN/logF + K) (N is number of entries in the B+ tree, F is fanout, K is number of values returned)
+   */
+  public List<V> select(int from, int to){
+    // If from is smaller than 1 or to is larger than number of entries in the B+ tree, throw IndexOutOfBoundsException
+    if(from < 1 || to > size){
+      throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size);
+    }
+    // list is used to store the values of the entries in the range
+    List<V> list = new ArrayList<V>(Math.max(to - from + 1, 0));
+    if(from <= to){
+      Iterator<V> iterator = iteratorFrom(from);
+      for(int i = from; i <= to; i++){
+        list.add(iterator.next());
+      }
+    }
+    return list;
+  }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class BPlusTreeTester is the tester class for BPlusTree
+public class BPlusTreeTester extends TreeWithComparableKeyTester{
+  
+  /**
+   * Return a new B+ tree with fanout 4, small enough for the shared tests to split and merge nodes
+   */
+  protected <T extends Comparable<? super T>,V> TreeWithComparableKey<T,V> newTree(){
+    return new BPlusTree<T,V>(4);
+  }
+  
+  /**
+   * Check the occupancy of the nodes, the order of the keys, the sizes, the depth of the leaves and the links between leaves of the B+ tree (see BPlusTree.checkInvariants())
+   */
+  protected void checkInvariants(TreeWithComparableKey<Integer, Integer> tree){
+    try{
+      ((BPlusTree<Integer, Integer>)tree).checkInvariants();
+    }
+    catch(IllegalStateException exception){
+      fail(exception.getMessage());
+    }
+  }
+  
+  /**
+   * Tests BPlusTree with small fanouts, where nodes are split, merged and rebalanced often, checking the occupancy of the nodes after every change.
+   */
+  @Test
+  public void testFanout(){
+    for(int fanout = 3; fanout <= 6; fanout++){
+      BPlusTree<Integer, Integer> tree = new BPlusTree<Integer, Integer>(fanout);
+      
+      // insert keys in an order that is neither ascending nor descending, each key appearing twice
+      for(int i = 0; i < 1000; i++){
+        tree.insert((i * 7) % 1000, i);
+        tree.insert((i * 7) % 1000, -i);
+        checkInvariants(tree);
+      }
+      assertEquals(2000, tree.size());
+      assertEquals(Integer.valueOf(0), tree.first().getKey());
+      assertEquals(Integer.valueOf(999), tree.last().getKey());
+      assertEquals(1000, tree.rank(500));
+      
+      // delete every key except multiples of 10, then delete one of the 2 nodes having each multiple of 10
+      for(int i = 0; i < 1000; i++){
+        if(i % 10 != 0){
+          tree.delete(i);
+          tree.delete(i);
+          checkInvariants(tree);
+        }
+      }
+      for(int i = 0; i < 1000; i += 10){
+        tree.delete(i);
+        checkInvariants(tree);
+      }
+      for(int i = 0; i < 100; i++){
+        assertEquals(Integer.valueOf(i * 10), tree.ceiling(i * 10 - 9).getKey());
+      }
+      assertEquals(100, tree.size());
+      assertEquals(100, tree.inorderRec().size());
+      // the 50th smallest key is 490, inserted with values 70 and -70; delete removes the first node in order, so -70 is kept
+      assertEquals(Integer.valueOf(-70), tree.kthSmallest(50));
+      
+      // delete every node so that root becomes an empty leaf again
+      for(int i = 0; i < 1000; i += 10){
+        tree.delete(i);
+        checkInvariants(tree);
+      }
+      assertEquals(0, tree.size());
+      assertNull(tree.first());
+      assertFalse(tree.iterator().hasNext());
+    }
+    
+    // test the constructor with fanout that is smaller than 3
+    try{
+      new BPlusTree<Integer, Integer>(2);
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalArgumentException exception");
+    }
+  }
+}
\ No newline at end of file
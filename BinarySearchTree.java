@@ -1,5 +1,7 @@
 import java.util.*;
 // Class BinarySearchTree is the tree in which each node k being larger than k's left subtree's nodes and smaller than or equal to k's right subtree's nodes
+// By default the binary search tree never rebalances, so sorted inserts make it as deep as its number of nodes; a binary search tree created with a balance factor rebalances itself
+// like a scapegoat tree, rebuilding a subtree that has become too unbalanced into a perfectly balanced one, which keeps operations O(logN) amortized without any extra field in the nodes
 public class BinarySearchTree<T  extends Comparable<? super T>,V> implements TreeWithComparableKey<T,V>{
   
   // Class Node is used for the node in the binary search tree
@@ -11,6 +13,9 @@ public class BinarySearchTree<T  extends Comparable<? super T>,V> implements Tre
     // the value stored in the node
     private V value;
     
+    // the number of nodes in the subtree rooted at the node (including the node itself)
+    private int size;
+    
     // the left child of the node
     private Node<T,V> left;
     
@@ -23,24 +28,206 @@ public class BinarySearchTree<T  extends Comparable<? super T>,V> implements Tre
     private Node(T key, V value){
       this.key = key;
       this.value = value;
+      this.size = 1;
     }
   }
   
   // the root of the binary search tree
   private Node<T,V> root;
   
+  // the balance factor of scapegoat rebalancing, which is the largest share of a subtree's nodes allowed in one child's subtree (0 if the binary search tree never rebalances by itself)
+  private final double balanceFactor;
+  
+  // the logarithm of 1 / balanceFactor, used to find the largest depth allowed for a node
+  private final double logInverseBalanceFactor;
+  
+  // the largest number of nodes since the binary search tree was last rebuilt completely, used to rebuild it after many deletes
+  private int maxSize;
+  
+  // the metrics recording each insert, search and delete (null if the binary search tree does not record metrics)
+  private TreeMetrics metrics;
+  
   /**
-   * Initialize the binary search tree with root being null
+   * Initialize the binary search tree with root being null, which never rebalances by itself
    */
   public BinarySearchTree(){
     root = null;
+    balanceFactor = 0;
+    logInverseBalanceFactor = 0;
   }
   
   /**
-   * Insert a node with key and associated value to the binary search tree
-   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+   * Initialize the binary search tree with root being null, which rebalances itself with the balance factor in input (throw IllegalArgumentException unless it is larger than 0.5 and smaller than 1):
+   * after an insert makes a node deeper than log(N) / log(1 / balanceFactor), the deepest ancestor of that node having a child's subtree with more than balanceFactor of its nodes is rebuilt,
+   * and after deletes make N smaller than balanceFactor times the largest N since the last complete rebuild, the whole binary search tree is rebuilt (N is number of nodes in the binary search tree)
+   * A balance factor close to 0.5 keeps the binary search tree shallower with more rebuilds, and a balance factor close to 1 rebuilds less often; 0.7 is a common choice
+   */
+  public BinarySearchTree(double balanceFactor){
+    if(!(balanceFactor > 0.5 && balanceFactor < 1)){
+      throw new IllegalArgumentException("balanceFactor: " + balanceFactor);
+    }
+    root = null;
+    this.balanceFactor = balanceFactor;
+    logInverseBalanceFactor = Math.log(1 / balanceFactor);
+  }
+  
+  /**
+   * Return a perfectly balanced binary search tree built from the entries in input, which should be sorted by key in nondecreasing order
+   * (throw IllegalArgumentException if they are not sorted); entries having same key keep their order in input
+   * Time complexity: O(N) (N is number of nodes in the binary search tree)
+   */
+  public static <T extends Comparable<? super T>,V> BinarySearchTree<T,V> bulkLoad(Iterator<Map.Entry<T,V>> entries){
+    // list is used to store the entries from input so that the middle entry of any range can be found in O(1)
+    List<Map.Entry<T,V>> list = new ArrayList<Map.Entry<T,V>>();
+    while(entries.hasNext()){
+      Map.Entry<T,V> entry = entries.next();
+      if(!list.isEmpty() && list.get(list.size() - 1).getKey().compareTo(entry.getKey()) > 0){
+        throw new IllegalArgumentException("entries are not sorted by key: " + entry.getKey() + " comes after " + list.get(list.size() - 1).getKey());
+      }
+      list.add(entry);
+    }
+    BinarySearchTree<T,V> tree = new BinarySearchTree<T,V>();
+    tree.root = tree.buildBalanced(list, 0, list.size());
+    return tree;
+  }
+  
+  /**
+   * Return a perfectly balanced binary search tree built from the entries in input, which can be in any order;
+   * sort the entries by key first (in parallel when there are many entries), keeping the order in input of entries having same key
+   * Time complexity: O(NlogN) (N is number of nodes in the binary search tree)
+   */
+  public static <T extends Comparable<? super T>,V> BinarySearchTree<T,V> bulkLoadUnsorted(Iterator<Map.Entry<T,V>> entries){
+    // list is used to store the entries from input to sort them
+    List<Map.Entry<T,V>> list = new ArrayList<Map.Entry<T,V>>();
+    entries.forEachRemaining(list::add);
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Map.Entry<T,V>[] array = list.toArray(new Map.Entry[list.size()]);
+    // Arrays.parallelSort is a stable sort which only uses multiple threads when the array is large enough
+    Arrays.parallelSort(array, Map.Entry.comparingByKey());
+    return bulkLoad(Arrays.asList(array).iterator());
+  }
+  
+  /**
+   * Help method bulkLoad(Iterator<Map.Entry<T,V>> entries) by using recursion to build a perfectly balanced subtree from the entries in list with index from from (inclusive) to to (exclusive),
+   * choosing the middle entry as the subtree's root; return null if the range is empty
+   * Time complexity: O(to - from)
+   */
+  private Node<T,V> buildBalanced(List<Map.Entry<T,V>> list, int from, int to){
+    if(from >= to){
+      return null;
+    }
+    // Create the node with the middle entry, build its left and right subtrees from the entries before and after the middle entry, then update the size of the new node
+    int middle = (from + to) >>> 1;
+    Node<T,V> node = new Node<T,V>(list.get(middle).getKey(), list.get(middle).getValue());
+    node.left = buildBalanced(list, from, middle);
+    node.right = buildBalanced(list, middle + 1, to);
+    node.size = getNodeSize(node.left) + getNodeSize(node.right) + 1;
+    return node;
+  }
+  
+  /**
+   * Help method rebuild(Node<T,V> node) by using recursion to link the nodes in list with index from from (inclusive) to to (exclusive) into a perfectly balanced subtree,
+   * choosing the middle node as the subtree's root; return null if the range is empty
+   * Time complexity: O(to - from)
+   */
+  private Node<T,V> linkBalanced(List<Node<T,V>> list, int from, int to){
+    if(from >= to){
+      return null;
+    }
+    int middle = (from + to) >>> 1;
+    Node<T,V> node = list.get(middle);
+    node.left = linkBalanced(list, from, middle);
+    node.right = linkBalanced(list, middle + 1, to);
+    node.size = getNodeSize(node.left) + getNodeSize(node.right) + 1;
+    return node;
+  }
+  
+  /**
+   * Rebuild the subtree rooted at the node in input into a perfectly balanced subtree having the same nodes in the same inorder traversal and return its root;
+   * the nodes are collected with a stack instead of recursion, so a subtree as deep as its number of nodes does not overflow the call stack
+   * Time complexity: O(S) (S is number of nodes in the subtree)
+   */
+  private Node<T,V> rebuild(Node<T,V> node){
+    // list is used to store the nodes of the subtree in inorder traversal
+    List<Node<T,V>> list = new ArrayList<Node<T,V>>(getNodeSize(node));
+    Deque<Node<T,V>> stack = new ArrayDeque<Node<T,V>>();
+    Node<T,V> pointer = node;
+    while(pointer != null || !stack.isEmpty()){
+      while(pointer != null){
+        stack.push(pointer);
+        pointer = pointer.left;
+      }
+      pointer = stack.pop();
+      list.add(pointer);
+      pointer = pointer.right;
+    }
+    return linkBalanced(list, 0, list.size());
+  }
+  
+  /**
+   * Rebuild the whole binary search tree into a perfectly balanced one, keeping the order of nodes having same key
+   * Time complexity: O(N) (N is number of nodes in the binary search tree)
+   */
+  public void rebalance(){
+    root = rebuild(root);
+    maxSize = size();
+  }
+  
+  /**
+   * Help method insert(T key, V value) when the new node with the key from input is deeper than allowed by the balance factor: go down again from root to the new node,
+   * then find the deepest ancestor of the new node (the scapegoat) having a child's subtree with more than balanceFactor of its nodes and rebuild the subtree rooted at it
+   * Time complexity: O(logN) amortized (N is number of nodes in the binary search tree)
+   */
+  private void rebuildScapegoat(T key){
+    // path is used to store the nodes on the way from root to the new node, which is reached again since the same rule of going down is used
+    Deque<Node<T,V>> path = new ArrayDeque<Node<T,V>>();
+    for(Node<T,V> pointer = root; pointer != null; pointer = (key.compareTo(pointer.key) < 0) ? pointer.left : pointer.right){
+      path.push(pointer);
+    }
+    // Skip the new node itself, then check its ancestors from the deepest one to the shallowest one
+    path.pop();
+    while(!path.isEmpty()){
+      Node<T,V> node = path.pop();
+      if(Math.max(getNodeSize(node.left), getNodeSize(node.right)) > balanceFactor * node.size){
+        Node<T,V> rebuiltNode = rebuild(node);
+        if(path.isEmpty()){
+          root = rebuiltNode;
+        }
+        else if(path.peek().left == node){
+          path.peek().left = rebuiltNode;
+        }
+        else{
+          path.peek().right = rebuiltNode;
+        }
+        return;
+      }
+    }
+  }
+  
+  /**
+   * Return the size of the subtree rooted at the node in input
+   * Time complexity: O(1)
+   */
+  private int getNodeSize(Node<T,V> node){
+    // If node in input is null, return 0
+    if(node == null){
+      return 0;
+    }
+    // Otherwise, return node's size
+    else{
+      return node.size;
+    }
+  }
+  
+  /**
+   * Insert a node with key and associated value to the binary search tree, then rebuild the subtree of a scapegoat if the new node is too deep and the binary search tree rebalances itself
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case; O(logN) amortized if the binary search tree rebalances itself (N is number of nodes in the binary search tree)
    */
   public void insert(T key, V value){
+    // start is the time the insert starts if the binary search tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // depth is used to store the depth of the new node
+    int depth = 0;
     // When the binary search tree is empty, set the binary search tree's root as a new node with key and value from input
     // Time complexity: O(1)
     if(root == null){
@@ -55,10 +242,12 @@ public class BinarySearchTree<T  extends Comparable<? super T>,V> implements Tre
       Node<T,V> parent = null;
       /**
        * Use pointer to go down in the binary search tree based on the key from input until it is null (if key from input is smaller than pointer's key, go the the left; otherwise, go to the right);
-       * make parent point at the last node that pointer points at in each iteration
+       * make parent point at the last node that pointer points at in each iteration and increase its size since the new node will be in its subtree
        */
       while(pointer != null){
+        depth++;
         parent = pointer;
+        parent.size++;
         if(key.compareTo(pointer.key) < 0){
           pointer = pointer.left;
         }
@@ -74,31 +263,41 @@ public class BinarySearchTree<T  extends Comparable<? super T>,V> implements Tre
       else{
         parent.right = nodeToInsert;
       }
+      // If the binary search tree rebalances itself and the new node is deeper than log(N) / log(1 / balanceFactor), rebuild the subtree of a scapegoat
+      if(balanceFactor > 0 && depth > Math.log(size()) / logInverseBalanceFactor){
+        rebuildScapegoat(key);
+      }
     }
+    maxSize = Math.max(maxSize, size());
+    // Each node on the way is compared once with key from input, and parent once more
+    record(TreeMetrics.Operation.INSERT, start, (depth > 0) ? depth + 1 : 0, depth);
   }
   
   /**
-   * Help method search(T key) by using recursion, continue calling itself until root from input is null (return null) or reaching the node that has same key as key from input (return that node)
+   * Help method search(T key), containsKey(T key) and getOrDefault(T key, V defaultValue) by going down in the binary search tree with a loop until pointer is null (return null) or reaching the node that has same key as key from input (return that node)
+   * Only one comparison is made between key from input and each node's key on the way; the search is recorded into metrics if the binary search tree records metrics
    * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
    */
-  private Node<T,V> recurSearch(Node<T,V> root, T key){
-    // If root from input is null, return null
-    // Time complexity: O(1)
-    if(root == null){
-      return null;
-    }
-    // Otherwise, if key from input is equal to key of root from input, return root
-    else if(key.compareTo(root.key) == 0){
-      return root;
-    }
-    // Otherwise, if key from input is larger than key of root from input, continue searching with the root's right and key from input
-    else if(key.compareTo(root.key) > 0){
-      return recurSearch(root.right, key);
-    }
-    // Otherwise, continue searching with the root's left and key from input
-    else{
-      return recurSearch(root.left, key);
+  private Node<T,V> findNode(T key){
+    // start is the time the search starts if the binary search tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // depth is used to count the nodes on the way, each compared once with key from input
+    int depth = 0;
+    // pointer is used to go down in the binary search tree based on the key from input
+    Node<T,V> pointer = root;
+    while(pointer != null){
+      depth++;
+      // comparison stores the result of comparing key from input with pointer's key
+      int comparison = key.compareTo(pointer.key);
+      // If key from input is equal to pointer's key, stop at pointer
+      if(comparison == 0){
+        break;
+      }
+      // Otherwise, if key from input is larger than pointer's key, go to the right; otherwise, go to the left
+      pointer = (comparison > 0) ? pointer.right : pointer.left;
     }
+    record(TreeMetrics.Operation.SEARCH, start, depth, depth);
+    return pointer;
   }
   
   /**
@@ -106,16 +305,126 @@ public class BinarySearchTree<T  extends Comparable<? super T>,V> implements Tre
    * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
    */
   public V search(T key){
-    // If there is no such node which has key that is equal to key from input, return null
-    // Time complexity: O(1)
-    if(recurSearch(root, key) == null){
-      return null;
+    return getOrDefault(key, null);
+  }
+  
+  /**
+   * Return true if key is larger than bound, or if inclusive is true and key is equal to bound; return false otherwise
+   * Time complexity: O(1)
+   */
+  private boolean isAbove(T key, T bound, boolean inclusive){
+    int comparison = key.compareTo(bound);
+    return comparison > 0 || (inclusive && comparison == 0);
+  }
+  
+  /**
+   * Help method floor(T key), ceiling(T key), lower(T key) and higher(T key) by going down in the binary search tree to find the closest node to key from input:
+   * if below is true, return the node with the largest key which is smaller than key from input (or equal to it when inclusive is true);
+   * otherwise, return the node with the smallest key which is larger than key from input (or equal to it when inclusive is true);
+   * return null if there is no such node like that
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+   */
+  private Node<T,V> findClosestNode(T key, boolean below, boolean inclusive){
+    // closestNode is used to store the closest node found which satisfies the condition
+    Node<T,V> closestNode = null;
+    // pointer is used to go down in the binary search tree based on the key from input
+    Node<T,V> pointer = root;
+    /**
+     * If pointer satisfies the condition, store it in closestNode and go to the side where closer nodes can be (the right if below is true, the left otherwise);
+     * otherwise, go to the other side
+     */
+    while(pointer != null){
+      boolean satisfied = below ? isAbove(key, pointer.key, inclusive) : isAbove(pointer.key, key, inclusive);
+      if(satisfied){
+        closestNode = pointer;
+      }
+      pointer = (satisfied == below) ? pointer.right : pointer.left;
     }
-    // Otherwise, call recurSearch(Node<T,V> root, T key) and return value in node returned by that method
-    // Time complexity: best case: O(logN) (if tree is balanced), the worst case: O(N) (N is number of nodes in the binary search tree)
-    else{
-      return recurSearch(root, key).value;
+    return closestNode;
+  }
+  
+  /**
+   * Return an entry with key and value of the node in input, or return null if node in input is null
+   * Time complexity: O(1)
+   */
+  private Map.Entry<T,V> toEntry(Node<T,V> node){
+    return (node != null) ? new AbstractMap.SimpleImmutableEntry<T,V>(node.key, node.value) : null;
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+   */
+  public Map.Entry<T,V> floor(T key){
+    return toEntry(findClosestNode(key, true, true));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+   */
+  public Map.Entry<T,V> ceiling(T key){
+    return toEntry(findClosestNode(key, false, true));
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+   */
+  public Map.Entry<T,V> lower(T key){
+    return toEntry(findClosestNode(key, true, false));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+   */
+  public Map.Entry<T,V> higher(T key){
+    return toEntry(findClosestNode(key, false, false));
+  }
+  
+  /**
+   * Return the entry with the smallest key in the binary search tree, or return null if the binary search tree is empty
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+   */
+  public Map.Entry<T,V> first(){
+    // pointer is used to go down to the leftmost node of the binary search tree
+    Node<T,V> pointer = root;
+    while(pointer != null && pointer.left != null){
+      pointer = pointer.left;
     }
+    return toEntry(pointer);
+  }
+  
+  /**
+   * Return the entry with the largest key in the binary search tree, or return null if the binary search tree is empty
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+   */
+  public Map.Entry<T,V> last(){
+    // pointer is used to go down to the rightmost node of the binary search tree
+    Node<T,V> pointer = root;
+    while(pointer != null && pointer.right != null){
+      pointer = pointer.right;
+    }
+    return toEntry(pointer);
+  }
+  
+  /**
+   * Return true if there is a node which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+   */
+  public boolean containsKey(T key){
+    return findNode(key) != null;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return defaultValue if there is no such node like that
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+   */
+  public V getOrDefault(T key, V defaultValue){
+    // node is the first node encountered which has key that is equal to key from input, or null if there is no such node like that
+    Node<T,V> node = findNode(key);
+    return (node != null) ? node.value : defaultValue;
   }
   
   /**
@@ -123,14 +432,14 @@ public class BinarySearchTree<T  extends Comparable<? super T>,V> implements Tre
    * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
    */
   private void helpDelete(Node<T,V> nodeToDelete, Node<T,V> parent){
-    // If node to delete has less than 2 children, set child of parent of node to delete as child of node to delete
+    // If node to delete has less than 2 children, set child of parent of node to delete (on the same side as node to delete) as child of node to delete
     // Time complexity: O(1)
     if(nodeToDelete.left == null || nodeToDelete.right == null){
       Node<T,V> childOfNodeToDelete = (nodeToDelete.left != null) ? nodeToDelete.left : nodeToDelete.right;
       if(nodeToDelete == root){
         root = childOfNodeToDelete;
       }
-      else if(nodeToDelete.key.compareTo(parent.key) < 0){
+      else if(parent.left == nodeToDelete){
         parent.left = childOfNodeToDelete;
       }
       else{
@@ -139,14 +448,17 @@ public class BinarySearchTree<T  extends Comparable<? super T>,V> implements Tre
     }
     /**
      * If node to delete has 2 children, find node with the smallest key in right subtree of node to delete;
+     * decrease the size of each node on the way to node found since node found will be removed from their subtrees;
      * use key and value of node found as key and value of node to delete respectively;
      * recursively call this helper method to delete the node found
      */
     // Time complexity: best case: O(logN) (if tree is balanced), the worst case: O(N) (N is number of nodes in the binary search tree)
     else{
+      nodeToDelete.size--;
       Node<T,V> nodeToReplace = nodeToDelete.right;
       Node<T,V> parentOfNodeToReplace = nodeToDelete;
       while(nodeToReplace.left != null){
+        nodeToReplace.size--;
         parentOfNodeToReplace = nodeToReplace;
         nodeToReplace = nodeToReplace.left;
       }
@@ -157,79 +469,451 @@ public class BinarySearchTree<T  extends Comparable<? super T>,V> implements Tre
   }
   
   /**
-   * Delete the node having the key that is equal to key from input if that node exists
-   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+   * Delete the node having the key that is equal to key from input if that node exists, then rebuild the whole binary search tree if it rebalances itself and has lost too many nodes since the last complete rebuild
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case; O(logN) amortized if the binary search tree rebalances itself (N is number of nodes in the binary search tree)
    */
   public void delete(T key){
+    // start is the time the delete starts if the binary search tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // depth is used to count the nodes on the way from root to the node to delete (including it), and comparisons is used to count the comparisons made with key from input
+    int depth = 0;
+    int comparisons = 0;
     // If the binary search tree is empty, do nothing; time complexity is O(1) in this case
     /**
      * If the binary search tree is not empty, use pointer to go down in the binary search tree based on the key from input until it is null or reaching the node having the key that is equal to key from input
      * (if key from input is smaller than pointer's key, go the the left; otherwise, go to the right);
-     * make parent point at the last node that pointer points at in each iteration
+     * push each node on the way to path
      */
     // Time complexity: best case: O(logN) (if tree is balanced), the worst case: O(N) (N is number of nodes in the binary search tree)
     if(root != null){
       // pointer is used to go down in the binary search tree based on the key from input
       Node<T,V> pointer = root;
-      // parent is used to point at the last node that pointer points at
-      Node<T,V> parent = null;
-      while(pointer != null && key.compareTo(pointer.key) != 0){
-        parent = pointer;
-        if(key.compareTo(pointer.key) < 0){
+      // path is used to store the nodes on the way from root to pointer (the top of path is pointer's parent)
+      Deque<Node<T,V>> path = new ArrayDeque<Node<T,V>>();
+      // Compare key from input with each node's key on the way only once, then branch on the stored result
+      while(pointer != null){
+        int comparison = key.compareTo(pointer.key);
+        comparisons++;
+        if(comparison == 0){
+          break;
+        }
+        path.push(pointer);
+        pointer = (comparison < 0) ? pointer.left : pointer.right;
+      }
+      depth = path.size();
+      /**
+       * If pointer is not null, decrease the size of each node in path since pointer will be removed from their subtrees;
+       * then call helpDelete(Node<T,V> nodeToDelete, Node<T,V> parent) using pointer and its parent in input
+       */
+      if(pointer != null){
+        for(Node<T,V> ancestor : path){
+          ancestor.size--;
+        }
+        helpDelete(pointer, path.peek());
+        depth++;
+      }
+    }
+    if(balanceFactor > 0 && size() < balanceFactor * maxSize){
+      rebalance();
+    }
+    record(TreeMetrics.Operation.DELETE, start, comparisons, depth);
+  }
+  
+  // Class InorderIterator is used to lazily visit the values of the nodes in inorder traversal of the binary search tree by using a stack instead of recursion
+  private class InorderIterator implements Iterator<V>{
+    
+    // the stack storing the nodes whose values are not visited yet but whose left subtrees are being visited (the top of the stack is the next node to visit)
+    private Deque<Node<T,V>> stack;
+    
+    // the largest key allowed to visit (null if there is no upper bound)
+    private T to;
+    
+    // whether the key that is equal to to is allowed to visit
+    private boolean toInclusive;
+    
+    /**
+     * Initialize the iterator to start from the smallest node of the binary search tree
+     */
+    private InorderIterator(){
+      stack = new ArrayDeque<Node<T,V>>();
+      pushLeftPath(root);
+    }
+    
+    /**
+     * Initialize the iterator to start from the kth smallest node of the binary search tree (k should be from 1 to number of nodes in the binary search tree),
+     * by using the size of each node's subtree to go down in the binary search tree and pushing each node on the way where the next move is to the left
+     * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+     */
+    private InorderIterator(int k){
+      stack = new ArrayDeque<Node<T,V>>();
+      Node<T,V> pointer = root;
+      while(pointer != null){
+        int pointerRank = getNodeSize(pointer.left) + 1;
+        if(k == pointerRank){
+          stack.push(pointer);
+          pointer = null;
+        }
+        else if(k < pointerRank){
+          stack.push(pointer);
           pointer = pointer.left;
         }
         else{
+          k -= pointerRank;
           pointer = pointer.right;
         }
       }
-      // If pointer is not null, call helpDelete(Node<T,V> nodeToDelete, Node<T,V> parent) using pointer and parent in input
-      if(pointer != null){
-        helpDelete(pointer, parent);
+    }
+    
+    /**
+     * Initialize the iterator to visit only the nodes whose keys are between from and to (null from or null to means there is no lower bound or upper bound respectively),
+     * by going down in the binary search tree and pushing each node on the way whose key is not smaller than the lower bound, where the next move is to the left
+     * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+     */
+    private InorderIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+      stack = new ArrayDeque<Node<T,V>>();
+      this.to = to;
+      this.toInclusive = toInclusive;
+      Node<T,V> pointer = root;
+      while(pointer != null){
+        if(from == null || isAbove(pointer.key, from, fromInclusive)){
+          stack.push(pointer);
+          pointer = pointer.left;
+        }
+        else{
+          pointer = pointer.right;
+        }
+      }
+    }
+    
+    /**
+     * Push the node in input and its left descendants to the stack
+     */
+    private void pushLeftPath(Node<T,V> node){
+      while(node != null){
+        stack.push(node);
+        node = node.left;
+      }
+    }
+    
+    /**
+     * Return true if there is a node whose value is not visited yet and whose key is not larger than the upper bound, or return false otherwise
+     * Time complexity: O(1)
+     */
+    public boolean hasNext(){
+      return !stack.isEmpty() && (to == null || isAbove(to, stack.peek().key, toInclusive));
+    }
+    
+    /**
+     * Return the value of the next node in inorder traversal
+     * Time complexity: O(1) on average over the whole traversal
+     */
+    public V next(){
+      return nextNode().value;
+    }
+    
+    /**
+     * Return the next node in inorder traversal, then push the right child of that node and its left descendants to the stack
+     * Time complexity: O(1) on average over the whole traversal
+     */
+    private Node<T,V> nextNode(){
+      // If there is no node which is not visited yet, throw NoSuchElementException
+      if(!hasNext()){
+        throw new NoSuchElementException();
+      }
+      Node<T,V> node = stack.pop();
+      pushLeftPath(node.right);
+      return node;
+    }
+  }
+  
+  /**
+   * Return true if a batch of batchSize keys is cheaper to handle by merging it with the inorder traversal of the binary search tree in one pass (O(N + K))
+   * than by going down from root for each key (O(KlogN)), where K is batchSize and N is number of nodes in the binary search tree
+   * Time complexity: O(1)
+   */
+  private boolean shouldMergeBatch(int batchSize){
+    return (long)batchSize * (32 - Integer.numberOfLeadingZeros(size())) >= size();
+  }
+  
+  /**
+   * Insert a node for each entry from input; for a batch that is large compared to the binary search tree, sort the entries by key (keeping the order of entries having same key),
+   * merge them with the nodes in inorder traversal of the binary search tree in one pass and rebuild a perfectly balanced binary search tree from the result instead of inserting the entries one by one
+   * Time complexity: O(KlogK + min(N, KlogN)) (N is number of nodes in the binary search tree, K is number of entries from input)
+   */
+  public void insertAll(Collection<Map.Entry<T,V>> entries){
+    if(!shouldMergeBatch(entries.size())){
+      TreeWithComparableKey.super.insertAll(entries);
+      return;
+    }
+    List<Map.Entry<T,V>> sortedEntries = new ArrayList<Map.Entry<T,V>>(entries);
+    sortedEntries.sort(Map.Entry.comparingByKey());
+    // mergedEntries is used to store the entries of the binary search tree and the entries from input in nondecreasing order of key, where new entries come after existing entries having same key
+    List<Map.Entry<T,V>> mergedEntries = new ArrayList<Map.Entry<T,V>>(size() + sortedEntries.size());
+    InorderIterator iterator = new InorderIterator();
+    Node<T,V> node = iterator.hasNext() ? iterator.nextNode() : null;
+    for(Map.Entry<T,V> entry : sortedEntries){
+      while(node != null && node.key.compareTo(entry.getKey()) <= 0){
+        mergedEntries.add(toEntry(node));
+        node = iterator.hasNext() ? iterator.nextNode() : null;
+      }
+      mergedEntries.add(entry);
+    }
+    while(node != null){
+      mergedEntries.add(toEntry(node));
+      node = iterator.hasNext() ? iterator.nextNode() : null;
+    }
+    root = buildBalanced(mergedEntries, 0, mergedEntries.size());
+    maxSize = size();
+  }
+  
+  /**
+   * Delete a node having the key that is equal to each key from input if that node exists (a key appearing twice deletes two nodes);
+   * for a batch that is large compared to the binary search tree, sort the keys, skip the matching nodes while visiting the nodes in inorder traversal of the binary search tree in one pass
+   * and rebuild a perfectly balanced binary search tree from the remaining nodes instead of deleting the keys one by one
+   * Time complexity: O(KlogK + min(N, KlogN)) (N is number of nodes in the binary search tree, K is number of keys from input)
+   */
+  public void deleteAll(Collection<T> keys){
+    if(!shouldMergeBatch(keys.size())){
+      TreeWithComparableKey.super.deleteAll(keys);
+      return;
+    }
+    List<T> sortedKeys = new ArrayList<T>(keys);
+    Collections.sort(sortedKeys);
+    // remainingEntries is used to store the entries of the nodes which are not deleted, in inorder traversal
+    List<Map.Entry<T,V>> remainingEntries = new ArrayList<Map.Entry<T,V>>(size());
+    // index is the index of the smallest key from input which has not matched a node yet
+    int index = 0;
+    InorderIterator iterator = new InorderIterator();
+    while(iterator.hasNext()){
+      Node<T,V> node = iterator.nextNode();
+      // Skip the keys from input which are smaller than node's key since they cannot match any node
+      while(index < sortedKeys.size() && sortedKeys.get(index).compareTo(node.key) < 0){
+        index++;
+      }
+      // If the smallest key left is equal to node's key, delete node by not keeping it; otherwise, keep node
+      if(index < sortedKeys.size() && sortedKeys.get(index).compareTo(node.key) == 0){
+        index++;
+      }
+      else{
+        remainingEntries.add(toEntry(node));
+      }
+    }
+    root = buildBalanced(remainingEntries, 0, remainingEntries.size());
+    maxSize = size();
+  }
+  
+  /**
+   * Return the list of values found by searching for each key from input, in the same order as the keys (null for a key that is not in the binary search tree);
+   * for a batch that is large compared to the binary search tree, visit the keys in sorted order together with the nodes in inorder traversal of the binary search tree in one pass instead of going down from root for each key
+   * Time complexity: O(KlogK + min(N, KlogN)) (N is number of nodes in the binary search tree, K is number of keys from input)
+   */
+  public List<V> searchAll(List<T> keys){
+    if(!shouldMergeBatch(keys.size())){
+      return TreeWithComparableKey.super.searchAll(keys);
+    }
+    // order stores the indices of the keys from input sorted by key
+    Integer[] order = new Integer[keys.size()];
+    for(int i = 0; i < order.length; i++){
+      order[i] = i;
+    }
+    Arrays.sort(order, (first, second) -> keys.get(first).compareTo(keys.get(second)));
+    // values is used to store the value found for each key from input at the key's index
+    List<V> values = new ArrayList<V>(Collections.<V>nCopies(keys.size(), null));
+    InorderIterator iterator = new InorderIterator();
+    Node<T,V> node = iterator.hasNext() ? iterator.nextNode() : null;
+    for(int i : order){
+      T key = keys.get(i);
+      // Skip the nodes whose keys are smaller than key since keys after it are not smaller either
+      while(node != null && node.key.compareTo(key) < 0){
+        node = iterator.hasNext() ? iterator.nextNode() : null;
       }
+      if(node != null && node.key.compareTo(key) == 0){
+        values.set(i, node.value);
+      }
+    }
+    return values;
+  }
+  
+  /**
+   * Make the binary search tree record each insert, search and delete into the metrics from input, or stop recording if metrics is null;
+   * while no metrics are set, each operation only checks that metrics is null (the binary search tree never rotates, so rotations are always recorded as 0)
+   */
+  public void setMetrics(TreeMetrics metrics){
+    if(metrics != null){
+      metrics.bind(this::size, this::height);
+    }
+    this.metrics = metrics;
+  }
+  
+  /**
+   * Help method insert(T key, V value), findNode(T key) and delete(T key) by recording an operation which started at start and made the number of comparisons and visited the depth in input;
+   * do nothing if the binary search tree does not record metrics
+   * Time complexity: O(1)
+   */
+  private void record(TreeMetrics.Operation operation, long start, int comparisons, int depth){
+    if(metrics != null){
+      metrics.record(operation, System.nanoTime() - start, comparisons, 0, depth);
     }
   }
   
   /**
-   * Use recursion to help inorderRec(), add value in each node in inorder traversal of the binary search tree to list
+   * Return the height of the binary search tree (the number of edges on the longest path from root, -1 if the binary search tree is empty) by visiting the nodes level by level without recursion
    * Time complexity: O(N) (N is number of nodes in the binary search tree)
    */
-  private void recurInorder(Node<T,V> root, List<V> list){
-    // If left child of root from input is not null, recursively call this method with left child of root from input and list from input
-    if(root.left != null){
-      recurInorder(root.left, list);
+  public int height(){
+    int height = -1;
+    // level is used to store the nodes of the current level
+    List<Node<T,V>> level = new ArrayList<Node<T,V>>();
+    if(root != null){
+      level.add(root);
     }
-    // Add value of root from input to list's end
-    list.add(root.value);
-    // If right child of root from input is not null, recursively call this method with right child of root from input and list from input
-    if(root.right != null){
-      recurInorder(root.right, list);
+    while(!level.isEmpty()){
+      height++;
+      List<Node<T,V>> nextLevel = new ArrayList<Node<T,V>>();
+      for(Node<T,V> node : level){
+        if(node.left != null){
+          nextLevel.add(node.left);
+        }
+        if(node.right != null){
+          nextLevel.add(node.right);
+        }
+      }
+      level = nextLevel;
     }
+    return height;
+  }
+  
+  /**
+   * Return the number of nodes in the binary search tree
+   * Time complexity: O(1)
+   */
+  public int size(){
+    return getNodeSize(root);
+  }
+  
+  /**
+   * Return an iterator visiting the values in inorder traversal of the binary search tree lazily, without copying them to a list
+   * Time complexity: O(1) to create the iterator; the iterator's stack takes O(height of the binary search tree) memory
+   */
+  public Iterator<V> iterator(){
+    return new InorderIterator();
+  }
+  
+  /**
+   * Return an iterator visiting the values of the nodes whose keys are between from and to in inorder traversal of the binary search tree lazily
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   * Time complexity: O(logN + K) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree, K is number of values visited)
+   */
+  public Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+    return new InorderIterator(from, fromInclusive, to, toInclusive);
   }
   
   /**
-   * Return the list of values in inorder traversal of the binary search tree
+   * Return the list of values in inorder traversal of the binary search tree by using iterator()
    * Time complexity: O(N) (N is number of nodes in the binary search tree)
    */
   public List<V> inorderRec(){
-    // list is used to store the value in each node in inorder traversal of the binary search tree
-    List<V> list = new LinkedList<V>();
-    // If root is null, just return list, and time complexity is O(1) in this case
-    // If root is not null, call recurInorder(Node<T,V> root, List<V> list) with root and list in input to use recursion, and time complexity in this case is O(N) (N is number of nodes in the binary search tree)
-    if(root != null){
-      recurInorder(root, list);
+    // list is used to store the value in each node in inorder traversal of the binary search tree, with capacity being number of nodes in the binary search tree
+    List<V> list = new ArrayList<V>(size());
+    for(V value : this){
+      list.add(value);
     }
-    // Return list, which stores the value in each node in inorder traversal of the binary search tree
     return list;
   }
   
   /**
-   * Find the kth smallest element in the binary search tree by using inorderRec()
-   * Time complexity: O(N) (N is number of nodes in the binary search tree)
+   * Return an iterator visiting the entries of the nodes in inorder traversal of the binary search tree lazily, which can be passed to MappedTree.write or bulkLoad
+   * Time complexity: O(1) to create the iterator; the iterator's stack takes O(height of the binary search tree) memory
+   */
+  public Iterator<Map.Entry<T,V>> entryIterator(){
+    InorderIterator iterator = new InorderIterator();
+    return new Iterator<Map.Entry<T,V>>(){
+      
+      public boolean hasNext(){
+        return iterator.hasNext();
+      }
+      
+      public Map.Entry<T,V> next(){
+        return toEntry(iterator.nextNode());
+      }
+    };
+  }
+  
+  /**
+   * Find the kth smallest element in the binary search tree by using the size of each node's subtree to go down in the binary search tree
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
    */
   public V kthSmallest(int k){
-    // list is used to store the value in each node in inorder traversal of the binary search tree
-    List<V> list = inorderRec();
-    // Return value with index (k - 1) in list
-    return list.get(k - 1);
+    // If k is smaller than 1 or larger than number of nodes in the binary search tree, throw IndexOutOfBoundsException
+    if(k < 1 || k > getNodeSize(root)){
+      throw new IndexOutOfBoundsException("k: " + k + ", size: " + getNodeSize(root));
+    }
+    // pointer is used to go down in the binary search tree based on k
+    Node<T,V> pointer = root;
+    /**
+     * Compare k with the rank of pointer in pointer's subtree (size of pointer's left subtree plus 1):
+     * if k is equal to that rank, return pointer's value;
+     * if k is smaller than that rank, go to the left;
+     * otherwise, subtract that rank from k and go to the right
+     */
+    while(true){
+      int pointerRank = getNodeSize(pointer.left) + 1;
+      if(k == pointerRank){
+        return pointer.value;
+      }
+      else if(k < pointerRank){
+        pointer = pointer.left;
+      }
+      else{
+        k -= pointerRank;
+        pointer = pointer.right;
+      }
+    }
+  }
+  
+  /**
+   * Return the number of nodes in the binary search tree having key that is smaller than the key from input
+   * Time complexity: O(logN) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree)
+   */
+  public int rank(T key){
+    // count is used to store the number of nodes found having key that is smaller than the key from input
+    int count = 0;
+    // pointer is used to go down in the binary search tree based on the key from input
+    Node<T,V> pointer = root;
+    /**
+     * If key from input is smaller than or equal to pointer's key, go to the left;
+     * otherwise, pointer and pointer's left subtree are all smaller than key from input, so add them to count and go to the right
+     */
+    while(pointer != null){
+      if(key.compareTo(pointer.key) <= 0){
+        pointer = pointer.left;
+      }
+      else{
+        count += getNodeSize(pointer.left) + 1;
+        pointer = pointer.right;
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Return the list of values of the nodes from the fromth smallest to the toth smallest element in the binary search tree (both inclusive)
+   * Time complexity: O(logN + K) if tree is balanced; O(N) in the worst case (N is number of nodes in the binary search tree, K is number of values returned)
+   */
+  public List<V> select(int from, int to){
+    // If from is smaller than 1 or to is larger than number of nodes in the binary search tree, throw IndexOutOfBoundsException
+    if(from < 1 || to > size()){
+      throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size());
+    }
+    // list is used to store the values of the nodes in the range
+    List<V> list = new ArrayList<V>(Math.max(to - from + 1, 0));
+    // If the range is not empty, use an iterator starting from the fromth smallest node to add (to - from + 1) values to list
+    if(from <= to){
+      Iterator<V> iterator = new InorderIterator(from);
+      for(int i = from; i <= to; i++){
+        list.add(iterator.next());
+      }
+    }
+    return list;
   }
 }
\ No newline at end of file
@@ -1,3 +1,4 @@
+import java.util.*;
 import org.junit.*;
 import static org.junit.Assert.*;
 // Class BinarySearchTreeTester is tester class for BinarySearchTree
@@ -67,6 +68,51 @@ public class BinarySearchTreeTester{
     assertEquals("1", tree.search(1));
   }
   
+  /**
+   * Tests the containsKey method of BinarySearchTree.
+   */
+  @Test
+  public void testContainsKey(){
+    BinarySearchTree<Integer, String> tree = new BinarySearchTree<Integer, String>();
+    
+    // test containsKey when the tree is empty
+    assertFalse(tree.containsKey(5));
+    
+    tree.insert(6, "6");
+    tree.insert(4, "4");
+    tree.insert(9, null);
+    
+    // test containsKey with key that is equal to a node's key
+    assertTrue(tree.containsKey(4));
+    
+    // test containsKey with key of a node whose value is null
+    assertTrue(tree.containsKey(9));
+    
+    // test containsKey with key that is not equal to any nodes' keys
+    assertFalse(tree.containsKey(7));
+  }
+  
+  /**
+   * Tests the getOrDefault method of BinarySearchTree.
+   */
+  @Test
+  public void testGetOrDefault(){
+    BinarySearchTree<Integer, String> tree = new BinarySearchTree<Integer, String>();
+    
+    // test getOrDefault when the tree is empty
+    assertEquals("none", tree.getOrDefault(5, "none"));
+    
+    tree.insert(6, "6");
+    tree.insert(4, "4");
+    tree.insert(9, "9");
+    
+    // test getOrDefault with key that is equal to a node's key
+    assertEquals("9", tree.getOrDefault(9, "none"));
+    
+    // test getOrDefault with key that is not equal to any nodes' keys
+    assertEquals("none", tree.getOrDefault(7, "none"));
+  }
+  
   /**
    * Tests the delete method of BinarySearchTree.
    */
@@ -147,6 +193,15 @@ public class BinarySearchTreeTester{
     // test inorderRec when tree has many nodes
     String[] result3 = {"1", "3", "5", "6", "8", "9"};
     assertArrayEquals(result3, tree.inorderRec().toArray());
+    
+    // test inorderRec when tree has many nodes inserted in sorted order
+    BinarySearchTree<Integer, Integer> sortedTree = new BinarySearchTree<Integer, Integer>();
+    Integer[] result4 = new Integer[20000];
+    for(int i = 0; i < result4.length; i++){
+      sortedTree.insert(i, i);
+      result4[i] = i;
+    }
+    assertArrayEquals(result4, sortedTree.inorderRec().toArray());
   }
   
   /**
@@ -228,4 +283,488 @@ public class BinarySearchTreeTester{
       fail("did not throw IndexOutOfBoundsException exception");
     }
   }
+  
+  /**
+   * Tests the rank method of BinarySearchTree.
+   */
+  @Test
+  public void testRank(){
+    BinarySearchTree<Integer, String> tree = new BinarySearchTree<Integer, String>();
+    
+    // test rank when tree is empty
+    assertEquals(0, tree.rank(3));
+    
+    tree.insert(5, "5");
+    tree.insert(1, "1");
+    tree.insert(8, "8");
+    tree.insert(3, "3");
+    tree.insert(7, "7");
+    
+    // test rank with key that is smaller than all nodes' keys
+    assertEquals(0, tree.rank(0));
+    
+    // test rank with key that is equal to a node's key
+    assertEquals(2, tree.rank(5));
+    
+    // test rank with key that is not equal to any nodes' keys
+    assertEquals(3, tree.rank(6));
+    
+    // test rank with key that is larger than all nodes' keys
+    assertEquals(5, tree.rank(10));
+    
+    // test rank after deleting node that has 2 children
+    tree.delete(5);
+    assertEquals(2, tree.rank(7));
+  }
+  
+  /**
+   * Tests the select method of BinarySearchTree.
+   */
+  @Test
+  public void testSelect(){
+    BinarySearchTree<Integer, String> tree = new BinarySearchTree<Integer, String>();
+    
+    // test select with empty range when tree is empty
+    String[] result1 = {};
+    assertArrayEquals(result1, tree.select(1, 0).toArray());
+    
+    // test select with range being out of bounds when tree is empty
+    try{
+      tree.select(1, 1);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+    
+    tree.insert(4, "4");
+    tree.insert(2, "2");
+    tree.insert(6, "6");
+    tree.insert(1, "1");
+    tree.insert(3, "3");
+    tree.insert(5, "5");
+    tree.insert(7, "7");
+    
+    // test select with range covering all nodes
+    String[] result2 = {"1", "2", "3", "4", "5", "6", "7"};
+    assertArrayEquals(result2, tree.select(1, 7).toArray());
+    
+    // test select with range in the middle
+    String[] result3 = {"3", "4", "5"};
+    assertArrayEquals(result3, tree.select(3, 5).toArray());
+    
+    // test select with range having only 1 element
+    String[] result4 = {"7"};
+    assertArrayEquals(result4, tree.select(7, 7).toArray());
+    
+    // test select with range being out of bounds when tree has many nodes
+    try{
+      tree.select(0, 3);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+    try{
+      tree.select(5, 8);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+  }
+  
+  /**
+   * Tests the size method of BinarySearchTree.
+   */
+  @Test
+  public void testSize(){
+    BinarySearchTree<Integer, String> tree = new BinarySearchTree<Integer, String>();
+    
+    // test size when tree is empty
+    assertEquals(0, tree.size());
+    
+    tree.insert(4, "4");
+    tree.insert(2, "2");
+    tree.insert(4, "4");
+    
+    // test size when tree has many nodes including nodes having same key
+    assertEquals(3, tree.size());
+    
+    // test size after deleting a node
+    tree.delete(4);
+    assertEquals(2, tree.size());
+    
+    // test size after deleting with key that is not equal to any nodes' keys
+    tree.delete(9);
+    assertEquals(2, tree.size());
+  }
+  
+  /**
+   * Tests the iterator method of BinarySearchTree.
+   */
+  @Test
+  public void testIterator(){
+    BinarySearchTree<Integer, String> tree = new BinarySearchTree<Integer, String>();
+    
+    // test iterator when tree is empty
+    Iterator<String> iterator1 = tree.iterator();
+    assertFalse(iterator1.hasNext());
+    try{
+      iterator1.next();
+      fail("did not throw exception");
+    }
+    catch(NoSuchElementException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw NoSuchElementException exception");
+    }
+    
+    tree.insert(5, "5");
+    tree.insert(1, "1");
+    tree.insert(8, "8");
+    tree.insert(3, "3");
+    tree.insert(7, "7");
+    
+    // test iterator when tree has many nodes
+    Iterator<String> iterator2 = tree.iterator();
+    assertEquals("1", iterator2.next());
+    assertEquals("3", iterator2.next());
+    assertEquals("5", iterator2.next());
+    assertEquals("7", iterator2.next());
+    assertTrue(iterator2.hasNext());
+    assertEquals("8", iterator2.next());
+    assertFalse(iterator2.hasNext());
+    
+    // test stream when tree has many nodes
+    String[] result = {"1", "3", "5", "7", "8"};
+    assertArrayEquals(result, tree.stream().toArray());
+  }
+  
+  /**
+   * Tests the floor, ceiling, lower, higher, first and last methods of BinarySearchTree.
+   */
+  @Test
+  public void testNavigation(){
+    BinarySearchTree<Integer, String> tree = new BinarySearchTree<Integer, String>();
+    
+    // test navigation methods when tree is empty
+    assertNull(tree.floor(5));
+    assertNull(tree.ceiling(5));
+    assertNull(tree.lower(5));
+    assertNull(tree.higher(5));
+    assertNull(tree.first());
+    assertNull(tree.last());
+    
+    tree.insert(5, "5");
+    tree.insert(1, "1");
+    tree.insert(8, "8");
+    tree.insert(3, "3");
+    tree.insert(7, "7");
+    
+    // test floor and ceiling with key that is equal to a node's key
+    assertEquals("3", tree.floor(3).getValue());
+    assertEquals("3", tree.ceiling(3).getValue());
+    
+    // test floor and ceiling with key that is not equal to any nodes' keys
+    assertEquals(Integer.valueOf(5), tree.floor(6).getKey());
+    assertEquals(Integer.valueOf(7), tree.ceiling(6).getKey());
+    
+    // test lower and higher with key that is equal to a node's key
+    assertEquals("1", tree.lower(3).getValue());
+    assertEquals("5", tree.higher(3).getValue());
+    
+    // test navigation methods with key that is out of the range of the tree's keys
+    assertNull(tree.floor(0));
+    assertNull(tree.lower(1));
+    assertNull(tree.ceiling(9));
+    assertNull(tree.higher(8));
+    
+    // test first and last when tree has many nodes
+    assertEquals("1", tree.first().getValue());
+    assertEquals("8", tree.last().getValue());
+  }
+  
+  /**
+   * Tests the rangeIterator method of BinarySearchTree.
+   */
+  @Test
+  public void testRangeIterator(){
+    BinarySearchTree<Integer, String> tree = new BinarySearchTree<Integer, String>();
+    
+    // test rangeIterator when tree is empty
+    assertFalse(tree.rangeIterator(1, true, 5, true).hasNext());
+    
+    for(int i = 0; i < 10; i++){
+      tree.insert(i, String.valueOf(i));
+    }
+    
+    // test rangeIterator with both bounds inclusive
+    List<String> result1 = new ArrayList<String>();
+    tree.rangeIterator(3, true, 6, true).forEachRemaining(result1::add);
+    assertArrayEquals(new String[]{"3", "4", "5", "6"}, result1.toArray());
+    
+    // test rangeIterator with both bounds exclusive
+    List<String> result2 = new ArrayList<String>();
+    tree.rangeIterator(3, false, 6, false).forEachRemaining(result2::add);
+    assertArrayEquals(new String[]{"4", "5"}, result2.toArray());
+    
+    // test rangeIterator with no lower bound and no upper bound
+    List<String> result3 = new ArrayList<String>();
+    tree.rangeIterator(null, true, 2, true).forEachRemaining(result3::add);
+    tree.rangeIterator(8, false, null, true).forEachRemaining(result3::add);
+    assertArrayEquals(new String[]{"0", "1", "2", "9"}, result3.toArray());
+    
+    // test rangeIterator with empty range
+    assertFalse(tree.rangeIterator(6, true, 3, true).hasNext());
+    assertFalse(tree.rangeIterator(4, false, 4, true).hasNext());
+  }
+  
+  /**
+   * Tests the bulkLoad method of BinarySearchTree.
+   */
+  @Test
+  public void testBulkLoad(){
+    // test bulkLoad with no entries
+    BinarySearchTree<Integer, String> tree1 = BinarySearchTree.bulkLoad(new ArrayList<Map.Entry<Integer, String>>().iterator());
+    assertEquals(0, tree1.size());
+    
+    // test bulkLoad with many sorted entries including entries having same key
+    List<Map.Entry<Integer, String>> entries = new ArrayList<Map.Entry<Integer, String>>();
+    entries.add(new AbstractMap.SimpleEntry<Integer, String>(1, "1"));
+    entries.add(new AbstractMap.SimpleEntry<Integer, String>(3, "3a"));
+    entries.add(new AbstractMap.SimpleEntry<Integer, String>(3, "3b"));
+    entries.add(new AbstractMap.SimpleEntry<Integer, String>(5, "5"));
+    entries.add(new AbstractMap.SimpleEntry<Integer, String>(8, "8"));
+    BinarySearchTree<Integer, String> tree2 = BinarySearchTree.bulkLoad(entries.iterator());
+    String[] result1 = {"1", "3a", "3b", "5", "8"};
+    assertArrayEquals(result1, tree2.inorderRec().toArray());
+    assertEquals("5", tree2.search(5));
+    
+    // test the tree built by bulkLoad after inserting and deleting nodes
+    tree2.insert(4, "4");
+    tree2.delete(3);
+    tree2.delete(1);
+    assertEquals(4, tree2.size());
+    assertEquals("4", tree2.kthSmallest(2));
+    
+    // test bulkLoad with entries that are not sorted
+    Collections.reverse(entries);
+    try{
+      BinarySearchTree.bulkLoad(entries.iterator());
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalArgumentException exception");
+    }
+  }
+  
+  /**
+   * Tests the bulkLoadUnsorted method of BinarySearchTree.
+   */
+  @Test
+  public void testBulkLoadUnsorted(){
+    List<Map.Entry<Integer, Integer>> entries = new ArrayList<Map.Entry<Integer, Integer>>();
+    Integer[] result = new Integer[20000];
+    for(int i = 0; i < result.length; i++){
+      entries.add(new AbstractMap.SimpleEntry<Integer, Integer>(i, i));
+      result[i] = i;
+    }
+    Collections.shuffle(entries, new Random(7));
+    
+    // test bulkLoadUnsorted with many entries in random order
+    BinarySearchTree<Integer, Integer> tree = BinarySearchTree.bulkLoadUnsorted(entries.iterator());
+    assertArrayEquals(result, tree.inorderRec().toArray());
+    assertEquals(Integer.valueOf(12345), tree.search(12345));
+    assertEquals(Integer.valueOf(99), tree.kthSmallest(100));
+  }
+  
+  /**
+   * Tests the insertAll method of BinarySearchTree.
+   */
+  @Test
+  public void testInsertAll(){
+    BinarySearchTree<Integer, String> tree = new BinarySearchTree<Integer, String>();
+    
+    // test insertAll with many entries in random order when tree is empty
+    List<Map.Entry<Integer, String>> entries1 = new ArrayList<Map.Entry<Integer, String>>();
+    entries1.add(new AbstractMap.SimpleEntry<Integer, String>(5, "5"));
+    entries1.add(new AbstractMap.SimpleEntry<Integer, String>(1, "1"));
+    entries1.add(new AbstractMap.SimpleEntry<Integer, String>(8, "8"));
+    entries1.add(new AbstractMap.SimpleEntry<Integer, String>(3, "3"));
+    tree.insertAll(entries1);
+    String[] result1 = {"1", "3", "5", "8"};
+    assertArrayEquals(result1, tree.inorderRec().toArray());
+    
+    // test insertAll with a small batch when tree has many nodes
+    for(int i = 10; i < 100; i++){
+      tree.insert(i, String.valueOf(i));
+    }
+    List<Map.Entry<Integer, String>> entries2 = new ArrayList<Map.Entry<Integer, String>>();
+    entries2.add(new AbstractMap.SimpleEntry<Integer, String>(4, "4"));
+    tree.insertAll(entries2);
+    assertEquals("4", tree.kthSmallest(3));
+    assertEquals(95, tree.size());
+    
+    // test insertAll with a large batch including keys that are already in the tree, which should come after existing nodes having same key
+    List<Map.Entry<Integer, String>> entries3 = new ArrayList<Map.Entry<Integer, String>>();
+    for(int i = 0; i < 100; i += 2){
+      entries3.add(new AbstractMap.SimpleEntry<Integer, String>(i, "new" + i));
+    }
+    tree.insertAll(entries3);
+    assertEquals(145, tree.size());
+    assertEquals("8", tree.kthSmallest(9));
+    assertEquals("new8", tree.kthSmallest(10));
+  }
+  
+  /**
+   * Tests the deleteAll method of BinarySearchTree.
+   */
+  @Test
+  public void testDeleteAll(){
+    BinarySearchTree<Integer, String> tree = new BinarySearchTree<Integer, String>();
+    
+    // test deleteAll when tree is empty
+    tree.deleteAll(Arrays.asList(1, 2));
+    assertEquals(0, tree.size());
+    
+    for(int i = 0; i < 100; i++){
+      tree.insert(i, String.valueOf(i));
+    }
+    
+    // test deleteAll with a small batch including key that is not in the tree
+    tree.deleteAll(Arrays.asList(50, 200));
+    assertEquals(99, tree.size());
+    assertNull(tree.search(50));
+    
+    // test deleteAll with a large batch in random order
+    List<Integer> keys = new ArrayList<Integer>();
+    for(int i = 0; i < 100; i++){
+      if(i % 10 != 0){
+        keys.add(i);
+      }
+    }
+    Collections.shuffle(keys, new Random(3));
+    tree.deleteAll(keys);
+    String[] result = {"0", "10", "20", "30", "40", "60", "70", "80", "90"};
+    assertArrayEquals(result, tree.inorderRec().toArray());
+  }
+  
+  /**
+   * Tests the searchAll method of BinarySearchTree.
+   */
+  @Test
+  public void testSearchAll(){
+    BinarySearchTree<Integer, String> tree = new BinarySearchTree<Integer, String>();
+    
+    // test searchAll when tree is empty
+    assertArrayEquals(new String[]{null, null}, tree.searchAll(Arrays.asList(1, 2)).toArray());
+    
+    for(int i = 0; i < 20; i += 2){
+      tree.insert(i, String.valueOf(i));
+    }
+    
+    // test searchAll with a small batch
+    assertArrayEquals(new String[]{"4", null}, tree.searchAll(Arrays.asList(4, 5)).toArray());
+    
+    // test searchAll with a large batch in random order including key appearing twice
+    List<Integer> keys = Arrays.asList(18, 3, 0, 18, 7, 6, 40, 12, -1, 2);
+    String[] result = {"18", null, "0", "18", null, "6", null, "12", null, "2"};
+    assertArrayEquals(result, tree.searchAll(keys).toArray());
+  }
+  
+  /**
+   * Tests the rebalance method of BinarySearchTree.
+   */
+  @Test
+  public void testRebalance(){
+    BinarySearchTree<Integer, String> tree = new BinarySearchTree<Integer, String>();
+    
+    // test rebalance when tree is empty
+    tree.rebalance();
+    assertEquals(0, tree.size());
+    
+    // test rebalance when tree is as deep as its number of nodes, including nodes having same key
+    for(int i = 0; i < 2000; i++){
+      tree.insert(i, String.valueOf(i));
+    }
+    tree.insert(5, "second5");
+    assertEquals(1999, tree.height());
+    tree.rebalance();
+    // 2001 nodes fit in a perfectly balanced tree of height 10
+    assertEquals(10, tree.height());
+    assertEquals(2001, tree.size());
+    assertEquals("5", tree.kthSmallest(6));
+    assertEquals("second5", tree.kthSmallest(7));
+    assertEquals(7, tree.rank(6));
+    assertEquals("1999", tree.last().getValue());
+    tree.delete(5);
+    tree.delete(5);
+    assertNull(tree.search(5));
+    assertEquals(1999, tree.inorderRec().size());
+  }
+  
+  /**
+   * Tests BinarySearchTree which rebalances itself with a balance factor, with sorted inserts and deletes that would make it as deep as its number of nodes otherwise.
+   */
+  @Test
+  public void testScapegoatRebalancing(){
+    // test constructor with balance factor out of bounds
+    try{
+      new BinarySearchTree<Integer, Integer>(0.5);
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalArgumentException exception");
+    }
+    
+    // sorted inserts, searches and deletes each take O(logN) amortized, so they finish quickly
+    BinarySearchTree<Integer, Integer> tree = new BinarySearchTree<Integer, Integer>(0.7);
+    for(int i = 0; i < 200000; i++){
+      tree.insert(i, i);
+    }
+    for(int i = 0; i < 200000; i++){
+      assertEquals(Integer.valueOf(i), tree.search(i));
+    }
+    assertEquals(Integer.valueOf(12345), tree.kthSmallest(12346));
+    assertEquals(100000, tree.rank(100000));
+    for(int i = 0; i < 150000; i++){
+      tree.delete(i);
+    }
+    assertEquals(50000, tree.size());
+    assertEquals(Integer.valueOf(150000), tree.first().getValue());
+    
+    // random operations without duplicate keys give the same results as AVLTree
+    AVLTree<Integer, Integer> expectedTree = new AVLTree<Integer, Integer>();
+    for(int i = 150000; i < 200000; i++){
+      expectedTree.insert(i, i);
+    }
+    Random random = new Random(3);
+    for(int i = 0; i < 50000; i++){
+      int key = random.nextInt(250000);
+      if(random.nextBoolean()){
+        if(tree.containsKey(key)){
+          continue;
+        }
+        tree.insert(key, -key);
+        expectedTree.insert(key, -key);
+      }
+      else{
+        tree.delete(key);
+        expectedTree.delete(key);
+      }
+    }
+    assertEquals(expectedTree.size(), tree.size());
+    assertEquals(expectedTree.inorderRec(), tree.inorderRec());
+  }
 }
\ No newline at end of file
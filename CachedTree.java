@@ -0,0 +1,525 @@
+import java.util.*;
+// Class CachedTree is the tree which keeps the results of recent lookups of a wrapped tree in a bounded cache, so a lookup of a hot key takes O(1) instead of going down from root;
+// insert and delete invalidate the cached result of their key, and the other methods go to the wrapped tree directly
+// The cached tree is thread-safe when the wrapped tree is thread-safe (such as ConcurrentAVLTree)
+public class CachedTree<T extends Comparable<? super T>,V> implements TreeWithComparableKey<T,V>{
+  
+  // Enum Policy is used to choose which cached key is evicted when the cache is full
+  public enum Policy{
+    
+    // evict the least recently used key
+    LRU,
+    
+    // adaptive replacement cache: split the cache between keys used once and keys used at least twice, and adapt the split by remembering recently evicted keys,
+    // so a scan over many cold keys does not evict the hot keys
+    ARC
+  }
+  
+  // Interface Cache is used for the bounded map from keys to cached results, which decides what to evict
+  private interface Cache<K,E>{
+    
+    /**
+     * Return the result cached for key and record the access, or return null if key is not cached
+     */
+    E get(K key);
+    
+    /**
+     * Cache the result for key, evicting another key if the cache is full
+     */
+    void put(K key, E result);
+    
+    /**
+     * Remove the result cached for key if it exists
+     */
+    void remove(K key);
+    
+    /**
+     * Remove all cached results
+     */
+    void clear();
+  }
+  
+  // Class LRUCache is the cache evicting the least recently used key, by keeping the keys in a linked hash map in order of access
+  private static class LRUCache<K,E> implements Cache<K,E>{
+    
+    // the map from keys to results in order of access (the first key is the least recently used one)
+    private final LinkedHashMap<K,E> map;
+    
+    /**
+     * Initialize the cache holding at most capacity results
+     */
+    private LRUCache(int capacity){
+      map = new LinkedHashMap<K,E>(16, 0.75f, true){
+        
+        protected boolean removeEldestEntry(Map.Entry<K,E> eldest){
+          return size() > capacity;
+        }
+      };
+    }
+    
+    public E get(K key){
+      return map.get(key);
+    }
+    
+    public void put(K key, E result){
+      map.put(key, result);
+    }
+    
+    public void remove(K key){
+      map.remove(key);
+    }
+    
+    public void clear(){
+      map.clear();
+    }
+  }
+  
+  // Class ARCCache is the adaptive replacement cache: recent holds the keys used once and frequent holds the keys used at least twice since they were cached,
+  // while recentGhosts and frequentGhosts remember the keys recently evicted from them; a miss on a ghost key moves target, the share of the cache given to recent
+  private static class ARCCache<K,E> implements Cache<K,E>{
+    
+    // the largest number of cached results
+    private final int capacity;
+    
+    // the keys used once and their results, in order of insertion (the first key is the least recently used one)
+    private final LinkedHashMap<K,E> recent;
+    
+    // the keys used at least twice and their results, in order of last access (the first key is the least recently used one)
+    private final LinkedHashMap<K,E> frequent;
+    
+    // the keys recently evicted from recent, in order of eviction
+    private final LinkedHashSet<K> recentGhosts;
+    
+    // the keys recently evicted from frequent, in order of eviction
+    private final LinkedHashSet<K> frequentGhosts;
+    
+    // the target number of results in recent (from 0 to capacity)
+    private int target;
+    
+    /**
+     * Initialize the cache holding at most capacity results
+     */
+    private ARCCache(int capacity){
+      this.capacity = capacity;
+      recent = new LinkedHashMap<K,E>();
+      frequent = new LinkedHashMap<K,E>();
+      recentGhosts = new LinkedHashSet<K>();
+      frequentGhosts = new LinkedHashSet<K>();
+    }
+    
+    /**
+     * Return the result cached for key, moving key to the most recently used end of frequent, or return null if key is not cached
+     * Time complexity: O(1)
+     */
+    public E get(K key){
+      E result = recent.remove(key);
+      if(result == null){
+        result = frequent.remove(key);
+      }
+      if(result != null){
+        frequent.put(key, result);
+      }
+      return result;
+    }
+    
+    /**
+     * Cache the result for key after a miss: a ghost key grows the share of the list it was evicted from and goes to frequent, while a new key goes to recent;
+     * make room first by evicting from recent or frequent and dropping the oldest ghosts
+     * Time complexity: O(1)
+     */
+    public void put(K key, E result){
+      // If key is cached already (by another reader), only update its result
+      if(recent.containsKey(key)){
+        recent.put(key, result);
+        return;
+      }
+      if(frequent.containsKey(key)){
+        frequent.put(key, result);
+        return;
+      }
+      if(recentGhosts.contains(key)){
+        target = Math.min(capacity, target + Math.max(frequentGhosts.size() / recentGhosts.size(), 1));
+        recentGhosts.remove(key);
+        replace(false);
+        frequent.put(key, result);
+      }
+      else if(frequentGhosts.contains(key)){
+        target = Math.max(0, target - Math.max(recentGhosts.size() / frequentGhosts.size(), 1));
+        frequentGhosts.remove(key);
+        replace(true);
+        frequent.put(key, result);
+      }
+      else{
+        int total = recent.size() + frequent.size() + recentGhosts.size() + frequentGhosts.size();
+        if(recent.size() + recentGhosts.size() >= capacity){
+          // recent and its ghosts are full: drop the oldest ghost of recent if there is one, or evict from recent without remembering it otherwise
+          if(recent.size() < capacity){
+            removeFirst(recentGhosts);
+            replace(false);
+          }
+          else{
+            recent.remove(recent.keySet().iterator().next());
+          }
+        }
+        else if(total >= capacity){
+          if(total >= 2 * capacity){
+            removeFirst(frequentGhosts);
+          }
+          replace(false);
+        }
+        recent.put(key, result);
+      }
+    }
+    
+    /**
+     * Evict one result if the cache is full: from recent when recent is larger than target (or equal to it when the missed key is a ghost of frequent), from frequent otherwise,
+     * remembering the evicted key as a ghost
+     * Time complexity: O(1)
+     */
+    private void replace(boolean frequentGhostMissed){
+      if(recent.size() + frequent.size() < capacity){
+        return;
+      }
+      if(!recent.isEmpty() && (recent.size() > target || (frequentGhostMissed && recent.size() == target) || frequent.isEmpty())){
+        K evictedKey = recent.keySet().iterator().next();
+        recent.remove(evictedKey);
+        recentGhosts.add(evictedKey);
+      }
+      else{
+        K evictedKey = frequent.keySet().iterator().next();
+        frequent.remove(evictedKey);
+        frequentGhosts.add(evictedKey);
+      }
+    }
+    
+    /**
+     * Remove the oldest key of the ghosts in input if there is one
+     * Time complexity: O(1)
+     */
+    private void removeFirst(LinkedHashSet<K> ghosts){
+      Iterator<K> iterator = ghosts.iterator();
+      if(iterator.hasNext()){
+        iterator.next();
+        iterator.remove();
+      }
+    }
+    
+    /**
+     * Remove the result cached for key, keeping the ghosts since they hold no result
+     * Time complexity: O(1)
+     */
+    public void remove(K key){
+      recent.remove(key);
+      frequent.remove(key);
+    }
+    
+    public void clear(){
+      recent.clear();
+      frequent.clear();
+      recentGhosts.clear();
+      frequentGhosts.clear();
+      target = 0;
+    }
+  }
+  
+  // the object cached for a key which is not in the wrapped tree, so that a lookup of a missing key can also hit the cache (null is a valid value)
+  private static final Object ABSENT = new Object();
+  
+  // the object cached for a key whose value is null
+  private static final Object NULL_VALUE = new Object();
+  
+  // the wrapped tree storing the nodes
+  private final TreeWithComparableKey<T,V> tree;
+  
+  // the cache from keys to the value found by searching the wrapped tree (ABSENT or NULL_VALUE for a missing key or a null value), guarded by itself
+  private final Cache<T,Object> cache;
+  
+  // the number of changes made to the wrapped tree, used to avoid caching a result read before a change but cached after it (guarded by cache)
+  private long version;
+  
+  // the number of lookups answered by the cache (guarded by cache)
+  private long hitCount;
+  
+  // the number of lookups which went to the wrapped tree (guarded by cache)
+  private long missCount;
+  
+  // the metrics recording the lookups answered by the cache, which are also given to the wrapped tree (null if the cached tree does not record metrics)
+  private volatile TreeMetrics metrics;
+  
+  /**
+   * Initialize the cached tree wrapping the tree in input with a cache holding the results of at most capacity keys, evicted by the policy in input
+   * (throw IllegalArgumentException if capacity is not positive)
+   */
+  public CachedTree(TreeWithComparableKey<T,V> tree, int capacity, Policy policy){
+    if(capacity <= 0){
+      throw new IllegalArgumentException("capacity: " + capacity);
+    }
+    this.tree = tree;
+    this.cache = (policy == Policy.ARC) ? new ARCCache<T,Object>(capacity) : new LRUCache<T,Object>(capacity);
+  }
+  
+  /**
+   * Return the value found by searching the wrapped tree for key, or ABSENT if there is no node having that key; answer from the cache when key is cached,
+   * otherwise search the wrapped tree once and cache the result unless the wrapped tree has changed in the meantime
+   * Time complexity: O(1) on a hit; the time complexity of getOrDefault of the wrapped tree on a miss
+   */
+  @SuppressWarnings("unchecked")
+  private Object lookup(T key){
+    // recordingMetrics is read once, so a concurrent setMetrics(null) cannot make it null in between, and start is the time the lookup starts if it is recorded
+    TreeMetrics recordingMetrics = metrics;
+    long start = (recordingMetrics != null) ? System.nanoTime() : 0L;
+    long readVersion;
+    synchronized(cache){
+      Object result = cache.get(key);
+      if(result != null){
+        hitCount++;
+        // A hit is recorded as a search reaching no node of the wrapped tree, while a miss is recorded by the wrapped tree itself
+        if(recordingMetrics != null){
+          recordingMetrics.record(TreeMetrics.Operation.SEARCH, System.nanoTime() - start, 0, 0, 0);
+        }
+        return result;
+      }
+      missCount++;
+      readVersion = version;
+    }
+    // getOrDefault returns ABSENT itself only when there is no node having key, so one search tells a missing key from a null value
+    Object result = tree.getOrDefault(key, (V)ABSENT);
+    if(result == null){
+      result = NULL_VALUE;
+    }
+    synchronized(cache){
+      if(version == readVersion){
+        cache.put(key, result);
+      }
+    }
+    return result;
+  }
+  
+  /**
+   * Remove the cached results of the keys in input after the wrapped tree is changed, so later lookups see the change
+   * Time complexity: O(K) (K is number of keys from input)
+   */
+  private void invalidate(Collection<T> keys){
+    synchronized(cache){
+      version++;
+      for(T key : keys){
+        cache.remove(key);
+      }
+    }
+  }
+  
+  /**
+   * Insert a node with key and associated value to the wrapped tree, then remove the cached result of key
+   * Time complexity: the time complexity of insert of the wrapped tree
+   */
+  public void insert(T key, V value){
+    tree.insert(key, value);
+    invalidate(Collections.singleton(key));
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return null if there is no such node like that
+   * Time complexity: O(1) when key is cached; the time complexity of search of the wrapped tree otherwise
+   */
+  @SuppressWarnings("unchecked")
+  public V search(T key){
+    Object result = lookup(key);
+    return (result == ABSENT || result == NULL_VALUE) ? null : (V)result;
+  }
+  
+  /**
+   * Return true if there is a node which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: O(1) when key is cached; the time complexity of search of the wrapped tree otherwise
+   */
+  public boolean containsKey(T key){
+    return lookup(key) != ABSENT;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return defaultValue if there is no such node like that
+   * Time complexity: O(1) when key is cached; the time complexity of search of the wrapped tree otherwise
+   */
+  @SuppressWarnings("unchecked")
+  public V getOrDefault(T key, V defaultValue){
+    Object result = lookup(key);
+    if(result == ABSENT){
+      return defaultValue;
+    }
+    return (result == NULL_VALUE) ? null : (V)result;
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: the time complexity of floor of the wrapped tree
+   */
+  public Map.Entry<T,V> floor(T key){
+    return tree.floor(key);
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: the time complexity of ceiling of the wrapped tree
+   */
+  public Map.Entry<T,V> ceiling(T key){
+    return tree.ceiling(key);
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   * Time complexity: the time complexity of lower of the wrapped tree
+   */
+  public Map.Entry<T,V> lower(T key){
+    return tree.lower(key);
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   * Time complexity: the time complexity of higher of the wrapped tree
+   */
+  public Map.Entry<T,V> higher(T key){
+    return tree.higher(key);
+  }
+  
+  /**
+   * Return the entry with the smallest key in the cached tree, or return null if the cached tree is empty
+   * Time complexity: the time complexity of first of the wrapped tree
+   */
+  public Map.Entry<T,V> first(){
+    return tree.first();
+  }
+  
+  /**
+   * Return the entry with the largest key in the cached tree, or return null if the cached tree is empty
+   * Time complexity: the time complexity of last of the wrapped tree
+   */
+  public Map.Entry<T,V> last(){
+    return tree.last();
+  }
+  
+  /**
+   * Delete the node having the key that is equal to key from input if that node exists in the wrapped tree, then remove the cached result of key
+   * Time complexity: the time complexity of delete of the wrapped tree
+   */
+  public void delete(T key){
+    tree.delete(key);
+    invalidate(Collections.singleton(key));
+  }
+  
+  /**
+   * Insert a node for each entry from input to the wrapped tree, then remove the cached results of their keys
+   * Time complexity: the time complexity of insertAll of the wrapped tree plus O(K) (K is number of entries from input)
+   */
+  public void insertAll(Collection<Map.Entry<T,V>> entries){
+    tree.insertAll(entries);
+    List<T> keys = new ArrayList<T>(entries.size());
+    for(Map.Entry<T,V> entry : entries){
+      keys.add(entry.getKey());
+    }
+    invalidate(keys);
+  }
+  
+  /**
+   * Delete a node having the key that is equal to each key from input if that node exists in the wrapped tree, then remove the cached results of those keys
+   * Time complexity: the time complexity of deleteAll of the wrapped tree plus O(K) (K is number of keys from input)
+   */
+  public void deleteAll(Collection<T> keys){
+    tree.deleteAll(keys);
+    invalidate(keys);
+  }
+  
+  /**
+   * Return the number of lookups (search, containsKey and getOrDefault) answered by the cache
+   */
+  public long hitCount(){
+    synchronized(cache){
+      return hitCount;
+    }
+  }
+  
+  /**
+   * Return the number of lookups (search, containsKey and getOrDefault) which went to the wrapped tree
+   */
+  public long missCount(){
+    synchronized(cache){
+      return missCount;
+    }
+  }
+  
+  /**
+   * Remove all cached results and reset the hit and miss counts
+   */
+  public void clearCache(){
+    synchronized(cache){
+      version++;
+      cache.clear();
+      hitCount = 0;
+      missCount = 0;
+    }
+  }
+  
+  /**
+   * Make the wrapped tree record each insert, search and delete into the metrics from input, and record each lookup answered by the cache as a search with no comparison,
+   * or stop recording if metrics is null (throw UnsupportedOperationException if the wrapped tree does not record metrics)
+   */
+  public void setMetrics(TreeMetrics metrics){
+    tree.setMetrics(metrics);
+    this.metrics = metrics;
+  }
+  
+  /**
+   * Return the number of nodes in the cached tree
+   * Time complexity: the time complexity of size of the wrapped tree
+   */
+  public int size(){
+    return tree.size();
+  }
+  
+  /**
+   * Return an iterator visiting the values in inorder traversal of the wrapped tree
+   * Time complexity: the time complexity of iterator of the wrapped tree
+   */
+  public Iterator<V> iterator(){
+    return tree.iterator();
+  }
+  
+  /**
+   * Return an iterator visiting the values of the nodes whose keys are between from and to in inorder traversal of the wrapped tree
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   * Time complexity: the time complexity of rangeIterator of the wrapped tree
+   */
+  public Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+    return tree.rangeIterator(from, fromInclusive, to, toInclusive);
+  }
+  
+  /**
+   * Return the list of values in inorder traversal of the wrapped tree
+   * Time complexity: the time complexity of inorderRec of the wrapped tree
+   */
+  public List<V> inorderRec(){
+    return tree.inorderRec();
+  }
+  
+  /**
+   * Find the kth smallest element in the wrapped tree
+   * Time complexity: the time complexity of kthSmallest of the wrapped tree
+   */
+  public V kthSmallest(int k){
+    return tree.kthSmallest(k);
+  }
+  
+  /**
+   * Return the number of nodes in the wrapped tree having key that is smaller than the key from input
+   * Time complexity: the time complexity of rank of the wrapped tree
+   */
+  public int rank(T key){
+    return tree.rank(key);
+  }
+  
+  /**
+   * Return the list of values of the nodes from the fromth smallest to the toth smallest element in the wrapped tree (both inclusive)
+   * Time complexity: the time complexity of select of the wrapped tree
+   */
+  public List<V> select(int from, int to){
+    return tree.select(from, to);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class CachedTreeTester is the tester class for CachedTree
+public class CachedTreeTester{
+  
+  /**
+   * Tests that lookups of CachedTree are answered by the cache after the first one, and that insert and delete invalidate the cached results.
+   */
+  @Test
+  public void testLookupAndInvalidation(){
+    for(CachedTree.Policy policy : CachedTree.Policy.values()){
+      CachedTree<Integer, String> tree = new CachedTree<Integer, String>(new AVLTree<Integer, String>(), 4, policy);
+      tree.insert(4, "4");
+      tree.insert(2, "2");
+      tree.insert(7, null);
+      
+      // search the same key twice
+      assertEquals("4", tree.search(4));
+      assertEquals("4", tree.search(4));
+      assertEquals(1, tree.hitCount());
+      assertEquals(1, tree.missCount());
+      
+      // missing keys and null values are cached too
+      assertNull(tree.search(5));
+      assertFalse(tree.containsKey(5));
+      assertEquals("none", tree.getOrDefault(5, "none"));
+      assertTrue(tree.containsKey(7));
+      assertNull(tree.getOrDefault(7, "none"));
+      assertEquals(4, tree.hitCount());
+      assertEquals(3, tree.missCount());
+      
+      // insert and delete make later lookups see the change
+      tree.insert(5, "5");
+      assertEquals("5", tree.search(5));
+      tree.delete(4);
+      assertNull(tree.search(4));
+      assertFalse(tree.containsKey(4));
+      tree.insertAll(Arrays.asList(new AbstractMap.SimpleEntry<Integer, String>(4, "new4")));
+      assertEquals("new4", tree.search(4));
+      tree.deleteAll(Arrays.asList(4, 5));
+      assertNull(tree.search(4));
+      assertNull(tree.search(5));
+      
+      String[] result = {"2", null};
+      assertArrayEquals(result, tree.inorderRec().toArray());
+      
+      tree.clearCache();
+      assertEquals(0, tree.hitCount());
+      assertEquals(0, tree.missCount());
+    }
+  }
+  
+  /**
+   * Tests that the cache of CachedTree never holds more keys than its capacity and always returns the same values as the wrapped tree.
+   */
+  @Test
+  public void testEviction(){
+    for(CachedTree.Policy policy : CachedTree.Policy.values()){
+      AVLTree<Integer, Integer> avlTree = new AVLTree<Integer, Integer>();
+      for(int i = 0; i < 1000; i++){
+        avlTree.insert(i, i);
+      }
+      CachedTree<Integer, Integer> tree = new CachedTree<Integer, Integer>(avlTree, 10, policy);
+      Random random = new Random(1);
+      for(int i = 0; i < 20000; i++){
+        int key = random.nextInt(1100);
+        if(random.nextInt(10) == 0){
+          tree.delete(key);
+        }
+        else if(random.nextInt(10) == 0){
+          tree.insert(key, -key);
+        }
+        assertEquals(avlTree.search(key), tree.search(key));
+      }
+      // a key looked up twice in a row is always a hit, whatever was evicted before
+      tree.search(3);
+      long hits = tree.hitCount();
+      tree.search(3);
+      assertEquals(hits + 1, tree.hitCount());
+    }
+  }
+  
+  /**
+   * Tests that the ARC policy keeps hot keys cached while many cold keys are scanned once, unlike the LRU policy.
+   */
+  @Test
+  public void testScanResistance(){
+    Map<CachedTree.Policy, Long> hits = new EnumMap<CachedTree.Policy, Long>(CachedTree.Policy.class);
+    for(CachedTree.Policy policy : CachedTree.Policy.values()){
+      AVLTree<Integer, Integer> avlTree = new AVLTree<Integer, Integer>();
+      for(int i = 0; i < 20000; i++){
+        avlTree.insert(i, i);
+      }
+      CachedTree<Integer, Integer> tree = new CachedTree<Integer, Integer>(avlTree, 100, policy);
+      // the hot keys 0 to 49 are looked up twice in each round, followed by 500 cold keys which are never looked up again
+      for(int round = 0; round < 20; round++){
+        for(int key = 0; key < 50; key++){
+          tree.search(key);
+          tree.search(key);
+        }
+        for(int key = 0; key < 500; key++){
+          tree.search(1000 + round * 500 + key);
+        }
+      }
+      hits.put(policy, tree.hitCount());
+    }
+    // LRU loses the hot keys in each scan, so only the second lookups hit; ARC keeps them after the first round
+    assertEquals(Long.valueOf(50 * 20), hits.get(CachedTree.Policy.LRU));
+    assertEquals(Long.valueOf(50 + 100 * 19), hits.get(CachedTree.Policy.ARC));
+  }
+}
\ No newline at end of file
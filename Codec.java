@@ -0,0 +1,56 @@
+import java.nio.*;
+import java.nio.charset.*;
+// Interface Codec is used to convert keys or values to bytes when a tree is written to a file, and back from the bytes of a file mapped to memory
+public interface Codec<E>{
+  
+  /**
+   * Return the bytes representing the element in input
+   */
+  byte[] encode(E element);
+  
+  /**
+   * Return the element represented by the length bytes of buffer starting at offset; only absolute reads should be used on buffer since it is shared by all readers
+   */
+  E decode(ByteBuffer buffer, int offset, int length);
+  
+  // the codec storing an Integer as 4 bytes in big-endian order
+  Codec<Integer> INTEGER = new Codec<Integer>(){
+    
+    public byte[] encode(Integer element){
+      return ByteBuffer.allocate(Integer.BYTES).putInt(element).array();
+    }
+    
+    public Integer decode(ByteBuffer buffer, int offset, int length){
+      return buffer.getInt(offset);
+    }
+  };
+  
+  // the codec storing a Long as 8 bytes in big-endian order
+  Codec<Long> LONG = new Codec<Long>(){
+    
+    public byte[] encode(Long element){
+      return ByteBuffer.allocate(Long.BYTES).putLong(element).array();
+    }
+    
+    public Long decode(ByteBuffer buffer, int offset, int length){
+      return buffer.getLong(offset);
+    }
+  };
+  
+  // the codec storing a String as its UTF-8 bytes
+  Codec<String> STRING = new Codec<String>(){
+    
+    public byte[] encode(String element){
+      return element.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    public String decode(ByteBuffer buffer, int offset, int length){
+      byte[] bytes = new byte[length];
+      // Read through a duplicate of buffer so that the position of buffer is not changed
+      ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position(offset);
+      duplicate.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  };
+}
\ No newline at end of file
@@ -0,0 +1,304 @@
+import java.util.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+// Class ConcurrentAVLTree is the thread-safe AVL tree in which readers go down in the tree without locking by using optimistic reads, and writers are serialized by a write lock
+public class ConcurrentAVLTree<T extends Comparable<? super T>,V> implements TreeWithComparableKey<T,V>{
+  
+  // the AVL tree storing the nodes
+  private final AVLTree<T,V> tree;
+  
+  // the lock used to validate optimistic reads and to serialize writers
+  private final StampedLock lock;
+  
+  /**
+   * Initialize the concurrent AVL tree with an empty AVL tree
+   */
+  public ConcurrentAVLTree(){
+    tree = new AVLTree<T,V>();
+    lock = new StampedLock();
+  }
+  
+  /**
+   * Run reader without locking and return its result if no writer has changed the tree in the meantime;
+   * otherwise (or when reader fails because it sees the tree in the middle of a change), run reader again while holding the read lock
+   * Should only be used for readers going down in the tree along one path, since a long reader is likely to be invalidated by writers;
+   * AVLTree ends such a way down with ConcurrentModificationException once it is longer than any AVL tree allows, so a reader seeing a rotation half done cannot loop forever
+   * Time complexity: the time complexity of reader
+   */
+  private <R> R optimisticRead(Supplier<R> reader){
+    // Try an optimistic read first, which does not block writers and does not write to shared memory
+    long stamp = lock.tryOptimisticRead();
+    if(stamp != 0L){
+      try{
+        R result = reader.get();
+        if(lock.validate(stamp)){
+          return result;
+        }
+      }
+      catch(RuntimeException exception){
+        // If no writer has changed the tree, the exception is the real result of reader, so throw it; otherwise, retry with the read lock
+        if(lock.validate(stamp)){
+          throw exception;
+        }
+      }
+    }
+    // Fall back to the read lock when the optimistic read is invalid
+    return lockedRead(reader);
+  }
+  
+  /**
+   * Run reader while holding the read lock, which blocks writers but not other readers
+   * Time complexity: the time complexity of reader
+   */
+  private <R> R lockedRead(Supplier<R> reader){
+    long stamp = lock.readLock();
+    try{
+      return reader.get();
+    }
+    finally{
+      lock.unlockRead(stamp);
+    }
+  }
+  
+  /**
+   * Run writer while holding the write lock
+   * Time complexity: the time complexity of writer
+   */
+  private void write(Runnable writer){
+    long stamp = lock.writeLock();
+    try{
+      writer.run();
+    }
+    finally{
+      lock.unlockWrite(stamp);
+    }
+  }
+  
+  /**
+   * Insert a node with key and associated value to the concurrent AVL tree while holding the write lock
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public void insert(T key, V value){
+    write(() -> tree.insert(key, value));
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return null if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public V search(T key){
+    return getOrDefault(key, null);
+  }
+  
+  /**
+   * Return true if there is a node which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public boolean containsKey(T key){
+    return findEntry(key) != null;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return defaultValue if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public V getOrDefault(T key, V defaultValue){
+    Map.Entry<T,V> entry = findEntry(key);
+    return (entry != null) ? entry.getValue() : defaultValue;
+  }
+  
+  /**
+   * Help method search(T key), containsKey(T key) and getOrDefault(T key, V defaultValue) by finding the entry of the first node encountered which has key that is equal to the key from input by an optimistic read,
+   * or return null if there is no such node like that; the search is recorded into the metrics once, with the depth of the attempt whose result is returned
+   * The optimistic read is written out instead of using optimisticRead so that a search allocates nothing but its entry when no metrics are recorded
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  private Map.Entry<T,V> findEntry(T key){
+    // start is the time the search starts, which is 0 if the AVL tree records no metrics
+    long start = tree.startTime();
+    // depth is used to store the number of nodes visited by the attempt whose result is returned (null if no metrics are recorded)
+    int[] depth = (start != 0L) ? new int[1] : null;
+    Map.Entry<T,V> entry = null;
+    boolean found = false;
+    long stamp = lock.tryOptimisticRead();
+    if(stamp != 0L){
+      try{
+        entry = tree.findEntryBounded(key, depth);
+        found = lock.validate(stamp);
+      }
+      catch(RuntimeException exception){
+        // If no writer has changed the tree, the exception is the real result of the search, so throw it; otherwise, retry with the read lock
+        if(lock.validate(stamp)){
+          throw exception;
+        }
+      }
+    }
+    // Fall back to the read lock when the optimistic read is invalid
+    if(!found){
+      stamp = lock.readLock();
+      try{
+        entry = tree.findEntryBounded(key, depth);
+      }
+      finally{
+        lock.unlockRead(stamp);
+      }
+    }
+    if(depth != null){
+      tree.recordSearch(start, depth[0]);
+    }
+    return entry;
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public Map.Entry<T,V> floor(T key){
+    return optimisticRead(() -> tree.floor(key));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public Map.Entry<T,V> ceiling(T key){
+    return optimisticRead(() -> tree.ceiling(key));
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public Map.Entry<T,V> lower(T key){
+    return optimisticRead(() -> tree.lower(key));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public Map.Entry<T,V> higher(T key){
+    return optimisticRead(() -> tree.higher(key));
+  }
+  
+  /**
+   * Return the entry with the smallest key in the concurrent AVL tree, or return null if the concurrent AVL tree is empty
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public Map.Entry<T,V> first(){
+    return optimisticRead(() -> tree.first());
+  }
+  
+  /**
+   * Return the entry with the largest key in the concurrent AVL tree, or return null if the concurrent AVL tree is empty
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public Map.Entry<T,V> last(){
+    return optimisticRead(() -> tree.last());
+  }
+  
+  /**
+   * Delete the node having the key that is equal to key from input if that node exists while holding the write lock
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public void delete(T key){
+    write(() -> tree.delete(key));
+  }
+  
+  /**
+   * Insert a node for each entry from input while holding the write lock once for the whole batch
+   * Time complexity: O(KlogK + min(N, KlogN)) (N is number of nodes in the concurrent AVL tree, K is number of entries from input)
+   */
+  public void insertAll(Collection<Map.Entry<T,V>> entries){
+    write(() -> tree.insertAll(entries));
+  }
+  
+  /**
+   * Delete a node having the key that is equal to each key from input if that node exists while holding the write lock once for the whole batch
+   * Time complexity: O(KlogK + min(N, KlogN)) (N is number of nodes in the concurrent AVL tree, K is number of keys from input)
+   */
+  public void deleteAll(Collection<T> keys){
+    write(() -> tree.deleteAll(keys));
+  }
+  
+  /**
+   * Return the list of values found by searching for each key from input, in the same order as the keys, while holding the read lock once for the whole batch
+   * Time complexity: O(KlogK + min(N, KlogN)) (N is number of nodes in the concurrent AVL tree, K is number of keys from input)
+   */
+  public List<V> searchAll(List<T> keys){
+    return lockedRead(() -> tree.searchAll(keys));
+  }
+  
+  /**
+   * Return the number of nodes in the concurrent AVL tree
+   * Time complexity: O(1)
+   */
+  public int size(){
+    return optimisticRead(() -> tree.size());
+  }
+  
+  /**
+   * Return an iterator visiting the values in inorder traversal of a snapshot of the concurrent AVL tree, so later changes to the tree do not affect the iterator
+   * Time complexity: O(N) (N is number of nodes in the concurrent AVL tree)
+   */
+  public Iterator<V> iterator(){
+    return inorderRec().iterator();
+  }
+  
+  /**
+   * Return an iterator visiting the values of the nodes whose keys are between from and to in inorder traversal of a snapshot of that range of the concurrent AVL tree
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   * Time complexity: O(logN + K) (N is number of nodes in the concurrent AVL tree, K is number of values visited)
+   */
+  public Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+    return lockedRead(() -> {
+      // list is used to store the values in the range
+      List<V> list = new ArrayList<V>();
+      tree.rangeIterator(from, fromInclusive, to, toInclusive).forEachRemaining(list::add);
+      return list;
+    }).iterator();
+  }
+  
+  /**
+   * Return the list of values in inorder traversal of the concurrent AVL tree
+   * Time complexity: O(N) (N is number of nodes in the concurrent AVL tree)
+   */
+  public List<V> inorderRec(){
+    return lockedRead(() -> tree.inorderRec());
+  }
+  
+  /**
+   * Find the kth smallest element in the concurrent AVL tree
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public V kthSmallest(int k){
+    return optimisticRead(() -> tree.kthSmallest(k));
+  }
+  
+  /**
+   * Return the number of nodes in the concurrent AVL tree having key that is smaller than the key from input
+   * Time complexity: O(logN) (N is number of nodes in the concurrent AVL tree)
+   */
+  public int rank(T key){
+    return optimisticRead(() -> tree.rank(key));
+  }
+  
+  /**
+   * Return the list of values of the nodes from the fromth smallest to the toth smallest element in the concurrent AVL tree (both inclusive)
+   * Time complexity: O(logN + K) (N is number of nodes in the concurrent AVL tree, K is number of values returned)
+   */
+  public List<V> select(int from, int to){
+    return lockedRead(() -> tree.select(from, to));
+  }
+  
+  /**
+   * Make the concurrent AVL tree record each insert, search and delete into the metrics from input, or stop recording if metrics is null;
+   * an optimistic search which is retried is recorded once, and the size and height of the metrics are read under the lock
+   */
+  public void setMetrics(TreeMetrics metrics){
+    write(() -> tree.setMetrics(metrics));
+    if(metrics != null){
+      metrics.bind(this::size, () -> optimisticRead(() -> tree.height()));
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class ConcurrentAVLTreeTester is the tester class for ConcurrentAVLTree
+public class ConcurrentAVLTreeTester{
+  
+  /**
+   * Tests the insert, search and delete methods of ConcurrentAVLTree on a single thread.
+   */
+  @Test
+  public void testInsertSearchDelete(){
+    ConcurrentAVLTree<Integer, String> tree = new ConcurrentAVLTree<Integer, String>();
+    
+    // search when the tree is empty
+    assertNull(tree.search(5));
+    
+    tree.insert(4, "4");
+    tree.insert(2, "2");
+    tree.insert(7, "7");
+    tree.insert(9, "9");
+    
+    // search and inorderRec when the tree has many nodes
+    assertEquals("7", tree.search(7));
+    String[] result1 = {"2", "4", "7", "9"};
+    assertArrayEquals(result1, tree.inorderRec().toArray());
+    
+    // delete node that has 2 children
+    tree.delete(4);
+    assertNull(tree.search(4));
+    String[] result2 = {"2", "7", "9"};
+    assertArrayEquals(result2, tree.inorderRec().toArray());
+    
+    // test kthSmallest with k being out of bounds
+    try{
+      tree.kthSmallest(4);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+  }
+  
+  /**
+   * Tests the iterator method of ConcurrentAVLTree, which should not be affected by later changes to the tree.
+   */
+  @Test
+  public void testIterator(){
+    ConcurrentAVLTree<Integer, String> tree = new ConcurrentAVLTree<Integer, String>();
+    tree.insert(1, "1");
+    tree.insert(3, "3");
+    Iterator<String> iterator = tree.iterator();
+    
+    // change the tree after creating the iterator
+    tree.insert(2, "2");
+    tree.delete(3);
+    
+    assertEquals("1", iterator.next());
+    assertEquals("3", iterator.next());
+    assertFalse(iterator.hasNext());
+  }
+  
+  /**
+   * Tests ConcurrentAVLTree when many readers and writers use the tree at the same time.
+   */
+  @Test
+  public void testConcurrentReadersAndWriters() throws InterruptedException{
+    ConcurrentAVLTree<Integer, Integer> tree = new ConcurrentAVLTree<Integer, Integer>();
+    // even keys are always in the tree; odd keys are inserted and deleted by writers
+    for(int i = 0; i < 2000; i += 2){
+      tree.insert(i, i);
+    }
+    TreeMetrics metrics = new TreeMetrics();
+    tree.setMetrics(metrics);
+    List<Thread> threads = new ArrayList<Thread>();
+    List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+    for(int t = 0; t < 4; t++){
+      final int seed = t;
+      // writer inserts and deletes odd keys
+      threads.add(new Thread(() -> {
+        Random random = new Random(seed);
+        for(int i = 0; i < 20000; i++){
+          int key = 2 * random.nextInt(1000) + 1;
+          if(random.nextBoolean()){
+            tree.insert(key, key);
+          }
+          else{
+            tree.delete(key);
+          }
+        }
+      }));
+      // reader checks that every even key can always be found
+      threads.add(new Thread(() -> {
+        Random random = new Random(seed);
+        for(int i = 0; i < 50000; i++){
+          int key = 2 * random.nextInt(1000);
+          if(!Integer.valueOf(key).equals(tree.search(key))){
+            errors.add(new AssertionError("key " + key + " is not found"));
+          }
+        }
+      }));
+    }
+    for(Thread thread : threads){
+      thread.start();
+    }
+    for(Thread thread : threads){
+      thread.join();
+    }
+    assertTrue(errors.isEmpty());
+    // each search is recorded once even when its optimistic read is retried, and only ways down in a valid AVL tree of at most 2000 nodes (height at most 14) are recorded
+    assertEquals(4 * 50000, metrics.latency(TreeMetrics.Operation.SEARCH).count());
+    assertEquals(4 * 20000, metrics.latency(TreeMetrics.Operation.INSERT).count() + metrics.latency(TreeMetrics.Operation.DELETE).count());
+    assertTrue(metrics.depth(TreeMetrics.Operation.SEARCH).max() <= 15);
+    
+    // after all writers finish, the values should still be in sorted order
+    Integer previous = null;
+    for(Integer value : tree){
+      assertTrue(previous == null || previous <= value);
+      previous = value;
+    }
+  }
+  
+  /**
+   * Tests the insertAll, deleteAll and searchAll methods of ConcurrentAVLTree.
+   */
+  @Test
+  public void testBatches(){
+    ConcurrentAVLTree<Integer, String> tree = new ConcurrentAVLTree<Integer, String>();
+    List<Map.Entry<Integer, String>> entries = new ArrayList<Map.Entry<Integer, String>>();
+    for(int i = 9; i >= 0; i--){
+      entries.add(new AbstractMap.SimpleEntry<Integer, String>(i, String.valueOf(i)));
+    }
+    tree.insertAll(entries);
+    tree.deleteAll(Arrays.asList(3, 5, 7));
+    String[] result1 = {"0", "1", "2", "4", "6", "8", "9"};
+    assertArrayEquals(result1, tree.inorderRec().toArray());
+    String[] result2 = {"9", null, "0"};
+    assertArrayEquals(result2, tree.searchAll(Arrays.asList(9, 5, 0)).toArray());
+  }
+}
\ No newline at end of file
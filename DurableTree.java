@@ -0,0 +1,978 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+import java.util.zip.*;
+// Class DurableTree is the thread-safe tree which keeps its nodes in an in-memory tree and records each insert and delete in an append-only write-ahead log before returning,
+// so the tree can be recovered after a crash; checkpoint() writes the whole tree to a compact snapshot file (in the format of MappedTree) so that recovery only replays the log written after it
+// The directory of a durable tree holds snapshot-G.bin and log-G.wal files, where G is a generation: the tree is the snapshot with the largest generation (or an empty tree),
+// followed by the changes recorded in the logs whose generations are larger than or equal to it, in order of generation; a lock file keeps two durable trees from opening the same directory
+public class DurableTree<T extends Comparable<? super T>,V> implements TreeWithComparableKey<T,V>, Closeable{
+  
+  // Enum Durability is used to choose when the changes recorded in the log are forced to disk
+  public enum Durability{
+    
+    // each insert or delete forces the log to disk before returning, one at a time
+    EVERY_OPERATION,
+    
+    // each insert, delete or batch waits until the log is forced to disk before returning, and one force covers all changes recorded by concurrent writers in the meantime (group commit)
+    GROUP_COMMIT,
+    
+    // changes return without waiting, and the log is forced to disk every sync interval, so a crash loses at most the changes of the last interval
+    INTERVAL
+  }
+  
+  // Interface LogWriter is used for a change to the tree which records itself in the log and returns the sequence number of its last record
+  private interface LogWriter{
+    
+    /**
+     * Change the tree, record the change in the log and return the sequence number of the last record
+     */
+    long write() throws IOException;
+  }
+  
+  // the type of a log record which inserts a node
+  private static final byte INSERT = 0;
+  
+  // the type of a log record which deletes a node
+  private static final byte DELETE = 1;
+  
+  // the number of bytes before the payload of a log record (length of the payload and CRC32 of the payload)
+  private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+  
+  // the number of bytes of the buffer where log records are gathered before being written to the log file
+  private static final int BUFFER_SIZE = 1 << 16;
+  
+  // the sync interval used by openAVLTree and openBinarySearchTree (in milliseconds)
+  private static final long DEFAULT_SYNC_INTERVAL = 10;
+  
+  // the log size after which openAVLTree and openBinarySearchTree make a checkpoint (64 MB)
+  private static final long DEFAULT_CHECKPOINT_LOG_SIZE = 1L << 26;
+  
+  // the name of the file locked by the durable tree which has the directory open
+  private static final String LOCK_FILE = "lock";
+  
+  // the directory holding the snapshot and log files
+  private final Path directory;
+  
+  // the in-memory tree storing the nodes
+  private final TreeWithComparableKey<T,V> tree;
+  
+  // the function returning an iterator visiting the entries of tree in nondecreasing order of key, used to write a snapshot
+  private final Supplier<Iterator<Map.Entry<T,V>>> entries;
+  
+  // the codec used to encode and decode the keys
+  private final Codec<T> keyCodec;
+  
+  // the codec used to encode and decode the values
+  private final Codec<V> valueCodec;
+  
+  // when the log is forced to disk
+  private final Durability durability;
+  
+  // the log size after which the background thread makes a checkpoint
+  private final long checkpointLogSize;
+  
+  // the lock protecting tree: readers share the read lock, while writers hold the write lock to change tree and record the change in the same order
+  private final ReentrantReadWriteLock lock;
+  
+  // the lock protecting channel, buffer, generation, logSize and appendedSequence
+  private final Object logLock;
+  
+  // the monitor used by writers waiting for the log to be forced to disk, protecting syncing and syncedSequence
+  private final Object syncMonitor;
+  
+  // the background thread forcing the log to disk for INTERVAL and making checkpoints when the log is large
+  private final ScheduledExecutorService maintenance;
+  
+  // the thread doing all I/O on channel, which is never interrupted: an interrupt during I/O on a FileChannel closes it, which would lose the records still in buffer
+  private final ExecutorService logThread;
+  
+  // the channel of the lock file, whose lock is held until the durable tree is closed
+  private final FileChannel lockChannel;
+  
+  // the channel of the current log file
+  private FileChannel channel;
+  
+  // the buffer gathering log records which are not written to channel yet
+  private final ByteBuffer buffer;
+  
+  // the generation of the current log file
+  private long generation;
+  
+  // the number of bytes recorded in the current log file (including the bytes still in buffer)
+  private long logSize;
+  
+  // the number of log records recorded since the durable tree was opened
+  private long appendedSequence;
+  
+  // the number of log records known to be forced to disk
+  private long syncedSequence;
+  
+  // whether a writer is forcing the log to disk on behalf of all waiting writers
+  private boolean syncing;
+  
+  // whether close() has been called
+  private volatile boolean closed;
+  
+  /**
+   * Initialize the durable tree with the recovered tree and the log file of the generation in input, which new records are appended to, and the channel of the lock file of the directory
+   */
+  private DurableTree(Path directory, TreeWithComparableKey<T,V> tree, Supplier<Iterator<Map.Entry<T,V>>> entries, Codec<T> keyCodec, Codec<V> valueCodec,
+                      Durability durability, long syncInterval, long checkpointLogSize, long generation, FileChannel lockChannel) throws IOException{
+    this.directory = directory;
+    this.tree = tree;
+    this.entries = entries;
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.durability = durability;
+    this.checkpointLogSize = checkpointLogSize;
+    this.lock = new ReentrantReadWriteLock();
+    this.logLock = new Object();
+    this.syncMonitor = new Object();
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    this.generation = generation;
+    this.lockChannel = lockChannel;
+    this.logThread = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "DurableTree-log-" + directory.getFileName());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try{
+      this.channel = onLogThread(() -> openLog(generation));
+      this.logSize = onLogThread(() -> channel.size());
+    }
+    catch(IOException | RuntimeException exception){
+      logThread.shutdown();
+      throw exception;
+    }
+    this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "DurableTree-" + directory.getFileName());
+      thread.setDaemon(true);
+      return thread;
+    });
+    maintenance.scheduleWithFixedDelay(this::maintain, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * Return the durable AVL tree stored in the directory in input (which is created if it does not exist), recovering it from the latest snapshot and the logs written after it;
+   * the log is forced to disk every 10 ms for INTERVAL and a checkpoint is made when the log reaches 64 MB
+   * Time complexity: O(N + LlogN) (N is number of nodes in the tree, L is number of records in the logs)
+   */
+  public static <T extends Comparable<? super T>,V> DurableTree<T,V> openAVLTree(Path directory, Codec<T> keyCodec, Codec<V> valueCodec, Durability durability) throws IOException{
+    return open(directory, AVLTree::bulkLoad, AVLTree::entryIterator, keyCodec, valueCodec, durability, DEFAULT_SYNC_INTERVAL, DEFAULT_CHECKPOINT_LOG_SIZE);
+  }
+  
+  /**
+   * Return the durable binary search tree stored in the directory in input (which is created if it does not exist), recovering it from the latest snapshot and the logs written after it;
+   * the log is forced to disk every 10 ms for INTERVAL and a checkpoint is made when the log reaches 64 MB
+   * Time complexity: O(N) to load the snapshot into a perfectly balanced binary search tree, plus the time to replay the logs
+   */
+  public static <T extends Comparable<? super T>,V> DurableTree<T,V> openBinarySearchTree(Path directory, Codec<T> keyCodec, Codec<V> valueCodec, Durability durability) throws IOException{
+    return open(directory, BinarySearchTree::bulkLoad, BinarySearchTree::entryIterator, keyCodec, valueCodec, durability, DEFAULT_SYNC_INTERVAL, DEFAULT_CHECKPOINT_LOG_SIZE);
+  }
+  
+  /**
+   * Return the durable tree stored in the directory in input (which is created if it does not exist): load the latest snapshot with loader (which is given its entries in nondecreasing order of key),
+   * then replay the logs written after it, cutting off a log at its first incomplete or corrupted record (left by a crash in the middle of a write);
+   * entries should return an iterator visiting the entries of a tree made by loader in nondecreasing order of key;
+   * the log is forced to disk every syncInterval milliseconds for INTERVAL, and a checkpoint is made when the log reaches checkpointLogSize bytes
+   * (throw IllegalArgumentException if syncInterval or checkpointLogSize is not positive)
+   * Time complexity: the time complexity of loader plus O(LlogN) (N is number of nodes in the tree, L is number of records in the logs)
+   */
+  public static <T extends Comparable<? super T>,V,E extends TreeWithComparableKey<T,V>> DurableTree<T,V> open(Path directory, Function<Iterator<Map.Entry<T,V>>,E> loader, Function<E,Iterator<Map.Entry<T,V>>> entries,
+                                                                                                             Codec<T> keyCodec, Codec<V> valueCodec, Durability durability, long syncInterval, long checkpointLogSize) throws IOException{
+    if(syncInterval <= 0 || checkpointLogSize <= 0){
+      throw new IllegalArgumentException("syncInterval: " + syncInterval + ", checkpointLogSize: " + checkpointLogSize);
+    }
+    Files.createDirectories(directory);
+    FileChannel lockChannel = lockDirectory(directory);
+    try{
+      return recover(directory, loader, entries, keyCodec, valueCodec, durability, syncInterval, checkpointLogSize, lockChannel);
+    }
+    catch(IOException | RuntimeException exception){
+      lockChannel.close();
+      throw exception;
+    }
+  }
+  
+  /**
+   * Lock the lock file of the directory in input and return its channel (throw IOException if the directory is already locked by another durable tree, in this process or another one)
+   */
+  private static FileChannel lockDirectory(Path directory) throws IOException{
+    FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    FileLock fileLock;
+    try{
+      fileLock = lockChannel.tryLock();
+    }
+    catch(OverlappingFileLockException exception){
+      // The lock is held by another durable tree in this process
+      fileLock = null;
+    }
+    catch(IOException | RuntimeException exception){
+      lockChannel.close();
+      throw exception;
+    }
+    if(fileLock == null){
+      lockChannel.close();
+      throw new IOException("directory is used by another durable tree: " + directory);
+    }
+    return lockChannel;
+  }
+  
+  /**
+   * Recover the durable tree stored in the directory in input (see open) while holding the lock of the directory, whose channel is given to the durable tree;
+   * the temporary files of a snapshot left by a crash in the middle of a checkpoint are deleted
+   */
+  private static <T extends Comparable<? super T>,V,E extends TreeWithComparableKey<T,V>> DurableTree<T,V> recover(Path directory, Function<Iterator<Map.Entry<T,V>>,E> loader, Function<E,Iterator<Map.Entry<T,V>>> entries,
+                                                                                                                Codec<T> keyCodec, Codec<V> valueCodec, Durability durability, long syncInterval, long checkpointLogSize,
+                                                                                                                FileChannel lockChannel) throws IOException{
+    // snapshotGeneration is the largest generation of a snapshot (-1 if there is none), and logGenerations are the generations of the logs in ascending order
+    long snapshotGeneration = -1;
+    List<Long> logGenerations = new ArrayList<Long>();
+    try(DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+      for(Path file : files){
+        String name = file.getFileName().toString();
+        if(name.matches("snapshot-\\d+\\.bin")){
+          snapshotGeneration = Math.max(snapshotGeneration, Long.parseLong(name.substring("snapshot-".length(), name.length() - ".bin".length())));
+        }
+        else if(name.matches("log-\\d+\\.wal")){
+          logGenerations.add(Long.parseLong(name.substring("log-".length(), name.length() - ".wal".length())));
+        }
+        // MappedTree.write writes a snapshot to snapshot-G.bin.tmp and its offsets to snapshot-G.bin<random>.offsets before renaming it in place
+        else if(name.matches("snapshot-\\d+\\.bin(\\.tmp|\\d*\\.offsets)")){
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+    Collections.sort(logGenerations);
+    // Load the latest snapshot, or an empty tree if there is none
+    E tree;
+    if(snapshotGeneration >= 0){
+      tree = loader.apply(MappedTree.open(snapshotFile(directory, snapshotGeneration), keyCodec, valueCodec).entryIterator());
+    }
+    else{
+      tree = loader.apply(Collections.<Map.Entry<T,V>>emptyIterator());
+    }
+    // Replay the logs written after the snapshot in order of generation, and delete the older ones which a crash in the middle of a checkpoint may have left
+    for(long logGeneration : logGenerations){
+      if(logGeneration < snapshotGeneration){
+        Files.deleteIfExists(logFile(directory, logGeneration));
+      }
+      else{
+        replay(logFile(directory, logGeneration), tree, keyCodec, valueCodec);
+      }
+    }
+    // Append new records to a new log, so that the records of the logs replayed are never followed by records written after recovery
+    long generation = Math.max(snapshotGeneration, logGenerations.isEmpty() ? 0 : logGenerations.get(logGenerations.size() - 1) + 1);
+    return new DurableTree<T,V>(directory, tree, () -> entries.apply(tree), keyCodec, valueCodec, durability, syncInterval, checkpointLogSize, generation, lockChannel);
+  }
+  
+  /**
+   * Return the snapshot file of the generation in input in the directory in input
+   */
+  private static Path snapshotFile(Path directory, long generation){
+    return directory.resolve("snapshot-" + generation + ".bin");
+  }
+  
+  /**
+   * Return the log file of the generation in input in the directory in input
+   */
+  private static Path logFile(Path directory, long generation){
+    return directory.resolve("log-" + generation + ".wal");
+  }
+  
+  /**
+   * Open the log file of the generation in input for appending, creating it if it does not exist, and force the directory entry of a new file to disk
+   */
+  private FileChannel openLog(long generation) throws IOException{
+    Path file = logFile(directory, generation);
+    boolean created = !Files.exists(file);
+    FileChannel logChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    if(created){
+      logChannel.force(true);
+      forceDirectory(directory);
+    }
+    return logChannel;
+  }
+  
+  /**
+   * Force the directory entries of the directory in input to disk, so that files created or deleted in it survive a crash (ignored on platforms where a directory cannot be opened)
+   */
+  private static void forceDirectory(Path directory){
+    try(FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)){
+      directoryChannel.force(true);
+    }
+    catch(IOException exception){
+      // Some platforms (such as Windows) cannot open a directory, and their file systems do not need it
+    }
+  }
+  
+  /**
+   * Apply the records of the log file in input to tree, and cut the file off at its first incomplete or corrupted record
+   * Time complexity: O(LlogN) (N is number of nodes in tree, L is number of records in the log file)
+   */
+  private static <T extends Comparable<? super T>,V> void replay(Path file, TreeWithComparableKey<T,V> tree, Codec<T> keyCodec, Codec<V> valueCodec) throws IOException{
+    try(FileChannel logChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+      long fileSize = logChannel.size();
+      // position is the position of the next record, and validSize is the position right after the last complete record
+      long position = 0;
+      long validSize = 0;
+      ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+      CRC32 crc = new CRC32();
+      while(position + RECORD_HEADER_SIZE <= fileSize){
+        header.clear();
+        readFully(logChannel, header, position);
+        header.flip();
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if(length <= 0 || position + RECORD_HEADER_SIZE + length > fileSize){
+          break;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(logChannel, payload, position + RECORD_HEADER_SIZE);
+        crc.reset();
+        crc.update(payload.array());
+        if((int)crc.getValue() != checksum){
+          break;
+        }
+        apply(payload, tree, keyCodec, valueCodec);
+        position += RECORD_HEADER_SIZE + length;
+        validSize = position;
+      }
+      if(validSize < fileSize){
+        logChannel.truncate(validSize);
+        logChannel.force(true);
+      }
+    }
+  }
+  
+  /**
+   * Read bytes from position in input of the channel in input until buffer is full (throw EOFException if the channel ends first)
+   */
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException{
+    while(buffer.hasRemaining()){
+      int read = channel.read(buffer, position);
+      if(read < 0){
+        throw new EOFException();
+      }
+      position += read;
+    }
+  }
+  
+  /**
+   * Apply the change recorded in the payload of a log record to tree; the payload is made of the type of the record, the length of the key, the key,
+   * and for INSERT the length of the value (-1 for null) and the value
+   * Time complexity: O(logN) (N is number of nodes in tree)
+   */
+  private static <T extends Comparable<? super T>,V> void apply(ByteBuffer payload, TreeWithComparableKey<T,V> tree, Codec<T> keyCodec, Codec<V> valueCodec) throws IOException{
+    byte type = payload.get(0);
+    int keyLength = payload.getInt(1);
+    T key = keyCodec.decode(payload, 1 + Integer.BYTES, keyLength);
+    if(type == INSERT){
+      int valueOffset = 1 + Integer.BYTES + keyLength;
+      int valueLength = payload.getInt(valueOffset);
+      tree.insert(key, (valueLength >= 0) ? valueCodec.decode(payload, valueOffset + Integer.BYTES, valueLength) : null);
+    }
+    else if(type == DELETE){
+      deleteFirst(tree, key);
+    }
+    else{
+      throw new IOException("unknown log record type: " + type);
+    }
+  }
+  
+  /**
+   * Delete the first node in inorder traversal of tree having the key that is equal to key from input if that node exists; the delete of tree may delete any node having that key
+   * depending on the shape of tree, and the shape after recovery differs (the snapshot is loaded into a balanced tree), so a delete replayed from the log could delete another node;
+   * when there are several nodes having that key, delete all of them and insert all but the first again in order (an inserted node goes after the nodes having same key)
+   * Time complexity: O(logN + DlogN) (N is number of nodes in tree, D is number of nodes having that key)
+   */
+  private static <T extends Comparable<? super T>,V> void deleteFirst(TreeWithComparableKey<T,V> tree, T key){
+    // values is used to store the values of the nodes having that key in inorder traversal
+    List<V> values = new ArrayList<V>();
+    tree.rangeIterator(key, true, key, true).forEachRemaining(values::add);
+    if(values.size() <= 1){
+      tree.delete(key);
+      return;
+    }
+    for(int i = 0; i < values.size(); i++){
+      tree.delete(key);
+    }
+    for(int i = 1; i < values.size(); i++){
+      tree.insert(key, values.get(i));
+    }
+  }
+  
+  /**
+   * Record the change in the log: encode the payload (see apply), then append the length of the payload, its CRC32 and the payload to buffer,
+   * writing buffer to the log file first when there is no room left; return the sequence number of the record
+   * Should be called while holding the write lock, so that records are in the same order as the changes to tree
+   * Time complexity: O(1) besides encoding the key and the value
+   */
+  private long append(byte type, T key, V value) throws IOException{
+    byte[] keyBytes = keyCodec.encode(key);
+    byte[] valueBytes = (type == INSERT && value != null) ? valueCodec.encode(value) : null;
+    int length = 1 + Integer.BYTES + keyBytes.length + ((type == INSERT) ? Integer.BYTES + ((valueBytes != null) ? valueBytes.length : 0) : 0);
+    ByteBuffer payload = ByteBuffer.allocate(length);
+    payload.put(type).putInt(keyBytes.length).put(keyBytes);
+    if(type == INSERT){
+      payload.putInt((valueBytes != null) ? valueBytes.length : -1);
+      if(valueBytes != null){
+        payload.put(valueBytes);
+      }
+    }
+    CRC32 crc = new CRC32();
+    crc.update(payload.array());
+    payload.flip();
+    synchronized(logLock){
+      if(buffer.remaining() < RECORD_HEADER_SIZE + length){
+        drainBuffer();
+      }
+      // A record larger than buffer is written to the log file directly
+      if(buffer.remaining() < RECORD_HEADER_SIZE + length){
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+        record.putInt(length).putInt((int)crc.getValue()).put(payload).flip();
+        writeFully(record);
+      }
+      else{
+        buffer.putInt(length).putInt((int)crc.getValue()).put(payload);
+      }
+      logSize += RECORD_HEADER_SIZE + length;
+      return ++appendedSequence;
+    }
+  }
+  
+  /**
+   * Write the records in buffer to the log file (should be called while holding logLock)
+   */
+  private void drainBuffer() throws IOException{
+    buffer.flip();
+    writeFully(buffer);
+    buffer.clear();
+  }
+  
+  /**
+   * Write all remaining bytes of the buffer in input to the log file (should be called while holding logLock)
+   */
+  private void writeFully(ByteBuffer bytes) throws IOException{
+    onLogThread(() -> {
+      while(bytes.hasRemaining()){
+        channel.write(bytes);
+      }
+      return null;
+    });
+  }
+  
+  /**
+   * Run task on logThread and return its result, waiting for it without being interrupted (the interrupt status of the calling thread is restored afterwards);
+   * all I/O on channel goes through this method, so an interrupted writer cannot close channel with ClosedByInterruptException
+   */
+  private <R> R onLogThread(Callable<R> task) throws IOException{
+    Future<R> future = logThread.submit(task);
+    boolean interrupted = false;
+    try{
+      while(true){
+        try{
+          return future.get();
+        }
+        catch(InterruptedException exception){
+          interrupted = true;
+        }
+        catch(ExecutionException exception){
+          Throwable cause = exception.getCause();
+          if(cause instanceof IOException){
+            throw (IOException)cause;
+          }
+          if(cause instanceof RuntimeException){
+            throw (RuntimeException)cause;
+          }
+          if(cause instanceof Error){
+            throw (Error)cause;
+          }
+          throw new IOException(cause);
+        }
+      }
+    }
+    finally{
+      if(interrupted){
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+  
+  /**
+   * Return after the log records up to the sequence number in input are forced to disk; if no writer is forcing the log, become the one forcing it,
+   * which writes buffer to the log file and forces everything recorded so far, so one force covers the records of all writers waiting in the meantime
+   */
+  private void awaitSync(long sequence) throws IOException{
+    synchronized(syncMonitor){
+      while(syncedSequence < sequence && syncing){
+        try{
+          syncMonitor.wait();
+        }
+        catch(InterruptedException exception){
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("interrupted while waiting for the log to be forced to disk");
+        }
+      }
+      if(syncedSequence >= sequence){
+        return;
+      }
+      syncing = true;
+    }
+    // forcedSequence is the sequence number of the last record forced to disk by this writer (0 if forcing fails)
+    long forcedSequence = 0;
+    try{
+      FileChannel forcedChannel;
+      synchronized(logLock){
+        drainBuffer();
+        forcedSequence = appendedSequence;
+        forcedChannel = channel;
+      }
+      // Force outside logLock so that other writers can keep appending records to buffer meanwhile
+      onLogThread(() -> {
+        forcedChannel.force(false);
+        return null;
+      });
+    }
+    catch(IOException | RuntimeException exception){
+      forcedSequence = 0;
+      throw exception;
+    }
+    finally{
+      synchronized(syncMonitor){
+        syncing = false;
+        syncedSequence = Math.max(syncedSequence, forcedSequence);
+        syncMonitor.notifyAll();
+      }
+    }
+  }
+  
+  /**
+   * Wait until the record with the sequence number in input is durable as required by durability (INTERVAL does not wait)
+   */
+  private void awaitDurability(long sequence) throws IOException{
+    if(durability != Durability.INTERVAL){
+      awaitSync(sequence);
+    }
+  }
+  
+  /**
+   * Run writer, which records its changes with append and returns the sequence number of its last record, while holding the write lock;
+   * with EVERY_OPERATION, force the log to disk before releasing the write lock; with GROUP_COMMIT, wait for the log to be forced to disk after releasing it
+   * (throw UncheckedIOException if the log cannot be written, in which case the change may or may not survive a crash)
+   */
+  private void write(LogWriter writer){
+    try{
+      long sequence;
+      lock.writeLock().lock();
+      try{
+        // Checked while holding the write lock, so no record is appended after close() forces the log for the last time
+        if(closed){
+          throw new IllegalStateException("durable tree is closed");
+        }
+        sequence = writer.write();
+        if(durability == Durability.EVERY_OPERATION){
+          awaitSync(sequence);
+        }
+      }
+      finally{
+        lock.writeLock().unlock();
+      }
+      awaitDurability(sequence);
+    }
+    catch(IOException exception){
+      throw new UncheckedIOException(exception);
+    }
+  }
+  
+  /**
+   * Run reader while holding the read lock, which blocks writers but not other readers
+   * Time complexity: the time complexity of reader
+   */
+  private <R> R read(Supplier<R> reader){
+    lock.readLock().lock();
+    try{
+      return reader.get();
+    }
+    finally{
+      lock.readLock().unlock();
+    }
+  }
+  
+  /**
+   * Run by the background thread: force the log to disk for INTERVAL, and make a checkpoint when the log is large
+   */
+  private void maintain(){
+    if(closed){
+      return;
+    }
+    try{
+      long sequence;
+      long size;
+      synchronized(logLock){
+        sequence = appendedSequence;
+        size = logSize;
+      }
+      if(durability == Durability.INTERVAL){
+        awaitSync(sequence);
+      }
+      if(size >= checkpointLogSize){
+        checkpoint();
+      }
+    }
+    catch(IOException | RuntimeException exception){
+      // The next run tries again; writers see the failure themselves when they force the log
+    }
+  }
+  
+  /**
+   * Force all changes recorded so far to disk, for example before relying on changes made with INTERVAL durability
+   * Time complexity: the time of one force of the log file
+   */
+  public void sync() throws IOException{
+    long sequence;
+    synchronized(logLock){
+      sequence = appendedSequence;
+    }
+    awaitSync(sequence);
+  }
+  
+  /**
+   * Write the whole tree to a new snapshot file and delete the older snapshot and logs, so that recovery only needs to replay the changes made after it:
+   * while holding the write lock, force the current log and switch to the log of the next generation; then, while holding only the read lock, write the snapshot of that generation,
+   * which is renamed in place only when complete, so a crash at any point leaves either the old snapshot with all its logs or the new snapshot
+   * Readers are not blocked; writers wait until the snapshot is written
+   * Time complexity: O(N) (N is number of nodes in the tree)
+   */
+  public void checkpoint() throws IOException{
+    long snapshotGeneration;
+    lock.writeLock().lock();
+    try{
+      if(closed){
+        throw new IllegalStateException("durable tree is closed");
+      }
+      // Make the current log durable before the new log starts, then switch to the new log
+      sync();
+      synchronized(logLock){
+        FileChannel oldChannel = channel;
+        channel = onLogThread(() -> openLog(generation + 1));
+        generation++;
+        logSize = 0;
+        onLogThread(() -> {
+          oldChannel.close();
+          return null;
+        });
+      }
+      snapshotGeneration = generation;
+      // Downgrade to the read lock so that readers can go on while the snapshot is written, and writers wait so that the snapshot holds exactly the changes of the older logs
+      lock.readLock().lock();
+    }
+    finally{
+      lock.writeLock().unlock();
+    }
+    try{
+      MappedTree.write(snapshotFile(directory, snapshotGeneration), entries.get(), keyCodec, valueCodec);
+    }
+    finally{
+      lock.readLock().unlock();
+    }
+    // The new snapshot replaces the older snapshots and logs
+    try(DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+      for(Path file : files){
+        String name = file.getFileName().toString();
+        if((name.matches("snapshot-\\d+\\.bin") && Long.parseLong(name.substring("snapshot-".length(), name.length() - ".bin".length())) < snapshotGeneration)
+           || (name.matches("log-\\d+\\.wal") && Long.parseLong(name.substring("log-".length(), name.length() - ".wal".length())) < snapshotGeneration)){
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+    forceDirectory(directory);
+  }
+  
+  /**
+   * Stop the background thread, force all changes recorded so far to disk, close the log file and release the lock of the directory; the durable tree cannot be changed afterwards
+   * The background thread is not interrupted but waited for, so a sync or a checkpoint in progress completes first
+   */
+  public void close() throws IOException{
+    lock.writeLock().lock();
+    try{
+      if(closed){
+        return;
+      }
+      closed = true;
+    }
+    finally{
+      lock.writeLock().unlock();
+    }
+    // Wait without holding the write lock, which a checkpoint in progress may need
+    maintenance.shutdown();
+    boolean interrupted = false;
+    while(true){
+      try{
+        if(maintenance.awaitTermination(1, TimeUnit.MINUTES)){
+          break;
+        }
+      }
+      catch(InterruptedException exception){
+        interrupted = true;
+      }
+    }
+    try{
+      sync();
+    }
+    finally{
+      try{
+        synchronized(logLock){
+          onLogThread(() -> {
+            channel.close();
+            return null;
+          });
+        }
+      }
+      finally{
+        logThread.shutdown();
+        lockChannel.close();
+        if(interrupted){
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+  
+  /**
+   * Insert a node with key and associated value to the tree after recording it in the log
+   * Time complexity: O(logN) plus the wait required by durability (N is number of nodes in the durable tree)
+   */
+  public void insert(T key, V value){
+    write(() -> {
+      long sequence = append(INSERT, key, value);
+      tree.insert(key, value);
+      return sequence;
+    });
+  }
+  
+  /**
+   * Delete the first node in inorder traversal having the key that is equal to key from input if that node exists after recording it in the log
+   * (unlike the delete of the tree, the node deleted does not depend on the shape of the tree, so replaying the log after recovery deletes the same node)
+   * Time complexity: O(logN) plus the wait required by durability, or O(DlogN) if D nodes have that key (N is number of nodes in the durable tree)
+   */
+  public void delete(T key){
+    write(() -> {
+      long sequence = append(DELETE, key, null);
+      deleteFirst(tree, key);
+      return sequence;
+    });
+  }
+  
+  /**
+   * Insert a node for each entry from input after recording all of them in the log, waiting for the log to be forced to disk once for the whole batch
+   * Time complexity: the time complexity of insertAll of the tree plus O(K) (K is number of entries from input)
+   */
+  public void insertAll(Collection<Map.Entry<T,V>> entries){
+    write(() -> {
+      long sequence = 0;
+      for(Map.Entry<T,V> entry : entries){
+        sequence = append(INSERT, entry.getKey(), entry.getValue());
+      }
+      tree.insertAll(entries);
+      return sequence;
+    });
+  }
+  
+  /**
+   * Delete the first node in inorder traversal having the key that is equal to each key from input if that node exists after recording all of them in the log,
+   * waiting for the log to be forced to disk once for the whole batch; the deleteAll of the tree is used unless a key from input is shared by several nodes
+   * Time complexity: the time complexity of deleteAll of the tree plus O(KlogN) (N is number of nodes in the durable tree, K is number of keys from input)
+   */
+  public void deleteAll(Collection<T> keys){
+    write(() -> {
+      long sequence = 0;
+      // unique is used to store whether each key from input is the key of at most one node
+      boolean unique = true;
+      for(T key : keys){
+        sequence = append(DELETE, key, null);
+        Iterator<V> values = tree.rangeIterator(key, true, key, true);
+        if(values.hasNext()){
+          values.next();
+          unique = unique && !values.hasNext();
+        }
+      }
+      if(unique){
+        tree.deleteAll(keys);
+      }
+      else{
+        for(T key : keys){
+          deleteFirst(tree, key);
+        }
+      }
+      return sequence;
+    });
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return null if there is no such node like that
+   * Time complexity: the time complexity of search of the tree
+   */
+  public V search(T key){
+    return read(() -> tree.search(key));
+  }
+  
+  /**
+   * Return true if there is a node which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: the time complexity of containsKey of the tree
+   */
+  public boolean containsKey(T key){
+    return read(() -> tree.containsKey(key));
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return defaultValue if there is no such node like that
+   * Time complexity: the time complexity of getOrDefault of the tree
+   */
+  public V getOrDefault(T key, V defaultValue){
+    return read(() -> tree.getOrDefault(key, defaultValue));
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: the time complexity of floor of the tree
+   */
+  public Map.Entry<T,V> floor(T key){
+    return read(() -> tree.floor(key));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: the time complexity of ceiling of the tree
+   */
+  public Map.Entry<T,V> ceiling(T key){
+    return read(() -> tree.ceiling(key));
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   * Time complexity: the time complexity of lower of the tree
+   */
+  public Map.Entry<T,V> lower(T key){
+    return read(() -> tree.lower(key));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   * Time complexity: the time complexity of higher of the tree
+   */
+  public Map.Entry<T,V> higher(T key){
+    return read(() -> tree.higher(key));
+  }
+  
+  /**
+   * Return the entry with the smallest key in the durable tree, or return null if the durable tree is empty
+   * Time complexity: the time complexity of first of the tree
+   */
+  public Map.Entry<T,V> first(){
+    return read(() -> tree.first());
+  }
+  
+  /**
+   * Return the entry with the largest key in the durable tree, or return null if the durable tree is empty
+   * Time complexity: the time complexity of last of the tree
+   */
+  public Map.Entry<T,V> last(){
+    return read(() -> tree.last());
+  }
+  
+  /**
+   * Return the list of values found by searching for each key from input, in the same order as the keys, while holding the read lock once for the whole batch
+   * Time complexity: the time complexity of searchAll of the tree
+   */
+  public List<V> searchAll(List<T> keys){
+    return read(() -> tree.searchAll(keys));
+  }
+  
+  /**
+   * Return the number of nodes in the durable tree
+   * Time complexity: O(1)
+   */
+  public int size(){
+    return read(() -> tree.size());
+  }
+  
+  /**
+   * Make the durable tree record each insert, search and delete into the metrics from input, or stop recording if metrics is null, by setting them on the tree it wraps
+   * (throw UnsupportedOperationException if that tree does not support metrics); the size and height of the metrics are read under the read lock.
+   * Deleting a key having duplicates is recorded as the deletes and inserts that keep the other duplicates in order, and recovery is not recorded
+   */
+  public void setMetrics(TreeMetrics metrics){
+    lock.writeLock().lock();
+    try{
+      tree.setMetrics(metrics);
+    }
+    finally{
+      lock.writeLock().unlock();
+    }
+    if(metrics != null){
+      IntSupplier height = metrics.heightSupplier();
+      metrics.bind(this::size, () -> read(() -> height.getAsInt()));
+    }
+  }
+  
+  /**
+   * Return an iterator visiting the values in inorder traversal of a snapshot of the durable tree, so later changes to the tree do not affect the iterator
+   * Time complexity: O(N) (N is number of nodes in the durable tree)
+   */
+  public Iterator<V> iterator(){
+    return inorderRec().iterator();
+  }
+  
+  /**
+   * Return an iterator visiting the values of the nodes whose keys are between from and to in inorder traversal of a snapshot of that range of the durable tree
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   * Time complexity: the time complexity of rangeIterator of the tree plus O(K) (K is number of values visited)
+   */
+  public Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+    return read(() -> {
+      // list is used to store the values in the range
+      List<V> list = new ArrayList<V>();
+      tree.rangeIterator(from, fromInclusive, to, toInclusive).forEachRemaining(list::add);
+      return list;
+    }).iterator();
+  }
+  
+  /**
+   * Return the list of values in inorder traversal of the durable tree
+   * Time complexity: O(N) (N is number of nodes in the durable tree)
+   */
+  public List<V> inorderRec(){
+    return read(() -> tree.inorderRec());
+  }
+  
+  /**
+   * Find the kth smallest element in the durable tree
+   * Time complexity: the time complexity of kthSmallest of the tree
+   */
+  public V kthSmallest(int k){
+    return read(() -> tree.kthSmallest(k));
+  }
+  
+  /**
+   * Return the number of nodes in the durable tree having key that is smaller than the key from input
+   * Time complexity: the time complexity of rank of the tree
+   */
+  public int rank(T key){
+    return read(() -> tree.rank(key));
+  }
+  
+  /**
+   * Return the list of values of the nodes from the fromth smallest to the toth smallest element in the durable tree (both inclusive)
+   * Time complexity: the time complexity of select of the tree
+   */
+  public List<V> select(int from, int to){
+    return read(() -> tree.select(from, to));
+  }
+}
\ No newline at end of file
@@ -0,0 +1,287 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class DurableTreeTester is the tester class for DurableTree
+public class DurableTreeTester{
+  
+  // the directory where the files of the tests are written
+  private Path directory;
+  
+  // the directory where crash copies the files of directory (null if crash is not called)
+  private Path crashDirectory;
+  
+  /**
+   * Create an empty directory for the files of each test.
+   */
+  @Before
+  public void setUp() throws IOException{
+    directory = Files.createTempDirectory("durable-tree");
+  }
+  
+  /**
+   * Delete the directory of each test and the files in it.
+   */
+  @After
+  public void tearDown() throws IOException{
+    deleteDirectory(directory);
+    if(crashDirectory != null){
+      deleteDirectory(crashDirectory);
+    }
+  }
+  
+  /**
+   * Delete the directory in input and the files in it.
+   */
+  private static void deleteDirectory(Path directory) throws IOException{
+    try(DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+      for(Path file : files){
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+  
+  /**
+   * Copy the files of the directory of the test to another directory and return it, as a crash of the process using the directory would leave them
+   * (the records not written to the log yet are lost, and the lock of the directory is released).
+   */
+  private Path crash() throws IOException{
+    crashDirectory = Files.createTempDirectory("durable-tree-crash");
+    try(DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+      for(Path file : files){
+        Files.copy(file, crashDirectory.resolve(file.getFileName()));
+      }
+    }
+    return crashDirectory;
+  }
+  
+  /**
+   * Tests that the changes made to a DurableTree are recovered when the directory is opened again, even if the tree is not closed (as after a crash).
+   */
+  @Test
+  public void testRecoverWithoutClose() throws IOException{
+    DurableTree<Integer, String> tree = DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.EVERY_OPERATION);
+    tree.insert(4, "4");
+    tree.insert(2, "2");
+    tree.insert(7, null);
+    tree.insert(9, "9");
+    tree.delete(4);
+    tree.insert(2, "second2");
+    
+    DurableTree<Integer, String> recoveredTree = DurableTree.openAVLTree(crash(), Codec.INTEGER, Codec.STRING, DurableTree.Durability.EVERY_OPERATION);
+    assertEquals(tree.inorderRec(), recoveredTree.inorderRec());
+    assertEquals(4, recoveredTree.size());
+    assertTrue(recoveredTree.containsKey(7));
+    assertNull(recoveredTree.search(4));
+    tree.close();
+    recoveredTree.close();
+  }
+  
+  /**
+   * Tests that recovery loads the snapshot written by checkpoint and replays only the changes made after it.
+   */
+  @Test
+  public void testCheckpoint() throws IOException{
+    DurableTree<Integer, String> tree = DurableTree.openBinarySearchTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.GROUP_COMMIT);
+    for(int i = 0; i < 100; i++){
+      tree.insert(i, String.valueOf(i));
+    }
+    tree.checkpoint();
+    tree.delete(50);
+    tree.insertAll(Arrays.asList(new AbstractMap.SimpleEntry<Integer, String>(100, "100"), new AbstractMap.SimpleEntry<Integer, String>(-1, "-1")));
+    tree.deleteAll(Arrays.asList(0, 1));
+    tree.close();
+    
+    // the older log is deleted by the checkpoint, so only the snapshot and the new log are left
+    List<String> names = new ArrayList<String>();
+    try(DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+      for(Path file : files){
+        names.add(file.getFileName().toString());
+      }
+    }
+    Collections.sort(names);
+    assertEquals(Arrays.asList("lock", "log-1.wal", "snapshot-1.bin"), names);
+    
+    DurableTree<Integer, String> recoveredTree = DurableTree.openBinarySearchTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.GROUP_COMMIT);
+    assertEquals(99, recoveredTree.size());
+    assertEquals("-1", recoveredTree.first().getValue());
+    assertEquals("100", recoveredTree.last().getValue());
+    assertFalse(recoveredTree.containsKey(50));
+    assertFalse(recoveredTree.containsKey(0));
+    assertEquals("2", recoveredTree.kthSmallest(2));
+    recoveredTree.close();
+  }
+  
+  /**
+   * Tests that an incomplete record at the end of the log (left by a crash in the middle of a write) is cut off during recovery.
+   */
+  @Test
+  public void testTornLogRecord() throws IOException{
+    DurableTree<Integer, String> tree = DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.EVERY_OPERATION);
+    tree.insert(1, "1");
+    tree.insert(2, "2");
+    tree.close();
+    
+    // append the header of a record whose payload was never written
+    Path log = directory.resolve("log-0.wal");
+    long validSize = Files.size(log);
+    Files.write(log, ByteBuffer.allocate(8).putInt(100).putInt(0).array(), StandardOpenOption.APPEND);
+    
+    DurableTree<Integer, String> recoveredTree = DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.EVERY_OPERATION);
+    String[] result = {"1", "2"};
+    assertArrayEquals(result, recoveredTree.inorderRec().toArray());
+    assertEquals(validSize, Files.size(log));
+    
+    // changes after recovery go to a new log and are recovered after the old one
+    recoveredTree.delete(1);
+    recoveredTree.close();
+    DurableTree<Integer, String> reopenedTree = DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.EVERY_OPERATION);
+    assertArrayEquals(new String[]{"2"}, reopenedTree.inorderRec().toArray());
+    reopenedTree.close();
+  }
+  
+  /**
+   * Tests that the changes of many writers sharing forces of the log with GROUP_COMMIT are all recovered.
+   */
+  @Test
+  public void testGroupCommit() throws IOException, InterruptedException{
+    DurableTree<Integer, Integer> tree = DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.INTEGER, DurableTree.Durability.GROUP_COMMIT);
+    List<Thread> threads = new ArrayList<Thread>();
+    for(int t = 0; t < 4; t++){
+      final int offset = t * 1000;
+      threads.add(new Thread(() -> {
+        for(int i = 0; i < 200; i++){
+          tree.insert(offset + i, offset + i);
+        }
+      }));
+    }
+    for(Thread thread : threads){
+      thread.start();
+    }
+    for(Thread thread : threads){
+      thread.join();
+    }
+    assertEquals(800, tree.size());
+    
+    DurableTree<Integer, Integer> recoveredTree = DurableTree.openAVLTree(crash(), Codec.INTEGER, Codec.INTEGER, DurableTree.Durability.GROUP_COMMIT);
+    assertEquals(tree.inorderRec(), recoveredTree.inorderRec());
+    tree.close();
+    recoveredTree.close();
+  }
+  
+  /**
+   * Tests that changes made with INTERVAL durability are recovered after sync is called, and that a closed tree cannot be changed.
+   */
+  @Test
+  public void testIntervalAndClose() throws IOException{
+    DurableTree<Integer, String> tree = DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.INTERVAL);
+    tree.insert(3, "3");
+    tree.insert(1, "1");
+    tree.sync();
+    
+    DurableTree<Integer, String> recoveredTree = DurableTree.openAVLTree(crash(), Codec.INTEGER, Codec.STRING, DurableTree.Durability.INTERVAL);
+    String[] result = {"1", "3"};
+    assertArrayEquals(result, recoveredTree.inorderRec().toArray());
+    recoveredTree.close();
+    
+    tree.close();
+    try{
+      tree.insert(5, "5");
+      fail("did not throw exception");
+    }
+    catch(IllegalStateException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalStateException exception");
+    }
+  }
+  
+  /**
+   * Tests that closing a tree whose log is forced to disk by the background thread every millisecond keeps all changes, since the background thread is not interrupted in the middle of a force.
+   */
+  @Test
+  public void testCloseWithShortSyncInterval() throws IOException{
+    for(int round = 0; round < 20; round++){
+      DurableTree<Integer, Integer> tree = DurableTree.open(directory, AVLTree::bulkLoad, AVLTree::entryIterator, Codec.INTEGER, Codec.INTEGER, DurableTree.Durability.INTERVAL, 1, 1L << 26);
+      for(int i = 0; i < 500; i++){
+        tree.insert(round * 500 + i, i);
+      }
+      tree.close();
+    }
+    DurableTree<Integer, Integer> recoveredTree = DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.INTEGER, DurableTree.Durability.INTERVAL);
+    assertEquals(10000, recoveredTree.size());
+    assertEquals(Integer.valueOf(499), recoveredTree.search(9999));
+    recoveredTree.close();
+  }
+  
+  /**
+   * Tests that a writer whose thread is interrupted does not close the log, so its change and the later changes are still recorded.
+   */
+  @Test
+  public void testInterruptedWriter() throws IOException{
+    DurableTree<Integer, String> tree = DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.EVERY_OPERATION);
+    Thread.currentThread().interrupt();
+    tree.insert(1, "1");
+    assertTrue(Thread.interrupted());
+    tree.insert(2, "2");
+    tree.close();
+    
+    DurableTree<Integer, String> recoveredTree = DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.EVERY_OPERATION);
+    assertArrayEquals(new String[]{"1", "2"}, recoveredTree.inorderRec().toArray());
+    recoveredTree.close();
+  }
+  
+  /**
+   * Tests that deletes of keys shared by several nodes replayed after a checkpoint delete the same nodes as before, although the snapshot is loaded into a tree of another shape.
+   */
+  @Test
+  public void testCheckpointWithDuplicateKeys() throws IOException{
+    DurableTree<Integer, String> tree = DurableTree.openBinarySearchTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.GROUP_COMMIT);
+    tree.insert(1, "a");
+    tree.insert(0, "x");
+    tree.insert(1, "b");
+    tree.insert(1, "c");
+    tree.insert(2, "y");
+    tree.insert(2, "z");
+    tree.checkpoint();
+    tree.delete(1);
+    tree.deleteAll(Arrays.asList(2, 1));
+    List<String> result = Arrays.asList("x", "c", "z");
+    assertEquals(result, tree.inorderRec());
+    tree.close();
+    
+    DurableTree<Integer, String> recoveredTree = DurableTree.openBinarySearchTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.GROUP_COMMIT);
+    assertEquals(result, recoveredTree.inorderRec());
+    recoveredTree.close();
+  }
+  
+  /**
+   * Tests that a directory cannot be opened twice at the same time, and that opening it deletes the temporary files of a snapshot left by a crash during a checkpoint.
+   */
+  @Test
+  public void testLockAndTemporaryFiles() throws IOException{
+    DurableTree<Integer, String> tree = DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.GROUP_COMMIT);
+    tree.insert(1, "1");
+    try{
+      DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.GROUP_COMMIT);
+      fail("did not throw exception");
+    }
+    catch(IOException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IOException exception");
+    }
+    tree.close();
+    
+    Files.write(directory.resolve("snapshot-1.bin.tmp"), new byte[16]);
+    Files.write(directory.resolve("snapshot-1.bin1234.offsets"), new byte[16]);
+    DurableTree<Integer, String> reopenedTree = DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.STRING, DurableTree.Durability.GROUP_COMMIT);
+    assertArrayEquals(new String[]{"1"}, reopenedTree.inorderRec().toArray());
+    assertFalse(Files.exists(directory.resolve("snapshot-1.bin.tmp")));
+    assertFalse(Files.exists(directory.resolve("snapshot-1.bin1234.offsets")));
+    reopenedTree.close();
+  }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class IntKeyAVLTreeTester is the tester class for IntKeyAVLTree
+public class IntKeyAVLTreeTester{
+  
+  /**
+   * Tests the insert and inorderRec methods of IntKeyAVLTree.
+   */
+  @Test
+  public void testInsert(){
+    IntKeyAVLTree<String> tree = new IntKeyAVLTree<String>();
+    
+    // insert when tree is empty
+    tree.insert(4, "4");
+    String[] result1 = {"4"};
+    assertArrayEquals(result1, tree.inorderRec().toArray());
+    
+    // insert when tree has many nodes, including negative keys and a node having same key
+    tree.insert(-7, "-7");
+    tree.insert(2, "2");
+    tree.insert(9, "9");
+    tree.insert(2, "2");
+    String[] result2 = {"-7", "2", "2", "4", "9"};
+    assertArrayEquals(result2, tree.inorderRec().toArray());
+    assertEquals(5, tree.size());
+  }
+  
+  /**
+   * Tests the search, containsKey and getOrDefault methods of IntKeyAVLTree.
+   */
+  @Test
+  public void testSearch(){
+    IntKeyAVLTree<String> tree = new IntKeyAVLTree<String>();
+    
+    // search when the tree is empty
+    assertNull(tree.search(5));
+    assertFalse(tree.containsKey(5));
+    
+    tree.insert(6, "6");
+    tree.insert(4, "4");
+    tree.insert(Integer.MAX_VALUE, "max");
+    tree.insert(Integer.MIN_VALUE, "min");
+    
+    // search with keys that are equal to nodes' keys
+    assertEquals("4", tree.search(4));
+    assertEquals("max", tree.search(Integer.MAX_VALUE));
+    assertEquals("min", tree.search(Integer.MIN_VALUE));
+    assertTrue(tree.containsKey(6));
+    
+    // search with key that is not equal to any nodes' keys
+    assertNull(tree.search(5));
+    assertEquals("none", tree.getOrDefault(5, "none"));
+  }
+  
+  /**
+   * Tests the delete method of IntKeyAVLTree.
+   */
+  @Test
+  public void testDelete(){
+    IntKeyAVLTree<String> tree = new IntKeyAVLTree<String>();
+    
+    // delete when tree is empty
+    tree.delete(10);
+    assertEquals(0, tree.size());
+    
+    for(int key = 0; key < 10; key++){
+      tree.insert(key, String.valueOf(key));
+    }
+    
+    // delete with key that is not equal to any nodes' keys
+    tree.delete(12);
+    assertEquals(10, tree.size());
+    
+    // delete nodes having no child, 1 child and 2 children
+    tree.delete(0);
+    tree.delete(8);
+    tree.delete(3);
+    String[] result = {"1", "2", "4", "5", "6", "7", "9"};
+    assertArrayEquals(result, tree.inorderRec().toArray());
+  }
+  
+  /**
+   * Tests the kthSmallest and rank methods of IntKeyAVLTree.
+   */
+  @Test
+  public void testKthSmallest(){
+    IntKeyAVLTree<String> tree = new IntKeyAVLTree<String>();
+    
+    // test kthSmallest when tree is empty
+    try{
+      tree.kthSmallest(1);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+    
+    tree.insert(5, "5");
+    tree.insert(1, "1");
+    tree.insert(8, "8");
+    tree.insert(3, "3");
+    tree.insert(7, "7");
+    
+    // test kthSmallest and rank when tree has many nodes
+    assertEquals("1", tree.kthSmallest(1));
+    assertEquals("5", tree.kthSmallest(3));
+    assertEquals("8", tree.kthSmallest(5));
+    assertEquals(2, tree.rank(5));
+    assertEquals(5, tree.rank(100));
+  }
+  
+  /**
+   * Tests IntKeyAVLTree against AVLTree on random inserts, deletes and lookups, checking the heights, sizes, balance and key order of its nodes after every change.
+   */
+  @Test
+  public void testRandomOperations(){
+    IntKeyAVLTree<Integer> tree = new IntKeyAVLTree<Integer>();
+    AVLTree<Integer, Integer> expectedTree = new AVLTree<Integer, Integer>();
+    for(int key : new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE}){
+      tree.insert(key, key);
+      expectedTree.insert(key, key);
+    }
+    Random random = new Random(5);
+    for(int i = 0; i < 20000; i++){
+      int key = random.nextInt(2000) - 1000;
+      int operation = random.nextInt(5);
+      if(operation <= 1){
+        tree.insert(key, key);
+        expectedTree.insert(key, key);
+      }
+      else if(operation == 2){
+        tree.delete(key);
+        expectedTree.delete(key);
+      }
+      else if(operation == 3){
+        assertEquals(expectedTree.search(key), tree.search(key));
+        assertEquals(expectedTree.containsKey(key), tree.containsKey(key));
+        assertEquals(expectedTree.rank(key), tree.rank(key));
+      }
+      else{
+        int k = random.nextInt(expectedTree.size()) + 1;
+        assertEquals(expectedTree.kthSmallest(k), tree.kthSmallest(k));
+      }
+      if(operation <= 2){
+        try{
+          tree.checkInvariants();
+        }
+        catch(IllegalStateException exception){
+          fail(exception.getMessage());
+        }
+        // an AVL tree of N nodes is at most 1.44 * log2(N + 2) - 0.328 high
+        assertTrue(tree.height() <= 1.4405 * Math.log(tree.size() + 2) / Math.log(2) - 0.3277);
+      }
+      assertEquals(expectedTree.size(), tree.size());
+    }
+    assertEquals(expectedTree.inorderRec(), tree.inorderRec());
+  }
+}
\ No newline at end of file
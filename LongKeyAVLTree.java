@@ -0,0 +1,462 @@
+import java.util.*;
+// Class LongKeyAVLTree is the AVL tree whose keys are primitive long values, so keys are stored without boxing and compared without calling compareTo
+// Each node k is larger than k's left subtree's nodes and smaller than or equal to k's right subtree's nodes
+public class LongKeyAVLTree<V>{
+  
+  // Class AVLNode is used for the node in the long-key AVL tree
+  private class AVLNode{
+    
+    // the key stored in the node
+    private long key;
+    
+    // the value stored in the node
+    private V value;
+    
+    // the height of the node
+    private int height;
+    
+    // the number of nodes in the subtree rooted at the node (including the node itself)
+    private int size;
+    
+    // the left child of the node
+    private AVLNode left;
+    
+    // the right child of the node
+    private AVLNode right;
+    
+    /**
+     * Initialize the node with initialization of node's key and node's value
+     */
+    private AVLNode(long key, V value){
+      this.key = key;
+      this.value = value;
+      this.size = 1;
+    }
+  }
+  
+  // the root of the long-key AVL tree
+  private AVLNode root;
+  
+  /**
+   * Initialize the long-key AVL tree with root being null
+   */
+  public LongKeyAVLTree(){
+    root = null;
+  }
+  
+  /**
+   * Return the height of the node in input
+   * Time complexity: O(1)
+   */
+  private int getNodeHeight(AVLNode node){
+    // If node in input is null, return -1
+    if(node == null){
+      return -1;
+    }
+    // Otherwie, return node's height
+    else{
+      return node.height;
+    }
+  }
+  
+  /**
+   * Return the size of the subtree rooted at the node in input
+   * Time complexity: O(1)
+   */
+  private int getNodeSize(AVLNode node){
+    // If node in input is null, return 0
+    if(node == null){
+      return 0;
+    }
+    // Otherwise, return node's size
+    else{
+      return node.size;
+    }
+  }
+  
+  /**
+   * Update the height and the size of the node in input after making change to tree (should be updated after that node's children's heights and sizes are updated)
+   * Time complexity: O(1)
+   */
+  private void updateNodeHeight(AVLNode node){
+    node.height = Math.max(getNodeHeight(node.left), getNodeHeight(node.right)) + 1;
+    node.size = getNodeSize(node.left) + getNodeSize(node.right) + 1;
+  }
+  
+  /**
+   * Return the balance of the node in input
+   * Time complexity: O(1)
+   */
+  private int getNodeBalance(AVLNode node){
+    // If node in input is null, that node's balance is 0, so 0 should be returned
+    if(node == null){
+      return 0;
+    }
+    // Otherwise, take the result after subtracting height of left child of node in input from height of right child of node in input
+    else{
+      return getNodeHeight(node.right) - getNodeHeight(node.left);
+    }
+  }
+  
+  /**
+   * Do a left rotation around the node in input
+   * Time complexity: O(1)
+   */
+  private AVLNode leftRotate(AVLNode node){
+    AVLNode rotatedNode = node.right;
+    AVLNode movedNode = rotatedNode.left;
+    rotatedNode.left = node;
+    node.right = movedNode;
+    updateNodeHeight(node);
+    updateNodeHeight(rotatedNode);
+    return rotatedNode;
+  }
+  
+  /**
+   * Do a right rotation around the node in input
+   * Time complexity: O(1)
+   */
+  private AVLNode rightRotate(AVLNode node){
+    AVLNode rotatedNode = node.left;
+    AVLNode movedNode = rotatedNode.right;
+    rotatedNode.right = node;
+    node.left = movedNode;
+    updateNodeHeight(node);
+    updateNodeHeight(rotatedNode);
+    return rotatedNode;
+  }
+  
+  /**
+   * Rebalance the node in input when that node's balance is smaller than -1 or larger than 1
+   * Time complexity: O(1)
+   */
+  private AVLNode rebalanceNode(AVLNode node){
+    // Update the height of node in input and store the balance of node in input in nodeBalance
+    updateNodeHeight(node);
+    int nodeBalance = getNodeBalance(node);
+    /**
+     * If nodeBalance is smaller than -1:
+     * do left rotation around left node of input node if height of left child of input node's left child is smaller than height of right child of input node's left child;
+     * do right rotation around the input node
+     */
+    if(nodeBalance < -1){
+      if(getNodeHeight(node.left.left) < getNodeHeight(node.left.right)){
+        node.left = leftRotate(node.left);
+      }
+      node = rightRotate(node);
+    }
+    /**
+     * If nodeBalance is larger than 1:
+     * do right rotation around right node of input node if height of left child of input node's right child is larger than height of right child of input node's right child;
+     * do left rotation around the input node
+     */
+    else if(nodeBalance > 1){
+      if(getNodeHeight(node.right.left) > getNodeHeight(node.right.right)){
+        node.right = rightRotate(node.right);
+      }
+      node = leftRotate(node);
+    }
+    return node;
+  }
+  
+  /**
+   * Help method insert(long key, V value) and delete(long key) by rebalancing the nodes in path from the deepest one to the shallowest one after making change to tree,
+   * with path storing the nodes on the way from root to the changed node (the top of path is the deepest node);
+   * stop early when a node's height is unchanged after rebalancing because heights and balances of its ancestors are then unchanged too
+   * Time complexity: O(logN) (N is number of nodes in the long-key AVL tree)
+   */
+  private void rebalancePath(Deque<AVLNode> path){
+    while(!path.isEmpty()){
+      // node is the deepest node in path which has not been rebalanced and oldHeight is its height before rebalancing
+      AVLNode node = path.pop();
+      int oldHeight = node.height;
+      AVLNode rebalancedNode = rebalanceNode(node);
+      // Set the rebalanced node as root if node is root, or as the child of node's parent (the next node in path) otherwise
+      if(path.isEmpty()){
+        root = rebalancedNode;
+      }
+      else if(path.peek().left == node){
+        path.peek().left = rebalancedNode;
+      }
+      else{
+        path.peek().right = rebalancedNode;
+      }
+      // If height is unchanged, the rest of path does not need to be rebalanced
+      if(rebalancedNode.height == oldHeight){
+        break;
+      }
+    }
+  }
+  
+  /**
+   * Insert a node with key and associated value to the long-key AVL tree without recursion, then rebalance the nodes on the way from root to the new node
+   * Time complexity: O(logN) (N is number of nodes in the long-key AVL tree)
+   */
+  public void insert(long key, V value){
+    // nodeToInsert is the new node with input key and input value
+    AVLNode nodeToInsert = new AVLNode(key, value);
+    // If the long-key AVL tree is empty, set root as nodeToInsert
+    if(root == null){
+      root = nodeToInsert;
+      return;
+    }
+    // path is used to store the nodes on the way from root to the new node's parent
+    Deque<AVLNode> path = new ArrayDeque<AVLNode>();
+    // pointer is used to go down in the long-key AVL tree based on the input key
+    AVLNode pointer = root;
+    // goRight stores whether the last move of pointer is to the right
+    boolean goRight = false;
+    /**
+     * Use pointer to go down in the long-key AVL tree until it is null (if input key is larger than or equal to pointer's key, go to the right; otherwise, go to the left);
+     * push each node on the way to path and increase its size since the new node will be in its subtree
+     */
+    while(pointer != null){
+      pointer.size++;
+      path.push(pointer);
+      goRight = key >= pointer.key;
+      pointer = goRight ? pointer.right : pointer.left;
+    }
+    // Set nodeToInsert as the child of the last node on the way, then rebalance the nodes in path
+    if(goRight){
+      path.peek().right = nodeToInsert;
+    }
+    else{
+      path.peek().left = nodeToInsert;
+    }
+    rebalancePath(path);
+  }
+  
+  /**
+   * Help method search(long key), containsKey(long key) and getOrDefault(long key, V defaultValue) by going down in the long-key AVL tree with a loop until pointer is null (return null) or reaching the node that has same key as key from input (return that node)
+   * Only one comparison is made between key from input and each node's key on the way
+   * Time complexity: O(logN) (N is number of nodes in the long-key AVL tree)
+   */
+  private AVLNode findNode(long key){
+    // pointer is used to go down in the long-key AVL tree based on the key from input
+    AVLNode pointer = root;
+    while(pointer != null){
+      // comparison stores the result of comparing key from input with pointer's key
+      int comparison = Long.compare(key, pointer.key);
+      // If key from input is equal to pointer's key, return pointer
+      if(comparison == 0){
+        return pointer;
+      }
+      // Otherwise, if key from input is larger than pointer's key, go to the right; otherwise, go to the left
+      pointer = (comparison > 0) ? pointer.right : pointer.left;
+    }
+    return null;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return null if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the long-key AVL tree)
+   */
+  public V search(long key){
+    return getOrDefault(key, null);
+  }
+  
+  /**
+   * Return true if there is a node which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: O(logN) (N is number of nodes in the long-key AVL tree)
+   */
+  public boolean containsKey(long key){
+    return findNode(key) != null;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return defaultValue if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the long-key AVL tree)
+   */
+  public V getOrDefault(long key, V defaultValue){
+    // node is the first node encountered which has key that is equal to key from input, or null if there is no such node like that
+    AVLNode node = findNode(key);
+    return (node != null) ? node.value : defaultValue;
+  }
+  
+  /**
+   * Delete the node having the key that is equal to key from input if that node exists without recursion, then rebalance the nodes on the way from root to the removed node
+   * Time complexity: O(logN) (N is number of nodes in the long-key AVL tree)
+   */
+  public void delete(long key){
+    // path is used to store the nodes on the way from root to the node to remove
+    Deque<AVLNode> path = new ArrayDeque<AVLNode>();
+    // pointer is used to go down in the long-key AVL tree based on the key from input
+    AVLNode pointer = root;
+    // Use pointer to go down in the long-key AVL tree until it is null or reaching the node having key that is equal to key from input, pushing each node on the way to path
+    while(pointer != null){
+      int comparison = Long.compare(key, pointer.key);
+      if(comparison == 0){
+        break;
+      }
+      path.push(pointer);
+      pointer = (comparison < 0) ? pointer.left : pointer.right;
+    }
+    // If there is no node having key that is equal to key from input, do nothing
+    if(pointer == null){
+      return;
+    }
+    /**
+     * If pointer has 2 children, find the descendant with smallest key of pointer's right child, pushing each node on the way to path;
+     * use key and value of that descendant as key and value of pointer respectively, then remove that descendant instead
+     */
+    if(pointer.left != null && pointer.right != null){
+      path.push(pointer);
+      AVLNode rightSmallestDescendant = pointer.right;
+      while(rightSmallestDescendant.left != null){
+        path.push(rightSmallestDescendant);
+        rightSmallestDescendant = rightSmallestDescendant.left;
+      }
+      pointer.key = rightSmallestDescendant.key;
+      pointer.value = rightSmallestDescendant.value;
+      pointer = rightSmallestDescendant;
+    }
+    // pointer now has less than 2 children, so replace pointer by its child (left child if it is not null or right child otherwise)
+    AVLNode childOfPointer = (pointer.left != null) ? pointer.left : pointer.right;
+    if(path.isEmpty()){
+      root = childOfPointer;
+    }
+    else if(path.peek().left == pointer){
+      path.peek().left = childOfPointer;
+    }
+    else{
+      path.peek().right = childOfPointer;
+    }
+    // Decrease the size of each node in path since pointer is removed from their subtrees, then rebalance the nodes in path
+    for(AVLNode ancestor : path){
+      ancestor.size--;
+    }
+    rebalancePath(path);
+  }
+  
+  /**
+   * Return the number of nodes in the long-key AVL tree
+   * Time complexity: O(1)
+   */
+  public int size(){
+    return getNodeSize(root);
+  }
+  
+  /**
+   * Return the height of the long-key AVL tree (the number of edges on the longest path from root, -1 if the long-key AVL tree is empty)
+   * Time complexity: O(1)
+   */
+  public int height(){
+    return getNodeHeight(root);
+  }
+  
+  /**
+   * Throw IllegalStateException if the long-key AVL tree breaks one of its invariants: the height and size of each node agree with its children,
+   * the heights of the 2 children of each node differ by at most 1, and the keys are in nondecreasing order in inorder traversal (used by LongKeyAVLTreeTester)
+   * Time complexity: O(N) (N is number of nodes in the long-key AVL tree)
+   */
+  void checkInvariants(){
+    checkNode(root, null, null);
+  }
+  
+  /**
+   * Help method checkInvariants() by checking the subtree rooted at the node in input, whose keys should be between the keys of lowNode and highNode (null for no bound)
+   * Time complexity: O(N) (N is number of nodes in the subtree)
+   */
+  private void checkNode(AVLNode node, AVLNode lowNode, AVLNode highNode){
+    if(node == null){
+      return;
+    }
+    if((lowNode != null && node.key < lowNode.key) || (highNode != null && node.key > highNode.key)){
+      throw new IllegalStateException("key " + node.key + " is out of order");
+    }
+    checkNode(node.left, lowNode, node);
+    checkNode(node.right, node, highNode);
+    int leftHeight = getNodeHeight(node.left);
+    int rightHeight = getNodeHeight(node.right);
+    if(node.height != Math.max(leftHeight, rightHeight) + 1 || Math.abs(leftHeight - rightHeight) > 1){
+      throw new IllegalStateException("node " + node.key + " has height " + node.height + " and children of heights " + leftHeight + " and " + rightHeight);
+    }
+    if(node.size != getNodeSize(node.left) + getNodeSize(node.right) + 1){
+      throw new IllegalStateException("node " + node.key + " has size " + node.size);
+    }
+  }
+  
+  /**
+   * Return the list of values in inorder traversal of the long-key AVL tree by using a stack instead of recursion
+   * Time complexity: O(N) (N is number of nodes in the long-key AVL tree)
+   */
+  public List<V> inorderRec(){
+    // list is used to store the value in each node in inorder traversal of the long-key AVL tree, with capacity being number of nodes in the long-key AVL tree
+    List<V> list = new ArrayList<V>(size());
+    // stack is used to store the nodes whose left subtree is being visited
+    Deque<AVLNode> stack = new ArrayDeque<AVLNode>();
+    // pointer is used to point at the root of the subtree to visit next
+    AVLNode pointer = root;
+    /**
+     * Push pointer and its left descendants to stack until pointer is null;
+     * then pop the top node of stack, add its value to list's end and continue with its right child
+     */
+    while(pointer != null || !stack.isEmpty()){
+      while(pointer != null){
+        stack.push(pointer);
+        pointer = pointer.left;
+      }
+      pointer = stack.pop();
+      list.add(pointer.value);
+      pointer = pointer.right;
+    }
+    return list;
+  }
+  
+  /**
+   * Find the kth smallest element in the long-key AVL tree by using the size of each node's subtree to go down in the long-key AVL tree
+   * Time complexity: O(logN) (N is number of nodes in the long-key AVL tree)
+   */
+  public V kthSmallest(int k){
+    // If k is smaller than 1 or larger than number of nodes in the long-key AVL tree, throw IndexOutOfBoundsException
+    if(k < 1 || k > getNodeSize(root)){
+      throw new IndexOutOfBoundsException("k: " + k + ", size: " + getNodeSize(root));
+    }
+    // pointer is used to go down in the long-key AVL tree based on k
+    AVLNode pointer = root;
+    /**
+     * Compare k with the rank of pointer in pointer's subtree (size of pointer's left subtree plus 1):
+     * if k is equal to that rank, return pointer's value;
+     * if k is smaller than that rank, go to the left;
+     * otherwise, subtract that rank from k and go to the right
+     */
+    while(true){
+      int pointerRank = getNodeSize(pointer.left) + 1;
+      if(k == pointerRank){
+        return pointer.value;
+      }
+      else if(k < pointerRank){
+        pointer = pointer.left;
+      }
+      else{
+        k -= pointerRank;
+        pointer = pointer.right;
+      }
+    }
+  }
+  
+  /**
+   * Return the number of nodes in the long-key AVL tree having key that is smaller than the key from input
+   * Time complexity: O(logN) (N is number of nodes in the long-key AVL tree)
+   */
+  public int rank(long key){
+    // count is used to store the number of nodes found having key that is smaller than the key from input
+    int count = 0;
+    // pointer is used to go down in the long-key AVL tree based on the key from input
+    AVLNode pointer = root;
+    /**
+     * If key from input is smaller than or equal to pointer's key, go to the left;
+     * otherwise, pointer and pointer's left subtree are all smaller than key from input, so add them to count and go to the right
+     */
+    while(pointer != null){
+      if(key <= pointer.key){
+        pointer = pointer.left;
+      }
+      else{
+        count += getNodeSize(pointer.left) + 1;
+        pointer = pointer.right;
+      }
+    }
+    return count;
+  }
+}
\ No newline at end of file
@@ -0,0 +1,503 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+// Class MappedTree is the read-only tree whose entries are stored in a file mapped to memory, so opening it does not read the entries and lookups read the mapped pages directly
+// The file stores the entries in nondecreasing order of key, which is the inorder traversal of a perfectly balanced tree whose root is the middle entry,
+// so going down in that tree is a binary search over the entries and the operating system only loads the pages that are visited
+public class MappedTree<T extends Comparable<? super T>,V> implements TreeWithComparableKey<T,V>{
+  
+  // the number written at the start of the file to recognize it
+  private static final int MAGIC = 0x41564C54;
+  
+  // the version of the file format
+  private static final int VERSION = 1;
+  
+  // the number of bytes of the header (magic, version, number of entries, position of the offsets, number of bits of the segment size and padding)
+  private static final int HEADER_SIZE = 32;
+  
+  // the number of bits of the segment size used when no segment size is given (segments of 1 GB, which is below the 2 GB limit of a mapped buffer)
+  private static final int DEFAULT_SEGMENT_BITS = 30;
+  
+  // the segments of the file, each mapped to its own buffer (no record and no offset crosses the boundary between 2 segments)
+  private final ByteBuffer[] segments;
+  
+  // the number of bits of the segment size
+  private final int segmentBits;
+  
+  // the number of entries in the file
+  private final int size;
+  
+  // the position in the file of the offsets, which store the position of each entry's record in nondecreasing order of key
+  private final long offsetsPosition;
+  
+  // the codec used to decode the keys
+  private final Codec<T> keyCodec;
+  
+  // the codec used to decode the values
+  private final Codec<V> valueCodec;
+  
+  /**
+   * Initialize the mapped tree with the mapped segments of its file and the information read from the header of its file
+   */
+  private MappedTree(ByteBuffer[] segments, int segmentBits, int size, long offsetsPosition, Codec<T> keyCodec, Codec<V> valueCodec){
+    this.segments = segments;
+    this.segmentBits = segmentBits;
+    this.size = size;
+    this.offsetsPosition = offsetsPosition;
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+  }
+  
+  /**
+   * Write the entries from input, which should be in nondecreasing order of key, to the file in input by using the codecs from input (throw IllegalArgumentException if they are not in that order);
+   * the file is written under a temporary name first and then renamed, so a crash never leaves a partly written file under the name in input
+   * Time complexity: O(N) (N is number of entries from input)
+   */
+  public static <T extends Comparable<? super T>,V> void write(Path file, Iterator<Map.Entry<T,V>> entries, Codec<T> keyCodec, Codec<V> valueCodec) throws IOException{
+    write(file, entries, keyCodec, valueCodec, DEFAULT_SEGMENT_BITS);
+  }
+  
+  /**
+   * Write the entries from input to the file in input with segments of 2 to the power of segmentBits bytes (throw IllegalArgumentException if segmentBits is not from 5 to 30,
+   * if the entries are not in nondecreasing order of key or if an entry does not fit in a segment)
+   * Each entry is stored as a record made of the length of the key, the key, the length of the value (-1 for null) and the value; a record that would cross the end of a segment starts at the next segment instead
+   * Time complexity: O(N) (N is number of entries from input)
+   */
+  static <T extends Comparable<? super T>,V> void write(Path file, Iterator<Map.Entry<T,V>> entries, Codec<T> keyCodec, Codec<V> valueCodec, int segmentBits) throws IOException{
+    if(segmentBits < 5 || segmentBits > 30){
+      throw new IllegalArgumentException("segmentBits: " + segmentBits);
+    }
+    long segmentSize = 1L << segmentBits;
+    Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+    // the offsets are written to a separate file while the records are written, then appended after the records, so they do not need to be kept in memory
+    Path offsetsFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".offsets");
+    boolean written = false;
+    try{
+      // count is the number of entries written and position is the position in the file where the next byte is written
+      long count = 0;
+      long position = HEADER_SIZE;
+      try(DataOutputStream records = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)));
+          DataOutputStream offsets = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(offsetsFile)))){
+        // Leave room for the header, which is written when the number of entries and the position of the offsets are known
+        records.write(new byte[HEADER_SIZE]);
+        T previousKey = null;
+        while(entries.hasNext()){
+          Map.Entry<T,V> entry = entries.next();
+          if(previousKey != null && previousKey.compareTo(entry.getKey()) > 0){
+            throw new IllegalArgumentException("entries are not in nondecreasing order of key: " + entry.getKey() + " after " + previousKey);
+          }
+          previousKey = entry.getKey();
+          byte[] keyBytes = keyCodec.encode(entry.getKey());
+          byte[] valueBytes = (entry.getValue() != null) ? valueCodec.encode(entry.getValue()) : null;
+          long recordSize = 2 * Integer.BYTES + keyBytes.length + ((valueBytes != null) ? valueBytes.length : 0);
+          if(recordSize > segmentSize){
+            throw new IllegalArgumentException("entry of " + recordSize + " bytes does not fit in a segment of " + segmentSize + " bytes");
+          }
+          // If the record would cross the end of the current segment, start it at the next segment
+          long segmentEnd = (position | (segmentSize - 1)) + 1;
+          if(position + recordSize > segmentEnd){
+            records.write(new byte[(int)(segmentEnd - position)]);
+            position = segmentEnd;
+          }
+          offsets.writeLong(position);
+          records.writeInt(keyBytes.length);
+          records.write(keyBytes);
+          records.writeInt((valueBytes != null) ? valueBytes.length : -1);
+          if(valueBytes != null){
+            records.write(valueBytes);
+          }
+          position += recordSize;
+          count++;
+        }
+        if(count > Integer.MAX_VALUE){
+          throw new IllegalArgumentException("too many entries: " + count);
+        }
+        // Align the offsets to 8 bytes so that no offset crosses the end of a segment, then append them after the records
+        int padding = (int)(-position & (Long.BYTES - 1));
+        records.write(new byte[padding]);
+        position += padding;
+        offsets.flush();
+        Files.copy(offsetsFile, records);
+      }
+      // Write the header, then make sure the whole file is on disk before giving it the name in input
+      try(FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)){
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(count).putLong(position).putInt(segmentBits);
+        header.rewind();
+        while(header.hasRemaining()){
+          channel.write(header, header.position());
+        }
+        channel.force(true);
+      }
+      Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      written = true;
+    }
+    finally{
+      Files.deleteIfExists(offsetsFile);
+      if(!written){
+        Files.deleteIfExists(temporaryFile);
+      }
+    }
+  }
+  
+  /**
+   * Return the mapped tree stored in the file in input, using the codecs from input to decode keys and values (throw IOException if the file is not written by write);
+   * only the header is read, and the entries are read from the mapped segments when they are visited
+   * Time complexity: O(S) (S is number of segments of the file)
+   */
+  public static <T extends Comparable<? super T>,V> MappedTree<T,V> open(Path file, Codec<T> keyCodec, Codec<V> valueCodec) throws IOException{
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+      long fileSize = channel.size();
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      // Read the header until it is full or the end of the file is reached
+      while(header.hasRemaining()){
+        int read = channel.read(header, header.position());
+        if(read <= 0){
+          break;
+        }
+      }
+      header.flip();
+      if(header.remaining() < HEADER_SIZE || header.getInt() != MAGIC){
+        throw new IOException("not a mapped tree file: " + file);
+      }
+      int version = header.getInt();
+      long count = header.getLong();
+      long offsetsPosition = header.getLong();
+      int segmentBits = header.getInt();
+      if(version != VERSION || segmentBits < 5 || segmentBits > 30 || count < 0 || count > Integer.MAX_VALUE || offsetsPosition + count * Long.BYTES != fileSize){
+        throw new IOException("corrupted or unsupported mapped tree file: " + file);
+      }
+      // Map each segment of the file to its own buffer; the mappings stay valid after the channel is closed
+      long segmentSize = 1L << segmentBits;
+      ByteBuffer[] segments = new ByteBuffer[(int)((fileSize + segmentSize - 1) >>> segmentBits)];
+      for(int i = 0; i < segments.length; i++){
+        long start = (long)i << segmentBits;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, fileSize - start));
+      }
+      return new MappedTree<T,V>(segments, segmentBits, (int)count, offsetsPosition, keyCodec, valueCodec);
+    }
+  }
+  
+  /**
+   * Return the segment having the position in input of the file
+   * Time complexity: O(1)
+   */
+  private ByteBuffer segmentOf(long position){
+    return segments[(int)(position >>> segmentBits)];
+  }
+  
+  /**
+   * Return the position in input of the file as an offset in its segment
+   * Time complexity: O(1)
+   */
+  private int offsetInSegment(long position){
+    return (int)(position & ((1L << segmentBits) - 1));
+  }
+  
+  /**
+   * Return the position in the file of the record of the entry at index in input (the index of an entry is its rank in nondecreasing order of key)
+   * Time complexity: O(1)
+   */
+  private long recordPosition(int index){
+    long position = offsetsPosition + (long)index * Long.BYTES;
+    return segmentOf(position).getLong(offsetInSegment(position));
+  }
+  
+  /**
+   * Return the key of the entry at index in input, decoded from the mapped segment holding its record
+   * Time complexity: O(1) plus the time of decoding
+   */
+  private T keyAt(int index){
+    long position = recordPosition(index);
+    ByteBuffer segment = segmentOf(position);
+    int offset = offsetInSegment(position);
+    return keyCodec.decode(segment, offset + Integer.BYTES, segment.getInt(offset));
+  }
+  
+  /**
+   * Return the value of the entry at index in input, decoded from the mapped segment holding its record
+   * Time complexity: O(1) plus the time of decoding
+   */
+  private V valueAt(int index){
+    long position = recordPosition(index);
+    ByteBuffer segment = segmentOf(position);
+    int offset = offsetInSegment(position);
+    int valueOffset = offset + Integer.BYTES + segment.getInt(offset);
+    int valueLength = segment.getInt(valueOffset);
+    return (valueLength >= 0) ? valueCodec.decode(segment, valueOffset + Integer.BYTES, valueLength) : null;
+  }
+  
+  /**
+   * Return true if key is larger than bound, or if inclusive is true and key is equal to bound; return false otherwise
+   * Time complexity: O(1)
+   */
+  private boolean isAbove(T key, T bound, boolean inclusive){
+    int comparison = key.compareTo(bound);
+    return comparison > 0 || (inclusive && comparison == 0);
+  }
+  
+  /**
+   * Return the number of entries having key that is smaller than the key from input (or smaller than or equal to it when inclusive is true),
+   * by going down in the balanced tree whose inorder traversal is the entries, which is a binary search over the entries
+   * Time complexity: O(logN) (N is number of entries in the mapped tree)
+   */
+  private int countKeysBelow(T key, boolean inclusive){
+    int low = 0;
+    int high = size;
+    while(low < high){
+      int middle = (low + high) >>> 1;
+      if(isAbove(key, keyAt(middle), inclusive)){
+        low = middle + 1;
+      }
+      else{
+        high = middle;
+      }
+    }
+    return low;
+  }
+  
+  /**
+   * Return an entry with key and value of the entry at index in input, or return null if index in input is not from 0 to number of entries minus 1
+   * Time complexity: O(1) plus the time of decoding
+   */
+  private Map.Entry<T,V> entryAt(int index){
+    return (index >= 0 && index < size) ? new AbstractMap.SimpleImmutableEntry<T,V>(keyAt(index), valueAt(index)) : null;
+  }
+  
+  /**
+   * Throw UnsupportedOperationException since the mapped tree cannot be changed; write a new file to change the entries
+   */
+  public void insert(T key, V value){
+    throw new UnsupportedOperationException("mapped tree is read-only");
+  }
+  
+  /**
+   * Throw UnsupportedOperationException since the mapped tree cannot be changed; write a new file to change the entries
+   */
+  public void delete(T key){
+    throw new UnsupportedOperationException("mapped tree is read-only");
+  }
+  
+  /**
+   * Throw UnsupportedOperationException since the mapped tree cannot be changed; write a new file to change the entries
+   */
+  public void insertAll(Collection<Map.Entry<T,V>> entries){
+    throw new UnsupportedOperationException("mapped tree is read-only");
+  }
+  
+  /**
+   * Throw UnsupportedOperationException since the mapped tree cannot be changed; write a new file to change the entries
+   */
+  public void deleteAll(Collection<T> keys){
+    throw new UnsupportedOperationException("mapped tree is read-only");
+  }
+  
+  /**
+   * Search for the first entry in nondecreasing order of key which has key that is equal to the key from input, return that entry's value or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of entries in the mapped tree)
+   */
+  public V search(T key){
+    return getOrDefault(key, null);
+  }
+  
+  /**
+   * Return true if there is an entry which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: O(logN) (N is number of entries in the mapped tree)
+   */
+  public boolean containsKey(T key){
+    int index = countKeysBelow(key, false);
+    return index < size && key.compareTo(keyAt(index)) == 0;
+  }
+  
+  /**
+   * Search for the first entry in nondecreasing order of key which has key that is equal to the key from input, return that entry's value or return defaultValue if there is no such entry like that
+   * Time complexity: O(logN) (N is number of entries in the mapped tree)
+   */
+  public V getOrDefault(T key, V defaultValue){
+    int index = countKeysBelow(key, false);
+    return (index < size && key.compareTo(keyAt(index)) == 0) ? valueAt(index) : defaultValue;
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of entries in the mapped tree)
+   */
+  public Map.Entry<T,V> floor(T key){
+    return entryAt(countKeysBelow(key, true) - 1);
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of entries in the mapped tree)
+   */
+  public Map.Entry<T,V> ceiling(T key){
+    return entryAt(countKeysBelow(key, false));
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of entries in the mapped tree)
+   */
+  public Map.Entry<T,V> lower(T key){
+    return entryAt(countKeysBelow(key, false) - 1);
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of entries in the mapped tree)
+   */
+  public Map.Entry<T,V> higher(T key){
+    return entryAt(countKeysBelow(key, true));
+  }
+  
+  /**
+   * Return the entry with the smallest key in the mapped tree, or return null if the mapped tree is empty
+   * Time complexity: O(1)
+   */
+  public Map.Entry<T,V> first(){
+    return entryAt(0);
+  }
+  
+  /**
+   * Return the entry with the largest key in the mapped tree, or return null if the mapped tree is empty
+   * Time complexity: O(1)
+   */
+  public Map.Entry<T,V> last(){
+    return entryAt(size - 1);
+  }
+  
+  /**
+   * Return the number of entries in the mapped tree
+   * Time complexity: O(1)
+   */
+  public int size(){
+    return size;
+  }
+  
+  /**
+   * Return an iterator visiting the entries at indices from start (inclusive) to end (exclusive) in nondecreasing order of key
+   * Time complexity: O(1) to create the iterator
+   */
+  private Iterator<Map.Entry<T,V>> entryIterator(int start, int end){
+    return new Iterator<Map.Entry<T,V>>(){
+      
+      // the index of the next entry to visit
+      private int index = start;
+      
+      public boolean hasNext(){
+        return index < end;
+      }
+      
+      public Map.Entry<T,V> next(){
+        // If there is no entry which is not visited yet, throw NoSuchElementException
+        if(!hasNext()){
+          throw new NoSuchElementException();
+        }
+        return entryAt(index++);
+      }
+    };
+  }
+  
+  /**
+   * Return an iterator visiting the entries in nondecreasing order of key, which can be passed to AVLTree.bulkLoad to load the mapped tree into a tree that can be changed
+   * Time complexity: O(1) to create the iterator
+   */
+  public Iterator<Map.Entry<T,V>> entryIterator(){
+    return entryIterator(0, size);
+  }
+  
+  /**
+   * Return an iterator visiting the values at indices from start (inclusive) to end (exclusive) in nondecreasing order of key
+   * Time complexity: O(1) to create the iterator
+   */
+  private Iterator<V> valueIterator(int start, int end){
+    return new Iterator<V>(){
+      
+      // the index of the next value to visit
+      private int index = start;
+      
+      public boolean hasNext(){
+        return index < end;
+      }
+      
+      public V next(){
+        // If there is no value which is not visited yet, throw NoSuchElementException
+        if(!hasNext()){
+          throw new NoSuchElementException();
+        }
+        return valueAt(index++);
+      }
+    };
+  }
+  
+  /**
+   * Return an iterator visiting the values in nondecreasing order of key lazily
+   * Time complexity: O(1) to create the iterator
+   */
+  public Iterator<V> iterator(){
+    return valueIterator(0, size);
+  }
+  
+  /**
+   * Return an iterator visiting the values of the entries whose keys are between from and to in nondecreasing order of key lazily
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   * Time complexity: O(logN) to create the iterator (N is number of entries in the mapped tree)
+   */
+  public Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+    int start = (from != null) ? countKeysBelow(from, !fromInclusive) : 0;
+    int end = (to != null) ? countKeysBelow(to, toInclusive) : size;
+    return valueIterator(start, Math.max(start, end));
+  }
+  
+  /**
+   * Return the list of values in nondecreasing order of key
+   * Time complexity: O(N) (N is number of entries in the mapped tree)
+   */
+  public List<V> inorderRec(){
+    // list is used to store the values, with capacity being number of entries in the mapped tree
+    List<V> list = new ArrayList<V>(size);
+    for(int i = 0; i < size; i++){
+      list.add(valueAt(i));
+    }
+    return list;
+  }
+  
+  /**
+   * Find the kth smallest element in the mapped tree, which is the entry at index k - 1
+   * Time complexity: O(1)
+   */
+  public V kthSmallest(int k){
+    // If k is smaller than 1 or larger than number of entries in the mapped tree, throw IndexOutOfBoundsException
+    if(k < 1 || k > size){
+      throw new IndexOutOfBoundsException("k: " + k + ", size: " + size);
+    }
+    return valueAt(k - 1);
+  }
+  
+  /**
+   * Return the number of entries in the mapped tree having key that is smaller than the key from input
+   * Time complexity: O(logN) (N is number of entries in the mapped tree)
+   */
+  public int rank(T key){
+    return countKeysBelow(key, false);
+  }
+  
+  /**
+   * Return the list of values of the entries from the fromth smallest to the toth smallest element in the mapped tree (both inclusive)
+   * Time complexity: O(K) (K is number of values returned)
+   */
+  public List<V> select(int from, int to){
+    // If from is smaller than 1 or to is larger than number of entries in the mapped tree, throw IndexOutOfBoundsException
+    if(from < 1 || to > size){
+      throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size);
+    }
+    // list is used to store the values of the entries in the range
+    List<V> list = new ArrayList<V>(Math.max(to - from + 1, 0));
+    for(int i = from; i <= to; i++){
+      list.add(valueAt(i - 1));
+    }
+    return list;
+  }
+}
\ No newline at end of file
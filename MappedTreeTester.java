@@ -0,0 +1,162 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class MappedTreeTester is the tester class for MappedTree
+public class MappedTreeTester{
+  
+  // the directory where the files of the tests are written
+  private Path directory;
+  
+  /**
+   * Create an empty directory for the files of each test.
+   */
+  @Before
+  public void setUp() throws IOException{
+    directory = Files.createTempDirectory("mapped-tree");
+  }
+  
+  /**
+   * Delete the directory of each test and the files in it.
+   */
+  @After
+  public void tearDown() throws IOException{
+    try(DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+      for(Path file : files){
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+  
+  /**
+   * Tests writing an AVLTree to a file and looking up the entries of the file with MappedTree.
+   */
+  @Test
+  public void testWriteAndOpen() throws IOException{
+    AVLTree<Integer, String> tree = new AVLTree<Integer, String>();
+    for(int i = 0; i < 1000; i++){
+      tree.insert(i * 2, "value" + i * 2);
+    }
+    tree.insert(10, "second10");
+    tree.insert(7, null);
+    Path file = directory.resolve("tree.bin");
+    tree.writeTo(file, Codec.INTEGER, Codec.STRING);
+    MappedTree<Integer, String> mappedTree = MappedTree.open(file, Codec.INTEGER, Codec.STRING);
+    
+    // test search, containsKey and getOrDefault
+    assertEquals(1002, mappedTree.size());
+    assertEquals("value0", mappedTree.search(0));
+    assertEquals("value1998", mappedTree.search(1998));
+    assertNull(mappedTree.search(1));
+    assertNull(mappedTree.search(7));
+    assertTrue(mappedTree.containsKey(7));
+    assertFalse(mappedTree.containsKey(2000));
+    assertEquals("none", mappedTree.getOrDefault(-1, "none"));
+    
+    // test navigation
+    assertEquals(Integer.valueOf(8), mappedTree.higher(7).getKey());
+    assertEquals(Integer.valueOf(6), mappedTree.lower(7).getKey());
+    assertEquals(Integer.valueOf(7), mappedTree.floor(7).getKey());
+    assertEquals(Integer.valueOf(12), mappedTree.ceiling(11).getKey());
+    assertNull(mappedTree.lower(0));
+    assertNull(mappedTree.higher(1998));
+    assertEquals(Integer.valueOf(0), mappedTree.first().getKey());
+    assertEquals("value1998", mappedTree.last().getValue());
+    
+    // test order statistics and traversals
+    assertEquals(tree.inorderRec(), mappedTree.inorderRec());
+    assertEquals("value0", mappedTree.kthSmallest(1));
+    assertNull(mappedTree.kthSmallest(5));
+    assertEquals(6, mappedTree.rank(10));
+    assertArrayEquals(new String[]{"value10", "second10", "value12"}, mappedTree.select(7, 9).toArray());
+    String[] range = {"value6", null, "value8", "value10", "second10"};
+    List<String> visited = new ArrayList<String>();
+    mappedTree.rangeIterator(6, true, 10, true).forEachRemaining(visited::add);
+    assertArrayEquals(range, visited.toArray());
+    assertFalse(mappedTree.rangeIterator(10, false, 10, false).hasNext());
+    
+    // test loading the file back into an AVLTree that can be changed
+    AVLTree<Integer, String> loadedTree = AVLTree.bulkLoad(mappedTree.entryIterator());
+    assertEquals(tree.inorderRec(), loadedTree.inorderRec());
+    
+    // test that the mapped tree cannot be changed
+    try{
+      mappedTree.insert(1, "1");
+      fail("did not throw exception");
+    }
+    catch(UnsupportedOperationException exception){
+    }
+    try{
+      mappedTree.delete(0);
+      fail("did not throw exception");
+    }
+    catch(UnsupportedOperationException exception){
+    }
+  }
+  
+  /**
+   * Tests MappedTree with small segments, where records are moved to the next segment instead of crossing the end of a segment.
+   */
+  @Test
+  public void testSegments() throws IOException{
+    List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>();
+    for(int i = 0; i < 500; i++){
+      entries.add(new AbstractMap.SimpleEntry<String, Long>(String.format("key%04d", i) + "x".repeat(i % 40), (long)i * i));
+    }
+    Path file = directory.resolve("segments.bin");
+    MappedTree.write(file, entries.iterator(), Codec.STRING, Codec.LONG, 6);
+    MappedTree<String, Long> mappedTree = MappedTree.open(file, Codec.STRING, Codec.LONG);
+    assertEquals(500, mappedTree.size());
+    for(int i = 0; i < 500; i++){
+      assertEquals(Long.valueOf((long)i * i), mappedTree.kthSmallest(i + 1));
+      assertEquals(Long.valueOf((long)i * i), mappedTree.search(entries.get(i).getKey()));
+    }
+    
+    // test an entry that does not fit in a segment
+    try{
+      MappedTree.write(file, Collections.<Map.Entry<String, Long>>singletonList(new AbstractMap.SimpleEntry<String, Long>("x".repeat(100), 0L)).iterator(), Codec.STRING, Codec.LONG, 6);
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    // the file written before is not replaced by the failed write
+    assertEquals(500, MappedTree.open(file, Codec.STRING, Codec.LONG).size());
+  }
+  
+  /**
+   * Tests writing entries that are not sorted, writing no entry and opening a file that is not written by MappedTree.
+   */
+  @Test
+  public void testInvalidFiles() throws IOException{
+    Path file = directory.resolve("invalid.bin");
+    List<Map.Entry<Integer, Integer>> entries = new ArrayList<Map.Entry<Integer, Integer>>();
+    entries.add(new AbstractMap.SimpleEntry<Integer, Integer>(2, 2));
+    entries.add(new AbstractMap.SimpleEntry<Integer, Integer>(1, 1));
+    try{
+      MappedTree.write(file, entries.iterator(), Codec.INTEGER, Codec.INTEGER);
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    assertFalse(Files.exists(file));
+    
+    // test an empty mapped tree
+    new AVLTree<Integer, Integer>().writeTo(file, Codec.INTEGER, Codec.INTEGER);
+    MappedTree<Integer, Integer> mappedTree = MappedTree.open(file, Codec.INTEGER, Codec.INTEGER);
+    assertEquals(0, mappedTree.size());
+    assertNull(mappedTree.first());
+    assertNull(mappedTree.floor(1));
+    assertFalse(mappedTree.iterator().hasNext());
+    
+    // test a file that is not written by MappedTree
+    Files.write(file, "not a tree".getBytes());
+    try{
+      MappedTree.open(file, Codec.INTEGER, Codec.INTEGER);
+      fail("did not throw exception");
+    }
+    catch(IOException exception){
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import javax.management.*;
+// Interface MetricsExporter is used to publish TreeMetrics somewhere outside the process, such as a text dump or JMX
+public interface MetricsExporter{
+  
+  /**
+   * Publish the metrics in input
+   */
+  void export(TreeMetrics metrics);
+  
+  /**
+   * Return an exporter writing each entry of the metrics' summary as a line "name value" to out, followed by an empty line
+   * (an IOException thrown by out is rethrown as UncheckedIOException)
+   */
+  static MetricsExporter text(Appendable out){
+    return metrics -> {
+      try{
+        for(Map.Entry<String,Number> entry : metrics.summary().entrySet()){
+          out.append(entry.getKey()).append(' ').append(String.valueOf(entry.getValue())).append('\n');
+        }
+        out.append('\n');
+        if(out instanceof Flushable){
+          ((Flushable)out).flush();
+        }
+      }
+      catch(IOException exception){
+        throw new UncheckedIOException(exception);
+      }
+    };
+  }
+  
+  /**
+   * Return an exporter registering the metrics as an MBean with the name in input in the platform MBean server, replacing the MBean already registered with that name;
+   * each entry of the metrics' summary is a read-only attribute, which is read from the metrics each time it is asked for
+   */
+  static MetricsExporter jmx(String name){
+    return metrics -> {
+      try{
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(name);
+        if(server.isRegistered(objectName)){
+          server.unregisterMBean(objectName);
+        }
+        server.registerMBean(new MetricsMBean(metrics), objectName);
+      }
+      catch(JMException exception){
+        throw new IllegalArgumentException("cannot register metrics as " + name, exception);
+      }
+    };
+  }
+  
+  // Class MetricsMBean is used to expose the summary of TreeMetrics as the attributes of an MBean
+  class MetricsMBean implements DynamicMBean{
+    
+    // the metrics exposed
+    private final TreeMetrics metrics;
+    
+    /**
+     * Initialize the MBean with the metrics exposed
+     */
+    private MetricsMBean(TreeMetrics metrics){
+      this.metrics = metrics;
+    }
+    
+    public Object getAttribute(String attribute) throws AttributeNotFoundException{
+      Number value = metrics.summary().get(attribute);
+      if(value == null){
+        throw new AttributeNotFoundException(attribute);
+      }
+      return value;
+    }
+    
+    public AttributeList getAttributes(String[] attributes){
+      Map<String,Number> summary = metrics.summary();
+      AttributeList list = new AttributeList();
+      for(String attribute : attributes){
+        if(summary.containsKey(attribute)){
+          list.add(new Attribute(attribute, summary.get(attribute)));
+        }
+      }
+      return list;
+    }
+    
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException{
+      throw new AttributeNotFoundException("read-only attribute: " + attribute.getName());
+    }
+    
+    public AttributeList setAttributes(AttributeList attributes){
+      return new AttributeList();
+    }
+    
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException{
+      throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+    
+    public MBeanInfo getMBeanInfo(){
+      List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+      for(Map.Entry<String,Number> entry : metrics.summary().entrySet()){
+        attributes.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(), entry.getKey(), true, false, false));
+      }
+      return new MBeanInfo(TreeMetrics.class.getName(), "metrics of a tree", attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,699 @@
+import java.util.*;
+// Class PersistentAVLTree is the AVL tree whose nodes are never changed after being created: insert and delete copy only the nodes on the way from root to the changed node and share the other subtrees,
+// so snapshot() takes O(1) and readers holding an old version never need a lock
+public class PersistentAVLTree<T extends Comparable<? super T>,V> implements TreeWithComparableKey<T,V>{
+  
+  // the indices in the array counting the work of one insert or delete: the number of comparisons, the number of nodes on the way and the number of rotations
+  private static final int COMPARISONS = 0;
+  private static final int DEPTH = 1;
+  private static final int ROTATIONS = 2;
+  
+  // Class AVLNode is used for the immutable node in the persistent AVL tree
+  private class AVLNode<T,V>{
+    
+    // the key stored in the node (the key is comparable)
+    private final T key;
+    
+    // the value stored in the node
+    private final V value;
+    
+    // the height of the node
+    private final int height;
+    
+    // the number of nodes in the subtree rooted at the node (including the node itself)
+    private final int size;
+    
+    // the left child of the node
+    private final AVLNode<T,V> left;
+    
+    // the right child of the node
+    private final AVLNode<T,V> right;
+    
+    /**
+     * Initialize the node with node's key, node's value and node's children, then compute node's height and node's size from node's children
+     */
+    private AVLNode(T key, V value, AVLNode<T,V> left, AVLNode<T,V> right){
+      this.key = key;
+      this.value = value;
+      this.left = left;
+      this.right = right;
+      this.height = Math.max((left != null) ? left.height : -1, (right != null) ? right.height : -1) + 1;
+      this.size = ((left != null) ? left.size : 0) + ((right != null) ? right.size : 0) + 1;
+    }
+  }
+  
+  // the root of the current version of the persistent AVL tree (volatile so that readers always see a fully built version)
+  private volatile AVLNode<T,V> root;
+  
+  // the metrics recording each insert, search and delete (null if the persistent AVL tree does not record metrics; volatile since readers hold no lock)
+  private volatile TreeMetrics metrics;
+  
+  /**
+   * Initialize the persistent AVL tree with null root
+   */
+  public PersistentAVLTree(){
+    root = null;
+  }
+  
+  /**
+   * Initialize the persistent AVL tree sharing all nodes of the version rooted at root in input
+   */
+  private PersistentAVLTree(AVLNode<T,V> root){
+    this.root = root;
+  }
+  
+  /**
+   * Return a persistent AVL tree holding the current version of the persistent AVL tree, which shares all nodes with it;
+   * later changes to either tree do not affect the other, and reading the snapshot needs no lock
+   * Time complexity: O(1)
+   */
+  public PersistentAVLTree<T,V> snapshot(){
+    return new PersistentAVLTree<T,V>(root);
+  }
+  
+  /**
+   * Return the height of the node in input
+   * Time complexity: O(1)
+   */
+  private int getNodeHeight(AVLNode<T,V> node){
+    // If node in input is null, return -1
+    if(node == null){
+      return -1;
+    }
+    // Otherwise, return node's height
+    else{
+      return node.height;
+    }
+  }
+  
+  /**
+   * Return the size of the subtree rooted at the node in input
+   * Time complexity: O(1)
+   */
+  private int getNodeSize(AVLNode<T,V> node){
+    // If node in input is null, return 0
+    if(node == null){
+      return 0;
+    }
+    // Otherwise, return node's size
+    else{
+      return node.size;
+    }
+  }
+  
+  /**
+   * Return the root of a balanced subtree holding a new node with key and value from input whose children are left and right, whose heights differ by at most 2;
+   * instead of rotating existing nodes, create new nodes in the rotated shape, so no existing node is changed; the rotations are added to counts[ROTATIONS]
+   * Time complexity: O(1)
+   */
+  private AVLNode<T,V> balance(T key, V value, AVLNode<T,V> left, AVLNode<T,V> right, int[] counts){
+    /**
+     * If left is taller by 2:
+     * do a double rotation if left's right child is taller than left's left child (left's right child becomes the root);
+     * otherwise, do a single right rotation (left becomes the root)
+     */
+    if(getNodeHeight(left) > getNodeHeight(right) + 1){
+      if(getNodeHeight(left.left) < getNodeHeight(left.right)){
+        counts[ROTATIONS] += 2;
+        AVLNode<T,V> middle = left.right;
+        return new AVLNode<T,V>(middle.key, middle.value, new AVLNode<T,V>(left.key, left.value, left.left, middle.left), new AVLNode<T,V>(key, value, middle.right, right));
+      }
+      counts[ROTATIONS]++;
+      return new AVLNode<T,V>(left.key, left.value, left.left, new AVLNode<T,V>(key, value, left.right, right));
+    }
+    /**
+     * If right is taller by 2:
+     * do a double rotation if right's left child is taller than right's right child (right's left child becomes the root);
+     * otherwise, do a single left rotation (right becomes the root)
+     */
+    else if(getNodeHeight(right) > getNodeHeight(left) + 1){
+      if(getNodeHeight(right.left) > getNodeHeight(right.right)){
+        counts[ROTATIONS] += 2;
+        AVLNode<T,V> middle = right.left;
+        return new AVLNode<T,V>(middle.key, middle.value, new AVLNode<T,V>(key, value, left, middle.left), new AVLNode<T,V>(right.key, right.value, middle.right, right.right));
+      }
+      counts[ROTATIONS]++;
+      return new AVLNode<T,V>(right.key, right.value, new AVLNode<T,V>(key, value, left, right.left), right.right);
+    }
+    // Otherwise, the new node is balanced
+    return new AVLNode<T,V>(key, value, left, right);
+  }
+  
+  /**
+   * Return the root of a new version of the subtree rooted at node in input with a new node having key and value from input inserted by using recursion
+   * (if key from input is larger than or equal to node's key, insert to the right; otherwise, insert to the left);
+   * only the nodes on the way are copied and the other subtrees are shared with the old version; the work done is added to counts
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  private AVLNode<T,V> insertNode(AVLNode<T,V> node, T key, V value, int[] counts){
+    if(node == null){
+      return new AVLNode<T,V>(key, value, null, null);
+    }
+    counts[COMPARISONS]++;
+    counts[DEPTH]++;
+    if(key.compareTo(node.key) >= 0){
+      return balance(node.key, node.value, node.left, insertNode(node.right, key, value, counts), counts);
+    }
+    else{
+      return balance(node.key, node.value, insertNode(node.left, key, value, counts), node.right, counts);
+    }
+  }
+  
+  /**
+   * Return the root of a new version of the subtree rooted at node in input without the node having the key that is equal to key from input by using recursion,
+   * or return node in input itself if there is no such node like that (so nothing is copied);
+   * only the nodes on the way are copied and the other subtrees are shared with the old version; the work done is added to counts
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  private AVLNode<T,V> deleteNode(AVLNode<T,V> node, T key, int[] counts){
+    if(node == null){
+      return null;
+    }
+    counts[COMPARISONS]++;
+    counts[DEPTH]++;
+    int comparison = key.compareTo(node.key);
+    if(comparison < 0){
+      AVLNode<T,V> newLeft = deleteNode(node.left, key, counts);
+      return (newLeft == node.left) ? node : balance(node.key, node.value, newLeft, node.right, counts);
+    }
+    else if(comparison > 0){
+      AVLNode<T,V> newRight = deleteNode(node.right, key, counts);
+      return (newRight == node.right) ? node : balance(node.key, node.value, node.left, newRight, counts);
+    }
+    // If node in input has less than 2 children, replace it by its child
+    if(node.left == null){
+      return node.right;
+    }
+    if(node.right == null){
+      return node.left;
+    }
+    // Otherwise, replace node in input by a new node having key and value of the descendant with smallest key of its right child, and remove that descendant from the right subtree
+    AVLNode<T,V> rightSmallestDescendant = node.right;
+    counts[DEPTH]++;
+    while(rightSmallestDescendant.left != null){
+      rightSmallestDescendant = rightSmallestDescendant.left;
+      counts[DEPTH]++;
+    }
+    return balance(rightSmallestDescendant.key, rightSmallestDescendant.value, node.left, deleteSmallestNode(node.right, counts), counts);
+  }
+  
+  /**
+   * Return the root of a new version of the subtree rooted at node in input (which is not null) without its node with smallest key by using recursion, adding the rotations to counts[ROTATIONS]
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  private AVLNode<T,V> deleteSmallestNode(AVLNode<T,V> node, int[] counts){
+    if(node.left == null){
+      return node.right;
+    }
+    return balance(node.key, node.value, deleteSmallestNode(node.left, counts), node.right, counts);
+  }
+  
+  /**
+   * Insert a node with key and associated value to the persistent AVL tree by building a new version and publishing its root;
+   * writers are serialized, while readers and snapshots keep using the version they started with
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public synchronized void insert(T key, V value){
+    // start is the time the insert starts if the persistent AVL tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    int[] counts = new int[3];
+    root = insertNode(root, key, value, counts);
+    record(TreeMetrics.Operation.INSERT, start, counts[COMPARISONS], counts[ROTATIONS], counts[DEPTH]);
+  }
+  
+  /**
+   * Delete the node having the key that is equal to key from input if that node exists by building a new version and publishing its root
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public synchronized void delete(T key){
+    // start is the time the delete starts if the persistent AVL tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    int[] counts = new int[3];
+    root = deleteNode(root, key, counts);
+    record(TreeMetrics.Operation.DELETE, start, counts[COMPARISONS], counts[ROTATIONS], counts[DEPTH]);
+  }
+  
+  /**
+   * Insert a node for each entry from input in nondecreasing order of key (keeping the order of entries having same key), then publish the new version once,
+   * so readers see either none or all of the entries
+   * Time complexity: O(KlogK + KlogN) (N is number of nodes in the persistent AVL tree, K is number of entries from input)
+   */
+  public synchronized void insertAll(Collection<Map.Entry<T,V>> entries){
+    List<Map.Entry<T,V>> sortedEntries = new ArrayList<Map.Entry<T,V>>(entries);
+    sortedEntries.sort(Map.Entry.comparingByKey());
+    AVLNode<T,V> newRoot = root;
+    int[] counts = new int[3];
+    for(Map.Entry<T,V> entry : sortedEntries){
+      newRoot = insertNode(newRoot, entry.getKey(), entry.getValue(), counts);
+    }
+    root = newRoot;
+  }
+  
+  /**
+   * Delete a node having the key that is equal to each key from input if that node exists (a key appearing twice deletes two nodes), then publish the new version once,
+   * so readers see either none or all of the deletions
+   * Time complexity: O(KlogK + KlogN) (N is number of nodes in the persistent AVL tree, K is number of keys from input)
+   */
+  public synchronized void deleteAll(Collection<T> keys){
+    List<T> sortedKeys = new ArrayList<T>(keys);
+    Collections.sort(sortedKeys);
+    AVLNode<T,V> newRoot = root;
+    int[] counts = new int[3];
+    for(T key : sortedKeys){
+      newRoot = deleteNode(newRoot, key, counts);
+    }
+    root = newRoot;
+  }
+  
+  /**
+   * Help method search(T key), containsKey(T key) and getOrDefault(T key, V defaultValue) by going down in the current version with a loop until pointer is null (return null) or reaching the node that has same key as key from input (return that node);
+   * the search is recorded into metrics if the persistent AVL tree records metrics
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  private AVLNode<T,V> findNode(T key){
+    // start is the time the search starts if the persistent AVL tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // depth is used to count the nodes on the way, each compared once with key from input
+    int depth = 0;
+    // pointer is used to go down in the current version based on the key from input
+    AVLNode<T,V> pointer = root;
+    while(pointer != null){
+      depth++;
+      // comparison stores the result of comparing key from input with pointer's key
+      int comparison = key.compareTo(pointer.key);
+      // If key from input is equal to pointer's key, stop at pointer
+      if(comparison == 0){
+        break;
+      }
+      // Otherwise, if key from input is larger than pointer's key, go to the right; otherwise, go to the left
+      pointer = (comparison > 0) ? pointer.right : pointer.left;
+    }
+    record(TreeMetrics.Operation.SEARCH, start, depth, 0, depth);
+    return pointer;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return null if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public V search(T key){
+    return getOrDefault(key, null);
+  }
+  
+  /**
+   * Return true if there is a node which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public boolean containsKey(T key){
+    return findNode(key) != null;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return defaultValue if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public V getOrDefault(T key, V defaultValue){
+    // node is the first node encountered which has key that is equal to key from input, or null if there is no such node like that
+    AVLNode<T,V> node = findNode(key);
+    return (node != null) ? node.value : defaultValue;
+  }
+  
+  /**
+   * Return true if key is larger than bound, or if inclusive is true and key is equal to bound; return false otherwise
+   * Time complexity: O(1)
+   */
+  private boolean isAbove(T key, T bound, boolean inclusive){
+    int comparison = key.compareTo(bound);
+    return comparison > 0 || (inclusive && comparison == 0);
+  }
+  
+  /**
+   * Help method floor(T key), ceiling(T key), lower(T key) and higher(T key) by going down in the current version to find the closest node to key from input:
+   * if below is true, return the node with the largest key which is smaller than key from input (or equal to it when inclusive is true);
+   * otherwise, return the node with the smallest key which is larger than key from input (or equal to it when inclusive is true);
+   * return null if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  private AVLNode<T,V> findClosestNode(T key, boolean below, boolean inclusive){
+    // closestNode is used to store the closest node found which satisfies the condition
+    AVLNode<T,V> closestNode = null;
+    // pointer is used to go down in the current version based on the key from input
+    AVLNode<T,V> pointer = root;
+    while(pointer != null){
+      boolean satisfied = below ? isAbove(key, pointer.key, inclusive) : isAbove(pointer.key, key, inclusive);
+      if(satisfied){
+        closestNode = pointer;
+      }
+      pointer = (satisfied == below) ? pointer.right : pointer.left;
+    }
+    return closestNode;
+  }
+  
+  /**
+   * Return an entry with key and value of the node in input, or return null if node in input is null
+   * Time complexity: O(1)
+   */
+  private Map.Entry<T,V> toEntry(AVLNode<T,V> node){
+    return (node != null) ? new AbstractMap.SimpleImmutableEntry<T,V>(node.key, node.value) : null;
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public Map.Entry<T,V> floor(T key){
+    return toEntry(findClosestNode(key, true, true));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public Map.Entry<T,V> ceiling(T key){
+    return toEntry(findClosestNode(key, false, true));
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public Map.Entry<T,V> lower(T key){
+    return toEntry(findClosestNode(key, true, false));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public Map.Entry<T,V> higher(T key){
+    return toEntry(findClosestNode(key, false, false));
+  }
+  
+  /**
+   * Return the entry with the smallest key in the persistent AVL tree, or return null if the persistent AVL tree is empty
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public Map.Entry<T,V> first(){
+    // pointer is used to go down to the leftmost node of the current version
+    AVLNode<T,V> pointer = root;
+    while(pointer != null && pointer.left != null){
+      pointer = pointer.left;
+    }
+    return toEntry(pointer);
+  }
+  
+  /**
+   * Return the entry with the largest key in the persistent AVL tree, or return null if the persistent AVL tree is empty
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public Map.Entry<T,V> last(){
+    // pointer is used to go down to the rightmost node of the current version
+    AVLNode<T,V> pointer = root;
+    while(pointer != null && pointer.right != null){
+      pointer = pointer.right;
+    }
+    return toEntry(pointer);
+  }
+  
+  // Class InorderIterator is used to lazily visit the values of the nodes in inorder traversal of one version of the persistent AVL tree by using a stack instead of recursion
+  private class InorderIterator implements Iterator<V>{
+    
+    // the stack storing the nodes whose values are not visited yet but whose left subtrees are being visited (the top of the stack is the next node to visit)
+    private Deque<AVLNode<T,V>> stack;
+    
+    // the largest key allowed to visit (null if there is no upper bound)
+    private T to;
+    
+    // whether the key that is equal to to is allowed to visit
+    private boolean toInclusive;
+    
+    /**
+     * Initialize the iterator to start from the smallest node of the version rooted at root in input
+     */
+    private InorderIterator(AVLNode<T,V> root){
+      stack = new ArrayDeque<AVLNode<T,V>>();
+      pushLeftPath(root);
+    }
+    
+    /**
+     * Initialize the iterator to start from the kth smallest node of the version rooted at root in input (k should be from 1 to number of nodes in that version),
+     * by using the size of each node's subtree to go down and pushing each node on the way where the next move is to the left
+     * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+     */
+    private InorderIterator(AVLNode<T,V> root, int k){
+      stack = new ArrayDeque<AVLNode<T,V>>();
+      AVLNode<T,V> pointer = root;
+      while(pointer != null){
+        int pointerRank = getNodeSize(pointer.left) + 1;
+        if(k == pointerRank){
+          stack.push(pointer);
+          pointer = null;
+        }
+        else if(k < pointerRank){
+          stack.push(pointer);
+          pointer = pointer.left;
+        }
+        else{
+          k -= pointerRank;
+          pointer = pointer.right;
+        }
+      }
+    }
+    
+    /**
+     * Initialize the iterator to visit only the nodes of the version rooted at root in input whose keys are between from and to (null from or null to means there is no lower bound or upper bound respectively),
+     * by going down and pushing each node on the way whose key is not smaller than the lower bound, where the next move is to the left
+     * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+     */
+    private InorderIterator(AVLNode<T,V> root, T from, boolean fromInclusive, T to, boolean toInclusive){
+      stack = new ArrayDeque<AVLNode<T,V>>();
+      this.to = to;
+      this.toInclusive = toInclusive;
+      AVLNode<T,V> pointer = root;
+      while(pointer != null){
+        if(from == null || isAbove(pointer.key, from, fromInclusive)){
+          stack.push(pointer);
+          pointer = pointer.left;
+        }
+        else{
+          pointer = pointer.right;
+        }
+      }
+    }
+    
+    /**
+     * Push the node in input and its left descendants to the stack
+     */
+    private void pushLeftPath(AVLNode<T,V> node){
+      while(node != null){
+        stack.push(node);
+        node = node.left;
+      }
+    }
+    
+    /**
+     * Return true if there is a node whose value is not visited yet and whose key is not larger than the upper bound, or return false otherwise
+     * Time complexity: O(1)
+     */
+    public boolean hasNext(){
+      return !stack.isEmpty() && (to == null || isAbove(to, stack.peek().key, toInclusive));
+    }
+    
+    /**
+     * Return the value of the next node in inorder traversal, then push the right child of that node and its left descendants to the stack
+     * Time complexity: O(1) on average over the whole traversal
+     */
+    public V next(){
+      // If there is no node which is not visited yet, throw NoSuchElementException
+      if(!hasNext()){
+        throw new NoSuchElementException();
+      }
+      AVLNode<T,V> node = stack.pop();
+      pushLeftPath(node.right);
+      return node.value;
+    }
+  }
+  
+  /**
+   * Return the height of the current version (the number of edges on the longest path from root, -1 if the persistent AVL tree is empty)
+   * Time complexity: O(1)
+   */
+  public int height(){
+    return getNodeHeight(root);
+  }
+  
+  /**
+   * Return the number of nodes of the current version which are not nodes of the current version of the other persistent AVL tree in input,
+   * which is the number of nodes created by the changes made since one version was a snapshot of the other (used by PersistentAVLTreeTester to check that changes share the other nodes)
+   * Time complexity: O(N + M) (N and M are numbers of nodes in the 2 versions)
+   */
+  int countNodesNotIn(PersistentAVLTree<T,V> other){
+    // nodes is used to store the nodes of the other version, compared by identity since shared nodes are the same objects
+    Set<AVLNode<T,V>> nodes = Collections.newSetFromMap(new IdentityHashMap<AVLNode<T,V>,Boolean>());
+    Deque<AVLNode<T,V>> stack = new ArrayDeque<AVLNode<T,V>>();
+    if(other.root != null){
+      stack.push(other.root);
+    }
+    while(!stack.isEmpty()){
+      AVLNode<T,V> node = stack.pop();
+      nodes.add(node);
+      if(node.left != null){
+        stack.push(node.left);
+      }
+      if(node.right != null){
+        stack.push(node.right);
+      }
+    }
+    int count = 0;
+    if(root != null){
+      stack.push(root);
+    }
+    while(!stack.isEmpty()){
+      AVLNode<T,V> node = stack.pop();
+      // A shared node's whole subtree is shared, so it is not visited
+      if(nodes.contains(node)){
+        continue;
+      }
+      count++;
+      if(node.left != null){
+        stack.push(node.left);
+      }
+      if(node.right != null){
+        stack.push(node.right);
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Make the persistent AVL tree record each insert, search and delete into the metrics from input, or stop recording if metrics is null;
+   * while no metrics are set, each operation only checks that metrics is null (a rotation is counted each time nodes are created in a rotated shape, and snapshots do not share the metrics)
+   */
+  public void setMetrics(TreeMetrics metrics){
+    if(metrics != null){
+      metrics.bind(this::size, this::height);
+    }
+    this.metrics = metrics;
+  }
+  
+  /**
+   * Help method insert(T key, V value), delete(T key) and findNode(T key) by recording an operation which started at start and made the numbers of comparisons and rotations and visited the depth in input;
+   * do nothing if the persistent AVL tree does not record metrics
+   * Time complexity: O(1)
+   */
+  private void record(TreeMetrics.Operation operation, long start, int comparisons, int rotations, int depth){
+    // recordingMetrics is read once, so a concurrent setMetrics(null) cannot make it null in between
+    TreeMetrics recordingMetrics = metrics;
+    if(recordingMetrics != null){
+      recordingMetrics.record(operation, System.nanoTime() - start, comparisons, rotations, depth);
+    }
+  }
+  
+  /**
+   * Return the number of nodes in the persistent AVL tree
+   * Time complexity: O(1)
+   */
+  public int size(){
+    return getNodeSize(root);
+  }
+  
+  /**
+   * Return an iterator visiting the values in inorder traversal of the current version lazily; since nodes are never changed,
+   * the iterator keeps visiting that version even if the persistent AVL tree is changed meanwhile
+   * Time complexity: O(1) to create the iterator; the iterator's stack takes O(height of the persistent AVL tree) memory
+   */
+  public Iterator<V> iterator(){
+    return new InorderIterator(root);
+  }
+  
+  /**
+   * Return an iterator visiting the values of the nodes whose keys are between from and to in inorder traversal of the current version lazily
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   * Time complexity: O(logN + K) (N is number of nodes in the persistent AVL tree, K is number of values visited)
+   */
+  public Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+    return new InorderIterator(root, from, fromInclusive, to, toInclusive);
+  }
+  
+  /**
+   * Return the list of values in inorder traversal of the current version
+   * Time complexity: O(N) (N is number of nodes in the persistent AVL tree)
+   */
+  public List<V> inorderRec(){
+    // version is the root of the current version, which is read once so that all values come from the same version
+    AVLNode<T,V> version = root;
+    // list is used to store the value in each node in inorder traversal, with capacity being number of nodes in the version
+    List<V> list = new ArrayList<V>(getNodeSize(version));
+    new InorderIterator(version).forEachRemaining(list::add);
+    return list;
+  }
+  
+  /**
+   * Find the kth smallest element in the current version by using the size of each node's subtree to go down
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public V kthSmallest(int k){
+    // pointer is used to go down in the current version based on k
+    AVLNode<T,V> pointer = root;
+    // If k is smaller than 1 or larger than number of nodes in the current version, throw IndexOutOfBoundsException
+    if(k < 1 || k > getNodeSize(pointer)){
+      throw new IndexOutOfBoundsException("k: " + k + ", size: " + getNodeSize(pointer));
+    }
+    while(true){
+      int pointerRank = getNodeSize(pointer.left) + 1;
+      if(k == pointerRank){
+        return pointer.value;
+      }
+      else if(k < pointerRank){
+        pointer = pointer.left;
+      }
+      else{
+        k -= pointerRank;
+        pointer = pointer.right;
+      }
+    }
+  }
+  
+  /**
+   * Return the number of nodes in the current version having key that is smaller than the key from input
+   * Time complexity: O(logN) (N is number of nodes in the persistent AVL tree)
+   */
+  public int rank(T key){
+    // count is used to store the number of nodes found having key that is smaller than the key from input
+    int count = 0;
+    // pointer is used to go down in the current version based on the key from input
+    AVLNode<T,V> pointer = root;
+    while(pointer != null){
+      if(key.compareTo(pointer.key) <= 0){
+        pointer = pointer.left;
+      }
+      else{
+        count += getNodeSize(pointer.left) + 1;
+        pointer = pointer.right;
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Return the list of values of the nodes from the fromth smallest to the toth smallest element in the current version (both inclusive)
+   * Time complexity: O(logN + K) (N is number of nodes in the persistent AVL tree, K is number of values returned)
+   */
+  public List<V> select(int from, int to){
+    // version is the root of the current version, which is read once so that all values come from the same version
+    AVLNode<T,V> version = root;
+    // If from is smaller than 1 or to is larger than number of nodes in the current version, throw IndexOutOfBoundsException
+    if(from < 1 || to > getNodeSize(version)){
+      throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + getNodeSize(version));
+    }
+    // list is used to store the values of the nodes in the range
+    List<V> list = new ArrayList<V>(Math.max(to - from + 1, 0));
+    if(from <= to){
+      Iterator<V> iterator = new InorderIterator(version, from);
+      for(int i = from; i <= to; i++){
+        list.add(iterator.next());
+      }
+    }
+    return list;
+  }
+}
\ No newline at end of file
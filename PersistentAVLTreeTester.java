@@ -0,0 +1,126 @@
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class PersistentAVLTreeTester is the tester class for PersistentAVLTree
+public class PersistentAVLTreeTester extends TreeWithComparableKeyTester{
+  
+  protected <T extends Comparable<? super T>,V> TreeWithComparableKey<T,V> newTree(){
+    return new PersistentAVLTree<T,V>();
+  }
+  
+  /**
+   * Check that the persistent AVL tree is as high as an AVL tree can be at most (1.44 * log2(N + 2) - 0.328 for N nodes) and that its size agrees with its nodes
+   */
+  protected void checkInvariants(TreeWithComparableKey<Integer, Integer> tree){
+    int size = tree.size();
+    assertTrue(((PersistentAVLTree<Integer, Integer>)tree).height() <= 1.4405 * Math.log(size + 2) / Math.log(2) - 0.3277);
+    assertEquals(size, tree.inorderRec().size());
+  }
+  
+  /**
+   * Tests the snapshot method of PersistentAVLTree.
+   */
+  @Test
+  public void testSnapshot(){
+    PersistentAVLTree<Integer, String> tree = new PersistentAVLTree<Integer, String>();
+    
+    // test snapshot when tree is empty
+    PersistentAVLTree<Integer, String> emptySnapshot = tree.snapshot();
+    for(int i = 0; i < 10; i++){
+      tree.insert(i, String.valueOf(i));
+    }
+    assertEquals(0, emptySnapshot.size());
+    
+    // test that changes to tree after taking a snapshot do not affect the snapshot
+    PersistentAVLTree<Integer, String> snapshot = tree.snapshot();
+    Iterator<String> iterator = tree.iterator();
+    tree.delete(0);
+    tree.delete(5);
+    tree.insert(20, "20");
+    String[] result = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+    assertArrayEquals(result, snapshot.inorderRec().toArray());
+    assertEquals("5", snapshot.search(5));
+    assertEquals("9", snapshot.kthSmallest(10));
+    assertEquals(Integer.valueOf(9), snapshot.last().getKey());
+    String[] newResult = {"1", "2", "3", "4", "6", "7", "8", "9", "20"};
+    assertArrayEquals(newResult, tree.inorderRec().toArray());
+    
+    // test that an iterator created before the changes keeps visiting the old version
+    List<String> visited = new ArrayList<String>();
+    iterator.forEachRemaining(visited::add);
+    assertArrayEquals(result, visited.toArray());
+    
+    // test that changes to the snapshot do not affect tree
+    snapshot.insertAll(Arrays.asList(new AbstractMap.SimpleEntry<Integer, String>(-1, "-1"), new AbstractMap.SimpleEntry<Integer, String>(15, "15")));
+    snapshot.deleteAll(Arrays.asList(1, 2));
+    String[] snapshotResult = {"-1", "0", "3", "4", "5", "6", "7", "8", "9", "15"};
+    assertArrayEquals(snapshotResult, snapshot.inorderRec().toArray());
+    assertArrayEquals(newResult, tree.inorderRec().toArray());
+    
+    // test reading snapshots while a writer keeps changing tree
+    Thread writer = new Thread(() -> {
+      for(int i = 100; i < 20000; i++){
+        tree.insert(i, String.valueOf(i));
+        tree.delete(i - 50);
+      }
+    });
+    writer.start();
+    for(int i = 0; i < 200; i++){
+      PersistentAVLTree<Integer, String> reading = tree.snapshot();
+      int size = reading.size();
+      assertEquals(size, reading.inorderRec().size());
+      assertEquals(reading.last().getValue(), reading.kthSmallest(size));
+    }
+    try{
+      writer.join();
+    }
+    catch(InterruptedException exception){
+      fail("interrupted");
+    }
+    assertEquals(59, tree.size());
+  }
+  
+  /**
+   * Tests that insert and delete copy only the nodes on the way down and share all other nodes with the older versions, which are never changed.
+   */
+  @Test
+  public void testStructuralSharing(){
+    PersistentAVLTree<Integer, Integer> tree = new PersistentAVLTree<Integer, Integer>();
+    for(int i = 0; i < 1023; i++){
+      tree.insert(2 * i, 2 * i);
+    }
+    
+    // an insert or delete creates at most one node per level and the nodes of its rotations, keeping the other 1000 or so nodes
+    PersistentAVLTree<Integer, Integer> oldVersion = tree.snapshot();
+    assertEquals(0, tree.countNodesNotIn(oldVersion));
+    tree.insert(1001, 1001);
+    int copied = tree.countNodesNotIn(oldVersion);
+    assertTrue(copied >= 1 && copied <= oldVersion.height() + 4);
+    assertTrue(oldVersion.countNodesNotIn(tree) <= oldVersion.height() + 3);
+    oldVersion = tree.snapshot();
+    tree.delete(1000);
+    assertTrue(tree.countNodesNotIn(oldVersion) <= oldVersion.height() + 4);
+    
+    // random changes keep every older version as it was when its snapshot was taken
+    List<PersistentAVLTree<Integer, Integer>> versions = new ArrayList<PersistentAVLTree<Integer, Integer>>();
+    List<List<Integer>> expectedVersions = new ArrayList<List<Integer>>();
+    Random random = new Random(13);
+    for(int i = 0; i < 5000; i++){
+      int key = random.nextInt(3000);
+      if(random.nextBoolean()){
+        tree.insert(key, key);
+      }
+      else{
+        tree.delete(key);
+      }
+      if(i % 250 == 0){
+        versions.add(tree.snapshot());
+        expectedVersions.add(tree.inorderRec());
+      }
+    }
+    for(int i = 0; i < versions.size(); i++){
+      assertEquals(expectedVersions.get(i), versions.get(i).inorderRec());
+      checkInvariants(versions.get(i));
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,816 @@
+import java.util.*;
+// Class RedBlackTree is balanced tree in which each node k being larger than k's left subtree's nodes and smaller than or equal to k's right subtree's nodes;
+// each node is red or black, root is black, a red node has no red child, and every path from a node down to a null child has the same number of black nodes,
+// so the height is at most 2log(N + 1) and an insert needs at most 2 rotations and a delete at most 3 (the other fixes only recolor nodes)
+public class RedBlackTree<T extends Comparable<? super T>,V> implements TreeWithComparableKey<T,V>{
+  
+  // Class Node is used for the node in the red-black tree
+  private class Node<T,V>{
+    
+    // the key stored in the node (the key is comparable)
+    private T key;
+    
+    // the value stored in the node
+    private V value;
+    
+    // whether the node is red (the node is black otherwise)
+    private boolean red;
+    
+    // the number of nodes in the subtree rooted at the node (including the node itself)
+    private int size;
+    
+    // the left child of the node
+    private Node<T,V> left;
+    
+    // the right child of the node
+    private Node<T,V> right;
+    
+    /**
+     * Initialize the node with initialization of node's key and node's value; a new node is red
+     */
+    private Node(T key, V value){
+      this.key = key;
+      this.value = value;
+      this.red = true;
+      this.size = 1;
+    }
+  }
+  
+  // the root of the red-black tree
+  private Node<T,V> root;
+  
+  // the metrics recording each insert, search and delete (null if the red-black tree does not record metrics)
+  private TreeMetrics metrics;
+  
+  /**
+   * Initialize the red-black tree with root being null
+   */
+  public RedBlackTree(){
+    root = null;
+  }
+  
+  /**
+   * Return the size of the subtree rooted at the node in input
+   * Time complexity: O(1)
+   */
+  private int getNodeSize(Node<T,V> node){
+    // If node in input is null, return 0
+    if(node == null){
+      return 0;
+    }
+    // Otherwise, return node's size
+    else{
+      return node.size;
+    }
+  }
+  
+  /**
+   * Update the size of the node in input after making change to tree (should be updated after that node's children's sizes are updated)
+   * Time complexity: O(1)
+   */
+  private void updateNodeSize(Node<T,V> node){
+    node.size = getNodeSize(node.left) + getNodeSize(node.right) + 1;
+  }
+  
+  /**
+   * Return true if the node in input is red, or return false if it is black or null (null children count as black)
+   * Time complexity: O(1)
+   */
+  private boolean isRed(Node<T,V> node){
+    return node != null && node.red;
+  }
+  
+  /**
+   * Do a left rotation around the node in input
+   * Time complexity: O(1)
+   */
+  private Node<T,V> leftRotate(Node<T,V> node){
+    Node<T,V> rotatedNode = node.right;
+    Node<T,V> movedNode = rotatedNode.left;
+    rotatedNode.left = node;
+    node.right = movedNode;
+    updateNodeSize(node);
+    updateNodeSize(rotatedNode);
+    return rotatedNode;
+  }
+  
+  /**
+   * Do a right rotation around the node in input
+   * Time complexity: O(1)
+   */
+  private Node<T,V> rightRotate(Node<T,V> node){
+    Node<T,V> rotatedNode = node.left;
+    Node<T,V> movedNode = rotatedNode.right;
+    rotatedNode.right = node;
+    node.left = movedNode;
+    updateNodeSize(node);
+    updateNodeSize(rotatedNode);
+    return rotatedNode;
+  }
+  
+  /**
+   * Set newChild in place of oldChild as the child of parent, or as root if parent is null
+   * Time complexity: O(1)
+   */
+  private void replaceChild(Node<T,V> parent, Node<T,V> oldChild, Node<T,V> newChild){
+    if(parent == null){
+      root = newChild;
+    }
+    else if(parent.left == oldChild){
+      parent.left = newChild;
+    }
+    else{
+      parent.right = newChild;
+    }
+  }
+  
+  /**
+   * Insert a node with key and associated value to the red-black tree without recursion, then fix the colors on the way from the new node to root
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public void insert(T key, V value){
+    // start is the time the insert starts if the red-black tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // nodeToInsert is the new node with input key and input value
+    Node<T,V> nodeToInsert = new Node<T,V>(key, value);
+    // If the red-black tree is empty, set root as nodeToInsert, which is black as root
+    if(root == null){
+      root = nodeToInsert;
+      root.red = false;
+      record(TreeMetrics.Operation.INSERT, start, 0, 0, 0);
+      return;
+    }
+    // path is used to store the nodes on the way from root to the new node's parent
+    Deque<Node<T,V>> path = new ArrayDeque<Node<T,V>>();
+    // pointer is used to go down in the red-black tree based on the input key
+    Node<T,V> pointer = root;
+    // goRight stores whether the last move of pointer is to the right
+    boolean goRight = false;
+    /**
+     * Use pointer to go down in the red-black tree until it is null (if input key is larger than or equal to pointer's key, go to the right; otherwise, go to the left);
+     * push each node on the way to path and increase its size since the new node will be in its subtree
+     */
+    while(pointer != null){
+      pointer.size++;
+      path.push(pointer);
+      goRight = key.compareTo(pointer.key) >= 0;
+      pointer = goRight ? pointer.right : pointer.left;
+    }
+    // Set nodeToInsert as the child of the last node on the way, then fix the red node having a red parent if there is one
+    if(goRight){
+      path.peek().right = nodeToInsert;
+    }
+    else{
+      path.peek().left = nodeToInsert;
+    }
+    // depth is the number of nodes on the way, each compared once with input key
+    int depth = path.size();
+    int rotations = fixAfterInsert(path, nodeToInsert);
+    record(TreeMetrics.Operation.INSERT, start, depth, rotations, depth);
+  }
+  
+  /**
+   * Help method insert(T key, V value) by fixing the red node in input when its parent is red too, with path storing the nodes on the way from root to the parent of the node in input:
+   * if the parent's sibling (uncle) is red, make the parent and the uncle black and the grandparent red, then continue from the grandparent;
+   * otherwise, rotate the node and its parent to the same side if they are on different sides (zig-zag), rotate around the grandparent and stop; return the number of rotations done
+   * Time complexity: O(logN), with at most 2 rotations (N is number of nodes in the red-black tree)
+   */
+  private int fixAfterInsert(Deque<Node<T,V>> path, Node<T,V> node){
+    // rotations is used to count the rotations done
+    int rotations = 0;
+    while(!path.isEmpty()){
+      Node<T,V> parent = path.pop();
+      // If parent is black, there is no red node having a red parent
+      if(!parent.red){
+        break;
+      }
+      // parent is red, so it is not root and has a parent
+      Node<T,V> grandparent = path.pop();
+      Node<T,V> uncle = (grandparent.left == parent) ? grandparent.right : grandparent.left;
+      if(isRed(uncle)){
+        parent.red = false;
+        uncle.red = false;
+        grandparent.red = true;
+        node = grandparent;
+        continue;
+      }
+      // top is the node taking grandparent's place after the rotations, which becomes black with red children
+      Node<T,V> top;
+      if(grandparent.left == parent){
+        if(parent.right == node){
+          grandparent.left = leftRotate(parent);
+          rotations++;
+        }
+        top = rightRotate(grandparent);
+      }
+      else{
+        if(parent.left == node){
+          grandparent.right = rightRotate(parent);
+          rotations++;
+        }
+        top = leftRotate(grandparent);
+      }
+      rotations++;
+      top.red = false;
+      grandparent.red = true;
+      replaceChild(path.peek(), grandparent, top);
+      break;
+    }
+    root.red = false;
+    return rotations;
+  }
+  
+  /**
+   * Help method search(T key), containsKey(T key) and getOrDefault(T key, V defaultValue) by going down in the red-black tree with a loop until pointer is null (return null) or reaching the node that has same key as key from input (return that node)
+   * Only one comparison is made between key from input and each node's key on the way; the search is recorded into metrics if the red-black tree records metrics
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  private Node<T,V> findNode(T key){
+    // start is the time the search starts if the red-black tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // depth is used to count the nodes on the way, each compared once with key from input
+    int depth = 0;
+    // pointer is used to go down in the red-black tree based on the key from input
+    Node<T,V> pointer = root;
+    while(pointer != null){
+      depth++;
+      // comparison stores the result of comparing key from input with pointer's key
+      int comparison = key.compareTo(pointer.key);
+      // If key from input is equal to pointer's key, stop at pointer
+      if(comparison == 0){
+        break;
+      }
+      // Otherwise, if key from input is larger than pointer's key, go to the right; otherwise, go to the left
+      pointer = (comparison > 0) ? pointer.right : pointer.left;
+    }
+    record(TreeMetrics.Operation.SEARCH, start, depth, 0, depth);
+    return pointer;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return null if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public V search(T key){
+    return getOrDefault(key, null);
+  }
+  
+  /**
+   * Return true if key is larger than bound, or if inclusive is true and key is equal to bound; return false otherwise
+   * Time complexity: O(1)
+   */
+  private boolean isAbove(T key, T bound, boolean inclusive){
+    int comparison = key.compareTo(bound);
+    return comparison > 0 || (inclusive && comparison == 0);
+  }
+  
+  /**
+   * Help method floor(T key), ceiling(T key), lower(T key) and higher(T key) by going down in the red-black tree to find the closest node to key from input:
+   * if below is true, return the node with the largest key which is smaller than key from input (or equal to it when inclusive is true);
+   * otherwise, return the node with the smallest key which is larger than key from input (or equal to it when inclusive is true);
+   * return null if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  private Node<T,V> findClosestNode(T key, boolean below, boolean inclusive){
+    // closestNode is used to store the closest node found which satisfies the condition
+    Node<T,V> closestNode = null;
+    // pointer is used to go down in the red-black tree based on the key from input
+    Node<T,V> pointer = root;
+    /**
+     * If pointer satisfies the condition, store it in closestNode and go to the side where closer nodes can be (the right if below is true, the left otherwise);
+     * otherwise, go to the other side
+     */
+    while(pointer != null){
+      boolean satisfied = below ? isAbove(key, pointer.key, inclusive) : isAbove(pointer.key, key, inclusive);
+      if(satisfied){
+        closestNode = pointer;
+      }
+      pointer = (satisfied == below) ? pointer.right : pointer.left;
+    }
+    return closestNode;
+  }
+  
+  /**
+   * Return an entry with key and value of the node in input, or return null if node in input is null
+   * Time complexity: O(1)
+   */
+  private Map.Entry<T,V> toEntry(Node<T,V> node){
+    return (node != null) ? new AbstractMap.SimpleImmutableEntry<T,V>(node.key, node.value) : null;
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public Map.Entry<T,V> floor(T key){
+    return toEntry(findClosestNode(key, true, true));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public Map.Entry<T,V> ceiling(T key){
+    return toEntry(findClosestNode(key, false, true));
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public Map.Entry<T,V> lower(T key){
+    return toEntry(findClosestNode(key, true, false));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public Map.Entry<T,V> higher(T key){
+    return toEntry(findClosestNode(key, false, false));
+  }
+  
+  /**
+   * Return the entry with the smallest key in the red-black tree, or return null if the red-black tree is empty
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public Map.Entry<T,V> first(){
+    // pointer is used to go down to the leftmost node of the red-black tree
+    Node<T,V> pointer = root;
+    while(pointer != null && pointer.left != null){
+      pointer = pointer.left;
+    }
+    return toEntry(pointer);
+  }
+  
+  /**
+   * Return the entry with the largest key in the red-black tree, or return null if the red-black tree is empty
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public Map.Entry<T,V> last(){
+    // pointer is used to go down to the rightmost node of the red-black tree
+    Node<T,V> pointer = root;
+    while(pointer != null && pointer.right != null){
+      pointer = pointer.right;
+    }
+    return toEntry(pointer);
+  }
+  
+  /**
+   * Return true if there is a node which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public boolean containsKey(T key){
+    return findNode(key) != null;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return defaultValue if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public V getOrDefault(T key, V defaultValue){
+    // node is the first node encountered which has key that is equal to key from input, or null if there is no such node like that
+    Node<T,V> node = findNode(key);
+    return (node != null) ? node.value : defaultValue;
+  }
+  
+  /**
+   * Delete the node having the key that is equal to key from input if that node exists without recursion, then fix the colors on the way from the removed node to root
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public void delete(T key){
+    // start is the time the delete starts if the red-black tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // path is used to store the nodes on the way from root to the node to remove
+    Deque<Node<T,V>> path = new ArrayDeque<Node<T,V>>();
+    // pointer is used to go down in the red-black tree based on the key from input
+    Node<T,V> pointer = root;
+    // Use pointer to go down in the red-black tree until it is null or reaching the node having key that is equal to key from input, pushing each node on the way to path
+    while(pointer != null){
+      int comparison = key.compareTo(pointer.key);
+      if(comparison == 0){
+        break;
+      }
+      path.push(pointer);
+      pointer = (comparison < 0) ? pointer.left : pointer.right;
+    }
+    // comparisons is the number of nodes compared with key from input
+    int comparisons = path.size() + ((pointer != null) ? 1 : 0);
+    // If there is no node having key that is equal to key from input, do nothing
+    if(pointer == null){
+      record(TreeMetrics.Operation.DELETE, start, comparisons, 0, comparisons);
+      return;
+    }
+    /**
+     * If pointer has 2 children, find the descendant with smallest key of pointer's right child, pushing each node on the way to path;
+     * use key and value of that descendant as key and value of pointer respectively, then remove that descendant instead
+     */
+    if(pointer.left != null && pointer.right != null){
+      path.push(pointer);
+      Node<T,V> rightSmallestDescendant = pointer.right;
+      while(rightSmallestDescendant.left != null){
+        path.push(rightSmallestDescendant);
+        rightSmallestDescendant = rightSmallestDescendant.left;
+      }
+      pointer.key = rightSmallestDescendant.key;
+      pointer.value = rightSmallestDescendant.value;
+      pointer = rightSmallestDescendant;
+    }
+    // pointer now has less than 2 children, so replace pointer by its child (left child if it is not null or right child otherwise)
+    Node<T,V> childOfPointer = (pointer.left != null) ? pointer.left : pointer.right;
+    replaceChild(path.peek(), pointer, childOfPointer);
+    // Decrease the size of each node in path since pointer is removed from their subtrees
+    for(Node<T,V> ancestor : path){
+      ancestor.size--;
+    }
+    // depth is the number of nodes on the way from root to the removed node (including it)
+    int depth = path.size() + 1;
+    // rotations is the number of rotations done to fix the colors
+    int rotations = 0;
+    /**
+     * If pointer is red, the number of black nodes on each path is unchanged;
+     * otherwise, if childOfPointer is red, making it black makes up for pointer;
+     * otherwise, the paths through childOfPointer have one black node less than the others, which is fixed on the way up
+     */
+    if(!pointer.red){
+      if(isRed(childOfPointer)){
+        childOfPointer.red = false;
+      }
+      else{
+        rotations = fixAfterDelete(path, childOfPointer);
+      }
+    }
+    record(TreeMetrics.Operation.DELETE, start, comparisons, rotations, depth);
+  }
+  
+  /**
+   * Help method delete(T key) when the paths through the node in input (which may be null) have one black node less than the other paths, with path storing the nodes on the way from root to the parent of the node in input:
+   * if the node's sibling is red, rotate around the parent so that the sibling becomes black;
+   * if the sibling has no red child, make the sibling red and make the parent black if it is red (stop) or continue from the parent otherwise;
+   * otherwise, rotate the sibling's red child to the outer side if it is on the inner side, rotate around the parent and stop; return the number of rotations done
+   * Time complexity: O(logN), with at most 3 rotations (N is number of nodes in the red-black tree)
+   */
+  private int fixAfterDelete(Deque<Node<T,V>> path, Node<T,V> node){
+    // rotations is used to count the rotations done
+    int rotations = 0;
+    while(!path.isEmpty()){
+      Node<T,V> parent = path.pop();
+      // grandparent is the parent of parent, or null if parent is root
+      Node<T,V> grandparent = path.peek();
+      // node is on the left if it is parent's left child (a null node is on the side whose child is null, since its sibling is not null)
+      boolean nodeIsLeft = parent.left == node;
+      Node<T,V> sibling = nodeIsLeft ? parent.right : parent.left;
+      // If sibling is red, rotate around parent so that sibling's black child becomes node's sibling; parent becomes red
+      if(sibling.red){
+        sibling.red = false;
+        parent.red = true;
+        Node<T,V> top = nodeIsLeft ? leftRotate(parent) : rightRotate(parent);
+        rotations++;
+        replaceChild(grandparent, parent, top);
+        grandparent = top;
+        sibling = nodeIsLeft ? parent.right : parent.left;
+      }
+      // If sibling has no red child, make sibling red so that the paths through sibling have one black node less too
+      if(!isRed(sibling.left) && !isRed(sibling.right)){
+        sibling.red = true;
+        if(parent.red){
+          parent.red = false;
+          return rotations;
+        }
+        node = parent;
+        continue;
+      }
+      // If sibling's red child is only on the inner side, rotate around sibling so that sibling has a red child on the outer side
+      if(nodeIsLeft && !isRed(sibling.right)){
+        sibling.left.red = false;
+        sibling.red = true;
+        sibling = rightRotate(sibling);
+        parent.right = sibling;
+        rotations++;
+      }
+      else if(!nodeIsLeft && !isRed(sibling.left)){
+        sibling.right.red = false;
+        sibling.red = true;
+        sibling = leftRotate(sibling);
+        parent.left = sibling;
+        rotations++;
+      }
+      // Rotate around parent, so that sibling takes parent's place and color, and both of its children become black
+      sibling.red = parent.red;
+      parent.red = false;
+      if(nodeIsLeft){
+        sibling.right.red = false;
+        replaceChild(grandparent, parent, leftRotate(parent));
+      }
+      else{
+        sibling.left.red = false;
+        replaceChild(grandparent, parent, rightRotate(parent));
+      }
+      return rotations + 1;
+    }
+    return rotations;
+  }
+  
+  // Class InorderIterator is used to lazily visit the values of the nodes in inorder traversal of the red-black tree by using a stack instead of recursion
+  private class InorderIterator implements Iterator<V>{
+    
+    // the stack storing the nodes whose values are not visited yet but whose left subtrees are being visited (the top of the stack is the next node to visit)
+    private Deque<Node<T,V>> stack;
+    
+    // the largest key allowed to visit (null if there is no upper bound)
+    private T to;
+    
+    // whether the key that is equal to to is allowed to visit
+    private boolean toInclusive;
+    
+    /**
+     * Initialize the iterator to start from the smallest node of the red-black tree
+     */
+    private InorderIterator(){
+      stack = new ArrayDeque<Node<T,V>>();
+      pushLeftPath(root);
+    }
+    
+    /**
+     * Initialize the iterator to start from the kth smallest node of the red-black tree (k should be from 1 to number of nodes in the red-black tree),
+     * by using the size of each node's subtree to go down in the red-black tree and pushing each node on the way where the next move is to the left
+     * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+     */
+    private InorderIterator(int k){
+      stack = new ArrayDeque<Node<T,V>>();
+      Node<T,V> pointer = root;
+      while(pointer != null){
+        int pointerRank = getNodeSize(pointer.left) + 1;
+        if(k == pointerRank){
+          stack.push(pointer);
+          pointer = null;
+        }
+        else if(k < pointerRank){
+          stack.push(pointer);
+          pointer = pointer.left;
+        }
+        else{
+          k -= pointerRank;
+          pointer = pointer.right;
+        }
+      }
+    }
+    
+    /**
+     * Initialize the iterator to visit only the nodes whose keys are between from and to (null from or null to means there is no lower bound or upper bound respectively),
+     * by going down in the red-black tree and pushing each node on the way whose key is not smaller than the lower bound, where the next move is to the left
+     * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+     */
+    private InorderIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+      stack = new ArrayDeque<Node<T,V>>();
+      this.to = to;
+      this.toInclusive = toInclusive;
+      Node<T,V> pointer = root;
+      while(pointer != null){
+        if(from == null || isAbove(pointer.key, from, fromInclusive)){
+          stack.push(pointer);
+          pointer = pointer.left;
+        }
+        else{
+          pointer = pointer.right;
+        }
+      }
+    }
+    
+    /**
+     * Push the node in input and its left descendants to the stack
+     */
+    private void pushLeftPath(Node<T,V> node){
+      while(node != null){
+        stack.push(node);
+        node = node.left;
+      }
+    }
+    
+    /**
+     * Return true if there is a node whose value is not visited yet and whose key is not larger than the upper bound, or return false otherwise
+     * Time complexity: O(1)
+     */
+    public boolean hasNext(){
+      return !stack.isEmpty() && (to == null || isAbove(to, stack.peek().key, toInclusive));
+    }
+    
+    /**
+     * Return the value of the next node in inorder traversal, then push the right child of that node and its left descendants to the stack
+     * Time complexity: O(1) on average over the whole traversal
+     */
+    public V next(){
+      // If there is no node which is not visited yet, throw NoSuchElementException
+      if(!hasNext()){
+        throw new NoSuchElementException();
+      }
+      Node<T,V> node = stack.pop();
+      pushLeftPath(node.right);
+      return node.value;
+    }
+  }
+  
+  /**
+   * Return the height of the red-black tree (the number of edges on the longest path from root, -1 if the red-black tree is empty) by visiting the nodes level by level without recursion
+   * Time complexity: O(N) (N is number of nodes in the red-black tree)
+   */
+  public int height(){
+    int height = -1;
+    // level is used to store the nodes of the current level
+    List<Node<T,V>> level = new ArrayList<Node<T,V>>();
+    if(root != null){
+      level.add(root);
+    }
+    while(!level.isEmpty()){
+      height++;
+      List<Node<T,V>> nextLevel = new ArrayList<Node<T,V>>();
+      for(Node<T,V> node : level){
+        if(node.left != null){
+          nextLevel.add(node.left);
+        }
+        if(node.right != null){
+          nextLevel.add(node.right);
+        }
+      }
+      level = nextLevel;
+    }
+    return height;
+  }
+  
+  /**
+   * Throw IllegalStateException if the red-black tree breaks one of its invariants: root is black, a red node has no red child,
+   * every path from a node down to a null child has the same number of black nodes, the keys are in nondecreasing order in inorder traversal (rotations can move a node having same key as its parent to either side),
+   * and the size of each node is right (used by RedBlackTreeTester)
+   * Time complexity: O(N) (N is number of nodes in the red-black tree)
+   */
+  void checkInvariants(){
+    if(root != null && root.red){
+      throw new IllegalStateException("root is red");
+    }
+    checkNode(root, null, null);
+  }
+  
+  /**
+   * Help method checkInvariants() by checking the subtree rooted at the node in input, whose keys should be between low and high (null for no bound),
+   * then return the number of black nodes on every path from the node down to a null child
+   * Time complexity: O(N) (N is number of nodes in the subtree)
+   */
+  private int checkNode(Node<T,V> node, T low, T high){
+    if(node == null){
+      return 0;
+    }
+    if((low != null && node.key.compareTo(low) < 0) || (high != null && node.key.compareTo(high) > 0)){
+      throw new IllegalStateException("key " + node.key + " is out of order");
+    }
+    if(node.red && (isRed(node.left) || isRed(node.right))){
+      throw new IllegalStateException("red node " + node.key + " has a red child");
+    }
+    if(node.size != getNodeSize(node.left) + getNodeSize(node.right) + 1){
+      throw new IllegalStateException("size of node " + node.key + " is " + node.size);
+    }
+    int leftBlackHeight = checkNode(node.left, low, node.key);
+    int rightBlackHeight = checkNode(node.right, node.key, high);
+    if(leftBlackHeight != rightBlackHeight){
+      throw new IllegalStateException("node " + node.key + " has black heights " + leftBlackHeight + " and " + rightBlackHeight);
+    }
+    return leftBlackHeight + (node.red ? 0 : 1);
+  }
+  
+  /**
+   * Make the red-black tree record each insert, search and delete into the metrics from input, or stop recording if metrics is null;
+   * while no metrics are set, each operation only checks that metrics is null
+   */
+  public void setMetrics(TreeMetrics metrics){
+    if(metrics != null){
+      metrics.bind(this::size, this::height);
+    }
+    this.metrics = metrics;
+  }
+  
+  /**
+   * Help method insert(T key, V value), delete(T key) and findNode(T key) by recording an operation which started at start and made the numbers of comparisons and rotations and visited the depth in input;
+   * do nothing if the red-black tree does not record metrics
+   * Time complexity: O(1)
+   */
+  private void record(TreeMetrics.Operation operation, long start, int comparisons, int rotations, int depth){
+    if(metrics != null){
+      metrics.record(operation, System.nanoTime() - start, comparisons, rotations, depth);
+    }
+  }
+  
+  /**
+   * Return the number of nodes in the red-black tree
+   * Time complexity: O(1)
+   */
+  public int size(){
+    return getNodeSize(root);
+  }
+  
+  /**
+   * Return an iterator visiting the values in inorder traversal of the red-black tree lazily, without copying them to a list
+   * Time complexity: O(1) to create the iterator; the iterator's stack takes O(logN) memory (N is number of nodes in the red-black tree)
+   */
+  public Iterator<V> iterator(){
+    return new InorderIterator();
+  }
+  
+  /**
+   * Return an iterator visiting the values of the nodes whose keys are between from and to in inorder traversal of the red-black tree lazily
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   * Time complexity: O(logN + K) (N is number of nodes in the red-black tree, K is number of values visited)
+   */
+  public Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+    return new InorderIterator(from, fromInclusive, to, toInclusive);
+  }
+  
+  /**
+   * Return the list of values in inorder traversal of the red-black tree by using iterator()
+   * Time complexity: O(N) (N is number of nodes in the red-black tree)
+   */
+  public List<V> inorderRec(){
+    // list is used to store the value in each node in inorder traversal of the red-black tree, with capacity being number of nodes in the red-black tree
+    List<V> list = new ArrayList<V>(size());
+    for(V value : this){
+      list.add(value);
+    }
+    return list;
+  }
+  
+  /**
+   * Find the kth smallest element in the red-black tree by using the size of each node's subtree to go down in the red-black tree
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public V kthSmallest(int k){
+    // If k is smaller than 1 or larger than number of nodes in the red-black tree, throw IndexOutOfBoundsException
+    if(k < 1 || k > getNodeSize(root)){
+      throw new IndexOutOfBoundsException("k: " + k + ", size: " + getNodeSize(root));
+    }
+    // pointer is used to go down in the red-black tree based on k
+    Node<T,V> pointer = root;
+    /**
+     * Compare k with the rank of pointer in pointer's subtree (size of pointer's left subtree plus 1):
+     * if k is equal to that rank, return pointer's value;
+     * if k is smaller than that rank, go to the left;
+     * otherwise, subtract that rank from k and go to the right
+     */
+    while(true){
+      int pointerRank = getNodeSize(pointer.left) + 1;
+      if(k == pointerRank){
+        return pointer.value;
+      }
+      else if(k < pointerRank){
+        pointer = pointer.left;
+      }
+      else{
+        k -= pointerRank;
+        pointer = pointer.right;
+      }
+    }
+  }
+  
+  /**
+   * Return the number of nodes in the red-black tree having key that is smaller than the key from input
+   * Time complexity: O(logN) (N is number of nodes in the red-black tree)
+   */
+  public int rank(T key){
+    // count is used to store the number of nodes found having key that is smaller than the key from input
+    int count = 0;
+    // pointer is used to go down in the red-black tree based on the key from input
+    Node<T,V> pointer = root;
+    /**
+     * If key from input is smaller than or equal to pointer's key, go to the left;
+     * otherwise, pointer and pointer's left subtree are all smaller than key from input, so add them to count and go to the right
+     */
+    while(pointer != null){
+      if(key.compareTo(pointer.key) <= 0){
+        pointer = pointer.left;
+      }
+      else{
+        count += getNodeSize(pointer.left) + 1;
+        pointer = pointer.right;
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Return the list of values of the nodes from the fromth smallest to the toth smallest element in the red-black tree (both inclusive)
+   * Time complexity: O(logN + K) (N is number of nodes in the red-black tree, K is number of values returned)
+   */
+  public List<V> select(int from, int to){
+    // If from is smaller than 1 or to is larger than number of nodes in the red-black tree, throw IndexOutOfBoundsException
+    if(from < 1 || to > size()){
+      throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size());
+    }
+    // list is used to store the values of the nodes in the range
+    List<V> list = new ArrayList<V>(Math.max(to - from + 1, 0));
+    // If the range is not empty, use an iterator starting from the fromth smallest node to add (to - from + 1) values to list
+    if(from <= to){
+      Iterator<V> iterator = new InorderIterator(from);
+      for(int i = from; i <= to; i++){
+        list.add(iterator.next());
+      }
+    }
+    return list;
+  }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class RedBlackTreeTester is the tester class for RedBlackTree
+public class RedBlackTreeTester extends TreeWithComparableKeyTester{
+  
+  protected <T extends Comparable<? super T>,V> TreeWithComparableKey<T,V> newTree(){
+    return new RedBlackTree<T,V>();
+  }
+  
+  /**
+   * Check the colors, the black heights, the order of the keys and the sizes of the red-black tree (see RedBlackTree.checkInvariants())
+   */
+  protected void checkInvariants(TreeWithComparableKey<Integer, Integer> tree){
+    try{
+      ((RedBlackTree<Integer, Integer>)tree).checkInvariants();
+    }
+    catch(IllegalStateException exception){
+      fail(exception.getMessage());
+    }
+  }
+  
+  /**
+   * Tests that RedBlackTree keeps its invariants through random inserts and deletes, rotating at most 2 times per insert and 3 times per delete.
+   */
+  @Test
+  public void testRotations(){
+    RedBlackTree<Integer, Integer> tree = new RedBlackTree<Integer, Integer>();
+    TreeMetrics metrics = new TreeMetrics();
+    tree.setMetrics(metrics);
+    Random random = new Random(17);
+    for(int i = 0; i < 20000; i++){
+      int key = random.nextInt(2000);
+      if(random.nextInt(3) < 2){
+        tree.insert(key, key);
+      }
+      else{
+        tree.delete(key);
+      }
+      checkInvariants(tree);
+    }
+    // sorted inserts and deletes make the most fixes on the way up
+    for(int i = 0; i < 2000; i++){
+      tree.insert(2000 + i, i);
+      checkInvariants(tree);
+    }
+    for(int i = 0; i < 4000; i++){
+      tree.delete(i);
+      checkInvariants(tree);
+    }
+    assertTrue(metrics.rotations(TreeMetrics.Operation.INSERT).max() <= 2);
+    assertTrue(metrics.rotations(TreeMetrics.Operation.DELETE).max() <= 3);
+    // the bounds are reached, so rotations are counted
+    assertEquals(2, metrics.rotations(TreeMetrics.Operation.INSERT).max());
+    assertTrue(metrics.rotations(TreeMetrics.Operation.DELETE).max() >= 2);
+    // a red-black tree of N nodes is at most 2log2(N + 1) high
+    assertTrue(tree.height() <= 2 * Math.log(tree.size() + 1) / Math.log(2));
+  }
+  
+  /**
+   * Tests that RedBlackTree stays balanced on long sequences of sorted inserts and deletes.
+   */
+  @Test
+  public void testSortedInsertsAndDeletes(){
+    RedBlackTree<Integer, Integer> tree = new RedBlackTree<Integer, Integer>();
+    for(int i = 0; i < 200000; i++){
+      tree.insert(i, i);
+    }
+    for(int i = 0; i < 200000; i += 2){
+      tree.delete(i);
+    }
+    for(int i = 199999; i >= 100000; i -= 2){
+      tree.delete(i);
+    }
+    assertEquals(50000, tree.size());
+    assertEquals(Integer.valueOf(1), tree.first().getValue());
+    assertEquals(Integer.valueOf(99999), tree.last().getValue());
+    assertEquals(Integer.valueOf(50001), tree.kthSmallest(25001));
+    assertEquals(25000, tree.rank(50001));
+  }
+}
\ No newline at end of file
@@ -0,0 +1,614 @@
+import java.util.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+// Class ShardedTree is the thread-safe tree which splits the key space into ranges and stores each range in its own AVL tree (a shard) with its own lock,
+// so writers of keys in different shards never wait for each other; operations on one key lock only the shard of that key,
+// while ordered operations over the whole tree lock all shards in order of their ranges, reading them in order and using the number of nodes of each shard to skip whole shards
+// When a shard becomes much larger than its share of the nodes, all shards are rebuilt with the same number of nodes each, so the ranges follow the keys actually inserted
+public class ShardedTree<T extends Comparable<? super T>,V> implements TreeWithComparableKey<T,V>{
+  
+  // the number of nodes a shard should have at least before the shards are rebuilt because of it
+  private static final int MIN_REBALANCE_SIZE = 1 << 10;
+  
+  // the largest share of the nodes a shard may have compared to its fair share (1 / shardCount) before the shards are rebuilt
+  private static final double SKEW_FACTOR = 1.5;
+  
+  // the number of nodes a shard changes by between two checks of whether the shards should be rebuilt
+  private static final int REBALANCE_CHECK_INTERVAL = 1 << 6;
+  
+  // Class Shard is used to store the nodes of one range of keys
+  private class Shard{
+    
+    // the AVL tree storing the nodes of the range
+    private final AVLTree<T,V> tree;
+    
+    // the lock held for reading or changing tree
+    private final ReentrantReadWriteLock lock;
+    
+    // the number of nodes of tree, which can be read without holding lock
+    private volatile int size;
+    
+    /**
+     * Initialize the shard with the AVL tree storing its nodes
+     */
+    private Shard(AVLTree<T,V> tree){
+      this.tree = tree;
+      this.lock = new ReentrantReadWriteLock();
+      this.size = tree.size();
+    }
+  }
+  
+  // Class Layout is used to store the shards and the keys splitting their ranges; a layout is never changed, and rebuilding the shards makes a new one
+  private class Layout{
+    
+    // the shards in increasing order of their ranges
+    private final List<Shard> shards;
+    
+    // the smallest key of each shard except the first one (bounds.get(i) is the smallest key allowed in shards.get(i + 1)), so a key is in the shard after the last bound not larger than it
+    private final List<T> bounds;
+    
+    /**
+     * Initialize the layout with the shards and the keys splitting their ranges
+     */
+    private Layout(List<Shard> shards, List<T> bounds){
+      this.shards = shards;
+      this.bounds = bounds;
+    }
+    
+    /**
+     * Return the index of the shard whose range has the key in input by binary search over bounds
+     * Time complexity: O(log(number of shards))
+     */
+    private int indexOf(T key){
+      int low = 0;
+      int high = bounds.size();
+      while(low < high){
+        int middle = (low + high) >>> 1;
+        if(bounds.get(middle).compareTo(key) <= 0){
+          low = middle + 1;
+        }
+        else{
+          high = middle;
+        }
+      }
+      return low;
+    }
+  }
+  
+  // the number of shards the nodes are split into when the shards are rebuilt
+  private final int shardCount;
+  
+  // the current layout (replaced while holding the write locks of all its shards)
+  private volatile Layout layout;
+  
+  // the lock making the rebuilds of the shards one at a time
+  private final ReentrantLock rebalanceLock;
+  
+  // the number of nodes the largest shard should have at least before the shards are rebuilt again (protected by rebalanceLock)
+  private int rebalanceSize;
+  
+  // metrics is used to record the operations of the AVL trees of all shards, including the shards of later rebuilds (protected by rebalanceLock)
+  private TreeMetrics metrics;
+  
+  /**
+   * Initialize the sharded tree with one empty shard, split into as many shards as there are processors once it has enough nodes
+   */
+  public ShardedTree(){
+    this(Runtime.getRuntime().availableProcessors());
+  }
+  
+  /**
+   * Initialize the sharded tree with one empty shard, split into shardCount shards once it has enough nodes
+   */
+  public ShardedTree(int shardCount){
+    // If shardCount is smaller than 1, throw IllegalArgumentException
+    if(shardCount < 1){
+      throw new IllegalArgumentException("shardCount: " + shardCount);
+    }
+    this.shardCount = shardCount;
+    this.layout = new Layout(Collections.singletonList(new Shard(new AVLTree<T,V>())), Collections.<T>emptyList());
+    this.rebalanceLock = new ReentrantLock();
+    this.rebalanceSize = MIN_REBALANCE_SIZE;
+  }
+  
+  /**
+   * Run reader on the AVL tree of the shard having the key in input while holding that shard's read lock, retrying if the shard is replaced in the meantime
+   * Time complexity: O(log(number of shards)) plus the time complexity of reader
+   */
+  private <R> R readShard(T key, Function<AVLTree<T,V>,R> reader){
+    while(true){
+      Layout current = layout;
+      Shard shard = current.shards.get(current.indexOf(key));
+      shard.lock.readLock().lock();
+      try{
+        // The layout is only replaced while holding the write locks of all its shards, so it is still current if it is current now
+        if(layout == current){
+          return reader.apply(shard.tree);
+        }
+      }
+      finally{
+        shard.lock.readLock().unlock();
+      }
+    }
+  }
+  
+  /**
+   * Run writer on the AVL tree of the shard having the key in input while holding that shard's write lock, retrying if the shard is replaced in the meantime;
+   * then rebuild the shards if they have become skewed
+   * Time complexity: O(log(number of shards)) plus the time complexity of writer, and O(N) amortized over O(N / number of shards) writes for rebuilding (N is number of nodes in the sharded tree)
+   */
+  private void writeShard(T key, Consumer<AVLTree<T,V>> writer){
+    while(true){
+      Layout current = layout;
+      Shard shard = current.shards.get(current.indexOf(key));
+      int size;
+      shard.lock.writeLock().lock();
+      try{
+        if(layout != current){
+          continue;
+        }
+        writer.accept(shard.tree);
+        size = shard.tree.size();
+        shard.size = size;
+      }
+      finally{
+        shard.lock.writeLock().unlock();
+      }
+      if(size % REBALANCE_CHECK_INTERVAL == 0){
+        rebalanceIfSkewed();
+      }
+      return;
+    }
+  }
+  
+  /**
+   * Run reader on the current layout while holding the read locks of all its shards, taken in order of their ranges, retrying if the layout is replaced in the meantime
+   * Time complexity: O(number of shards) plus the time complexity of reader
+   */
+  private <R> R readAll(Function<Layout,R> reader){
+    while(true){
+      Layout current = layout;
+      for(Shard shard : current.shards){
+        shard.lock.readLock().lock();
+      }
+      try{
+        if(layout == current){
+          return reader.apply(current);
+        }
+      }
+      finally{
+        for(Shard shard : current.shards){
+          shard.lock.readLock().unlock();
+        }
+      }
+    }
+  }
+  
+  /**
+   * Return true if the largest shard of the layout in input has at least rebalanceSize nodes and more than SKEW_FACTOR times its fair share of the nodes (should be called while holding rebalanceLock)
+   * Time complexity: O(number of shards)
+   */
+  private boolean isSkewed(Layout current){
+    long total = 0;
+    int largest = 0;
+    for(Shard shard : current.shards){
+      total += shard.size;
+      largest = Math.max(largest, shard.size);
+    }
+    return largest >= rebalanceSize && largest > SKEW_FACTOR * total / shardCount;
+  }
+  
+  /**
+   * Rebuild the shards if they are skewed and no other thread is rebuilding them: hold the write locks of all shards, split all nodes in order into shardCount shards having the same number of nodes
+   * (a shard can have more nodes so that all nodes having same key are in the same shard), then replace the layout
+   * The next rebuild waits until the largest shard has twice as many nodes as the largest new shard, so the shards cannot be rebuilt again and again when they cannot be split evenly
+   * Time complexity: O(N) (N is number of nodes in the sharded tree)
+   */
+  private void rebalanceIfSkewed(){
+    if(!rebalanceLock.tryLock()){
+      return;
+    }
+    try{
+      Layout current = layout;
+      if(!isSkewed(current)){
+        return;
+      }
+      for(Shard shard : current.shards){
+        shard.lock.writeLock().lock();
+      }
+      try{
+        // entries is used to store the entries of all shards in order, which is the inorder traversal of the sharded tree
+        List<Map.Entry<T,V>> entries = new ArrayList<Map.Entry<T,V>>();
+        for(Shard shard : current.shards){
+          shard.tree.entryIterator().forEachRemaining(entries::add);
+        }
+        List<Shard> shards = new ArrayList<Shard>(shardCount);
+        List<T> bounds = new ArrayList<T>(shardCount - 1);
+        int largest = 0;
+        for(int from = 0; from < entries.size() || shards.isEmpty(); ){
+          // to is the end of the entries of the next shard, moved forward past the entries having same key as the last one
+          int to = (shards.size() == shardCount - 1) ? entries.size() : Math.max(from + 1, (int)((long)entries.size() * (shards.size() + 1) / shardCount));
+          to = Math.min(to, entries.size());
+          while(to < entries.size() && to > 0 && entries.get(to).getKey().compareTo(entries.get(to - 1).getKey()) == 0){
+            to++;
+          }
+          if(!shards.isEmpty()){
+            bounds.add(entries.get(from).getKey());
+          }
+          AVLTree<T,V> tree = AVLTree.bulkLoad(entries.subList(from, to).iterator());
+          tree.recordInto(metrics);
+          shards.add(new Shard(tree));
+          largest = Math.max(largest, to - from);
+          from = to;
+        }
+        layout = new Layout(shards, bounds);
+        rebalanceSize = Math.max(MIN_REBALANCE_SIZE, 2 * largest);
+      }
+      finally{
+        for(Shard shard : current.shards){
+          shard.lock.writeLock().unlock();
+        }
+      }
+    }
+    finally{
+      rebalanceLock.unlock();
+    }
+  }
+  
+  /**
+   * Return the number of shards the nodes are currently split into
+   * Time complexity: O(1)
+   */
+  public int shardCount(){
+    return layout.shards.size();
+  }
+  
+  /**
+   * Return the number of nodes of each shard in order of their ranges (used by ShardedTreeTester to check how evenly the shards are split)
+   * Time complexity: O(number of shards)
+   */
+  List<Integer> shardSizes(){
+    return readAll(current -> {
+      List<Integer> sizes = new ArrayList<Integer>(current.shards.size());
+      for(Shard shard : current.shards){
+        sizes.add(shard.size);
+      }
+      return sizes;
+    });
+  }
+  
+  /**
+   * Throw IllegalStateException if the sharded tree breaks one of its invariants: there are at most shardCount shards and one bound fewer, the bounds are in increasing order,
+   * the keys of each shard are at least the bound before it and smaller than the bound after it, and the size of each shard is the number of nodes of its AVL tree (used by ShardedTreeTester)
+   * Time complexity: O(N) (N is number of nodes in the sharded tree)
+   */
+  void checkInvariants(){
+    readAll(current -> {
+      if(current.shards.size() > shardCount || current.bounds.size() != current.shards.size() - 1){
+        throw new IllegalStateException(current.shards.size() + " shards and " + current.bounds.size() + " bounds");
+      }
+      for(int i = 0; i < current.shards.size(); i++){
+        T low = (i > 0) ? current.bounds.get(i - 1) : null;
+        T high = (i < current.bounds.size()) ? current.bounds.get(i) : null;
+        if(low != null && high != null && low.compareTo(high) >= 0){
+          throw new IllegalStateException("bounds " + low + " and " + high + " are out of order");
+        }
+        Shard shard = current.shards.get(i);
+        int count = 0;
+        for(Iterator<Map.Entry<T,V>> iterator = shard.tree.entryIterator(); iterator.hasNext(); count++){
+          T key = iterator.next().getKey();
+          if((low != null && key.compareTo(low) < 0) || (high != null && key.compareTo(high) >= 0)){
+            throw new IllegalStateException("key " + key + " is outside shard " + i);
+          }
+        }
+        if(count != shard.size || count != shard.tree.size()){
+          throw new IllegalStateException("shard " + i + " has " + count + " nodes but its size is " + shard.size);
+        }
+      }
+      return null;
+    });
+  }
+  
+  /**
+   * Insert a node with key and associated value to the shard having the key while holding that shard's write lock
+   * Time complexity: O(logN) amortized (N is number of nodes in the sharded tree)
+   */
+  public void insert(T key, V value){
+    writeShard(key, tree -> tree.insert(key, value));
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return null if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the sharded tree)
+   */
+  public V search(T key){
+    return readShard(key, tree -> tree.search(key));
+  }
+  
+  /**
+   * Return true if there is a node which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: O(logN) (N is number of nodes in the sharded tree)
+   */
+  public boolean containsKey(T key){
+    return readShard(key, tree -> tree.containsKey(key));
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return defaultValue if there is no such node like that
+   * Time complexity: O(logN) (N is number of nodes in the sharded tree)
+   */
+  public V getOrDefault(T key, V defaultValue){
+    return readShard(key, tree -> tree.getOrDefault(key, defaultValue));
+  }
+  
+  /**
+   * Help method floor(T key), ceiling(T key), lower(T key) and higher(T key) by running finder on the shard having the key from input, which gives the answer if it finds an entry;
+   * otherwise, run finder on the other shards in order (to smaller keys if below is true, to larger keys otherwise) while holding the read locks of all shards, until it finds an entry
+   * Time complexity: O(logN) if the shard having the key has the entry; O(number of shards + logN) otherwise (N is number of nodes in the sharded tree)
+   */
+  private Map.Entry<T,V> findClosestEntry(T key, boolean below, Function<AVLTree<T,V>,Map.Entry<T,V>> finder){
+    Map.Entry<T,V> entry = readShard(key, finder);
+    if(entry != null){
+      return entry;
+    }
+    return readAll(current -> {
+      for(int i = current.indexOf(key); i >= 0 && i < current.shards.size(); i += below ? -1 : 1){
+        Map.Entry<T,V> closestEntry = finder.apply(current.shards.get(i).tree);
+        if(closestEntry != null){
+          return closestEntry;
+        }
+      }
+      return null;
+    });
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) if the shard having the key has the entry (N is number of nodes in the sharded tree)
+   */
+  public Map.Entry<T,V> floor(T key){
+    return findClosestEntry(key, true, tree -> tree.floor(key));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) if the shard having the key has the entry (N is number of nodes in the sharded tree)
+   */
+  public Map.Entry<T,V> ceiling(T key){
+    return findClosestEntry(key, false, tree -> tree.ceiling(key));
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) if the shard having the key has the entry (N is number of nodes in the sharded tree)
+   */
+  public Map.Entry<T,V> lower(T key){
+    return findClosestEntry(key, true, tree -> tree.lower(key));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) if the shard having the key has the entry (N is number of nodes in the sharded tree)
+   */
+  public Map.Entry<T,V> higher(T key){
+    return findClosestEntry(key, false, tree -> tree.higher(key));
+  }
+  
+  /**
+   * Return the entry with the smallest key in the sharded tree, or return null if the sharded tree is empty
+   * Time complexity: O(number of shards + logN) (N is number of nodes in the sharded tree)
+   */
+  public Map.Entry<T,V> first(){
+    return readAll(current -> {
+      for(Shard shard : current.shards){
+        if(shard.size > 0){
+          return shard.tree.first();
+        }
+      }
+      return null;
+    });
+  }
+  
+  /**
+   * Return the entry with the largest key in the sharded tree, or return null if the sharded tree is empty
+   * Time complexity: O(number of shards + logN) (N is number of nodes in the sharded tree)
+   */
+  public Map.Entry<T,V> last(){
+    return readAll(current -> {
+      for(int i = current.shards.size() - 1; i >= 0; i--){
+        if(current.shards.get(i).size > 0){
+          return current.shards.get(i).tree.last();
+        }
+      }
+      return null;
+    });
+  }
+  
+  /**
+   * Delete the node having the key that is equal to key from input if that node exists while holding the write lock of the shard having the key
+   * Time complexity: O(logN) amortized (N is number of nodes in the sharded tree)
+   */
+  public void delete(T key){
+    writeShard(key, tree -> tree.delete(key));
+  }
+  
+  /**
+   * Return the number of nodes in the sharded tree by adding the numbers of nodes of all shards while holding their read locks
+   * Time complexity: O(number of shards)
+   */
+  public int size(){
+    return readAll(current -> {
+      int size = 0;
+      for(Shard shard : current.shards){
+        size += shard.size;
+      }
+      return size;
+    });
+  }
+  
+  /**
+   * Return the largest height of the AVL trees of the shards, which is the most nodes an operation visits on the way down once it has found its shard
+   * Time complexity: O(number of shards)
+   */
+  public int height(){
+    return readAll(current -> {
+      int height = -1;
+      for(Shard shard : current.shards){
+        height = Math.max(height, shard.tree.height());
+      }
+      return height;
+    });
+  }
+  
+  /**
+   * Make the sharded tree record each insert, search and delete into the metrics from input, or stop recording if metrics is null:
+   * the AVL tree of every shard records into the metrics, so operations on different shards record at the same time (the metrics are thread-safe), and the shards of later rebuilds record into them too;
+   * the size and height of the metrics are those of the whole sharded tree
+   * Time complexity: O(number of shards)
+   */
+  public void setMetrics(TreeMetrics metrics){
+    // Hold rebalanceLock so no rebuild replaces the shards while they are set, then set the metrics of each shard while holding its write lock
+    rebalanceLock.lock();
+    try{
+      this.metrics = metrics;
+      for(Shard shard : layout.shards){
+        shard.lock.writeLock().lock();
+        try{
+          shard.tree.recordInto(metrics);
+        }
+        finally{
+          shard.lock.writeLock().unlock();
+        }
+      }
+    }
+    finally{
+      rebalanceLock.unlock();
+    }
+    if(metrics != null){
+      metrics.bind(this::size, this::height);
+    }
+  }
+  
+  /**
+   * Return an iterator visiting the values in inorder traversal of a snapshot of the sharded tree, so later changes to the tree do not affect the iterator
+   * Time complexity: O(N) (N is number of nodes in the sharded tree)
+   */
+  public Iterator<V> iterator(){
+    return inorderRec().iterator();
+  }
+  
+  /**
+   * Return an iterator visiting the values of the nodes whose keys are between from and to in inorder traversal of a snapshot of that range of the sharded tree,
+   * reading only the shards whose ranges overlap it
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   * Time complexity: O(number of shards + logN + K) (N is number of nodes in the sharded tree, K is number of values visited)
+   */
+  public Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+    return readAll(current -> {
+      // list is used to store the values in the range
+      List<V> list = new ArrayList<V>();
+      int firstShard = (from == null) ? 0 : current.indexOf(from);
+      int lastShard = (to == null) ? current.shards.size() - 1 : current.indexOf(to);
+      for(int i = firstShard; i <= lastShard; i++){
+        current.shards.get(i).tree.rangeIterator(from, fromInclusive, to, toInclusive).forEachRemaining(list::add);
+      }
+      return list;
+    }).iterator();
+  }
+  
+  /**
+   * Return the list of values in inorder traversal of the sharded tree, which is the inorder traversals of the shards one after another
+   * Time complexity: O(N) (N is number of nodes in the sharded tree)
+   */
+  public List<V> inorderRec(){
+    return readAll(current -> {
+      // list is used to store the value in each node in inorder traversal of the sharded tree, with capacity being number of nodes in the sharded tree
+      int size = 0;
+      for(Shard shard : current.shards){
+        size += shard.size;
+      }
+      List<V> list = new ArrayList<V>(size);
+      for(Shard shard : current.shards){
+        for(V value : shard.tree){
+          list.add(value);
+        }
+      }
+      return list;
+    });
+  }
+  
+  /**
+   * Find the kth smallest element in the sharded tree by skipping the shards whose nodes are all smaller, subtracting their numbers of nodes from k, then finding the remaining rank in the next shard
+   * Time complexity: O(number of shards + logN) (N is number of nodes in the sharded tree)
+   */
+  public V kthSmallest(int k){
+    return readAll(current -> {
+      int size = 0;
+      for(Shard shard : current.shards){
+        size += shard.size;
+      }
+      // If k is smaller than 1 or larger than number of nodes in the sharded tree, throw IndexOutOfBoundsException
+      if(k < 1 || k > size){
+        throw new IndexOutOfBoundsException("k: " + k + ", size: " + size);
+      }
+      // remaining is the rank of the kth smallest element among the nodes of the shards not skipped yet
+      int remaining = k;
+      for(Shard shard : current.shards){
+        if(remaining <= shard.size){
+          return shard.tree.kthSmallest(remaining);
+        }
+        remaining -= shard.size;
+      }
+      throw new IllegalStateException("k: " + k + ", size: " + size);
+    });
+  }
+  
+  /**
+   * Return the number of nodes in the sharded tree having key that is smaller than the key from input, which is the number of nodes of the shards before the shard having the key plus the rank in that shard
+   * Time complexity: O(number of shards + logN) (N is number of nodes in the sharded tree)
+   */
+  public int rank(T key){
+    return readAll(current -> {
+      int index = current.indexOf(key);
+      int count = 0;
+      for(int i = 0; i < index; i++){
+        count += current.shards.get(i).size;
+      }
+      return count + current.shards.get(index).tree.rank(key);
+    });
+  }
+  
+  /**
+   * Return the list of values of the nodes from the fromth smallest to the toth smallest element in the sharded tree (both inclusive), skipping the shards before the fromth smallest element by their numbers of nodes
+   * Time complexity: O(number of shards + logN + K) (N is number of nodes in the sharded tree, K is number of values returned)
+   */
+  public List<V> select(int from, int to){
+    return readAll(current -> {
+      int size = 0;
+      for(Shard shard : current.shards){
+        size += shard.size;
+      }
+      // If from is smaller than 1 or to is larger than number of nodes in the sharded tree, throw IndexOutOfBoundsException
+      if(from < 1 || to > size){
+        throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size);
+      }
+      // list is used to store the values of the nodes in the range
+      List<V> list = new ArrayList<V>(Math.max(to - from + 1, 0));
+      // offset is the number of nodes in the shards before the current shard
+      int offset = 0;
+      for(Shard shard : current.shards){
+        if(list.size() == Math.max(to - from + 1, 0)){
+          break;
+        }
+        // Take the part of the range which is in the current shard, using ranks within the shard
+        int shardFrom = Math.max(from - offset, 1);
+        int shardTo = Math.min(to - offset, shard.size);
+        if(shardFrom <= shardTo){
+          list.addAll(shard.tree.select(shardFrom, shardTo));
+        }
+        offset += shard.size;
+      }
+      return list;
+    });
+  }
+}
\ No newline at end of file
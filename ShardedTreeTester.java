@@ -0,0 +1,142 @@
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class ShardedTreeTester is the tester class for ShardedTree
+public class ShardedTreeTester extends TreeWithComparableKeyTester{
+  
+  /**
+   * Return a new sharded tree split into at most 4 shards, few enough for the shared tests to rebuild the shards
+   */
+  protected <T extends Comparable<? super T>,V> TreeWithComparableKey<T,V> newTree(){
+    return new ShardedTree<T,V>(4);
+  }
+  
+  /**
+   * Check the bounds of the shards, that every key is in the shard its bounds allow and the sizes of the shards of the sharded tree (see ShardedTree.checkInvariants())
+   */
+  protected void checkInvariants(TreeWithComparableKey<Integer, Integer> tree){
+    try{
+      ((ShardedTree<Integer, Integer>)tree).checkInvariants();
+    }
+    catch(IllegalStateException exception){
+      fail(exception.getMessage());
+    }
+  }
+  
+  /**
+   * Tests that sorted inserts split the tree into shards of similar sizes, and that ordered operations across the shards agree with AVLTree.
+   */
+  @Test
+  public void testShardRebalancing(){
+    ShardedTree<Integer, Integer> tree = new ShardedTree<Integer, Integer>(8);
+    AVLTree<Integer, Integer> expectedTree = new AVLTree<Integer, Integer>();
+    assertEquals(1, tree.shardCount());
+    List<Integer> sizes = tree.shardSizes();
+    int rebuilds = 0;
+    for(int i = 0; i < 100000; i++){
+      tree.insert(2 * i, 2 * i);
+      expectedTree.insert(2 * i, 2 * i);
+      // an insert changes the size of one shard, so a change to more shards or to the number of shards is a rebuild, which splits the nodes evenly
+      List<Integer> newSizes = tree.shardSizes();
+      int changed = 0;
+      for(int j = 0; j < Math.min(sizes.size(), newSizes.size()); j++){
+        if(!sizes.get(j).equals(newSizes.get(j))){
+          changed++;
+        }
+      }
+      if(changed > 1 || newSizes.size() != sizes.size()){
+        rebuilds++;
+        assertEquals(8, newSizes.size());
+        assertTrue(Collections.max(newSizes) - Collections.min(newSizes) <= 1);
+        checkInvariants(tree);
+      }
+      sizes = newSizes;
+    }
+    // sorted inserts only grow the last shard, which is split again once it has twice as many nodes as the other shards (checked every 64 changes)
+    assertTrue(rebuilds > 1);
+    assertTrue(Collections.max(sizes) <= 2 * Collections.min(sizes) + 64);
+    assertEquals(8, tree.shardCount());
+    checkInvariants(tree);
+    assertEquals(100000, tree.size());
+    assertEquals(expectedTree.inorderRec(), tree.inorderRec());
+    for(int k = 1; k <= 100000; k += 997){
+      assertEquals(expectedTree.kthSmallest(k), tree.kthSmallest(k));
+    }
+    for(int key = -1; key <= 200001; key += 1999){
+      assertEquals(expectedTree.rank(key), tree.rank(key));
+      assertEquals(expectedTree.floor(key), tree.floor(key));
+      assertEquals(expectedTree.ceiling(key), tree.ceiling(key));
+      assertEquals(expectedTree.lower(key), tree.lower(key));
+      assertEquals(expectedTree.higher(key), tree.higher(key));
+    }
+    assertEquals(expectedTree.select(12345, 87654), tree.select(12345, 87654));
+    List<Integer> result = new ArrayList<Integer>();
+    tree.rangeIterator(49999, true, 150001, false).forEachRemaining(result::add);
+    List<Integer> expectedResult = new ArrayList<Integer>();
+    expectedTree.rangeIterator(49999, true, 150001, false).forEachRemaining(expectedResult::add);
+    assertEquals(expectedResult, result);
+    assertEquals(Integer.valueOf(0), tree.first().getKey());
+    assertEquals(Integer.valueOf(199998), tree.last().getKey());
+    
+    // floor and higher of keys whose shards have no answer look in the other shards
+    for(int i = 0; i < 20000; i++){
+      tree.delete(2 * i + 40000);
+    }
+    assertEquals(Integer.valueOf(39998), tree.floor(79999).getKey());
+    assertEquals(Integer.valueOf(80000), tree.higher(40000).getKey());
+    assertEquals(80000, tree.size());
+    checkInvariants(tree);
+    
+    // nodes having same key stay in the same shard
+    ShardedTree<Integer, Integer> duplicateTree = new ShardedTree<Integer, Integer>(4);
+    for(int i = 0; i < 10000; i++){
+      duplicateTree.insert(i % 2, i);
+    }
+    assertEquals(2, duplicateTree.shardCount());
+    checkInvariants(duplicateTree);
+    assertEquals(5000, duplicateTree.rank(1));
+    assertEquals(1, duplicateTree.kthSmallest(5001) % 2);
+  }
+  
+  /**
+   * Tests that writers inserting and deleting keys in different ranges at the same time keep every key, while the shards are rebuilt.
+   */
+  @Test
+  public void testConcurrentWriters() throws InterruptedException{
+    ShardedTree<Integer, Integer> tree = new ShardedTree<Integer, Integer>(4);
+    List<Thread> writers = new ArrayList<Thread>();
+    for(int t = 0; t < 4; t++){
+      int offset = t * 1000000;
+      writers.add(new Thread(() -> {
+        for(int i = 0; i < 20000; i++){
+          tree.insert(offset + i, offset + i);
+          if(i % 2 == 1){
+            tree.delete(offset + i - 1);
+          }
+        }
+      }));
+    }
+    for(Thread writer : writers){
+      writer.start();
+    }
+    // read while the writers run, so the ordered operations see the shards being rebuilt
+    for(int i = 0; i < 200; i++){
+      List<Integer> values = tree.inorderRec();
+      for(int j = 1; j < values.size(); j++){
+        assertTrue(values.get(j - 1) < values.get(j));
+      }
+    }
+    for(Thread writer : writers){
+      writer.join();
+    }
+    assertEquals(40000, tree.size());
+    assertTrue(tree.shardCount() > 1);
+    checkInvariants(tree);
+    for(int t = 0; t < 4; t++){
+      for(int i = 0; i < 20000; i++){
+        assertEquals((i % 2 == 1) ? Integer.valueOf(t * 1000000 + i) : null, tree.search(t * 1000000 + i));
+      }
+    }
+    assertEquals(Integer.valueOf(1000001), tree.kthSmallest(10001));
+  }
+}
\ No newline at end of file
@@ -0,0 +1,696 @@
+import java.util.*;
+// Class SplayTree is the self-adjusting tree in which each node k being larger than k's left subtree's nodes and smaller than or equal to k's right subtree's nodes;
+// every operation moves the node it reaches to root by rotations (splaying), so frequently used keys stay close to root and a skewed sequence of lookups takes less than O(logN) per lookup on average
+// Since lookups change the shape of the tree, the splay tree is not safe to read from several threads, and an iterator should not be used after a later operation other than the iterator's own
+public class SplayTree<T extends Comparable<? super T>,V> implements TreeWithComparableKey<T,V>{
+  
+  // Class Node is used for the node in the splay tree
+  private class Node<T,V>{
+    
+    // the key stored in the node (the key is comparable)
+    private T key;
+    
+    // the value stored in the node
+    private V value;
+    
+    // the number of nodes in the subtree rooted at the node (including the node itself)
+    private int size;
+    
+    // the left child of the node
+    private Node<T,V> left;
+    
+    // the right child of the node
+    private Node<T,V> right;
+    
+    /**
+     * Initialize the node with initialization of node's key and node's value
+     */
+    private Node(T key, V value){
+      this.key = key;
+      this.value = value;
+      this.size = 1;
+    }
+  }
+  
+  // the root of the splay tree
+  private Node<T,V> root;
+  
+  // the metrics recording each insert, search and delete (null if the splay tree does not record metrics)
+  private TreeMetrics metrics;
+  
+  /**
+   * Initialize the splay tree with root being null
+   */
+  public SplayTree(){
+    root = null;
+  }
+  
+  /**
+   * Return the size of the subtree rooted at the node in input
+   * Time complexity: O(1)
+   */
+  private int getNodeSize(Node<T,V> node){
+    // If node in input is null, return 0
+    if(node == null){
+      return 0;
+    }
+    // Otherwise, return node's size
+    else{
+      return node.size;
+    }
+  }
+  
+  /**
+   * Update the size of the node in input after making change to tree (should be updated after that node's children's sizes are updated)
+   * Time complexity: O(1)
+   */
+  private void updateNodeSize(Node<T,V> node){
+    node.size = getNodeSize(node.left) + getNodeSize(node.right) + 1;
+  }
+  
+  /**
+   * Do a left rotation around the node in input
+   * Time complexity: O(1)
+   */
+  private Node<T,V> leftRotate(Node<T,V> node){
+    Node<T,V> rotatedNode = node.right;
+    Node<T,V> movedNode = rotatedNode.left;
+    rotatedNode.left = node;
+    node.right = movedNode;
+    updateNodeSize(node);
+    updateNodeSize(rotatedNode);
+    return rotatedNode;
+  }
+  
+  /**
+   * Do a right rotation around the node in input
+   * Time complexity: O(1)
+   */
+  private Node<T,V> rightRotate(Node<T,V> node){
+    Node<T,V> rotatedNode = node.left;
+    Node<T,V> movedNode = rotatedNode.right;
+    rotatedNode.right = node;
+    node.left = movedNode;
+    updateNodeSize(node);
+    updateNodeSize(rotatedNode);
+    return rotatedNode;
+  }
+  
+  /**
+   * Move the node in input up to the top of path by rotations and return it, with path storing the nodes on the way from the top node to the parent of the node in input
+   * (the top of path is the parent); path is emptied, and the caller should put the returned node where the bottom node of path was
+   * Each step handles the parent and the grandparent together: if node and parent are children on the same side (zig-zig), rotate around grandparent first and then around parent;
+   * otherwise (zig-zag), rotate around parent first and then around grandparent; a last single rotation (zig) is done when only the parent is left
+   * Time complexity: O(length of path), which is O(logN) amortized over a sequence of operations (N is number of nodes in the splay tree)
+   */
+  private Node<T,V> splay(Deque<Node<T,V>> path, Node<T,V> node){
+    while(!path.isEmpty()){
+      Node<T,V> parent = path.pop();
+      // top is the root of the subtree which node replaces in this step
+      Node<T,V> top;
+      if(path.isEmpty()){
+        top = parent;
+        node = (parent.left == node) ? rightRotate(parent) : leftRotate(parent);
+      }
+      else{
+        Node<T,V> grandparent = path.pop();
+        top = grandparent;
+        if(grandparent.left == parent){
+          if(parent.left == node){
+            rightRotate(grandparent);
+            node = rightRotate(parent);
+          }
+          else{
+            grandparent.left = leftRotate(parent);
+            node = rightRotate(grandparent);
+          }
+        }
+        else{
+          if(parent.right == node){
+            leftRotate(grandparent);
+            node = leftRotate(parent);
+          }
+          else{
+            grandparent.right = rightRotate(parent);
+            node = leftRotate(grandparent);
+          }
+        }
+      }
+      // Set node as the child of the next node in path in place of top
+      if(!path.isEmpty()){
+        if(path.peek().left == top){
+          path.peek().left = node;
+        }
+        else{
+          path.peek().right = node;
+        }
+      }
+    }
+    return node;
+  }
+  
+  /**
+   * Splay the last node of path (the top of path) to root, where path stores the nodes on the way from root; do nothing if path is empty
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  private void splayLast(Deque<Node<T,V>> path){
+    if(!path.isEmpty()){
+      Node<T,V> node = path.pop();
+      root = splay(path, node);
+    }
+  }
+  
+  /**
+   * Insert a node with key and associated value to the splay tree, then splay the new node to root
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public void insert(T key, V value){
+    // start is the time the insert starts if the splay tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // nodeToInsert is the new node with input key and input value
+    Node<T,V> nodeToInsert = new Node<T,V>(key, value);
+    // If the splay tree is empty, set root as nodeToInsert
+    if(root == null){
+      root = nodeToInsert;
+      record(TreeMetrics.Operation.INSERT, start, 0, 0, 0);
+      return;
+    }
+    // path is used to store the nodes on the way from root to the new node's parent
+    Deque<Node<T,V>> path = new ArrayDeque<Node<T,V>>();
+    // pointer is used to go down in the splay tree based on the input key
+    Node<T,V> pointer = root;
+    // goRight stores whether the last move of pointer is to the right
+    boolean goRight = false;
+    /**
+     * Use pointer to go down in the splay tree until it is null (if input key is larger than or equal to pointer's key, go to the right; otherwise, go to the left);
+     * push each node on the way to path and increase its size since the new node will be in its subtree
+     */
+    while(pointer != null){
+      pointer.size++;
+      path.push(pointer);
+      goRight = key.compareTo(pointer.key) >= 0;
+      pointer = goRight ? pointer.right : pointer.left;
+    }
+    // Set nodeToInsert as the child of the last node on the way, then splay nodeToInsert to root
+    if(goRight){
+      path.peek().right = nodeToInsert;
+    }
+    else{
+      path.peek().left = nodeToInsert;
+    }
+    // depth is the number of nodes on the way, each compared once with input key and each rotated once to splay nodeToInsert above it
+    int depth = path.size();
+    root = splay(path, nodeToInsert);
+    record(TreeMetrics.Operation.INSERT, start, depth, depth, depth);
+  }
+  
+  /**
+   * Help method search(T key), containsKey(T key) and getOrDefault(T key, V defaultValue) by going down in the splay tree with a loop until pointer is null or reaching the node that has same key as key from input;
+   * splay the node reached (or the last node on the way when there is no such node) to root and return root if it has same key as key from input, or return null otherwise;
+   * the search is recorded into metrics if the splay tree records metrics
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  private Node<T,V> findNode(T key){
+    // start is the time the search starts if the splay tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // depth is used to count the nodes on the way, each compared once with key from input
+    int[] depth = new int[1];
+    Node<T,V> node = findNode(key, depth);
+    // Splaying the last node on the way rotates it once above each other node on the way
+    record(TreeMetrics.Operation.SEARCH, start, depth[0], Math.max(depth[0] - 1, 0), depth[0]);
+    return node;
+  }
+  
+  /**
+   * Go down in the splay tree and splay as findNode(T key) does without recording into metrics, storing the number of nodes on the way in depth[0]
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  private Node<T,V> findNode(T key, int[] depth){
+    // path is used to store the nodes on the way from root
+    Deque<Node<T,V>> path = new ArrayDeque<Node<T,V>>();
+    // pointer is used to go down in the splay tree based on the key from input
+    Node<T,V> pointer = root;
+    while(pointer != null){
+      path.push(pointer);
+      // comparison stores the result of comparing key from input with pointer's key
+      int comparison = key.compareTo(pointer.key);
+      // If key from input is equal to pointer's key, stop at pointer
+      if(comparison == 0){
+        break;
+      }
+      // Otherwise, if key from input is larger than pointer's key, go to the right; otherwise, go to the left
+      pointer = (comparison > 0) ? pointer.right : pointer.left;
+    }
+    depth[0] = path.size();
+    splayLast(path);
+    return (pointer != null) ? root : null;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return null if there is no such node like that
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public V search(T key){
+    return getOrDefault(key, null);
+  }
+  
+  /**
+   * Return true if key is larger than bound, or if inclusive is true and key is equal to bound; return false otherwise
+   * Time complexity: O(1)
+   */
+  private boolean isAbove(T key, T bound, boolean inclusive){
+    int comparison = key.compareTo(bound);
+    return comparison > 0 || (inclusive && comparison == 0);
+  }
+  
+  /**
+   * Help method floor(T key), ceiling(T key), lower(T key) and higher(T key) by going down in the splay tree to find the closest node to key from input:
+   * if below is true, return the node with the largest key which is smaller than key from input (or equal to it when inclusive is true);
+   * otherwise, return the node with the smallest key which is larger than key from input (or equal to it when inclusive is true);
+   * return null if there is no such node like that; the last node on the way is splayed to root
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  private Node<T,V> findClosestNode(T key, boolean below, boolean inclusive){
+    // closestNode is used to store the closest node found which satisfies the condition
+    Node<T,V> closestNode = null;
+    // path is used to store the nodes on the way from root
+    Deque<Node<T,V>> path = new ArrayDeque<Node<T,V>>();
+    // pointer is used to go down in the splay tree based on the key from input
+    Node<T,V> pointer = root;
+    /**
+     * If pointer satisfies the condition, store it in closestNode and go to the side where closer nodes can be (the right if below is true, the left otherwise);
+     * otherwise, go to the other side
+     */
+    while(pointer != null){
+      path.push(pointer);
+      boolean satisfied = below ? isAbove(key, pointer.key, inclusive) : isAbove(pointer.key, key, inclusive);
+      if(satisfied){
+        closestNode = pointer;
+      }
+      pointer = (satisfied == below) ? pointer.right : pointer.left;
+    }
+    splayLast(path);
+    return closestNode;
+  }
+  
+  /**
+   * Return an entry with key and value of the node in input, or return null if node in input is null
+   * Time complexity: O(1)
+   */
+  private Map.Entry<T,V> toEntry(Node<T,V> node){
+    return (node != null) ? new AbstractMap.SimpleImmutableEntry<T,V>(node.key, node.value) : null;
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public Map.Entry<T,V> floor(T key){
+    return toEntry(findClosestNode(key, true, true));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public Map.Entry<T,V> ceiling(T key){
+    return toEntry(findClosestNode(key, false, true));
+  }
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public Map.Entry<T,V> lower(T key){
+    return toEntry(findClosestNode(key, true, false));
+  }
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public Map.Entry<T,V> higher(T key){
+    return toEntry(findClosestNode(key, false, false));
+  }
+  
+  /**
+   * Go down from root to the leftmost node (if left is true) or the rightmost node (otherwise) and splay it to root; return root, or null if the splay tree is empty
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  private Node<T,V> splayEnd(boolean left){
+    // path is used to store the nodes on the way from root
+    Deque<Node<T,V>> path = new ArrayDeque<Node<T,V>>();
+    for(Node<T,V> pointer = root; pointer != null; pointer = left ? pointer.left : pointer.right){
+      path.push(pointer);
+    }
+    splayLast(path);
+    return root;
+  }
+  
+  /**
+   * Return the entry with the smallest key in the splay tree, or return null if the splay tree is empty
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public Map.Entry<T,V> first(){
+    return toEntry(splayEnd(true));
+  }
+  
+  /**
+   * Return the entry with the largest key in the splay tree, or return null if the splay tree is empty
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public Map.Entry<T,V> last(){
+    return toEntry(splayEnd(false));
+  }
+  
+  /**
+   * Return true if there is a node which has key that is equal to the key from input, or return false otherwise
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public boolean containsKey(T key){
+    return findNode(key) != null;
+  }
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return defaultValue if there is no such node like that
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public V getOrDefault(T key, V defaultValue){
+    // node is the first node encountered which has key that is equal to key from input, or null if there is no such node like that
+    Node<T,V> node = findNode(key);
+    return (node != null) ? node.value : defaultValue;
+  }
+  
+  /**
+   * Delete the node having the key that is equal to key from input if that node exists: splay that node to root,
+   * then splay the node with the largest key of root's left subtree to the top of that subtree, which then has no right child, and set root's right subtree as its right subtree
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public void delete(T key){
+    // start is the time the delete starts if the splay tree records metrics
+    long start = (metrics != null) ? System.nanoTime() : 0L;
+    // depth is used to count the nodes on the way, each compared once with key from input, and rotations is the number of rotations of the first splay
+    int[] depth = new int[1];
+    Node<T,V> node = findNode(key, depth);
+    int rotations = Math.max(depth[0] - 1, 0);
+    // If there is no node having key that is equal to key from input, do nothing (the last node on the way is still splayed to root)
+    if(node == null){
+      record(TreeMetrics.Operation.DELETE, start, depth[0], rotations, depth[0]);
+      return;
+    }
+    // If root has no left child, its right child becomes root
+    if(root.left == null){
+      root = root.right;
+      record(TreeMetrics.Operation.DELETE, start, depth[0], rotations, depth[0]);
+      return;
+    }
+    // path is used to store the nodes on the way from root's left child to its rightmost descendant
+    Deque<Node<T,V>> path = new ArrayDeque<Node<T,V>>();
+    Node<T,V> pointer = root.left;
+    while(pointer.right != null){
+      path.push(pointer);
+      pointer = pointer.right;
+    }
+    rotations += path.size();
+    Node<T,V> newRoot = splay(path, pointer);
+    newRoot.right = root.right;
+    updateNodeSize(newRoot);
+    root = newRoot;
+    record(TreeMetrics.Operation.DELETE, start, depth[0], rotations, depth[0]);
+  }
+  
+  // Class InorderIterator is used to lazily visit the values of the nodes in inorder traversal of the splay tree by using a stack instead of recursion
+  private class InorderIterator implements Iterator<V>{
+    
+    // the stack storing the nodes whose values are not visited yet but whose left subtrees are being visited (the top of the stack is the next node to visit)
+    private Deque<Node<T,V>> stack;
+    
+    // the largest key allowed to visit (null if there is no upper bound)
+    private T to;
+    
+    // whether the key that is equal to to is allowed to visit
+    private boolean toInclusive;
+    
+    /**
+     * Initialize the iterator to start from the smallest node of the splay tree
+     */
+    private InorderIterator(){
+      stack = new ArrayDeque<Node<T,V>>();
+      pushLeftPath(root);
+    }
+    
+    /**
+     * Initialize the iterator to start from the kth smallest node of the splay tree (k should be from 1 to number of nodes in the splay tree),
+     * by using the size of each node's subtree to go down in the splay tree and pushing each node on the way where the next move is to the left
+     * Time complexity: O(height of the splay tree)
+     */
+    private InorderIterator(int k){
+      stack = new ArrayDeque<Node<T,V>>();
+      Node<T,V> pointer = root;
+      while(pointer != null){
+        int pointerRank = getNodeSize(pointer.left) + 1;
+        if(k == pointerRank){
+          stack.push(pointer);
+          pointer = null;
+        }
+        else if(k < pointerRank){
+          stack.push(pointer);
+          pointer = pointer.left;
+        }
+        else{
+          k -= pointerRank;
+          pointer = pointer.right;
+        }
+      }
+    }
+    
+    /**
+     * Initialize the iterator to visit only the nodes whose keys are between from and to (null from or null to means there is no lower bound or upper bound respectively),
+     * by going down in the splay tree and pushing each node on the way whose key is not smaller than the lower bound, where the next move is to the left
+     * Time complexity: O(height of the splay tree)
+     */
+    private InorderIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+      stack = new ArrayDeque<Node<T,V>>();
+      this.to = to;
+      this.toInclusive = toInclusive;
+      Node<T,V> pointer = root;
+      while(pointer != null){
+        if(from == null || isAbove(pointer.key, from, fromInclusive)){
+          stack.push(pointer);
+          pointer = pointer.left;
+        }
+        else{
+          pointer = pointer.right;
+        }
+      }
+    }
+    
+    /**
+     * Push the node in input and its left descendants to the stack
+     */
+    private void pushLeftPath(Node<T,V> node){
+      while(node != null){
+        stack.push(node);
+        node = node.left;
+      }
+    }
+    
+    /**
+     * Return true if there is a node whose value is not visited yet and whose key is not larger than the upper bound, or return false otherwise
+     * Time complexity: O(1)
+     */
+    public boolean hasNext(){
+      return !stack.isEmpty() && (to == null || isAbove(to, stack.peek().key, toInclusive));
+    }
+    
+    /**
+     * Return the value of the next node in inorder traversal, then push the right child of that node and its left descendants to the stack
+     * Time complexity: O(1) on average over the whole traversal
+     */
+    public V next(){
+      // If there is no node which is not visited yet, throw NoSuchElementException
+      if(!hasNext()){
+        throw new NoSuchElementException();
+      }
+      Node<T,V> node = stack.pop();
+      pushLeftPath(node.right);
+      return node.value;
+    }
+  }
+  
+  /**
+   * Return the height of the splay tree (the number of edges on the longest path from root, -1 if the splay tree is empty) by visiting the nodes level by level without recursion
+   * Time complexity: O(N) (N is number of nodes in the splay tree)
+   */
+  public int height(){
+    int height = -1;
+    // level is used to store the nodes of the current level
+    List<Node<T,V>> level = new ArrayList<Node<T,V>>();
+    if(root != null){
+      level.add(root);
+    }
+    while(!level.isEmpty()){
+      height++;
+      List<Node<T,V>> nextLevel = new ArrayList<Node<T,V>>();
+      for(Node<T,V> node : level){
+        if(node.left != null){
+          nextLevel.add(node.left);
+        }
+        if(node.right != null){
+          nextLevel.add(node.right);
+        }
+      }
+      level = nextLevel;
+    }
+    return height;
+  }
+  
+  /**
+   * Make the splay tree record each insert, search and delete into the metrics from input, or stop recording if metrics is null;
+   * while no metrics are set, each operation only checks that metrics is null (the rotations recorded for a search are the rotations of its splay)
+   */
+  public void setMetrics(TreeMetrics metrics){
+    if(metrics != null){
+      metrics.bind(this::size, this::height);
+    }
+    this.metrics = metrics;
+  }
+  
+  /**
+   * Help method insert(T key, V value), delete(T key) and findNode(T key) by recording an operation which started at start and made the numbers of comparisons and rotations and visited the depth in input;
+   * do nothing if the splay tree does not record metrics
+   * Time complexity: O(1)
+   */
+  private void record(TreeMetrics.Operation operation, long start, int comparisons, int rotations, int depth){
+    if(metrics != null){
+      metrics.record(operation, System.nanoTime() - start, comparisons, rotations, depth);
+    }
+  }
+  
+  /**
+   * Return the number of nodes in the splay tree
+   * Time complexity: O(1)
+   */
+  public int size(){
+    return getNodeSize(root);
+  }
+  
+  /**
+   * Return an iterator visiting the values in inorder traversal of the splay tree lazily, without copying them to a list (the iterator does not splay)
+   * Time complexity: O(1) to create the iterator; the iterator's stack takes O(height of the splay tree) memory
+   */
+  public Iterator<V> iterator(){
+    return new InorderIterator();
+  }
+  
+  /**
+   * Return an iterator visiting the values of the nodes whose keys are between from and to in inorder traversal of the splay tree lazily (the iterator does not splay)
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   * Time complexity: O(height of the splay tree + K) (K is number of values visited)
+   */
+  public Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive){
+    return new InorderIterator(from, fromInclusive, to, toInclusive);
+  }
+  
+  /**
+   * Return the list of values in inorder traversal of the splay tree by using iterator()
+   * Time complexity: O(N) (N is number of nodes in the splay tree)
+   */
+  public List<V> inorderRec(){
+    // list is used to store the value in each node in inorder traversal of the splay tree, with capacity being number of nodes in the splay tree
+    List<V> list = new ArrayList<V>(size());
+    for(V value : this){
+      list.add(value);
+    }
+    return list;
+  }
+  
+  /**
+   * Find the kth smallest element in the splay tree by using the size of each node's subtree to go down in the splay tree, then splay the node found to root
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public V kthSmallest(int k){
+    // If k is smaller than 1 or larger than number of nodes in the splay tree, throw IndexOutOfBoundsException
+    if(k < 1 || k > getNodeSize(root)){
+      throw new IndexOutOfBoundsException("k: " + k + ", size: " + getNodeSize(root));
+    }
+    // path is used to store the nodes on the way from root
+    Deque<Node<T,V>> path = new ArrayDeque<Node<T,V>>();
+    // pointer is used to go down in the splay tree based on k
+    Node<T,V> pointer = root;
+    /**
+     * Compare k with the rank of pointer in pointer's subtree (size of pointer's left subtree plus 1):
+     * if k is equal to that rank, pointer is the node to find;
+     * if k is smaller than that rank, go to the left;
+     * otherwise, subtract that rank from k and go to the right
+     */
+    while(true){
+      path.push(pointer);
+      int pointerRank = getNodeSize(pointer.left) + 1;
+      if(k == pointerRank){
+        break;
+      }
+      else if(k < pointerRank){
+        pointer = pointer.left;
+      }
+      else{
+        k -= pointerRank;
+        pointer = pointer.right;
+      }
+    }
+    splayLast(path);
+    return root.value;
+  }
+  
+  /**
+   * Return the number of nodes in the splay tree having key that is smaller than the key from input, then splay the last node on the way to root
+   * Time complexity: O(logN) amortized (N is number of nodes in the splay tree)
+   */
+  public int rank(T key){
+    // count is used to store the number of nodes found having key that is smaller than the key from input
+    int count = 0;
+    // path is used to store the nodes on the way from root
+    Deque<Node<T,V>> path = new ArrayDeque<Node<T,V>>();
+    // pointer is used to go down in the splay tree based on the key from input
+    Node<T,V> pointer = root;
+    /**
+     * If key from input is smaller than or equal to pointer's key, go to the left;
+     * otherwise, pointer and pointer's left subtree are all smaller than key from input, so add them to count and go to the right
+     */
+    while(pointer != null){
+      path.push(pointer);
+      if(key.compareTo(pointer.key) <= 0){
+        pointer = pointer.left;
+      }
+      else{
+        count += getNodeSize(pointer.left) + 1;
+        pointer = pointer.right;
+      }
+    }
+    splayLast(path);
+    return count;
+  }
+  
+  /**
+   * Return the list of values of the nodes from the fromth smallest to the toth smallest element in the splay tree (both inclusive)
+   * The fromth smallest node is splayed to root first, so the iterator starting from it takes O(1) to create
+   * Time complexity: O(logN + K) amortized (N is number of nodes in the splay tree, K is number of values returned)
+   */
+  public List<V> select(int from, int to){
+    // If from is smaller than 1 or to is larger than number of nodes in the splay tree, throw IndexOutOfBoundsException
+    if(from < 1 || to > size()){
+      throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size());
+    }
+    // list is used to store the values of the nodes in the range
+    List<V> list = new ArrayList<V>(Math.max(to - from + 1, 0));
+    // If the range is not empty, use an iterator starting from the fromth smallest node to add (to - from + 1) values to list
+    if(from <= to){
+      kthSmallest(from);
+      Iterator<V> iterator = new InorderIterator(from);
+      for(int i = from; i <= to; i++){
+        list.add(iterator.next());
+      }
+    }
+    return list;
+  }
+}
\ No newline at end of file
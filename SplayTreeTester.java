@@ -0,0 +1,112 @@
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class SplayTreeTester is the tester class for SplayTree
+public class SplayTreeTester extends TreeWithComparableKeyTester{
+  
+  protected <T extends Comparable<? super T>,V> TreeWithComparableKey<T,V> newTree(){
+    return new SplayTree<T,V>();
+  }
+  
+  /**
+   * Check that the inorder traversal of the splay tree is in nondecreasing order of key (the tests only insert nodes whose value is their key) and agrees with its size
+   */
+  protected void checkInvariants(TreeWithComparableKey<Integer, Integer> tree){
+    Integer previous = null;
+    for(Integer value : tree.inorderRec()){
+      assertTrue(previous == null || previous <= value);
+      previous = value;
+    }
+    assertEquals(tree.size(), tree.inorderRec().size());
+  }
+  
+  /**
+   * Return the number of nodes the search of the key in input visits in the splay tree, which splays the key found to root, as recorded by the metrics of the splay tree
+   */
+  private long searchDepth(SplayTree<Integer, Integer> tree, TreeMetrics metrics, int key){
+    metrics.reset();
+    assertEquals(Integer.valueOf(key), tree.search(key));
+    return metrics.depth(TreeMetrics.Operation.SEARCH).max();
+  }
+  
+  /**
+   * Tests that search, containsKey, getOrDefault and insert move the node they find or insert to the root of SplayTree.
+   */
+  @Test
+  public void testSplayToRoot(){
+    SplayTree<Integer, Integer> tree = new SplayTree<Integer, Integer>();
+    TreeMetrics metrics = new TreeMetrics();
+    tree.setMetrics(metrics);
+    
+    // sorted inserts splay each new node to root, so the older nodes form a path to the left
+    for(int i = 0; i < 100; i++){
+      tree.insert(i, i);
+    }
+    assertEquals(99, tree.height());
+    assertEquals(1, searchDepth(tree, metrics, 99));
+    
+    // the deepest node is found at the end of the path, then is root
+    assertEquals(100, searchDepth(tree, metrics, 0));
+    assertEquals(1, searchDepth(tree, metrics, 0));
+    
+    // containsKey and getOrDefault splay the node they find too
+    assertTrue(tree.containsKey(50));
+    assertEquals(1, searchDepth(tree, metrics, 50));
+    assertEquals(Integer.valueOf(75), tree.getOrDefault(75, -1));
+    assertEquals(1, searchDepth(tree, metrics, 75));
+    
+    // the inserted node is root after insert
+    tree.insert(-1, -1);
+    assertEquals(1, searchDepth(tree, metrics, -1));
+  }
+  
+  /**
+   * Tests that accessing the same few keys again and again moves them near the root of SplayTree and makes it shallower.
+   */
+  @Test
+  public void testRepeatedAccess(){
+    SplayTree<Integer, Integer> tree = new SplayTree<Integer, Integer>();
+    TreeMetrics metrics = new TreeMetrics();
+    tree.setMetrics(metrics);
+    for(int i = 0; i < 1000; i++){
+      tree.insert(i, i);
+    }
+    assertEquals(999, tree.height());
+    
+    // splaying the deepest node about halves the depth of every node on its path
+    assertEquals(1000, searchDepth(tree, metrics, 0));
+    assertTrue(tree.height() <= 501);
+    
+    // after a few rounds over 9 keys, each of them is found within a few levels of root, and the path left by the sorted inserts is gone
+    long firstRound = 0;
+    long lastRound = 0;
+    for(int round = 0; round < 5; round++){
+      long depth = 0;
+      for(int key = 100; key < 1000; key += 100){
+        depth = Math.max(depth, searchDepth(tree, metrics, key));
+      }
+      if(round == 0){
+        firstRound = depth;
+      }
+      lastRound = depth;
+    }
+    assertTrue(firstRound > 100);
+    assertTrue(lastRound <= 12);
+    assertTrue(tree.height() <= 100);
+  }
+  
+  /**
+   * Tests that SplayTree handles a long sequence of sorted inserts and lookups, which splaying keeps from taking O(N) on average.
+   */
+  @Test
+  public void testSortedInsertsAndLookups(){
+    SplayTree<Integer, Integer> tree = new SplayTree<Integer, Integer>();
+    for(int i = 0; i < 100000; i++){
+      tree.insert(i, i);
+    }
+    for(int i = 0; i < 100000; i++){
+      assertEquals(Integer.valueOf(i), tree.search(i));
+    }
+    assertEquals(Integer.valueOf(50000), tree.kthSmallest(50001));
+    assertEquals(100000, tree.inorderRec().size());
+  }
+}
\ No newline at end of file
@@ -0,0 +1,311 @@
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+// Class TreeMetrics is used to record the latency, the number of comparisons, the number of rotations and the depth reached by each operation of a tree, together with the tree's current height and size
+// A tree records into the metrics only after setMetrics(TreeMetrics metrics) is called on it; without metrics, each operation only checks that the metrics are null
+// The values are recorded in histograms whose buckets grow with the values (like HdrHistogram), so a histogram takes fixed memory and any percentile is found within about 1.6 percent
+public class TreeMetrics{
+  
+  // Enum Operation is used to choose the kind of operation recorded
+  public enum Operation{
+    // insert(T key, V value)
+    INSERT,
+    
+    // search(T key), containsKey(T key) and getOrDefault(T key, V defaultValue)
+    SEARCH,
+    
+    // delete(T key)
+    DELETE
+  }
+  
+  // Class Histogram is used to count recorded values in buckets: each value smaller than 2^SUB_BUCKET_BITS has its own bucket,
+  // and each larger power of 2 is split into 2^(SUB_BUCKET_BITS - 1) buckets of equal width, so a bucket's width is at most 1/2^(SUB_BUCKET_BITS - 1) of the values in it
+  public static class Histogram{
+    
+    // the number of bits of a value kept by its bucket
+    private static final int SUB_BUCKET_BITS = 7;
+    
+    // the number of values having their own bucket
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    
+    // the number of buckets each larger power of 2 is split into
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    
+    // the number of recorded values in each bucket
+    private final AtomicLongArray counts;
+    
+    // the number of recorded values
+    private final LongAdder count;
+    
+    // the sum of recorded values
+    private final LongAdder sum;
+    
+    // the largest recorded value
+    private final LongAccumulator max;
+    
+    /**
+     * Initialize the histogram with enough buckets for every nonnegative long
+     */
+    private Histogram(){
+      counts = new AtomicLongArray(SUB_BUCKET_COUNT + (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT);
+      count = new LongAdder();
+      sum = new LongAdder();
+      max = new LongAccumulator(Math::max, 0L);
+    }
+    
+    /**
+     * Return the index of the bucket of the value in input (the value should not be negative)
+     * Time complexity: O(1)
+     */
+    private static int bucketIndex(long value){
+      if(value < SUB_BUCKET_COUNT){
+        return (int)value;
+      }
+      // shift is the number of lowest bits of value dropped by its bucket, so value >>> shift keeps the SUB_BUCKET_BITS highest bits of value
+      int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+      return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT + (int)(value >>> shift) - HALF_SUB_BUCKET_COUNT;
+    }
+    
+    /**
+     * Return the largest value in the bucket with the index in input
+     * Time complexity: O(1)
+     */
+    private static long bucketMaxValue(int index){
+      if(index < SUB_BUCKET_COUNT){
+        return index;
+      }
+      int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+      long highBits = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+      return ((highBits + 1) << shift) - 1;
+    }
+    
+    /**
+     * Record the value in input (a negative value is recorded as 0)
+     * Time complexity: O(1)
+     */
+    public void record(long value){
+      value = Math.max(value, 0L);
+      counts.incrementAndGet(bucketIndex(value));
+      count.increment();
+      sum.add(value);
+      max.accumulate(value);
+    }
+    
+    /**
+     * Return the number of recorded values
+     * Time complexity: O(number of threads recording)
+     */
+    public long count(){
+      return count.sum();
+    }
+    
+    /**
+     * Return the mean of recorded values, or 0 if no value is recorded
+     * Time complexity: O(number of threads recording)
+     */
+    public double mean(){
+      long recorded = count.sum();
+      return (recorded == 0) ? 0 : (double)sum.sum() / recorded;
+    }
+    
+    /**
+     * Return the largest recorded value, or 0 if no value is recorded
+     * Time complexity: O(number of threads recording)
+     */
+    public long max(){
+      return max.get();
+    }
+    
+    /**
+     * Return the smallest value such that at least percentile percent of recorded values are in the buckets up to that value's bucket (the largest value of that bucket is returned),
+     * or 0 if no value is recorded
+     * Time complexity: O(number of buckets)
+     */
+    public long valueAtPercentile(double percentile){
+      // If percentile is not between 0 and 100, throw IllegalArgumentException
+      if(percentile < 0 || percentile > 100){
+        throw new IllegalArgumentException("percentile: " + percentile);
+      }
+      // total is the number of values in the buckets, and target is the number of values that should be covered
+      long total = 0;
+      for(int i = 0; i < counts.length(); i++){
+        total += counts.get(i);
+      }
+      long target = Math.max((long)Math.ceil(total * percentile / 100), 1L);
+      long covered = 0;
+      for(int i = 0; i < counts.length(); i++){
+        covered += counts.get(i);
+        if(covered >= target){
+          return Math.min(bucketMaxValue(i), max());
+        }
+      }
+      return 0;
+    }
+    
+    /**
+     * Remove all recorded values
+     */
+    private void reset(){
+      for(int i = 0; i < counts.length(); i++){
+        counts.set(i, 0L);
+      }
+      count.reset();
+      sum.reset();
+      max.reset();
+    }
+  }
+  
+  // Class OperationMetrics is used to store the histograms of one kind of operation
+  private static class OperationMetrics{
+    
+    // the latency in nanoseconds
+    private final Histogram latency = new Histogram();
+    
+    // the number of calls to compareTo
+    private final Histogram comparisons = new Histogram();
+    
+    // the number of rotations
+    private final Histogram rotations = new Histogram();
+    
+    // the number of nodes visited on the way down from root
+    private final Histogram depth = new Histogram();
+  }
+  
+  // the histograms of each kind of operation
+  private final Map<Operation,OperationMetrics> operations;
+  
+  // the supplier of the current size of the tree (null until a tree uses the metrics)
+  private volatile IntSupplier size;
+  
+  // the supplier of the current height of the tree (null until a tree uses the metrics)
+  private volatile IntSupplier height;
+  
+  /**
+   * Initialize the metrics with empty histograms
+   */
+  public TreeMetrics(){
+    operations = new EnumMap<Operation,OperationMetrics>(Operation.class);
+    for(Operation operation : Operation.values()){
+      operations.put(operation, new OperationMetrics());
+    }
+  }
+  
+  /**
+   * Set the suppliers of the current size and height of the tree recording into the metrics (called by the tree's setMetrics(TreeMetrics metrics))
+   */
+  void bind(IntSupplier size, IntSupplier height){
+    this.size = size;
+    this.height = height;
+  }
+  
+  /**
+   * Return the supplier of the current height of the tree (null until a tree uses the metrics), so a wrapper can bind a height reading it under the wrapper's lock
+   */
+  IntSupplier heightSupplier(){
+    return height;
+  }
+  
+  /**
+   * Record one operation with its latency in nanoseconds, its number of comparisons, its number of rotations and the number of nodes visited on the way down from root
+   * Time complexity: O(1)
+   */
+  public void record(Operation operation, long latency, int comparisons, int rotations, int depth){
+    OperationMetrics metrics = operations.get(operation);
+    metrics.latency.record(latency);
+    metrics.comparisons.record(comparisons);
+    metrics.rotations.record(rotations);
+    metrics.depth.record(depth);
+  }
+  
+  /**
+   * Return the histogram of latencies in nanoseconds of the operation in input
+   */
+  public Histogram latency(Operation operation){
+    return operations.get(operation).latency;
+  }
+  
+  /**
+   * Return the histogram of numbers of comparisons of the operation in input
+   */
+  public Histogram comparisons(Operation operation){
+    return operations.get(operation).comparisons;
+  }
+  
+  /**
+   * Return the histogram of numbers of rotations of the operation in input
+   */
+  public Histogram rotations(Operation operation){
+    return operations.get(operation).rotations;
+  }
+  
+  /**
+   * Return the histogram of numbers of nodes visited on the way down from root by the operation in input
+   */
+  public Histogram depth(Operation operation){
+    return operations.get(operation).depth;
+  }
+  
+  /**
+   * Return the current number of nodes of the tree, or 0 if no tree uses the metrics
+   * Time complexity: the time complexity of the tree's size()
+   */
+  public int size(){
+    IntSupplier supplier = size;
+    return (supplier != null) ? supplier.getAsInt() : 0;
+  }
+  
+  /**
+   * Return the current height of the tree (the number of edges on the longest path from root, -1 if the tree is empty), or -1 if no tree uses the metrics
+   * Time complexity: the time complexity of the tree's height() (O(1) for AVLTree, O(N) for BinarySearchTree)
+   */
+  public int height(){
+    IntSupplier supplier = height;
+    return (supplier != null) ? supplier.getAsInt() : -1;
+  }
+  
+  /**
+   * Remove all recorded operations
+   */
+  public void reset(){
+    for(OperationMetrics metrics : operations.values()){
+      metrics.latency.reset();
+      metrics.comparisons.reset();
+      metrics.rotations.reset();
+      metrics.depth.reset();
+    }
+  }
+  
+  /**
+   * Return the current size and height of the tree and a summary of each histogram of each kind of operation, by name in a fixed order
+   * (for example "insert.latency.p99" is the 99th percentile of insert latencies in nanoseconds, and "search.comparisons.mean" is the mean number of comparisons of a search)
+   * Time complexity: O(number of buckets) plus the time complexity of height()
+   */
+  public Map<String,Number> summary(){
+    Map<String,Number> summary = new LinkedHashMap<String,Number>();
+    summary.put("size", size());
+    summary.put("height", height());
+    for(Operation operation : Operation.values()){
+      String prefix = operation.name().toLowerCase(Locale.ROOT) + ".";
+      OperationMetrics metrics = operations.get(operation);
+      summary.put(prefix + "count", metrics.latency.count());
+      summary.put(prefix + "latency.p50", metrics.latency.valueAtPercentile(50));
+      summary.put(prefix + "latency.p99", metrics.latency.valueAtPercentile(99));
+      summary.put(prefix + "latency.p999", metrics.latency.valueAtPercentile(99.9));
+      summary.put(prefix + "latency.max", metrics.latency.max());
+      summary.put(prefix + "comparisons.mean", metrics.comparisons.mean());
+      summary.put(prefix + "comparisons.max", metrics.comparisons.max());
+      summary.put(prefix + "rotations.mean", metrics.rotations.mean());
+      summary.put(prefix + "rotations.max", metrics.rotations.max());
+      summary.put(prefix + "depth.mean", metrics.depth.mean());
+      summary.put(prefix + "depth.max", metrics.depth.max());
+    }
+    return summary;
+  }
+  
+  /**
+   * Pass the metrics to the exporter in input
+   */
+  public void export(MetricsExporter exporter){
+    exporter.export(this);
+  }
+}
\ No newline at end of file
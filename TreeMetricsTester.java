@@ -0,0 +1,293 @@
+import java.io.*;
+import java.lang.management.*;
+import java.nio.file.*;
+import java.util.*;
+import javax.management.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class TreeMetricsTester is the tester class for TreeMetrics and MetricsExporter
+public class TreeMetricsTester{
+  
+  /**
+   * Tests that the histogram keeps small values exactly and large values within the width of their buckets.
+   */
+  @Test
+  public void testHistogram(){
+    TreeMetrics metrics = new TreeMetrics();
+    TreeMetrics.Histogram histogram = metrics.depth(TreeMetrics.Operation.SEARCH);
+    assertEquals(0, histogram.valueAtPercentile(50));
+    for(int value = 1; value <= 100; value++){
+      histogram.record(value);
+    }
+    assertEquals(100, histogram.count());
+    assertEquals(50.5, histogram.mean(), 1e-9);
+    assertEquals(50, histogram.valueAtPercentile(50));
+    assertEquals(99, histogram.valueAtPercentile(99));
+    assertEquals(100, histogram.valueAtPercentile(100));
+    
+    // a large value is found within 1/64 of itself
+    histogram.record(1_000_000_007L);
+    assertEquals(1_000_000_007L, histogram.max());
+    long value = histogram.valueAtPercentile(100);
+    assertTrue(value >= 1_000_000_007L * 63 / 64 && value <= 1_000_000_007L);
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, histogram.valueAtPercentile(100));
+    
+    // test valueAtPercentile with percentile out of bounds
+    try{
+      histogram.valueAtPercentile(101);
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalArgumentException exception");
+    }
+  }
+  
+  /**
+   * Tests that AVLTree records the comparisons, rotations and depth of each operation, and stops recording when the metrics are removed.
+   */
+  @Test
+  public void testAVLTreeMetrics(){
+    AVLTree<Integer, Integer> tree = new AVLTree<Integer, Integer>();
+    TreeMetrics metrics = new TreeMetrics();
+    tree.setMetrics(metrics);
+    assertEquals(-1, metrics.height());
+    for(int i = 0; i < 1023; i++){
+      tree.insert(i, i);
+    }
+    // sorted inserts into an AVL tree make a perfect tree, rotating once for most inserts
+    assertEquals(1023, metrics.size());
+    assertEquals(9, metrics.height());
+    assertEquals(1023, metrics.latency(TreeMetrics.Operation.INSERT).count());
+    assertEquals(1, metrics.rotations(TreeMetrics.Operation.INSERT).max());
+    assertEquals(1013, (long)(metrics.rotations(TreeMetrics.Operation.INSERT).mean() * 1023 + 0.5));
+    
+    tree.search(0);
+    tree.containsKey(511);
+    tree.getOrDefault(-1, -1);
+    TreeMetrics.Histogram depth = metrics.depth(TreeMetrics.Operation.SEARCH);
+    assertEquals(3, depth.count());
+    assertEquals(10, depth.max());
+    assertEquals((10 + 1 + 10) / 3.0, depth.mean(), 1e-9);
+    assertEquals(depth.mean(), metrics.comparisons(TreeMetrics.Operation.SEARCH).mean(), 1e-9);
+    
+    tree.delete(511);
+    tree.delete(2000);
+    assertEquals(2, metrics.latency(TreeMetrics.Operation.DELETE).count());
+    assertEquals(10, metrics.comparisons(TreeMetrics.Operation.DELETE).max());
+    
+    // after the metrics are removed, nothing more is recorded
+    tree.setMetrics(null);
+    tree.search(0);
+    assertEquals(3, depth.count());
+    
+    metrics.reset();
+    assertEquals(0, depth.count());
+    assertEquals(0, depth.max());
+  }
+  
+  /**
+   * Tests that the metrics of a BinarySearchTree built from sorted keys show its degenerate shape.
+   */
+  @Test
+  public void testDegenerateBinarySearchTree(){
+    BinarySearchTree<Integer, Integer> tree = new BinarySearchTree<Integer, Integer>();
+    TreeMetrics metrics = new TreeMetrics();
+    tree.setMetrics(metrics);
+    for(int i = 0; i < 1000; i++){
+      tree.insert(i, i);
+    }
+    assertEquals(999, metrics.height());
+    assertEquals(999, metrics.depth(TreeMetrics.Operation.INSERT).max());
+    assertEquals(1000, metrics.comparisons(TreeMetrics.Operation.INSERT).max());
+    assertEquals(0, metrics.rotations(TreeMetrics.Operation.INSERT).max());
+    tree.search(999);
+    assertEquals(1000, metrics.depth(TreeMetrics.Operation.SEARCH).max());
+    tree.delete(999);
+    assertEquals(1000, metrics.depth(TreeMetrics.Operation.DELETE).max());
+    assertEquals(1000, metrics.comparisons(TreeMetrics.Operation.DELETE).max());
+    tree.rebalance();
+    assertEquals(9, metrics.height());
+  }
+  
+  /**
+   * Tests that every tree supporting metrics records each insert, search and delete and reports its size and height, including the wrappers, which record through the trees they wrap.
+   */
+  @Test
+  public void testEveryTree() throws IOException{
+    List<TreeWithComparableKey<Integer, Integer>> trees = new ArrayList<TreeWithComparableKey<Integer, Integer>>();
+    trees.add(new RedBlackTree<Integer, Integer>());
+    trees.add(new SplayTree<Integer, Integer>());
+    trees.add(new BPlusTree<Integer, Integer>(4));
+    trees.add(new ArrayAVLTree<Integer, Integer>());
+    trees.add(new PersistentAVLTree<Integer, Integer>());
+    trees.add(new ConcurrentAVLTree<Integer, Integer>());
+    trees.add(new ShardedTree<Integer, Integer>(4));
+    trees.add(new CachedTree<Integer, Integer>(new AVLTree<Integer, Integer>(), 16, CachedTree.Policy.LRU));
+    Path directory = Files.createTempDirectory("TreeMetricsTester");
+    DurableTree<Integer, Integer> durableTree = DurableTree.openAVLTree(directory, Codec.INTEGER, Codec.INTEGER, DurableTree.Durability.INTERVAL);
+    trees.add(durableTree);
+    try{
+      for(TreeWithComparableKey<Integer, Integer> tree : trees){
+        String name = tree.getClass().getName();
+        TreeMetrics metrics = new TreeMetrics();
+        tree.setMetrics(metrics);
+        assertEquals(name, 0, metrics.size());
+        Random random = new Random(1);
+        for(int i = 0; i < 1000; i++){
+          int key = random.nextInt(10000);
+          tree.insert(key, key);
+        }
+        for(int i = 0; i < 100; i++){
+          tree.search(random.nextInt(10000));
+        }
+        for(int i = 0; i < 100; i++){
+          tree.delete(random.nextInt(10000));
+        }
+        assertEquals(name, 1000, metrics.latency(TreeMetrics.Operation.INSERT).count());
+        assertEquals(name, 100, metrics.latency(TreeMetrics.Operation.SEARCH).count());
+        assertTrue(name, metrics.latency(TreeMetrics.Operation.DELETE).count() >= 100);
+        assertTrue(name, metrics.comparisons(TreeMetrics.Operation.INSERT).max() > 0);
+        assertTrue(name, metrics.depth(TreeMetrics.Operation.SEARCH).max() > 0);
+        assertEquals(name, tree.size(), metrics.size());
+        if(tree instanceof BPlusTree){
+          // a B+ tree splits and merges nodes instead of rotating, and has one level per power of its fanout
+          assertEquals(name, 0, metrics.rotations(TreeMetrics.Operation.INSERT).max());
+          assertTrue(name, metrics.height() >= 4 && metrics.height() <= 9);
+        }
+        else{
+          // a binary tree of N nodes is at least log2(N) high, and a balanced one at most 2 * log2(N) (the splay tree is not balanced)
+          assertTrue(name, metrics.height() >= 9);
+          if(!(tree instanceof SplayTree)){
+            assertTrue(name, metrics.height() <= 20);
+          }
+        }
+        
+        tree.setMetrics(null);
+        tree.search(0);
+        assertEquals(name, 100, metrics.latency(TreeMetrics.Operation.SEARCH).count());
+      }
+    }
+    finally{
+      durableTree.close();
+      try(DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+        for(Path file : files){
+          Files.delete(file);
+        }
+      }
+      Files.delete(directory);
+    }
+  }
+  
+  /**
+   * Tests that a splay tree records the rotations of the splay done by each search, which moves the key found to the root.
+   */
+  @Test
+  public void testSplayTreeMetrics(){
+    SplayTree<Integer, Integer> tree = new SplayTree<Integer, Integer>();
+    TreeMetrics metrics = new TreeMetrics();
+    tree.setMetrics(metrics);
+    for(int i = 0; i < 100; i++){
+      tree.insert(i, i);
+    }
+    // sorted inserts make a path, so searching the smallest key goes down all of it
+    assertEquals(99, metrics.height());
+    tree.search(0);
+    assertEquals(100, metrics.depth(TreeMetrics.Operation.SEARCH).max());
+    assertEquals(99, metrics.rotations(TreeMetrics.Operation.SEARCH).max());
+    tree.search(0);
+    assertEquals(1, metrics.depth(TreeMetrics.Operation.SEARCH).valueAtPercentile(1));
+    assertEquals(0, metrics.rotations(TreeMetrics.Operation.SEARCH).valueAtPercentile(1));
+  }
+  
+  /**
+   * Tests that a cached tree records hits itself and misses through the tree it wraps, and that a sharded tree keeps recording after its shards are rebuilt.
+   */
+  @Test
+  public void testWrapperMetrics(){
+    CachedTree<Integer, Integer> cachedTree = new CachedTree<Integer, Integer>(new AVLTree<Integer, Integer>(), 16, CachedTree.Policy.LRU);
+    TreeMetrics metrics = new TreeMetrics();
+    cachedTree.setMetrics(metrics);
+    for(int i = 0; i < 1023; i++){
+      cachedTree.insert(i, i);
+    }
+    cachedTree.search(0);
+    cachedTree.search(0);
+    TreeMetrics.Histogram depth = metrics.depth(TreeMetrics.Operation.SEARCH);
+    assertEquals(2, depth.count());
+    assertEquals(10, depth.max());
+    assertEquals(0, depth.valueAtPercentile(1));
+    
+    ShardedTree<Integer, Integer> shardedTree = new ShardedTree<Integer, Integer>(4);
+    metrics = new TreeMetrics();
+    shardedTree.setMetrics(metrics);
+    for(int i = 0; i < 10000; i++){
+      shardedTree.insert(i, i);
+    }
+    assertEquals(4, shardedTree.shardCount());
+    assertEquals(10000, metrics.latency(TreeMetrics.Operation.INSERT).count());
+    assertEquals(10000, metrics.size());
+    assertEquals(shardedTree.height(), metrics.height());
+    shardedTree.search(9999);
+    assertEquals(1, metrics.latency(TreeMetrics.Operation.SEARCH).count());
+  }
+  
+  /**
+   * Tests that trees which do not record metrics throw UnsupportedOperationException from setMetrics, including a cached tree wrapping one.
+   */
+  @Test
+  public void testUnsupportedTree() throws IOException{
+    Path file = Files.createTempFile("TreeMetricsTester", ".bin");
+    try{
+      MappedTree.write(file, Collections.<Map.Entry<Integer, Integer>>emptyIterator(), Codec.INTEGER, Codec.INTEGER);
+      MappedTree<Integer, Integer> mappedTree = MappedTree.open(file, Codec.INTEGER, Codec.INTEGER);
+      try{
+        new CachedTree<Integer, Integer>(mappedTree, 16, CachedTree.Policy.LRU).setMetrics(new TreeMetrics());
+        fail("did not throw exception");
+      }
+      catch(UnsupportedOperationException exception){
+      }
+      catch(Exception exception){
+        fail("did not throw UnsupportedOperationException exception");
+      }
+    }
+    finally{
+      Files.delete(file);
+    }
+  }
+  
+  /**
+   * Tests the text exporter and the JMX exporter.
+   */
+  @Test
+  public void testExporters() throws JMException{
+    AVLTree<Integer, Integer> tree = new AVLTree<Integer, Integer>();
+    TreeMetrics metrics = new TreeMetrics();
+    tree.setMetrics(metrics);
+    tree.insert(2, 2);
+    tree.insert(1, 1);
+    tree.search(1);
+    
+    StringBuilder text = new StringBuilder();
+    metrics.export(MetricsExporter.text(text));
+    List<String> lines = Arrays.asList(text.toString().split("\n"));
+    assertEquals("size 2", lines.get(0));
+    assertEquals("height 1", lines.get(1));
+    assertTrue(lines.contains("insert.count 2"));
+    assertTrue(lines.contains("search.depth.max 2"));
+    
+    String name = "TreeDataStructure:type=TreeMetrics,name=test";
+    metrics.export(MetricsExporter.jmx(name));
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName = new ObjectName(name);
+    assertEquals(2, server.getAttribute(objectName, "size"));
+    tree.insert(3, 3);
+    assertEquals(3L, server.getAttribute(objectName, "insert.count"));
+    assertEquals(metrics.summary().size(), server.getMBeanInfo(objectName).getAttributes().length);
+    // exporting again replaces the MBean
+    metrics.export(MetricsExporter.jmx(name));
+    server.unregisterMBean(objectName);
+  }
+}
\ No newline at end of file
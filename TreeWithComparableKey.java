@@ -1,5 +1,6 @@
 import java.util.*;
-public interface TreeWithComparableKey<T  extends Comparable<? super T>,V>{
+import java.util.stream.*;
+public interface TreeWithComparableKey<T  extends Comparable<? super T>,V> extends Iterable<V>{
   
   /**
    * Insert a node with key and associated value to the tree
@@ -11,11 +12,116 @@ public interface TreeWithComparableKey<T  extends Comparable<? super T>,V>{
    */
   V search(T key);
   
+  /**
+   * Return true if there is a node which has key that is equal to the key from input, or return false otherwise
+   */
+  boolean containsKey(T key);
+  
+  /**
+   * Search for a first node encountered which has key that is equal to the key from input, return that node's value or return defaultValue if there is no such node like that
+   */
+  V getOrDefault(T key, V defaultValue);
+  
+  /**
+   * Return the entry with the largest key which is smaller than or equal to the key from input, or return null if there is no such entry like that
+   */
+  Map.Entry<T,V> floor(T key);
+  
+  /**
+   * Return the entry with the smallest key which is larger than or equal to the key from input, or return null if there is no such entry like that
+   */
+  Map.Entry<T,V> ceiling(T key);
+  
+  /**
+   * Return the entry with the largest key which is smaller than the key from input, or return null if there is no such entry like that
+   */
+  Map.Entry<T,V> lower(T key);
+  
+  /**
+   * Return the entry with the smallest key which is larger than the key from input, or return null if there is no such entry like that
+   */
+  Map.Entry<T,V> higher(T key);
+  
+  /**
+   * Return the entry with the smallest key in the tree, or return null if the tree is empty
+   */
+  Map.Entry<T,V> first();
+  
+  /**
+   * Return the entry with the largest key in the tree, or return null if the tree is empty
+   */
+  Map.Entry<T,V> last();
+  
   /**
    * Delete the node having the key that is equal to key from input if that node exists
    */
   void delete(T key);
   
+  /**
+   * Insert a node for each entry from input; by default, the entries are sorted by key (keeping the order of entries having same key) and inserted one by one,
+   * so that consecutive inserts go down along nearby paths
+   */
+  default void insertAll(Collection<Map.Entry<T,V>> entries){
+    List<Map.Entry<T,V>> sortedEntries = new ArrayList<Map.Entry<T,V>>(entries);
+    sortedEntries.sort(Map.Entry.comparingByKey());
+    for(Map.Entry<T,V> entry : sortedEntries){
+      insert(entry.getKey(), entry.getValue());
+    }
+  }
+  
+  /**
+   * Delete a node having the key that is equal to each key from input if that node exists (a key appearing twice deletes two nodes);
+   * by default, the keys are sorted and deleted one by one, so that consecutive deletes go down along nearby paths
+   */
+  default void deleteAll(Collection<T> keys){
+    List<T> sortedKeys = new ArrayList<T>(keys);
+    Collections.sort(sortedKeys);
+    for(T key : sortedKeys){
+      delete(key);
+    }
+  }
+  
+  /**
+   * Return the list of values found by searching for each key from input, in the same order as the keys (null for a key that is not in the tree)
+   */
+  default List<V> searchAll(List<T> keys){
+    List<V> values = new ArrayList<V>(keys.size());
+    for(T key : keys){
+      values.add(search(key));
+    }
+    return values;
+  }
+  
+  /**
+   * Return the number of nodes in the tree
+   */
+  int size();
+  
+  /**
+   * Return an iterator visiting the values in inorder traversal of the tree lazily
+   */
+  Iterator<V> iterator();
+  
+  /**
+   * Return an iterator visiting the values of the nodes whose keys are between from and to in inorder traversal of the tree lazily
+   * (fromInclusive and toInclusive tell whether the keys that are equal to from and to respectively are visited; null from or null to means there is no lower bound or upper bound respectively)
+   */
+  Iterator<V> rangeIterator(T from, boolean fromInclusive, T to, boolean toInclusive);
+  
+  /**
+   * Return a spliterator over the values in inorder traversal of the tree, which knows the number of values in advance
+   */
+  default Spliterator<V> spliterator(){
+    return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED);
+  }
+  
+  /**
+   * Return a sequential stream of the values in inorder traversal of the tree, without copying them to a list
+   */
+  default Stream<V> stream(){
+    return StreamSupport.stream(spliterator(), false);
+  }
+  
   /**
    * Return the list of values in inorder traversal of the tree
    */
@@ -25,4 +131,22 @@ public interface TreeWithComparableKey<T  extends Comparable<? super T>,V>{
    * Find the kth smallest element in the tree
    */
   V kthSmallest(int k);
+  
+  /**
+   * Return the number of nodes in the tree having key that is smaller than the key from input
+   */
+  int rank(T key);
+  
+  /**
+   * Return the list of values of the nodes from the fromth smallest to the toth smallest element in the tree (both inclusive)
+   */
+  List<V> select(int from, int to);
+  
+  /**
+   * Make the tree record each insert, search and delete into the metrics from input, or stop recording if metrics is null (the default);
+   * by default, the tree does not support metrics and throws UnsupportedOperationException
+   */
+  default void setMetrics(TreeMetrics metrics){
+    throw new UnsupportedOperationException(getClass().getName() + " does not record metrics");
+  }
 }
\ No newline at end of file
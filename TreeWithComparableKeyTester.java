@@ -0,0 +1,576 @@
+import java.util.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class TreeWithComparableKeyTester is the tester class for the methods every TreeWithComparableKey has; the tester class of each tree extends it with newTree(), the checks of the tree's invariants and the tests of the tree's own methods
+public abstract class TreeWithComparableKeyTester{
+  
+  /**
+   * Return a new empty tree of the class being tested
+   */
+  protected abstract <T extends Comparable<? super T>,V> TreeWithComparableKey<T,V> newTree();
+  
+  /**
+   * Check the invariants of the structure of the tree in input, which was made by newTree(), failing if one is broken; the tester class of each tree overrides it with the checks of that tree (no checks by default)
+   */
+  protected void checkInvariants(TreeWithComparableKey<Integer, Integer> tree){
+  }
+  
+  /**
+   * Tests the insert method of the tree.
+   */
+  @Test
+  public void testInsert(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // insert when tree is empty
+    tree.insert(4, "4");
+    String[] result1 = {"4"};
+    assertArrayEquals(result1, tree.inorderRec().toArray());
+    
+    // insert when tree has 1 node
+    tree.insert(7, "7");
+    String[] result2 = {"4", "7"};
+    assertArrayEquals(result2, tree.inorderRec().toArray());
+    
+    // insert when tree has many nodes
+    tree.insert(2, "2");
+    tree.insert(9, "9");
+    tree.insert(1, "1");
+    String[] result3 = {"1", "2", "4", "7", "9"};
+    assertArrayEquals(result3, tree.inorderRec().toArray());
+    
+    // when tree has many nodes, insert node having key that is smaller than a node's key but larger than another node's key when going down in the tree
+    tree.insert(5, "5");
+    String[] result4 = {"1", "2", "4", "5", "7", "9"};
+    assertArrayEquals(result4, tree.inorderRec().toArray());
+  }
+  
+  /**
+   * Tests the search method of the tree.
+   */
+  @Test
+  public void testSearch(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // search when the tree is empty
+    assertNull(tree.search(5));
+    
+    tree.insert(6, "6");
+    
+    // search when the tree has only 1 node
+    assertEquals("6", tree.search(6));
+    
+    // search with key that is not equal to node's key in the tree when the tree has only 1 node
+    assertNull(tree.search(15));
+    
+    tree.insert(4, "4");
+    tree.insert(2, "2");
+    tree.insert(9, "9");
+    
+    // when the tree has many nodes, find value in node in left subtree of the tree's root
+    assertEquals("2", tree.search(2));
+    
+    // when the tree has many nodes, find value in node in right subtree of the tree's root
+    assertEquals("9", tree.search(9));
+    
+    tree.insert(5, "5");
+    
+    // when the tree has many nodes, find value in node having key that is smaller than a node's key but larger than another node's key when going down in the tree
+    assertEquals("5", tree.search(5));
+  }
+  
+  /**
+   * Tests the containsKey method of the tree.
+   */
+  @Test
+  public void testContainsKey(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // test containsKey when the tree is empty
+    assertFalse(tree.containsKey(5));
+    
+    tree.insert(6, "6");
+    tree.insert(4, "4");
+    tree.insert(9, null);
+    
+    // test containsKey with key that is equal to a node's key
+    assertTrue(tree.containsKey(4));
+    
+    // test containsKey with key of a node whose value is null
+    assertTrue(tree.containsKey(9));
+    
+    // test containsKey with key that is not equal to any nodes' keys
+    assertFalse(tree.containsKey(7));
+  }
+  
+  /**
+   * Tests the getOrDefault method of the tree.
+   */
+  @Test
+  public void testGetOrDefault(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // test getOrDefault when the tree is empty
+    assertEquals("none", tree.getOrDefault(5, "none"));
+    
+    tree.insert(6, "6");
+    tree.insert(4, "4");
+    tree.insert(9, "9");
+    
+    // test getOrDefault with key that is equal to a node's key
+    assertEquals("9", tree.getOrDefault(9, "none"));
+    
+    // test getOrDefault with key that is not equal to any nodes' keys
+    assertEquals("none", tree.getOrDefault(7, "none"));
+  }
+  
+  /**
+   * Tests the delete method of the tree.
+   */
+  @Test
+  public void testDelete(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // delete when tree is empty
+    tree.delete(10);
+    String[] result1 = {};
+    assertArrayEquals(result1, tree.inorderRec().toArray());
+    
+    tree.insert(5, "5");
+    
+    // delete with key that is not equal to node's key in the tree when the tree has only 1 node
+    tree.delete(20);
+    String[] result2 = {"5"};
+    assertArrayEquals(result2, tree.inorderRec().toArray());
+    
+    // delete with key that is equal to node's key in the tree when the tree has only 1 node
+    tree.delete(5);
+    String[] result3 = {};
+    assertArrayEquals(result3, tree.inorderRec().toArray());
+    
+    tree.insert(4, "4");
+    tree.insert(2, "2");
+    tree.insert(7, "7");
+    tree.insert(9, "9");
+    tree.insert(1, "1");
+    tree.insert(0, "0");
+    tree.insert(8, "8");
+    tree.insert(3, "3");
+    
+    // delete with key that is not equal to any nodes' keys in the tree when the tree has many nodes
+    tree.delete(12);
+    String[] result4 = {"0", "1", "2", "3", "4", "7", "8", "9"};
+    assertArrayEquals(result4, tree.inorderRec().toArray());
+    
+    // delete node that has no child when the tree has many nodes
+    tree.delete(8);
+    String[] result5 = {"0", "1", "2", "3", "4", "7", "9"};
+    assertArrayEquals(result5, tree.inorderRec().toArray());
+    
+    // delete node that has 1 child when the tree has many nodes
+    tree.delete(1);
+    String[] result6 = {"0", "2", "3", "4", "7", "9"};
+    assertArrayEquals(result6, tree.inorderRec().toArray());
+    
+    // delete node that has 2 children when the tree has many nodes
+    tree.delete(4);
+    String[] result7 = {"0", "2", "3", "7", "9"};
+    assertArrayEquals(result7, tree.inorderRec().toArray());
+  }
+  
+  /**
+   * Tests the inorderRec method of the tree.
+   */
+  @Test
+  public void testInorderRec(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // test inorderRec when tree is empty
+    String[] result1 = {};
+    assertArrayEquals(result1, tree.inorderRec().toArray());
+    
+    tree.insert(6, "6");
+    
+    // test inorderRec when tree has only 1 node
+    String[] result2 = {"6"};
+    assertArrayEquals(result2, tree.inorderRec().toArray());
+    
+    tree.insert(4, "4");
+    tree.insert(3, "3");
+    tree.insert(0, "0");
+    tree.insert(8, "8");
+    tree.insert(1, "1");
+    
+    // test inorderRec when tree has many nodes
+    String[] result3 = {"0", "1", "3", "4", "6", "8"};
+    assertArrayEquals(result3, tree.inorderRec().toArray());
+    
+    // test inorderRec when tree has many nodes inserted in sorted order
+    TreeWithComparableKey<Integer, Integer> sortedTree = newTree();
+    Integer[] result4 = new Integer[20000];
+    for(int i = 0; i < result4.length; i++){
+      sortedTree.insert(i, i);
+      result4[i] = i;
+    }
+    assertArrayEquals(result4, sortedTree.inorderRec().toArray());
+  }
+  
+  /**
+   * Tests the kthSmallest method of the tree.
+   */
+  @Test
+  public void testKthSmallest(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // test kthSmallest when tree is empty
+    try{
+      tree.kthSmallest(2);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+    
+    tree.insert(5, "5");
+    
+    // test kthSmallest with k being 1 when tree has only 1 node
+    assertEquals("5", tree.kthSmallest(1));
+    
+    // test kthSmallest with k being out of bounds when tree has only 1 node
+    try{
+      tree.kthSmallest(12);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+    try{
+      tree.kthSmallest(-5);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+    
+    tree.insert(1, "1");
+    tree.insert(2, "2");
+    tree.insert(7, "7");
+    tree.insert(8, "8");
+    tree.insert(3, "3");
+    tree.insert(0, "0");
+    
+    // test first for kthSmallest when tree has many nodes
+    assertEquals("0", tree.kthSmallest(1));
+    
+    // test middle for kthSmallest when tree has many nodes
+    assertEquals("3", tree.kthSmallest(4));
+    
+    // test last for kthSmallest when tree has many nodes
+    assertEquals("8", tree.kthSmallest(7));
+    
+    // test kthSmallest with k being out of bounds when tree has many nodes
+    try{
+      tree.kthSmallest(-14);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+    try{
+      tree.kthSmallest(20);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+  }
+  
+  /**
+   * Tests the rank method of the tree.
+   */
+  @Test
+  public void testRank(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // test rank when tree is empty
+    assertEquals(0, tree.rank(3));
+    
+    tree.insert(5, "5");
+    tree.insert(1, "1");
+    tree.insert(8, "8");
+    tree.insert(3, "3");
+    tree.insert(7, "7");
+    
+    // test rank with key that is smaller than all nodes' keys
+    assertEquals(0, tree.rank(0));
+    
+    // test rank with key that is equal to a node's key
+    assertEquals(2, tree.rank(5));
+    
+    // test rank with key that is not equal to any nodes' keys
+    assertEquals(3, tree.rank(6));
+    
+    // test rank with key that is larger than all nodes' keys
+    assertEquals(5, tree.rank(10));
+    
+    // test rank after deleting node that has 2 children
+    tree.delete(5);
+    assertEquals(2, tree.rank(7));
+  }
+  
+  /**
+   * Tests the select method of the tree.
+   */
+  @Test
+  public void testSelect(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // test select with empty range when tree is empty
+    String[] result1 = {};
+    assertArrayEquals(result1, tree.select(1, 0).toArray());
+    
+    // test select with range being out of bounds when tree is empty
+    try{
+      tree.select(1, 1);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+    
+    tree.insert(4, "4");
+    tree.insert(2, "2");
+    tree.insert(6, "6");
+    tree.insert(1, "1");
+    tree.insert(3, "3");
+    tree.insert(5, "5");
+    tree.insert(7, "7");
+    
+    // test select with range covering all nodes
+    String[] result2 = {"1", "2", "3", "4", "5", "6", "7"};
+    assertArrayEquals(result2, tree.select(1, 7).toArray());
+    
+    // test select with range in the middle
+    String[] result3 = {"3", "4", "5"};
+    assertArrayEquals(result3, tree.select(3, 5).toArray());
+    
+    // test select with range having only 1 element
+    String[] result4 = {"7"};
+    assertArrayEquals(result4, tree.select(7, 7).toArray());
+    
+    // test select with range being out of bounds when tree has many nodes
+    try{
+      tree.select(0, 3);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+    try{
+      tree.select(5, 8);
+      fail("did not throw exception");
+    }
+    catch(IndexOutOfBoundsException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IndexOutOfBoundsException exception");
+    }
+  }
+  
+  /**
+   * Tests the size method of the tree.
+   */
+  @Test
+  public void testSize(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // test size when tree is empty
+    assertEquals(0, tree.size());
+    
+    tree.insert(4, "4");
+    tree.insert(2, "2");
+    tree.insert(4, "4");
+    
+    // test size when tree has many nodes including nodes having same key
+    assertEquals(3, tree.size());
+    
+    // test size after deleting a node
+    tree.delete(4);
+    assertEquals(2, tree.size());
+    
+    // test size after deleting with key that is not equal to any nodes' keys
+    tree.delete(9);
+    assertEquals(2, tree.size());
+  }
+  
+  /**
+   * Tests the iterator method of the tree.
+   */
+  @Test
+  public void testIterator(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // test iterator when tree is empty
+    Iterator<String> iterator1 = tree.iterator();
+    assertFalse(iterator1.hasNext());
+    try{
+      iterator1.next();
+      fail("did not throw exception");
+    }
+    catch(NoSuchElementException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw NoSuchElementException exception");
+    }
+    
+    tree.insert(5, "5");
+    tree.insert(1, "1");
+    tree.insert(8, "8");
+    tree.insert(3, "3");
+    tree.insert(7, "7");
+    
+    // test iterator when tree has many nodes
+    Iterator<String> iterator2 = tree.iterator();
+    assertEquals("1", iterator2.next());
+    assertEquals("3", iterator2.next());
+    assertEquals("5", iterator2.next());
+    assertEquals("7", iterator2.next());
+    assertTrue(iterator2.hasNext());
+    assertEquals("8", iterator2.next());
+    assertFalse(iterator2.hasNext());
+    
+    // test stream when tree has many nodes
+    String[] result = {"1", "3", "5", "7", "8"};
+    assertArrayEquals(result, tree.stream().toArray());
+  }
+  
+  /**
+   * Tests the floor, ceiling, lower, higher, first and last methods of the tree.
+   */
+  @Test
+  public void testNavigation(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // test navigation methods when tree is empty
+    assertNull(tree.floor(5));
+    assertNull(tree.ceiling(5));
+    assertNull(tree.lower(5));
+    assertNull(tree.higher(5));
+    assertNull(tree.first());
+    assertNull(tree.last());
+    
+    tree.insert(5, "5");
+    tree.insert(1, "1");
+    tree.insert(8, "8");
+    tree.insert(3, "3");
+    tree.insert(7, "7");
+    
+    // test floor and ceiling with key that is equal to a node's key
+    assertEquals("3", tree.floor(3).getValue());
+    assertEquals("3", tree.ceiling(3).getValue());
+    
+    // test floor and ceiling with key that is not equal to any nodes' keys
+    assertEquals(Integer.valueOf(5), tree.floor(6).getKey());
+    assertEquals(Integer.valueOf(7), tree.ceiling(6).getKey());
+    
+    // test lower and higher with key that is equal to a node's key
+    assertEquals("1", tree.lower(3).getValue());
+    assertEquals("5", tree.higher(3).getValue());
+    
+    // test navigation methods with key that is out of the range of the tree's keys
+    assertNull(tree.floor(0));
+    assertNull(tree.lower(1));
+    assertNull(tree.ceiling(9));
+    assertNull(tree.higher(8));
+    
+    // test first and last when tree has many nodes
+    assertEquals("1", tree.first().getValue());
+    assertEquals("8", tree.last().getValue());
+  }
+  
+  /**
+   * Tests the rangeIterator method of the tree.
+   */
+  @Test
+  public void testRangeIterator(){
+    TreeWithComparableKey<Integer, String> tree = newTree();
+    
+    // test rangeIterator when tree is empty
+    assertFalse(tree.rangeIterator(1, true, 5, true).hasNext());
+    
+    for(int i = 0; i < 10; i++){
+      tree.insert(i, String.valueOf(i));
+    }
+    
+    // test rangeIterator with both bounds inclusive
+    List<String> result1 = new ArrayList<String>();
+    tree.rangeIterator(3, true, 6, true).forEachRemaining(result1::add);
+    assertArrayEquals(new String[]{"3", "4", "5", "6"}, result1.toArray());
+    
+    // test rangeIterator with both bounds exclusive
+    List<String> result2 = new ArrayList<String>();
+    tree.rangeIterator(3, false, 6, false).forEachRemaining(result2::add);
+    assertArrayEquals(new String[]{"4", "5"}, result2.toArray());
+    
+    // test rangeIterator with no lower bound and no upper bound
+    List<String> result3 = new ArrayList<String>();
+    tree.rangeIterator(null, true, 2, true).forEachRemaining(result3::add);
+    tree.rangeIterator(8, false, null, true).forEachRemaining(result3::add);
+    assertArrayEquals(new String[]{"0", "1", "2", "9"}, result3.toArray());
+    
+    // test rangeIterator with empty range
+    assertFalse(tree.rangeIterator(6, true, 3, true).hasNext());
+    assertFalse(tree.rangeIterator(4, false, 4, true).hasNext());
+  }
+  
+  
+  /**
+   * Tests the tree against AVLTree on random inserts, deletes and lookups, checking the invariants of the tree after every change.
+   */
+  @Test
+  public void testRandomOperations(){
+    TreeWithComparableKey<Integer, Integer> tree = newTree();
+    AVLTree<Integer, Integer> expectedTree = new AVLTree<Integer, Integer>();
+    Random random = new Random(11);
+    for(int i = 0; i < 20000; i++){
+      int key = random.nextInt(1000);
+      int operation = random.nextInt(5);
+      if(operation <= 1){
+        tree.insert(key, key);
+        expectedTree.insert(key, key);
+        checkInvariants(tree);
+      }
+      else if(operation == 2){
+        tree.delete(key);
+        expectedTree.delete(key);
+        checkInvariants(tree);
+      }
+      else if(operation == 3){
+        assertEquals(expectedTree.search(key), tree.search(key));
+        assertEquals(expectedTree.floor(key), tree.floor(key));
+        assertEquals(expectedTree.higher(key), tree.higher(key));
+        assertEquals(expectedTree.rank(key), tree.rank(key));
+      }
+      else if(expectedTree.size() > 0){
+        int k = random.nextInt(expectedTree.size()) + 1;
+        assertEquals(expectedTree.kthSmallest(k), tree.kthSmallest(k));
+      }
+      assertEquals(expectedTree.size(), tree.size());
+    }
+    assertEquals(expectedTree.inorderRec(), tree.inorderRec());
+  }
+}
\ No newline at end of file
@@ -0,0 +1,422 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+// Class VersionedAVLTree is the multi-version AVL tree in which each key has a chain of (version, value) entries from the newest to the oldest, so a value can be read as of any version still kept
+// Each insert or delete makes a new version; readers go down in the AVL tree without locking by using optimistic reads and then read the chain, which writers only extend at its head,
+// so a reader holding a snapshot sees the tree as of its version while writers proceed; a background collector prunes the entries older than the version of the oldest open snapshot
+// Unlike AVLTree, each key has at most one node: inserting a key that is already in the tree makes a new version of its value
+public class VersionedAVLTree<T extends Comparable<? super T>,V> implements AutoCloseable{
+  
+  // the default time in milliseconds between two runs of the background collector
+  private static final long DEFAULT_COLLECT_INTERVAL = 100;
+  
+  // Class Version is used for an entry in the chain of versions of a key
+  private static class Version<V>{
+    
+    // the version which made the entry
+    private final long version;
+    
+    // the value of the key as of the version (null if the key is deleted)
+    private final V value;
+    
+    // whether the key is deleted as of the version
+    private final boolean deleted;
+    
+    // the next older entry of the chain (null if there is none or it is pruned)
+    private volatile Version<V> older;
+    
+    /**
+     * Initialize the entry with its version, its value, whether it deletes the key and the next older entry
+     */
+    private Version(long version, V value, boolean deleted, Version<V> older){
+      this.version = version;
+      this.value = value;
+      this.deleted = deleted;
+      this.older = older;
+    }
+  }
+  
+  // Class VersionChain is used as the value of each node of the AVL tree, holding the newest entry of the chain of versions of the node's key
+  private static class VersionChain<V>{
+    
+    // the newest entry of the chain
+    private volatile Version<V> newest;
+  }
+  
+  // Class Garbage is used to record a key which got a new version, so the entries it replaced can be pruned once no open snapshot is older than that version
+  private static class Garbage<T>{
+    
+    // the key which got a new version
+    private final T key;
+    
+    // the new version
+    private final long version;
+    
+    /**
+     * Initialize the record with the key and the new version
+     */
+    private Garbage(T key, long version){
+      this.key = key;
+      this.version = version;
+    }
+  }
+  
+  // Class Snapshot is used to read the versioned AVL tree as of one version; the entries needed by the snapshot are not pruned until it is closed
+  public class Snapshot implements AutoCloseable{
+    
+    // the version the snapshot reads
+    private final long version;
+    
+    // whether close() has been called
+    private volatile boolean closed;
+    
+    /**
+     * Initialize the snapshot with the version it reads
+     */
+    private Snapshot(long version){
+      this.version = version;
+    }
+    
+    /**
+     * Return the version the snapshot reads
+     * Time complexity: O(1)
+     */
+    public long version(){
+      return version;
+    }
+    
+    /**
+     * Return the value of the key from input as of the version of the snapshot, or return null if the key is not in the tree as of that version
+     * Time complexity: O(logN + number of versions of the key newer than the version of the snapshot) (N is number of keys in the versioned AVL tree)
+     */
+    public V search(T key){
+      // If the snapshot is closed, its entries may be pruned, so throw IllegalStateException
+      if(closed){
+        throw new IllegalStateException("snapshot is closed");
+      }
+      return VersionedAVLTree.this.search(key, version);
+    }
+    
+    /**
+     * Close the snapshot, so the entries needed only by it can be pruned
+     * Time complexity: O(log(number of open snapshots))
+     */
+    public void close(){
+      synchronized(snapshots){
+        if(closed){
+          return;
+        }
+        closed = true;
+        snapshots.computeIfPresent(version, (snapshotVersion, count) -> (count == 1) ? null : count - 1);
+      }
+    }
+  }
+  
+  // the AVL tree mapping each key to its chain of versions
+  private final AVLTree<T,VersionChain<V>> tree;
+  
+  // the lock used to validate optimistic reads and to serialize writers
+  private final StampedLock lock;
+  
+  // the number of open snapshots of each version (also used as the lock for opening and closing snapshots)
+  private final TreeMap<Long,Integer> snapshots;
+  
+  // the keys which got new versions, in increasing order of version since they are added while holding the write lock
+  private final Queue<Garbage<T>> garbage;
+  
+  // the lock making the runs of the collector one at a time
+  private final Object collectorLock;
+  
+  // the background thread running the collector (null if there is none)
+  private final ScheduledExecutorService collector;
+  
+  // the newest version, whose changes are all done
+  private volatile long currentVersion;
+  
+  // the oldest version which can be read: the entries only needed by older versions may be pruned
+  private volatile long oldestVersion;
+  
+  /**
+   * Initialize the versioned AVL tree with an empty AVL tree and a background collector running every 100 ms
+   */
+  public VersionedAVLTree(){
+    this(DEFAULT_COLLECT_INTERVAL);
+  }
+  
+  /**
+   * Initialize the versioned AVL tree with an empty AVL tree and a background collector running every collectInterval milliseconds
+   * (0 means there is no background collector, so collectGarbage() should be called by the user)
+   */
+  public VersionedAVLTree(long collectInterval){
+    // If collectInterval is negative, throw IllegalArgumentException
+    if(collectInterval < 0){
+      throw new IllegalArgumentException("collectInterval: " + collectInterval);
+    }
+    tree = new AVLTree<T,VersionChain<V>>();
+    lock = new StampedLock();
+    snapshots = new TreeMap<Long,Integer>();
+    garbage = new ConcurrentLinkedQueue<Garbage<T>>();
+    collectorLock = new Object();
+    if(collectInterval > 0){
+      collector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "VersionedAVLTree-collector");
+        thread.setDaemon(true);
+        return thread;
+      });
+      collector.scheduleWithFixedDelay(this::collectGarbage, collectInterval, collectInterval, TimeUnit.MILLISECONDS);
+    }
+    else{
+      collector = null;
+    }
+  }
+  
+  /**
+   * Run reader without locking and return its result if no writer has changed the tree in the meantime;
+   * otherwise (or when reader fails because it sees the tree in the middle of a change), run reader again while holding the read lock
+   * Should only be used for readers going down in the tree along one path, which AVLTree ends with ConcurrentModificationException once it is longer than any AVL tree allows,
+   * so a reader seeing a rotation half done cannot loop forever
+   * Time complexity: the time complexity of reader
+   */
+  private <R> R optimisticRead(Supplier<R> reader){
+    // Try an optimistic read first, which does not block writers and does not write to shared memory
+    long stamp = lock.tryOptimisticRead();
+    if(stamp != 0L){
+      try{
+        R result = reader.get();
+        if(lock.validate(stamp)){
+          return result;
+        }
+      }
+      catch(RuntimeException exception){
+        // If no writer has changed the tree, the exception is the real result of reader, so throw it; otherwise, retry with the read lock
+        if(lock.validate(stamp)){
+          throw exception;
+        }
+      }
+    }
+    // Fall back to the read lock when the optimistic read is invalid
+    long readStamp = lock.readLock();
+    try{
+      return reader.get();
+    }
+    finally{
+      lock.unlockRead(readStamp);
+    }
+  }
+  
+  /**
+   * Help method insert(T key, V value) and delete(T key) by adding an entry with a new version to the chain of the key from input while holding the write lock,
+   * creating the chain if the key is not in the tree; return the new version, or the current version if deleting a key which is already deleted (no version is made)
+   * Time complexity: O(logN) (N is number of keys in the versioned AVL tree)
+   */
+  private long write(T key, V value, boolean deleted){
+    long stamp = lock.writeLock();
+    try{
+      VersionChain<V> chain = tree.search(key);
+      if(deleted && (chain == null || chain.newest.deleted)){
+        return currentVersion;
+      }
+      long version = currentVersion + 1;
+      // If the key is not in the tree, add a node with a new chain; otherwise, the entries replaced by the new one can be pruned later
+      if(chain == null){
+        chain = new VersionChain<V>();
+        tree.insert(key, chain);
+      }
+      else{
+        garbage.add(new Garbage<T>(key, version));
+      }
+      chain.newest = new Version<V>(version, value, deleted, chain.newest);
+      // Make the new version visible only after its change is done
+      currentVersion = version;
+      return version;
+    }
+    finally{
+      lock.unlockWrite(stamp);
+    }
+  }
+  
+  /**
+   * Set the value of the key from input to the value from input in a new version and return that version
+   * Time complexity: O(logN) (N is number of keys in the versioned AVL tree)
+   */
+  public long insert(T key, V value){
+    return write(key, value, false);
+  }
+  
+  /**
+   * Delete the key from input in a new version and return that version; if the key is not in the tree, return the current version without making a new version
+   * Time complexity: O(logN) (N is number of keys in the versioned AVL tree)
+   */
+  public long delete(T key){
+    return write(key, null, true);
+  }
+  
+  /**
+   * Return the value of the key from input as of the current version, or return null if the key is not in the tree;
+   * if the collector prunes past the version read in the meantime, read again as of the newer current version instead of failing
+   * Time complexity: O(logN) (N is number of keys in the versioned AVL tree)
+   */
+  public V search(T key){
+    while(true){
+      long version = currentVersion;
+      V value = findValue(key, version);
+      // If the collector has raised the oldest version past version in the meantime, the entry read may have been pruned, so read again as of the newer current version
+      if(version >= oldestVersion){
+        return value;
+      }
+    }
+  }
+  
+  /**
+   * Return the value of the key from input as of the version from input (the value set by the newest insert or delete of the key whose version is not larger than asOfVersion),
+   * or return null if the key is not in the tree as of that version; asOfVersion should not be older than oldestVersion(), which is kept by opening a snapshot
+   * Time complexity: O(logN + number of versions of the key newer than asOfVersion) (N is number of keys in the versioned AVL tree)
+   */
+  public V search(T key, long asOfVersion){
+    // If asOfVersion is newer than the current version, throw IllegalArgumentException
+    if(asOfVersion > currentVersion){
+      throw new IllegalArgumentException("version " + asOfVersion + " is newer than the current version " + currentVersion);
+    }
+    V value = findValue(key, asOfVersion);
+    // Check the oldest version after reading the chain, since the collector raises it before pruning: if asOfVersion is older, the entry read may have been pruned
+    if(asOfVersion < oldestVersion){
+      throw new IllegalArgumentException("version " + asOfVersion + " is older than the oldest version kept " + oldestVersion);
+    }
+    return value;
+  }
+  
+  /**
+   * Help method search(T key) and search(T key, long asOfVersion) by returning the value of the key from input as of the version from input, or null if the key is not in the tree as of that version;
+   * the value may be wrong if asOfVersion is older than oldestVersion after it returns, since the entry read may have been pruned meanwhile
+   * Time complexity: O(logN + number of versions of the key newer than asOfVersion) (N is number of keys in the versioned AVL tree)
+   */
+  private V findValue(T key, long asOfVersion){
+    VersionChain<V> chain = optimisticRead(() -> tree.search(key));
+    // value is the value as of asOfVersion, found by going from the newest entry of the chain to the first entry whose version is not larger than asOfVersion
+    V value = null;
+    if(chain != null){
+      for(Version<V> entry = chain.newest; entry != null; entry = entry.older){
+        if(entry.version <= asOfVersion){
+          value = entry.value;
+          break;
+        }
+      }
+    }
+    return value;
+  }
+  
+  /**
+   * Return the newest version, whose changes are all visible
+   * Time complexity: O(1)
+   */
+  public long currentVersion(){
+    return currentVersion;
+  }
+  
+  /**
+   * Return the oldest version which can still be read by search(T key, long asOfVersion)
+   * Time complexity: O(1)
+   */
+  public long oldestVersion(){
+    return oldestVersion;
+  }
+  
+  /**
+   * Open a snapshot reading the versioned AVL tree as of the current version; the snapshot should be closed when it is not used anymore so that old entries can be pruned
+   * Time complexity: O(log(number of open snapshots))
+   */
+  public Snapshot openSnapshot(){
+    // Read the current version while holding the lock of snapshots, so the collector either sees the snapshot or runs before the snapshot's version is read
+    synchronized(snapshots){
+      long version = currentVersion;
+      snapshots.merge(version, 1, Integer::sum);
+      return new Snapshot(version);
+    }
+  }
+  
+  /**
+   * Prune the entries which cannot be read anymore because they are older than the version of the oldest open snapshot (or the current version if no snapshot is open),
+   * and delete the nodes of keys which are deleted as of that version; return the number of entries pruned
+   * Only the keys which got new versions are visited, and nodes are deleted while holding the write lock one at a time, so writers are not blocked for long
+   * Time complexity: O(GlogN) (N is number of keys in the versioned AVL tree, G is number of entries replaced since the last run)
+   */
+  public int collectGarbage(){
+    synchronized(collectorLock){
+      // oldest is the version of the oldest open snapshot, or the current version if no snapshot is open
+      long oldest;
+      synchronized(snapshots){
+        oldest = snapshots.isEmpty() ? currentVersion : snapshots.firstKey();
+      }
+      // Raise the oldest version before pruning, so readers of older versions see that the entries they read may be pruned
+      if(oldest > oldestVersion){
+        oldestVersion = oldest;
+      }
+      // pruned is used to store the number of entries pruned
+      int pruned = 0;
+      while(!garbage.isEmpty() && garbage.peek().version <= oldest){
+        pruned += prune(garbage.poll().key, oldest);
+      }
+      return pruned;
+    }
+  }
+  
+  /**
+   * Help method collectGarbage() by cutting the chain of the key from input after its newest entry whose version is not larger than oldest (the entry read as of oldest and all newer versions),
+   * then deleting the key's node while holding the write lock if that entry deletes the key and is still the newest entry; return the number of entries pruned
+   * Time complexity: O(logN + number of entries of the key) (N is number of keys in the versioned AVL tree)
+   */
+  private int prune(T key, long oldest){
+    VersionChain<V> chain = optimisticRead(() -> tree.search(key));
+    // If the key's node is already deleted by an earlier run, there is nothing to prune
+    if(chain == null){
+      return 0;
+    }
+    // kept is the newest entry whose version is not larger than oldest, which is the last entry to keep
+    Version<V> kept = chain.newest;
+    while(kept != null && kept.version > oldest){
+      kept = kept.older;
+    }
+    if(kept == null){
+      return 0;
+    }
+    // count is used to store the number of entries pruned
+    int count = 0;
+    for(Version<V> entry = kept.older; entry != null; entry = entry.older){
+      count++;
+    }
+    kept.older = null;
+    // If the key is deleted as of oldest and has no newer entry, no version which can be read sees the key, so delete its node
+    if(kept.deleted && chain.newest == kept){
+      long stamp = lock.writeLock();
+      try{
+        // Check again while holding the write lock, since a writer may have added a newer entry in the meantime
+        if(chain.newest == kept && tree.search(key) == chain){
+          tree.delete(key);
+          count++;
+        }
+      }
+      finally{
+        lock.unlockWrite(stamp);
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Return the number of keys having a node in the versioned AVL tree, including the deleted keys whose nodes are not pruned yet
+   * Time complexity: O(1)
+   */
+  public int nodeCount(){
+    return optimisticRead(() -> tree.size());
+  }
+  
+  /**
+   * Stop the background collector; the versioned AVL tree can still be used, and collectGarbage() can still be called by the user
+   */
+  public void close(){
+    if(collector != null){
+      collector.shutdownNow();
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,212 @@
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+// Class VersionedAVLTreeTester is the tester class for VersionedAVLTree
+public class VersionedAVLTreeTester{
+  
+  /**
+   * Tests that search with a version returns the value of each key as of that version while a snapshot keeps the versions.
+   */
+  @Test
+  public void testPointInTimeReads(){
+    VersionedAVLTree<Integer, String> tree = new VersionedAVLTree<Integer, String>(0);
+    VersionedAVLTree<Integer, String>.Snapshot snapshot = tree.openSnapshot();
+    assertEquals(0, snapshot.version());
+    
+    assertEquals(1, tree.insert(4, "4"));
+    assertEquals(2, tree.insert(2, "2"));
+    assertEquals(3, tree.insert(4, "second4"));
+    assertEquals(4, tree.delete(2));
+    // deleting a key which is not in the tree makes no version
+    assertEquals(4, tree.delete(2));
+    assertEquals(4, tree.delete(9));
+    assertEquals(5, tree.insert(2, "second2"));
+    
+    assertNull(tree.search(4, 0));
+    assertEquals("4", tree.search(4, 1));
+    assertEquals("4", tree.search(4, 2));
+    assertEquals("second4", tree.search(4, 3));
+    assertEquals("2", tree.search(2, 3));
+    assertNull(tree.search(2, 4));
+    assertEquals("second2", tree.search(2));
+    assertEquals("second4", tree.search(4));
+    assertNull(snapshot.search(4));
+    
+    // test search with a version newer than the current version
+    try{
+      tree.search(4, 6);
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalArgumentException exception");
+    }
+    snapshot.close();
+  }
+  
+  /**
+   * Tests that collectGarbage prunes only the versions older than the oldest open snapshot and deletes the nodes of deleted keys.
+   */
+  @Test
+  public void testCollectGarbage(){
+    VersionedAVLTree<Integer, String> tree = new VersionedAVLTree<Integer, String>(0);
+    tree.insert(1, "1");
+    tree.insert(2, "2");
+    VersionedAVLTree<Integer, String>.Snapshot snapshot = tree.openSnapshot();
+    tree.insert(1, "second1");
+    tree.delete(2);
+    VersionedAVLTree<Integer, String>.Snapshot newerSnapshot = tree.openSnapshot();
+    tree.insert(1, "third1");
+    
+    // nothing is older than the oldest snapshot yet
+    assertEquals(0, tree.collectGarbage());
+    assertEquals(2, tree.oldestVersion());
+    assertEquals("1", snapshot.search(1));
+    assertEquals("2", snapshot.search(2));
+    
+    // after the oldest snapshot is closed, the first version of key 1 is pruned, and the node of key 2 is deleted since the newer snapshot sees key 2 deleted
+    snapshot.close();
+    assertEquals(3, tree.collectGarbage());
+    assertEquals(4, tree.oldestVersion());
+    assertEquals("second1", newerSnapshot.search(1));
+    assertNull(newerSnapshot.search(2));
+    assertEquals(1, tree.nodeCount());
+    
+    // test search with a version older than the oldest version kept, and a closed snapshot
+    try{
+      tree.search(1, 1);
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalArgumentException exception");
+    }
+    try{
+      snapshot.search(1);
+      fail("did not throw exception");
+    }
+    catch(IllegalStateException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalStateException exception");
+    }
+    
+    // after all snapshots are closed, only the newest entry of key 1 is kept
+    newerSnapshot.close();
+    assertEquals(1, tree.collectGarbage());
+    assertEquals(1, tree.nodeCount());
+    assertEquals("third1", tree.search(1));
+    assertNull(tree.search(2));
+    tree.insert(2, "second2");
+    assertEquals("second2", tree.search(2));
+  }
+  
+  /**
+   * Tests that snapshots see a consistent version of the tree while a writer and the background collector run at the same time.
+   */
+  @Test
+  public void testConcurrentSnapshots() throws InterruptedException{
+    VersionedAVLTree<Integer, Integer> tree = new VersionedAVLTree<Integer, Integer>(1);
+    // the writer sets key (i % 100) to i in a version larger than i, sometimes deleting the next key
+    AtomicBoolean failed = new AtomicBoolean();
+    Thread writer = new Thread(() -> {
+      for(int i = 0; i < 100000; i++){
+        tree.insert(i % 100, i);
+        if(i % 1000 == 0){
+          tree.delete(i % 100 + 1);
+        }
+      }
+    });
+    List<Thread> readers = new ArrayList<Thread>();
+    for(int t = 0; t < 4; t++){
+      readers.add(new Thread(() -> {
+        Random random = new Random();
+        for(int i = 0; i < 2000 && !failed.get(); i++){
+          VersionedAVLTree<Integer, Integer>.Snapshot snapshot = tree.openSnapshot();
+          int key = random.nextInt(100);
+          Integer first = snapshot.search(key);
+          Thread.yield();
+          // the value read again later is the same, and is never newer than the snapshot
+          if(!Objects.equals(first, snapshot.search(key)) || (first != null && first >= snapshot.version())){
+            failed.set(true);
+          }
+          snapshot.close();
+        }
+      }));
+    }
+    writer.start();
+    for(Thread reader : readers){
+      reader.start();
+    }
+    writer.join();
+    for(Thread reader : readers){
+      reader.join();
+    }
+    tree.close();
+    assertFalse(failed.get());
+    tree.collectGarbage();
+    for(int k = 0; k < 100; k++){
+      assertEquals(Integer.valueOf(99900 + k), tree.search(k));
+    }
+    assertEquals(100, tree.nodeCount());
+  }
+  
+  // Class HookedKey is used as a key which runs a hook the first time it is compared, so a test can change the tree in the middle of a search
+  private static class HookedKey implements Comparable<HookedKey>{
+    
+    // the key compared
+    private final int key;
+    
+    // the hook to run at the first comparison (null if there is none or it has run)
+    private Runnable hook;
+    
+    private HookedKey(int key, Runnable hook){
+      this.key = key;
+      this.hook = hook;
+    }
+    
+    public int compareTo(HookedKey other){
+      Runnable runnable = hook;
+      hook = null;
+      if(runnable != null){
+        runnable.run();
+      }
+      return Integer.compare(key, other.key);
+    }
+  }
+  
+  /**
+   * Tests that a read of the current version does not fail when the collector prunes past that version while the read is going on.
+   */
+  @Test
+  public void testReadWhileCollecting(){
+    VersionedAVLTree<HookedKey, String> tree = new VersionedAVLTree<HookedKey, String>(0);
+    tree.insert(new HookedKey(1, null), "1");
+    tree.insert(new HookedKey(1, null), "second1");
+    // the search reads version 2, then a writer makes version 3 and the collector prunes the entry of version 2 before the search reads the chain
+    HookedKey key = new HookedKey(1, () -> {
+      tree.insert(new HookedKey(1, null), "third1");
+      tree.collectGarbage();
+    });
+    assertEquals("third1", tree.search(key));
+    assertEquals(3, tree.oldestVersion());
+    
+    // a read as of an explicit version which is pruned in the meantime still fails
+    HookedKey otherKey = new HookedKey(1, () -> {
+      tree.insert(new HookedKey(1, null), "fourth1");
+      tree.collectGarbage();
+    });
+    try{
+      tree.search(otherKey, 3);
+      fail("did not throw exception");
+    }
+    catch(IllegalArgumentException exception){
+    }
+    catch(Exception exception){
+      fail("did not throw IllegalArgumentException exception");
+    }
+  }
+}
\ No newline at end of file
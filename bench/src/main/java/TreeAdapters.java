@@ -0,0 +1,66 @@
+import benchmarks.BenchmarkTree;
+import java.util.*;
+// Class TreeAdapters creates the trees implementing TreeWithComparableKey for the benchmarks, since only code in the default package can refer to them
+public final class TreeAdapters{
+  
+  // the number of keys cached by CachedAVLTree
+  private static final int CACHE_CAPACITY = 1 << 14;
+  
+  private TreeAdapters(){
+  }
+  
+  /**
+   * Return an empty tree of the class with the name in input, wrapped as a BenchmarkTree
+   */
+  public static BenchmarkTree create(String implementation){
+    switch(implementation){
+      case "AVLTree":
+        return new OfTree(new AVLTree<Integer, Integer>());
+      case "BinarySearchTree":
+        return new OfTree(new BinarySearchTree<Integer, Integer>());
+      case "ArrayAVLTree":
+        return new OfTree(new ArrayAVLTree<Integer, Integer>());
+      case "BPlusTree":
+        return new OfTree(new BPlusTree<Integer, Integer>());
+      case "RedBlackTree":
+        return new OfTree(new RedBlackTree<Integer, Integer>());
+      case "SplayTree":
+        return new OfTree(new SplayTree<Integer, Integer>());
+      case "CachedAVLTree":
+        return new OfTree(new CachedTree<Integer, Integer>(new AVLTree<Integer, Integer>(), CACHE_CAPACITY, CachedTree.Policy.ARC));
+      default:
+        throw new IllegalArgumentException("unknown implementation: " + implementation);
+    }
+  }
+  
+  // Class OfTree is used to run the benchmarks on a tree implementing TreeWithComparableKey
+  private static final class OfTree implements BenchmarkTree{
+    
+    // the tree to run the benchmarks on
+    private final TreeWithComparableKey<Integer, Integer> tree;
+    
+    private OfTree(TreeWithComparableKey<Integer, Integer> tree){
+      this.tree = tree;
+    }
+    
+    public void insert(Integer key){
+      tree.insert(key, key);
+    }
+    
+    public Integer search(Integer key){
+      return tree.search(key);
+    }
+    
+    public void delete(Integer key){
+      tree.delete(key);
+    }
+    
+    public Integer kthSmallest(int k){
+      return tree.kthSmallest(k);
+    }
+    
+    public List<Integer> inorderRec(){
+      return tree.inorderRec();
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.util.*;
+// Interface BenchmarkTree is used to run the same benchmarks on the trees implementing TreeWithComparableKey and on java.util.TreeMap as a baseline
+public interface BenchmarkTree{
+  
+  /**
+   * Insert key with key itself as the value
+   */
+  void insert(Integer key);
+  
+  /**
+   * Return the value associated with key, or null if there is no such key
+   */
+  Integer search(Integer key);
+  
+  /**
+   * Delete key if it exists
+   */
+  void delete(Integer key);
+  
+  /**
+   * Return the kth smallest value
+   */
+  Integer kthSmallest(int k);
+  
+  /**
+   * Return the list of values in ascending order of keys
+   */
+  List<Integer> inorderRec();
+  
+  /**
+   * Return an empty tree of the implementation with the name in input: TreeMap, or the name of a class implementing TreeWithComparableKey
+   * The trees live in the default package, which cannot be imported from a named package, so they are created by TreeAdapters through reflection (only here, not on each operation)
+   */
+  static BenchmarkTree create(String implementation){
+    if(implementation.equals("TreeMap")){
+      return new OfTreeMap();
+    }
+    try{
+      return (BenchmarkTree)Class.forName("TreeAdapters").getMethod("create", String.class).invoke(null, implementation);
+    }
+    catch(ReflectiveOperationException exception){
+      throw new IllegalArgumentException("cannot create implementation: " + implementation, exception);
+    }
+  }
+  
+  // Class OfTreeMap is used to run the benchmarks on java.util.TreeMap, which has no order statistics, so kthSmallest walks k entries
+  final class OfTreeMap implements BenchmarkTree{
+    
+    // the map to run the benchmarks on
+    private final TreeMap<Integer, Integer> map = new TreeMap<Integer, Integer>();
+    
+    public void insert(Integer key){
+      map.put(key, key);
+    }
+    
+    public Integer search(Integer key){
+      return map.get(key);
+    }
+    
+    public void delete(Integer key){
+      map.remove(key);
+    }
+    
+    public Integer kthSmallest(int k){
+      if(k < 1 || k > map.size()){
+        throw new IndexOutOfBoundsException("k: " + k + ", size: " + map.size());
+      }
+      Iterator<Integer> iterator = map.values().iterator();
+      for(int i = 1; i < k; i++){
+        iterator.next();
+      }
+      return iterator.next();
+    }
+    
+    public List<Integer> inorderRec(){
+      return new ArrayList<Integer>(map.values());
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import java.util.*;
+// Enum KeyDistribution is used to choose the order of keys inserted into a tree and the keys looked up in benchmarks (the keys are always 0 to size - 1)
+public enum KeyDistribution{
+  
+  // keys are inserted in random order and looked up uniformly at random
+  RANDOM,
+  
+  // keys are inserted in ascending order and looked up uniformly at random
+  SORTED,
+  
+  // keys are inserted in random order and looked up following a Zipfian distribution, so a few hot keys take most lookups
+  ZIPFIAN;
+  
+  // the exponent of the Zipfian distribution (values close to 1 are typical of real workloads)
+  private static final double ZIPFIAN_EXPONENT = 0.99;
+  
+  // an odd prime used to scatter the hot keys of the Zipfian distribution over the whole key range
+  private static final long SCATTER_PRIME = 1_000_000_007L;
+  
+  /**
+   * Return the keys from 0 to size - 1 in the order they should be inserted into a tree
+   */
+  public int[] insertionOrder(int size, Random random){
+    int[] keys = new int[size];
+    for(int i = 0; i < size; i++){
+      keys[i] = i;
+    }
+    // Shuffle the keys unless they should be inserted in ascending order
+    if(this != SORTED){
+      for(int i = size - 1; i > 0; i--){
+        int j = random.nextInt(i + 1);
+        int key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+      }
+    }
+    return keys;
+  }
+  
+  /**
+   * Return count keys between 0 and size - 1 to look up in a tree
+   */
+  public int[] lookupKeys(int size, int count, Random random){
+    int[] keys = new int[count];
+    for(int i = 0; i < count; i++){
+      keys[i] = (this == ZIPFIAN) ? zipfianKey(size, random) : random.nextInt(size);
+    }
+    return keys;
+  }
+  
+  /**
+   * Return a key between 0 and size - 1 whose probability is proportional to 1 / rank^ZIPFIAN_EXPONENT,
+   * by inverting the continuous approximation of the Zipfian distribution and scattering each rank to a different key
+   */
+  private static int zipfianKey(int size, Random random){
+    double exponent = 1 - ZIPFIAN_EXPONENT;
+    double rank = Math.pow((Math.pow(size, exponent) - 1) * random.nextDouble() + 1, 1 / exponent);
+    long zeroBasedRank = Math.min((long)rank - 1, size - 1);
+    return (int)((zeroBasedRank * SCATTER_PRIME) % size);
+  }
+}
@@ -0,0 +1,235 @@
+package benchmarks;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+// Class TreeBenchmark measures insert, search, delete, kthSmallest, inorderRec and mixes of reads and writes on each tree across sizes and key distributions, with java.util.TreeMap as a baseline
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TreeBenchmark{
+  
+  // the number of precomputed keys or ranks cycled through by the read benchmarks (a power of 2 so the next index can be found with a mask)
+  private static final int LOOKUPS = 1 << 16;
+  
+  // the largest size for which a BinarySearchTree is built from sorted keys, since it degenerates into a linked list and takes O(N^2) time to build
+  private static final int MAX_DEGENERATE_SIZE = 100_000;
+  
+  // Class TreeState holds the parameters shared by all benchmarks
+  @State(Scope.Benchmark)
+  public static class TreeState{
+    
+    @Param({"AVLTree", "BinarySearchTree", "ArrayAVLTree", "BPlusTree", "RedBlackTree", "SplayTree", "CachedAVLTree", "TreeMap"})
+    public String implementation;
+    
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+    
+    @Param({"RANDOM", "SORTED", "ZIPFIAN"})
+    public KeyDistribution distribution;
+    
+    /**
+     * Return a tree with all keys from 0 to size - 1 inserted in the order of the distribution
+     */
+    protected BenchmarkTree buildTree(int[] insertionKeys){
+      if(implementation.equals("BinarySearchTree") && distribution == KeyDistribution.SORTED && size > MAX_DEGENERATE_SIZE){
+        throw new IllegalStateException("BinarySearchTree built from " + size + " sorted keys degenerates into a linked list; skipped");
+      }
+      BenchmarkTree tree = BenchmarkTree.create(implementation);
+      for(int key : insertionKeys){
+        tree.insert(key);
+      }
+      return tree;
+    }
+  }
+  
+  // Class ReadState holds a tree built once per trial and the keys and ranks looked up in it
+  public static class ReadState extends TreeState{
+    
+    // the tree to read from
+    public BenchmarkTree tree;
+    
+    // the keys to search for
+    public int[] lookupKeys;
+    
+    // the ranks to find with kthSmallest (from 1 to size)
+    public int[] ranks;
+    
+    // the index of the next key or rank to use
+    public int next;
+    
+    @Setup(Level.Trial)
+    public void setUp(){
+      Random random = new Random(42);
+      tree = buildTree(distribution.insertionOrder(size, random));
+      lookupKeys = distribution.lookupKeys(size, LOOKUPS, random);
+      ranks = new int[LOOKUPS];
+      for(int i = 0; i < LOOKUPS; i++){
+        ranks[i] = random.nextInt(size) + 1;
+      }
+    }
+    
+    /**
+     * Return the index of the next key or rank to use
+     */
+    public int nextIndex(){
+      next = (next + 1) & (LOOKUPS - 1);
+      return next;
+    }
+  }
+  
+  // Class EmptyTreeState holds an empty tree and the keys to insert into it, renewed before each iteration
+  public static class EmptyTreeState extends TreeState{
+    
+    // the keys to insert in order
+    public int[] insertionKeys;
+    
+    // the empty tree
+    public BenchmarkTree tree;
+    
+    @Setup(Level.Trial)
+    public void setUpKeys(){
+      insertionKeys = distribution.insertionOrder(size, new Random(42));
+    }
+    
+    @Setup(Level.Iteration)
+    public void setUpTree(){
+      if(implementation.equals("BinarySearchTree") && distribution == KeyDistribution.SORTED && size > MAX_DEGENERATE_SIZE){
+        throw new IllegalStateException("BinarySearchTree built from " + size + " sorted keys degenerates into a linked list; skipped");
+      }
+      tree = BenchmarkTree.create(implementation);
+    }
+  }
+  
+  // Class FullTreeState holds a tree with all keys and the order to delete them in, rebuilt before each iteration
+  public static class FullTreeState extends TreeState{
+    
+    // the keys in the order they were inserted
+    public int[] insertionKeys;
+    
+    // the keys in the order to delete them
+    public int[] deletionKeys;
+    
+    // the tree with all keys
+    public BenchmarkTree tree;
+    
+    @Setup(Level.Trial)
+    public void setUpKeys(){
+      Random random = new Random(42);
+      insertionKeys = distribution.insertionOrder(size, random);
+      deletionKeys = distribution.insertionOrder(size, random);
+    }
+    
+    @Setup(Level.Iteration)
+    public void setUpTree(){
+      tree = buildTree(insertionKeys);
+    }
+  }
+  
+  // Class MixedState holds a tree built once per trial and a sequence of searches and writes on keys chosen by the distribution
+  public static class MixedState extends ReadState{
+    
+    // the percentage of operations which are writes (the others are searches)
+    @Param({"50"})
+    public int writePercent;
+    
+    // whether each operation is a write
+    public boolean[] writes;
+    
+    // whether each key is in the tree, so that a write on a key deletes it if it is there and inserts it back otherwise, keeping the size close to size
+    public boolean[] present;
+    
+    @Setup(Level.Trial)
+    public void setUpOperations(){
+      Random random = new Random(43);
+      writes = new boolean[LOOKUPS];
+      for(int i = 0; i < LOOKUPS; i++){
+        writes[i] = random.nextInt(100) < writePercent;
+      }
+      present = new boolean[size];
+      Arrays.fill(present, true);
+    }
+  }
+  
+  /**
+   * Measure one search for a key chosen by the distribution
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Integer search(ReadState state){
+    return state.tree.search(state.lookupKeys[state.nextIndex()]);
+  }
+  
+  /**
+   * Measure one kthSmallest call for a uniformly random rank
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Integer kthSmallest(ReadState state){
+    return state.tree.kthSmallest(state.ranks[state.nextIndex()]);
+  }
+  
+  /**
+   * Measure copying all values in order
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public List<Integer> inorderRec(ReadState state){
+    return state.tree.inorderRec();
+  }
+  
+  /**
+   * Measure inserting all keys into an empty tree in the order of the distribution
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public BenchmarkTree insert(EmptyTreeState state){
+    for(int key : state.insertionKeys){
+      state.tree.insert(key);
+    }
+    return state.tree;
+  }
+  
+  /**
+   * Measure deleting all keys from a full tree in random order (ascending order for the sorted distribution)
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public BenchmarkTree delete(FullTreeState state){
+    for(int key : state.deletionKeys){
+      state.tree.delete(key);
+    }
+    return state.tree;
+  }
+  
+  /**
+   * Measure one operation of a mix of searches and writes (writePercent percent are writes, each deleting or inserting back a key chosen by the distribution)
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Integer readWriteMix(MixedState state){
+    int index = state.nextIndex();
+    int key = state.lookupKeys[index];
+    if(!state.writes[index]){
+      return state.tree.search(key);
+    }
+    if(state.present[key]){
+      state.tree.delete(key);
+    }
+    else{
+      state.tree.insert(key);
+    }
+    state.present[key] = !state.present[key];
+    return null;
+  }
+}